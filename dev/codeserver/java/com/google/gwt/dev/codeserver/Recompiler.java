@@ -21,6 +21,7 @@ import com.google.gwt.core.ext.TreeLogger.Type;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.linker.CrossSiteIframeLinker;
 import com.google.gwt.core.linker.IFrameLinker;
+import com.google.gwt.dev.About;
 import com.google.gwt.dev.Compiler;
 import com.google.gwt.dev.CompilerContext;
 import com.google.gwt.dev.CompilerOptions;
@@ -35,18 +36,31 @@ import com.google.gwt.dev.cfg.ModuleDefLoader;
 import com.google.gwt.dev.cfg.ResourceLoader;
 import com.google.gwt.dev.cfg.ResourceLoaders;
 import com.google.gwt.dev.javac.UnitCacheSingleton;
+import com.google.gwt.dev.jjs.JJSOptionsImpl;
 import com.google.gwt.dev.resource.impl.ResourceOracleImpl;
 import com.google.gwt.dev.resource.impl.ZipFileClassPathEntry;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.log.CompositeTreeLogger;
 import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
 import com.google.gwt.thirdparty.guava.common.base.Joiner;
 import com.google.gwt.thirdparty.guava.common.collect.ImmutableMap;
 import com.google.gwt.thirdparty.guava.common.collect.Maps;
+import com.google.gwt.util.tools.Utility;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -62,6 +76,24 @@ class Recompiler {
   private int compilesDone = 0;
   private MinimalRebuildCache minimalRebuildCache;
 
+  /**
+   * Whether the last compile changed the minimal rebuild cache since it was last saved.
+   */
+  private boolean minimalRebuildCacheUnsaved;
+
+  /**
+   * Saves the minimal rebuild cache after a compile, so that the compile does not wait for it.
+   */
+  private final ExecutorService minimalRebuildCacheSaver =
+      Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "MinimalRebuildCacheSaver");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
   // after renaming
   private AtomicReference<String> moduleName = new AtomicReference<String>(null);
 
@@ -88,13 +120,17 @@ class Recompiler {
   CompileDir recompile(Map<String, String> bindingProperties, AtomicReference<Progress> progress)
       throws UnableToCompleteException {
     if (options.shouldCompilePerFile()) {
-      return compile(bindingProperties, progress, minimalRebuildCache);
+      return compile(bindingProperties, progress,
+          minimalRebuildCache != null ? minimalRebuildCache : loadMinimalRebuildCache());
     }
     return compile(bindingProperties, progress, new MinimalRebuildCache());
   }
 
   synchronized CompileDir compile(Map<String, String> bindingProperties,
       AtomicReference<Progress> progress) throws UnableToCompleteException {
+    if (options.shouldCompilePerFile()) {
+      return compile(bindingProperties, progress, loadMinimalRebuildCache());
+    }
     return compile(bindingProperties, progress, new MinimalRebuildCache());
   }
 
@@ -151,6 +187,9 @@ class Recompiler {
 
     // keep the minimal rebuild cache for the next compile
     this.minimalRebuildCache = minimalRebuildCache;
+    if (minimalRebuildCacheUnsaved) {
+      saveMinimalRebuildCacheLater();
+    }
 
     long elapsedTime = System.currentTimeMillis() - startTime;
     compileLogger.log(TreeLogger.Type.INFO,
@@ -264,6 +303,7 @@ class Recompiler {
     if (success) {
       publishedCompileDir = compileDir;
       lastBuildInput = input;
+      minimalRebuildCacheUnsaved = options.shouldCompilePerFile();
     } else {
       // always recompile after an error
       lastBuildInput = null;
@@ -288,6 +328,56 @@ class Recompiler {
     return resourceLoader.get();
   }
 
+  /**
+   * Returns a key for the version of GWT, the module and the compiler options that the minimal
+   * rebuild cache is built with. A saved cache is only reused by a code server with the same key.
+   */
+  private String getMinimalRebuildCacheKey() {
+    ByteArrayOutputStream optionsBytes = new ByteArrayOutputStream();
+    try {
+      Util.writeObjectToStream(optionsBytes,
+          new JJSOptionsImpl(new CompilerOptionsImpl(null, originalModuleName, options)));
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected IOException on in-memory stream", e);
+    }
+    return About.getGwtVersionNum() + ":" + originalModuleName + ":"
+        + Util.computeStrongName(optionsBytes.toByteArray());
+  }
+
+  /**
+   * Returns the minimal rebuild cache saved by a previous code server for this app, or an empty
+   * one if there is none or it was saved with different options. The content ids recorded in the
+   * cache let the compiler find the units that changed since it was saved.
+   */
+  private MinimalRebuildCache loadMinimalRebuildCache() {
+    File file = appSpace.getMinimalRebuildCacheFile();
+    if (!file.isFile()) {
+      return new MinimalRebuildCache();
+    }
+    ObjectInputStream stream = null;
+    try {
+      stream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (getMinimalRebuildCacheKey().equals(stream.readObject())) {
+        MinimalRebuildCache cache = (MinimalRebuildCache) stream.readObject();
+        logger.log(TreeLogger.Type.INFO, "Loaded minimal rebuild cache from " + file);
+        return cache;
+      }
+      logger.log(TreeLogger.Type.INFO,
+          "Ignoring minimal rebuild cache saved with different compiler options: " + file);
+    } catch (ClassNotFoundException e) {
+      logger.log(TreeLogger.Type.WARN, "Ignoring unreadable minimal rebuild cache: " + file, e);
+    } catch (ClassCastException e) {
+      logger.log(TreeLogger.Type.WARN, "Ignoring unreadable minimal rebuild cache: " + file, e);
+    } catch (IOException e) {
+      // Also thrown when the cache was saved by a different version of GWT.
+      logger.log(TreeLogger.Type.WARN, "Ignoring unreadable minimal rebuild cache: " + file, e);
+    } finally {
+      Utility.close(stream);
+    }
+    file.delete();
+    return new MinimalRebuildCache();
+  }
+
   private TreeLogger makeCompileLogger(CompileDir compileDir)
       throws UnableToCompleteException {
     try {
@@ -301,6 +391,51 @@ class Recompiler {
     }
   }
 
+  /**
+   * Saves the minimal rebuild cache so that the first compile of the next code server for this
+   * app can be incremental. Failing to save it only makes that compile slower.
+   */
+  private void saveMinimalRebuildCache(TreeLogger compileLogger, MinimalRebuildCache cache) {
+    File file = appSpace.getMinimalRebuildCacheFile();
+    File tempFile = new File(file.getPath() + ".tmp");
+    OutputStream stream = null;
+    try {
+      stream = new BufferedOutputStream(new FileOutputStream(tempFile));
+      Util.writeObjectToStream(stream, getMinimalRebuildCacheKey(), cache);
+      stream.close();
+    } catch (IOException e) {
+      compileLogger.log(TreeLogger.Type.WARN, "Unable to save the minimal rebuild cache", e);
+      Utility.close(stream);
+      tempFile.delete();
+      return;
+    }
+    // Only a completely written cache replaces the previous one.
+    file.delete();
+    if (!tempFile.renameTo(file)) {
+      compileLogger.log(TreeLogger.Type.WARN, "Unable to save the minimal rebuild cache to "
+          + file);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * Saves the minimal rebuild cache in the background. The save waits for any compile in
+   * progress, since compiles modify the cache, and then saves the latest cache.
+   */
+  private void saveMinimalRebuildCacheLater() {
+    minimalRebuildCacheSaver.execute(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (Recompiler.this) {
+          if (minimalRebuildCacheUnsaved) {
+            minimalRebuildCacheUnsaved = false;
+            saveMinimalRebuildCache(logger, minimalRebuildCache);
+          }
+        }
+      }
+    });
+  }
+
   /**
    * Loads the module and configures it for SuperDevMode. (Does not restrict permutations.)
    */
@@ -118,7 +118,7 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
   private final JJSOptions jjsOptions;
 
   private final List<Class<? extends Linker>> linkerClasses;
-  private Linker[] linkers;
+  private final Linker[] linkers;
   private final Map<Class<? extends Linker>, String> linkerShortNames = new HashMap<Class<? extends Linker>, String>();
   private final String moduleFunctionName;
   private final long moduleLastModified;
@@ -178,7 +178,7 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
       linkerClasses.addAll(postLinkerClasses);
     }
 
-    resetLinkers(logger);
+    linkers = createLinkers(logger);
 
     for (Map.Entry<String, Class<? extends Linker>> entry : module.getLinkers().entrySet()) {
       linkerShortNames.put(entry.getValue(), entry.getKey());
@@ -362,6 +362,10 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
   /**
    * Invoke the shardable linkers on one permutation result. Those linkers run
    * with the precompile artifacts as input.
+   * <p>
+   * Each call uses its own linker instances, so that linkers don't carry any
+   * state across permutations, and so that several permutations may be linked
+   * concurrently.
    */
   public ArtifactSet invokeLinkForOnePermutation(TreeLogger logger,
       StandardCompilationResult permResult, ArtifactSet permArtifacts)
@@ -369,7 +373,7 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
     ArtifactSet workingArtifacts = new ArtifactSet(permArtifacts);
     workingArtifacts.add(permResult);
 
-    for (Linker linker : linkers) {
+    for (Linker linker : createLinkers(logger)) {
       if (linker.isShardable()) {
         TreeLogger linkerLogger = logger.branch(TreeLogger.TRACE,
             "Invoking Linker " + linker.getDescription(), null);
@@ -383,12 +387,6 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
       }
     }
 
-    /*
-     * Reset linkers so that they don't accidentally carry any state across
-     * permutations
-     */
-    resetLinkers(logger);
-
     workingArtifacts.freeze();
     return workingArtifacts;
   }
@@ -532,14 +530,14 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
   }
 
   /**
-   * (Re)instantiate all linkers.
+   * Instantiate all linkers.
    */
-  private void resetLinkers(TreeLogger logger) throws UnableToCompleteException {
-    linkers = new Linker[linkerClasses.size()];
+  private Linker[] createLinkers(TreeLogger logger) throws UnableToCompleteException {
+    Linker[] instances = new Linker[linkerClasses.size()];
     int i = 0;
     for (Class<? extends Linker> linkerClass : linkerClasses) {
       try {
-        linkers[i++] = linkerClass.newInstance();
+        instances[i++] = linkerClass.newInstance();
       } catch (InstantiationException e) {
         logger.log(TreeLogger.ERROR, "Unable to create Linker", e);
         throw new UnableToCompleteException();
@@ -548,5 +546,6 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
         throw new UnableToCompleteException();
       }
     }
+    return instances;
   }
 }
@@ -26,15 +26,13 @@ import com.google.gwt.dev.jjs.SourceOrigin;
 import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
-import com.google.gwt.thirdparty.debugging.sourcemap.SourceMapGeneratorV3;
-import com.google.gwt.thirdparty.debugging.sourcemap.SourceMapParseException;
 import com.google.gwt.thirdparty.guava.common.collect.Lists;
 
-import org.json.JSONException;
-
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -87,25 +85,20 @@ public class SourceMapRecorder {
     this.sourceRoot = sourceRoot;
   }
 
-  private List<SyntheticArtifact> createArtifacts()
-      throws IOException, JSONException, SourceMapParseException {
+  private List<SyntheticArtifact> createArtifacts() throws IOException {
     Event event = SpeedTracerLogger.start(CompilerEventType.SOURCE_MAP_RECORDER);
     List<SyntheticArtifact> toReturn = Lists.newArrayList();
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
     int fragment = 0;
     for (JsSourceMap sourceMap : fragmentMaps) {
-      generator.reset();
-
-      if (sourceRoot != null) {
-        generator.setSourceRoot(sourceRoot);
-      }
+      baos.reset();
+      // The mappings are encoded straight into the artifact's bytes as they are added.
+      Writer out = new BufferedWriter(new OutputStreamWriter(baos, "UTF-8"));
+      StreamingSourceMapGenerator generator =
+          new StreamingSourceMapGenerator(out, "sourceMap" + fragment, sourceRoot);
       addExtensions(generator, fragment);
       addMappings(new SourceMappingWriter(generator), sourceMap);
-
-      baos.reset();
-      OutputStreamWriter out = new OutputStreamWriter(baos);
-      generator.appendTo(out, "sourceMap" + fragment);
+      generator.finish();
       out.flush();
       toReturn.add(new SymbolMapsLinker.SourceMapArtifact(permutationId, fragment,
           baos.toByteArray(), sourceRoot));
@@ -115,8 +108,7 @@ public class SourceMapRecorder {
     return toReturn;
   }
 
-  private void addExtensions(SourceMapGeneratorV3 generator, int fragment)
-      throws SourceMapParseException {
+  private void addExtensions(StreamingSourceMapGenerator generator, int fragment) {
     // We don't convert to a string here so that the values will be added
     // to the JSON as a number instead of a string.
     generator.addExtension("x_gwt_permutation", permutationId);
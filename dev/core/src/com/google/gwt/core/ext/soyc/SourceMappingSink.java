@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.ext.soyc;
+
+import com.google.gwt.thirdparty.debugging.sourcemap.FilePosition;
+
+/**
+ * Receives the mappings that {@link SourceMappingWriter} writes to a sourcemap.
+ */
+interface SourceMappingSink {
+
+  /**
+   * Adds a mapping from a range of JavaScript to a position in a Java file.
+   *
+   * @param sourceName the Java file, or null if it is unknown
+   * @param symbolName the name of the Java symbol, or null
+   * @param sourceStartPosition the position in the Java file (zero-based)
+   * @param startPosition the start of the JavaScript range (zero-based)
+   * @param endPosition the end of the JavaScript range (zero-based, exclusive)
+   */
+  void addMapping(String sourceName, String symbolName, FilePosition sourceStartPosition,
+      FilePosition startPosition, FilePosition endPosition);
+}
@@ -17,14 +17,13 @@ package com.google.gwt.core.ext.soyc;
 
 import com.google.gwt.dev.jjs.SourceInfo;
 import com.google.gwt.thirdparty.debugging.sourcemap.FilePosition;
-import com.google.gwt.thirdparty.debugging.sourcemap.SourceMapGenerator;
 
 /**
  * Writes a sorted stream of mappings to a sourcemap. Automatically merges mappings that have
  * adjacent or overlapping JavaScript ranges and also point to the same Java line.
  */
 class SourceMappingWriter {
-  private final SourceMapGenerator out;
+  private final SourceMappingSink out;
 
   // There may be zero or one mappings in the buffer.
   // It's represented as separate fields to avoid unnecessary memory allocation.
@@ -40,7 +39,7 @@ class SourceMappingWriter {
   private int endLine;
   private int endColumn;
 
-  SourceMappingWriter(SourceMapGenerator out) {
+  SourceMappingWriter(SourceMappingSink out) {
     this.out = out;
     this.empty = true;
   }
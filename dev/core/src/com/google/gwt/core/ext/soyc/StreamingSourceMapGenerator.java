@@ -0,0 +1,309 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.ext.soyc;
+
+import com.google.gwt.thirdparty.debugging.sourcemap.FilePosition;
+import com.google.gwt.thirdparty.debugging.sourcemap.SourceMapGeneratorV3;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a version 3 sourcemap as mappings are added, rather than keeping every mapping until
+ * the sourcemap is written. Only the mappings that enclose the most recent one are kept.
+ *
+ * <p>The mappings must be added in order of their JavaScript starting position, and a mapping
+ * must be added after any mapping that encloses it. The output has the same mappings, sources
+ * and names as {@link SourceMapGeneratorV3} would write, but the fields that depend on every
+ * mapping are written after the mappings, by {@link #finish}.
+ */
+class StreamingSourceMapGenerator implements SourceMappingSink {
+
+  /**
+   * A mapping that has been added but may not have been completely written.
+   */
+  private static class Mapping {
+    private final String sourceName;
+    private final String symbolName;
+    private final int sourceLine;
+    private final int sourceColumn;
+    private final int startLine;
+    private final int startColumn;
+    private final int endLine;
+    private final int endColumn;
+
+    private Mapping(String sourceName, String symbolName, FilePosition sourceStartPosition,
+        FilePosition startPosition, FilePosition endPosition) {
+      this.sourceName = sourceName;
+      this.symbolName = symbolName;
+      this.sourceLine = sourceStartPosition.getLine();
+      this.sourceColumn = sourceStartPosition.getColumn();
+      this.startLine = startPosition.getLine();
+      this.startColumn = startPosition.getColumn();
+      this.endLine = endPosition.getLine();
+      this.endColumn = endPosition.getColumn();
+    }
+  }
+
+  private static final String BASE64_DIGITS =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+  private static final int VLQ_BASE_SHIFT = 5;
+  private static final int VLQ_BASE_MASK = (1 << VLQ_BASE_SHIFT) - 1;
+  private static final int VLQ_CONTINUATION_BIT = 1 << VLQ_BASE_SHIFT;
+
+  private static int getId(Map<String, Integer> ids, String key) {
+    Integer id = ids.get(key);
+    if (id == null) {
+      id = ids.size();
+      ids.put(key, id);
+    }
+    return id;
+  }
+
+  /**
+   * Returns true if the first mapping doesn't end before the second one starts.
+   */
+  private static boolean overlaps(Mapping first, Mapping second) {
+    return first.endLine > second.startLine
+        || (first.endLine == second.startLine && first.endColumn >= second.startColumn);
+  }
+
+  private final Map<String, Object> extensions = new LinkedHashMap<String, Object>();
+
+  /**
+   * The first error from the output, which is reported by {@link #finish}.
+   */
+  private IOException failure;
+
+  private boolean finished;
+  private Mapping lastMapping;
+  private int maxLine;
+  private final Map<String, Integer> nameIds = new LinkedHashMap<String, Integer>();
+
+  /**
+   * The mappings that enclose the most recently added one, innermost first.
+   */
+  private final Deque<Mapping> openMappings = new ArrayDeque<Mapping>();
+
+  private final Appendable out;
+
+  // The JavaScript position up to which mappings have been written.
+  private int line;
+  private int column;
+
+  // The values that the next entry is written relative to.
+  private int previousLine = -1;
+  private int previousColumn;
+  private int previousSourceId;
+  private int previousSourceLine;
+  private int previousSourceColumn;
+  private int previousNameId;
+
+  private final Map<String, Integer> sourceIds = new LinkedHashMap<String, Integer>();
+
+  /**
+   * Starts writing a sourcemap.
+   *
+   * @param out where the sourcemap is written
+   * @param file the name of the JavaScript file the sourcemap is for
+   * @param sourceRoot the prefix to add to the source file names, or null
+   */
+  StreamingSourceMapGenerator(Appendable out, String file, String sourceRoot) {
+    this.out = out;
+    append("{\n\"version\":3,\n\"file\":").append(JSONObject.quote(file));
+    if (sourceRoot != null && !sourceRoot.isEmpty()) {
+      append(",\n\"sourceRoot\":").append(JSONObject.quote(sourceRoot));
+    }
+    append(",\n\"mappings\":\"");
+  }
+
+  /**
+   * Adds a field to be written at the end of the sourcemap. Numbers are written as JSON numbers
+   * and everything else as JSON strings.
+   */
+  public void addExtension(String name, Object value) {
+    extensions.put(name, value);
+  }
+
+  @Override
+  public void addMapping(String sourceName, String symbolName, FilePosition sourceStartPosition,
+      FilePosition startPosition, FilePosition endPosition) {
+    if (sourceName == null || sourceStartPosition.getLine() < 0) {
+      // Not enough information to be useful.
+      return;
+    }
+    if (finished) {
+      throw new IllegalStateException("The sourcemap has already been finished");
+    }
+
+    Mapping mapping =
+        new Mapping(sourceName, symbolName, sourceStartPosition, startPosition, endPosition);
+    if (lastMapping != null && (mapping.startLine < lastMapping.startLine
+        || (mapping.startLine == lastMapping.startLine
+            && mapping.startColumn < lastMapping.startColumn))) {
+      throw new IllegalStateException("Incorrect source mappings order, previous : ("
+          + lastMapping.startLine + "," + lastMapping.startColumn + ") new : ("
+          + mapping.startLine + "," + mapping.startColumn + ")");
+    }
+    lastMapping = mapping;
+
+    // Whatever remains of the mappings that end before this one starts can be written now.
+    while (!openMappings.isEmpty() && !overlaps(openMappings.peek(), mapping)) {
+      writeRemainder(openMappings.pop());
+    }
+
+    // Any gap up to the start of this mapping belongs to the enclosing mapping, if any.
+    writeUpTo(openMappings.peek(), mapping.startLine, mapping.startColumn);
+    openMappings.push(mapping);
+  }
+
+  /**
+   * Writes the rest of the sourcemap. No mappings may be added afterwards.
+   *
+   * @throws IOException if the sourcemap could not be written
+   */
+  public void finish() throws IOException {
+    if (!finished) {
+      finished = true;
+      while (!openMappings.isEmpty()) {
+        writeRemainder(openMappings.pop());
+      }
+      append(";\",\n\"lineCount\":").append(String.valueOf(maxLine + 1));
+      append(",\n\"sources\":[");
+      appendQuoted(sourceIds.keySet());
+      append("],\n\"names\":[");
+      appendQuoted(nameIds.keySet());
+      append("]");
+      for (Map.Entry<String, Object> extension : extensions.entrySet()) {
+        Object value = extension.getValue();
+        append(",\n\"").append(extension.getKey()).append("\":").append(
+            value instanceof Number ? value.toString() : JSONObject.quote(String.valueOf(value)));
+      }
+      append("\n}\n");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private StreamingSourceMapGenerator append(char c) {
+    if (failure == null) {
+      try {
+        out.append(c);
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    return this;
+  }
+
+  private StreamingSourceMapGenerator append(CharSequence chars) {
+    if (failure == null) {
+      try {
+        out.append(chars);
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    return this;
+  }
+
+  private void appendQuoted(Iterable<String> strings) {
+    boolean first = true;
+    for (String string : strings) {
+      if (!first) {
+        append(',');
+      }
+      append(JSONObject.quote(string));
+      first = false;
+    }
+  }
+
+  /**
+   * Appends a Base64 VLQ encoded value.
+   */
+  private void appendVlq(int value) {
+    // The sign is stored in the least significant bit.
+    int vlq = value < 0 ? ((-value) << 1) + 1 : value << 1;
+    do {
+      int digit = vlq & VLQ_BASE_MASK;
+      vlq >>>= VLQ_BASE_SHIFT;
+      if (vlq > 0) {
+        digit |= VLQ_CONTINUATION_BIT;
+      }
+      append(BASE64_DIGITS.charAt(digit));
+    } while (vlq > 0);
+  }
+
+  /**
+   * Writes one segment of a mapping, or an unmapped segment if the mapping is null, covering the
+   * JavaScript from the current position to the given one.
+   */
+  private void writeSegment(Mapping mapping, int nextLine, int nextColumn) {
+    if (previousLine != line) {
+      previousColumn = 0;
+    } else {
+      append(',');
+    }
+    appendVlq(column - previousColumn);
+    previousLine = line;
+    previousColumn = column;
+
+    if (mapping != null) {
+      int sourceId = getId(sourceIds, mapping.sourceName);
+      appendVlq(sourceId - previousSourceId);
+      previousSourceId = sourceId;
+      appendVlq(mapping.sourceLine - previousSourceLine);
+      previousSourceLine = mapping.sourceLine;
+      appendVlq(mapping.sourceColumn - previousSourceColumn);
+      previousSourceColumn = mapping.sourceColumn;
+      if (mapping.symbolName != null) {
+        int nameId = getId(nameIds, mapping.symbolName);
+        appendVlq(nameId - previousNameId);
+        previousNameId = nameId;
+      }
+      maxLine = Math.max(maxLine, mapping.endLine);
+    }
+
+    for (int i = line; i < nextLine; i++) {
+      append(';');
+    }
+    line = nextLine;
+    column = nextColumn;
+  }
+
+  /**
+   * Writes whatever part of a mapping remains after the current position.
+   */
+  private void writeRemainder(Mapping mapping) {
+    writeUpTo(mapping, mapping.endLine, mapping.endColumn);
+  }
+
+  /**
+   * Writes a segment up to the given position, if the current position is before it.
+   */
+  private void writeUpTo(Mapping mapping, int nextLine, int nextColumn) {
+    if (line < nextLine || (line == nextLine && column < nextColumn)) {
+      writeSegment(mapping, nextLine, nextColumn);
+    }
+  }
+}
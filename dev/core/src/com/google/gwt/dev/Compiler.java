@@ -179,7 +179,8 @@ public class Compiler {
         persistentUnitCacheDir = new File(options.getWarDir(), "../");
       }
       compilerContext = compilerContextBuilder.unitCache(
-          UnitCacheSingleton.get(logger, persistentUnitCacheDir)).build();
+          UnitCacheSingleton.get(logger, persistentUnitCacheDir))
+          .rebindCacheDir(RebindCache.getPersistentCacheDir(persistentUnitCacheDir)).build();
 
       for (ModuleDef module : modules) {
         compilerContext = compilerContextBuilder.module(module).build();
@@ -30,6 +30,7 @@ import com.google.gwt.dev.resource.ResourceOracle;
 import com.google.gwt.dev.util.TinyCompileSummary;
 import com.google.gwt.thirdparty.guava.common.collect.Sets;
 
+import java.io.File;
 import java.util.Set;
 
 /**
@@ -55,6 +56,7 @@ public class CompilerContext {
     private ModuleDef module;
     private PrecompileTaskOptions options = new PrecompileTaskOptionsImpl();
     private ResourceOracle publicResourceOracle;
+    private File rebindCacheDir;
     private ResourceOracle sourceResourceOracle;
     private UnitCache unitCache = new MemoryUnitCache();
 
@@ -71,6 +73,7 @@ public class CompilerContext {
       compilerContext.compileMonolithic = compileMonolithic;
       compilerContext.options = options;
       compilerContext.publicResourceOracle = publicResourceOracle;
+      compilerContext.rebindCacheDir = rebindCacheDir;
       compilerContext.sourceResourceOracle = sourceResourceOracle;
       compilerContext.localCompilationErrorsIndex = localCompilationErrorsIndex;
       compilerContext.globalCompilationErrorsIndex = globalCompilationErrorsIndex;
@@ -118,6 +121,15 @@ public class CompilerContext {
       return this;
     }
 
+    /**
+     * Sets the directory in which generator results are saved for reuse by later compiles, or
+     * null to not save them.
+     */
+    public Builder rebindCacheDir(File rebindCacheDir) {
+      this.rebindCacheDir = rebindCacheDir;
+      return this;
+    }
+
     public Builder unitCache(UnitCache unitCache) {
       this.unitCache = unitCache;
       return this;
@@ -190,6 +202,7 @@ public class CompilerContext {
   private PrecompileTaskOptions options = new PrecompileTaskOptionsImpl();
 
   private ResourceOracle publicResourceOracle;
+  private File rebindCacheDir;
   private ResourceOracle sourceResourceOracle;
   private TinyCompileSummary tinyCompileSummary = new TinyCompileSummary();
   private UnitCache unitCache = new MemoryUnitCache();
@@ -261,6 +274,14 @@ public class CompilerContext {
     return reboundTypeSourceNames;
   }
 
+  /**
+   * Returns the directory in which generator results are saved for reuse by later compiles, or
+   * null if they are not saved.
+   */
+  public File getRebindCacheDir() {
+    return rebindCacheDir;
+  }
+
   public ResourceOracle getSourceResourceOracle() {
     return sourceResourceOracle;
   }
@@ -34,40 +34,119 @@ import com.google.gwt.dev.util.collect.HashSet;
 import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
+import com.google.gwt.thirdparty.guava.common.base.Throwables;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of RebindPermutationOracle used by Precompile.
  */
 class DistillerRebindPermutationOracle implements RebindPermutationOracle {
+
+  /**
+   * A Java system property that sets the number of permutations whose rebind
+   * results are computed concurrently. Each of these permutations runs its
+   * generators with its own fork of the generator context, and the generated
+   * units and artifacts are merged back in permutation order. Defaults to 1,
+   * since generators that share mutable static state cannot run concurrently.
+   * Only the permutations' rebind results for a single type run concurrently,
+   * so this only helps on a machine with spare cores, when a few generators
+   * dominate precompilation.
+   */
+  public static final String GENERATOR_THREADS_PROPERTY = "gwt.jjs.generatorThreads";
+
+  private static final String REBIND_CACHE_SUFFIX = ".rebind";
+
   private CompilationState compilationState;
+  private ThreadPoolExecutor executor;
+  private StandardGeneratorContext[] forkedGeneratorContexts;
   private StandardGeneratorContext generatorContext;
+  private final TreeLogger logger;
   private final Permutation[] permutations;
   private final RebindOracle[] rebindOracles;
 
-  public DistillerRebindPermutationOracle(CompilerContext compilerContext,
+  /**
+   * The file each permutation's generator results are saved to, if they are
+   * saved for later compiles.
+   */
+  private File[] rebindCacheFiles;
+
+  private RebindCache[] rebindCaches;
+
+  public DistillerRebindPermutationOracle(TreeLogger logger, CompilerContext compilerContext,
       CompilationState compilationState, ArtifactSet generatorArtifacts,
       PropertyPermutations perms) {
     ModuleDef module = compilerContext.getModule();
+    this.logger = logger;
     this.compilationState = compilationState;
     permutations = new Permutation[perms.size()];
     rebindOracles = new RebindOracle[perms.size()];
     generatorContext = new StandardGeneratorContext(
         compilerContext, compilationState, generatorArtifacts, true);
+    File rebindCacheDir = compilerContext.getRebindCacheDir();
+    if (rebindCacheDir != null) {
+      rebindCacheFiles = new File[perms.size()];
+      rebindCaches = new RebindCache[perms.size()];
+      generatorContext.setGeneratorResultCachingEnabled(true);
+    }
     BindingProperty[] orderedProps = perms.getOrderedProperties();
     ConfigProps config = new ConfigProps(module);
     Rules rules = module.getRules();
+    int threads = Math.min(perms.size(), Integer.getInteger(GENERATOR_THREADS_PROPERTY, 1));
+    if (threads > 1) {
+      executor = createExecutor(threads);
+      forkedGeneratorContexts = new StandardGeneratorContext[perms.size()];
+    }
     for (int i = 0; i < rebindOracles.length; ++i) {
       BindingProps props = new BindingProps(orderedProps, perms.getOrderedPropertyValues(i), config);
-      rebindOracles[i] = new StandardRebindOracle(props.toPropertyOracle(), rules,
-          generatorContext);
+      StandardGeneratorContext permutationGeneratorContext = generatorContext;
+      if (forkedGeneratorContexts != null) {
+        permutationGeneratorContext = forkedGeneratorContexts[i] = generatorContext.fork();
+      }
+      StandardRebindOracle rebindOracle = new StandardRebindOracle(props.toPropertyOracle(),
+          rules, permutationGeneratorContext);
+      if (rebindCaches != null) {
+        // Permutations with different property values must not share generator results.
+        rebindCacheFiles[i] = new File(rebindCacheDir, Util.computeStrongName(Util.getBytes(
+            About.getGwtVersionNum() + ":" + module.getCanonicalName() + ":"
+            + props.prettyPrint())) + REBIND_CACHE_SUFFIX);
+        rebindCaches[i] = RebindCache.load(logger, rebindCacheFiles[i]);
+        rebindOracle.setRebindCache(rebindCaches[i]);
+      }
+      rebindOracles[i] = rebindOracle;
       permutations[i] = new Permutation(i, props);
     }
   }
 
   @Override
   public void clear() {
+    // Generators have finished, so their results can be saved for later compiles.
+    if (rebindCaches != null) {
+      for (int i = 0; i < rebindCaches.length; ++i) {
+        rebindCaches[i].save(logger, rebindCacheFiles[i]);
+      }
+      rebindCaches = null;
+      rebindCacheFiles = null;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+      for (StandardGeneratorContext forkedGeneratorContext : forkedGeneratorContexts) {
+        forkedGeneratorContext.clear();
+      }
+      forkedGeneratorContexts = null;
+    }
     generatorContext.clear();
     compilationState = null;
     generatorContext = null;
@@ -83,8 +162,10 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
 
     Set<String> answers = new HashSet<String>();
     Event getAllRebindsEvent = SpeedTracerLogger.start(CompilerEventType.GET_ALL_REBINDS);
+    String[] resultTypeNames = executor == null ? rebind(logger, requestTypeName)
+        : rebindConcurrently(logger, requestTypeName);
     for (int i = 0; i < getPermutationCount(); ++i) {
-      String resultTypeName = rebindOracles[i].rebind(logger, requestTypeName);
+      String resultTypeName = resultTypeNames[i];
       answers.add(resultTypeName);
       // Record the correct answer into each permutation.
       permutations[i].putRebindAnswer(requestTypeName, resultTypeName);
@@ -111,4 +192,82 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
   public Permutation[] getPermutations() {
     return permutations;
   }
+
+  private ThreadPoolExecutor createExecutor(int threads) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger threadCount = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Generator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    // Don't hold on to idle threads if the compile fails before clear() is called.
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private String[] rebind(TreeLogger logger, String requestTypeName)
+      throws UnableToCompleteException {
+    String[] resultTypeNames = new String[getPermutationCount()];
+    for (int i = 0; i < getPermutationCount(); ++i) {
+      resultTypeNames[i] = rebindOracles[i].rebind(logger, requestTypeName);
+    }
+    return resultTypeNames;
+  }
+
+  /**
+   * Computes the rebind result of each permutation on the executor, then merges
+   * what their generators produced into the shared generator context.
+   */
+  private String[] rebindConcurrently(final TreeLogger logger, final String requestTypeName)
+      throws UnableToCompleteException {
+    List<Future<String>> futures = new ArrayList<Future<String>>(getPermutationCount());
+    for (int i = 0; i < getPermutationCount(); ++i) {
+      final RebindOracle rebindOracle = rebindOracles[i];
+      futures.add(executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws UnableToCompleteException {
+          return rebindOracle.rebind(logger, requestTypeName);
+        }
+      }));
+    }
+
+    // Wait for every permutation, so that none is still generating when the forks are merged.
+    String[] resultTypeNames = new String[getPermutationCount()];
+    Throwable failure = null;
+    boolean interrupted = false;
+    for (int i = 0; i < getPermutationCount(); ++i) {
+      try {
+        while (true) {
+          try {
+            resultTypeNames[i] = futures.get(i).get();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (StandardGeneratorContext forkedGeneratorContext : forkedGeneratorContexts) {
+      generatorContext.mergeFork(logger, forkedGeneratorContext);
+    }
+    if (failure != null) {
+      Throwables.propagateIfPossible(failure, UnableToCompleteException.class);
+      throw new RuntimeException("Unexpected exception while rebinding " + requestTypeName,
+          failure);
+    }
+    return resultTypeNames;
+  }
 }
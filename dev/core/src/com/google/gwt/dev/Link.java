@@ -69,6 +69,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -171,6 +178,13 @@ public class Link {
     }
   }
 
+  /**
+   * A Java system property that sets the number of permutations whose shardable linkers run
+   * concurrently when linking on a single machine. Defaults to the number of available
+   * processors.
+   */
+  public static final String PERMUTATION_THREADS_PROPERTY = "gwt.link.permutationThreads";
+
   public static void link(TreeLogger logger, ModuleDef module, ResourceOracle publicResourceOracle,
       ArtifactSet generatedArtifacts, Permutation[] permutations,
       List<PersistenceBackedObject<PermutationResult>> resultFiles,
@@ -442,10 +456,8 @@ public class Link {
       Set<PermutationResult> libraries)
       throws UnableToCompleteException {
     ArtifactSet combinedArtifacts = new ArtifactSet();
-    for (int i = 0; i < perms.length; ++i) {
-      ArtifactSet newArtifacts = finishPermutation(
-          logger, perms[i], resultFiles.get(i), libraries, linkerContext,
-          generatedArtifacts);
+    for (ArtifactSet newArtifacts : finishPermutations(
+        logger, perms, resultFiles, libraries, linkerContext, generatedArtifacts)) {
       combinedArtifacts.addAll(newArtifacts);
     }
 
@@ -486,6 +498,70 @@ public class Link {
         permArtifacts);
   }
 
+  /**
+   * Runs {@link #finishPermutation} for each permutation, on up to
+   * {@link #PERMUTATION_THREADS_PROPERTY} threads.
+   *
+   * @return the new artifacts of each permutation, in the order of the permutations
+   */
+  private static List<ArtifactSet> finishPermutations(final TreeLogger logger,
+      final Permutation[] perms,
+      final List<PersistenceBackedObject<PermutationResult>> resultFiles,
+      final Set<PermutationResult> libraries, final StandardLinkerContext linkerContext,
+      final ArtifactSet generatedArtifacts) throws UnableToCompleteException {
+    List<ArtifactSet> results = new ArrayList<ArtifactSet>(perms.length);
+    int threads = Math.min(perms.length, Integer.getInteger(PERMUTATION_THREADS_PROPERTY,
+        Runtime.getRuntime().availableProcessors()));
+    if (threads <= 1) {
+      for (int i = 0; i < perms.length; ++i) {
+        results.add(finishPermutation(logger, perms[i], resultFiles.get(i), libraries,
+            linkerContext, generatedArtifacts));
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "Link-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      List<Future<ArtifactSet>> futures = new ArrayList<Future<ArtifactSet>>(perms.length);
+      for (int i = 0; i < perms.length; ++i) {
+        final int permIndex = i;
+        futures.add(executor.submit(new Callable<ArtifactSet>() {
+          @Override
+          public ArtifactSet call() throws UnableToCompleteException {
+            return finishPermutation(logger, perms[permIndex], resultFiles.get(permIndex),
+                libraries, linkerContext, generatedArtifacts);
+          }
+        }));
+      }
+      for (Future<ArtifactSet> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while linking permutations", e);
+      throw new UnableToCompleteException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UnableToCompleteException) {
+        throw (UnableToCompleteException) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unexpected exception while linking permutations",
+          e.getCause());
+      throw new UnableToCompleteException();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private static String getFullArtifactPath(EmittedArtifact emittedArtifact,
       StandardLinkerContext context) {
     String path = emittedArtifact.getPartialPath();
@@ -41,6 +41,10 @@ import java.util.Set;
  * MinimalRebuildCache contains compiler information that can be persisted between compiles to
  * decrease compilation time.
  * <p>
+ * The cache can also be serialized and reused by a later process. The content ids of the
+ * compilation units it was built from are recorded so that units whose content changed in the
+ * meantime are treated as modified, even if a unit cache provides them without recompiling.
+ * <p>
  * All type names referenced here are assumed to be binary names.
  */
 public class MinimalRebuildCache implements Serializable {
@@ -48,7 +52,7 @@ public class MinimalRebuildCache implements Serializable {
   /**
    * The permutation specific portion of persisted information.
    */
-  public class PermutationRebuildCache {
+  public class PermutationRebuildCache implements Serializable {
 
     // The implementation of a Type can vary between permutations because of permutation specific
     // GWT.create() rewrites and JSO Devirtualization.
@@ -134,6 +138,7 @@ public class MinimalRebuildCache implements Serializable {
   private final Set<String> allCompilationUnitNames = Sets.newHashSet();
   private final Multimap<String, String> compilationUnitTypeNameByNestedTypeName =
       HashMultimap.create();
+  private final Map<String, String> contentIdsByCompilationUnitName = Maps.newHashMap();
   private final Set<String> deletedCompilationUnitNames = Sets.newHashSet();
   private final Set<String> dualJsoImplInterfaceNames = Sets.newHashSet();
   private final ArtifactSet generatedArtifacts = new ArtifactSet();
@@ -307,6 +312,25 @@ public class MinimalRebuildCache implements Serializable {
     return !preambleTypeNames.isEmpty();
   }
 
+  /**
+   * Returns whether the content of a compilation unit may differ from the content this cache was
+   * built from. That is the case if another content id was recorded for the unit, or if the unit
+   * is unknown to a cache that has recorded other units.
+   */
+  public boolean isContentIdStale(String compilationUnitName, String contentId) {
+    if (contentIdsByCompilationUnitName.isEmpty()) {
+      return false;
+    }
+    return !contentId.equals(contentIdsByCompilationUnitName.get(compilationUnitName));
+  }
+
+  /**
+   * Records the content id of the source with which a compilation unit is being compiled.
+   */
+  public void recordContentId(String compilationUnitName, String contentId) {
+    contentIdsByCompilationUnitName.put(compilationUnitName, contentId);
+  }
+
   @VisibleForTesting
   public void recordNestedTypeName(String compilationUnitTypeName, String nestedTypeName) {
     nestedTypeNamesByUnitTypeName.put(compilationUnitTypeName, nestedTypeName);
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.cfg.BindingProps;
+import com.google.gwt.dev.jjs.PermutationResult;
+import com.google.gwt.dev.jjs.UnifiedAst;
+import com.google.gwt.dev.util.FileBackedObject;
+import com.google.gwt.dev.util.PersistenceBackedObject;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A directory of compiled permutations that is shared across builds, so that permutations that
+ * have not changed since a previous build do not need to be compiled again.
+ * <p>
+ * Each entry is a serialized {@link PermutationResult}, named after a hash of the sources the
+ * unified AST was built from, the compilation options, the version of the compiler and the
+ * properties and rebind answers of the permutation. Entries are written to a temporary file and
+ * then renamed, so that concurrent builds sharing the directory never see a partially written
+ * entry. When the entries exceed the maximum size, the least recently used ones are deleted.
+ * <p>
+ * The cache is disabled unless the {@value #CACHE_DIR_PROPERTY} system property is set.
+ */
+final class PermutationResultCache {
+
+  /**
+   * The system property that sets the cache directory.
+   */
+  public static final String CACHE_DIR_PROPERTY = "gwt.jjs.permutationCacheDir";
+
+  /**
+   * The system property that sets the maximum size in bytes of the cache directory.
+   */
+  public static final String CACHE_MAX_BYTES_PROPERTY = "gwt.jjs.permutationCacheMaxBytes";
+
+  private static final long DEFAULT_CACHE_MAX_BYTES = 1L << 30;
+
+  private static final String ENTRY_SUFFIX = ".perm";
+
+  /**
+   * Creates the cache configured by the system properties, or returns null if the cache is
+   * disabled or the inputs of the AST are not known.
+   */
+  static PermutationResultCache create(TreeLogger logger, CompilerContext compilerContext,
+      UnifiedAst unifiedAst) {
+    String path = System.getProperty(CACHE_DIR_PROPERTY);
+    if (path == null) {
+      return null;
+    }
+    File cacheDir = new File(path);
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+      logger.log(TreeLogger.WARN, "Unable to create permutation cache directory " + cacheDir
+          + "; permutations will not be cached");
+      return null;
+    }
+    String astStrongName = unifiedAst.getStrongName();
+    if (astStrongName == null) {
+      return null;
+    }
+    long maxBytes = Long.getLong(CACHE_MAX_BYTES_PROPERTY, DEFAULT_CACHE_MAX_BYTES);
+    return new PermutationResultCache(cacheDir, maxBytes, About.getGwtVersionNum() + ":"
+        + compilerContext.shouldCompileMonolithic() + ":" + astStrongName);
+  }
+
+  private final File cacheDir;
+
+  private final long maxBytes;
+
+  /**
+   * Identifies everything that is shared by the permutations of a compile.
+   */
+  private final String compileKey;
+
+  PermutationResultCache(File cacheDir, long maxBytes, String compileKey) {
+    this.cacheDir = cacheDir;
+    this.maxBytes = maxBytes;
+    this.compileKey = compileKey;
+  }
+
+  /**
+   * Deletes the least recently used entries until the cache fits in its maximum size.
+   */
+  void evict(TreeLogger logger) {
+    File[] entries = cacheDir.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return file.isFile() && file.getName().endsWith(ENTRY_SUFFIX);
+      }
+    });
+    if (entries == null) {
+      return;
+    }
+    long totalBytes = 0;
+    // Read the modification times once, other builds may touch the entries while sorting.
+    final Map<File, Long> lastModifiedByEntry = new HashMap<File, Long>();
+    for (File entry : entries) {
+      totalBytes += entry.length();
+      lastModifiedByEntry.put(entry, entry.lastModified());
+    }
+    if (totalBytes <= maxBytes) {
+      return;
+    }
+    Arrays.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File a, File b) {
+        return lastModifiedByEntry.get(a).compareTo(lastModifiedByEntry.get(b));
+      }
+    });
+    for (int i = 0; i < entries.length && totalBytes > maxBytes; i++) {
+      long length = entries[i].length();
+      if (entries[i].delete()) {
+        totalBytes -= length;
+        logger.log(TreeLogger.DEBUG, "Evicted cached permutation " + entries[i].getName());
+      }
+    }
+  }
+
+  /**
+   * Returns the name of the cache entry for a permutation.
+   */
+  String getEntryName(Permutation permutation) {
+    List<String> props = new ArrayList<String>();
+    for (BindingProps softProps : permutation.getProps().getSoftProps()) {
+      props.add(softProps.prettyPrint());
+    }
+    List<Object> configProps = new ArrayList<Object>();
+    for (BindingProps softProps : permutation.getProps().getSoftProps()) {
+      configProps.add(softProps.getConfigProps());
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      Util.writeObjectToStream(bytes, permutation.getId(), props, configProps,
+          permutation.getGwtCreateAnswers());
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected exception serializing permutation", e);
+    }
+    return Util.computeStrongName(new byte[][] {Util.getBytes(compileKey), bytes.toByteArray()})
+        + ENTRY_SUFFIX;
+  }
+
+  /**
+   * Copies the cached result of a permutation to {@code resultFile}.
+   *
+   * @return true if the result was found in the cache
+   */
+  boolean restore(TreeLogger logger, Permutation permutation,
+      PersistenceBackedObject<PermutationResult> resultFile) {
+    if (!(resultFile instanceof FileBackedObject)) {
+      return false;
+    }
+    File entry = new File(cacheDir, getEntryName(permutation));
+    if (!entry.isFile()) {
+      return false;
+    }
+    File target = new File(resultFile.getPath());
+    target.getParentFile().mkdirs();
+    if (!copy(entry, target)) {
+      target.delete();
+      return false;
+    }
+    // Keep recently used entries from being evicted.
+    entry.setLastModified(System.currentTimeMillis());
+    logger.log(TreeLogger.INFO,
+        "Restored permutation " + permutation.getId() + " from the permutation cache");
+    return true;
+  }
+
+  /**
+   * Copies the result of a permutation that has just been compiled into the cache.
+   */
+  void store(TreeLogger logger, Permutation permutation,
+      PersistenceBackedObject<PermutationResult> resultFile) {
+    if (!(resultFile instanceof FileBackedObject) || !resultFile.exists()) {
+      return;
+    }
+    File entry = new File(cacheDir, getEntryName(permutation));
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("permutation", ".tmp", cacheDir);
+      if (copy(new File(resultFile.getPath()), tempFile) && tempFile.renameTo(entry)) {
+        tempFile = null;
+        logger.log(TreeLogger.DEBUG,
+            "Stored permutation " + permutation.getId() + " in the permutation cache");
+      }
+    } catch (IOException e) {
+      // The cache is only an optimization.
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private static boolean copy(File from, File to) {
+    InputStream in = null;
+    OutputStream out = null;
+    try {
+      in = new FileInputStream(from);
+      out = new FileOutputStream(to);
+      Util.copyNoClose(in, out);
+      out.close();
+      out = null;
+      return true;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      Utility.close(in);
+      Utility.close(out);
+    }
+  }
+}
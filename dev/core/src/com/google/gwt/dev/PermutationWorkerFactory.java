@@ -240,7 +240,8 @@ public abstract class PermutationWorkerFactory {
   /**
    * Compiles a subset of the Permutations in a Precompilation and returns an
    * array of Files that can be consumed by Link using the system-default
-   * PermutationWorkersFactories.
+   * PermutationWorkersFactories. Permutations found in the
+   * {@link PermutationResultCache}, if enabled, are restored instead of compiled.
    */
   public static void compilePermutations(TreeLogger logger, CompilerContext compilerContext,
       Precompilation precompilation, Permutation[] permutations, int localWorkers,
@@ -250,16 +251,25 @@ public abstract class PermutationWorkerFactory {
     assert Arrays.asList(precompilation.getPermutations()).containsAll(
         Arrays.asList(permutations));
 
+    PermutationResultCache cache =
+        PermutationResultCache.create(logger, compilerContext, precompilation.getUnifiedAst());
+
     // Create the work.
     List<Work> work = new ArrayList<Work>(permutations.length);
     for (int i = 0; i < permutations.length; ++i) {
       Permutation perm = permutations[i];
+      if (cache != null && cache.restore(logger, perm, resultFiles.get(i))) {
+        continue;
+      }
       if (logger.isLoggable(TreeLogger.DEBUG)) {
         logger.log(TreeLogger.DEBUG,
             "Creating worker permutation " + perm.getId() + " of " + permutations.length);
       }
       work.add(new Work(logger, compilerContext, perm, resultFiles.get(i)));
     }
+    if (cache != null && work.isEmpty()) {
+      return;
+    }
 
     // Create the workers.
     List<PermutationWorker> workers = new ArrayList<PermutationWorker>();
@@ -268,6 +278,13 @@ public abstract class PermutationWorkerFactory {
 
       // Get it done!
       Manager.run(logger, work, workers);
+
+      if (cache != null) {
+        for (Work compiled : work) {
+          cache.store(logger, compiled.getPerm(), compiled.getResultFile());
+        }
+        cache.evict(logger);
+      }
     } finally {
       Throwable caught = null;
       for (PermutationWorker worker : workers) {
@@ -347,8 +364,8 @@ public abstract class PermutationWorkerFactory {
       int workersNeeded, int localWorkers, List<PermutationWorker> workers)
       throws UnableToCompleteException {
     if (localWorkers <= WORKERS_AUTO) {
-      // TODO: something smarter?
-      localWorkers = 1;
+      // As many as can run in-process.
+      localWorkers = ThreadedPermutationWorkerFactory.getMaxThreads(unifiedAst);
     }
 
     for (PermutationWorkerFactory factory : PermutationWorkerFactory.createAll(logger)) {
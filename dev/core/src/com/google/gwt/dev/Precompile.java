@@ -168,7 +168,7 @@ public class Precompile {
 
       ArtifactSet generatorArtifacts = new ArtifactSet();
       DistillerRebindPermutationOracle rpo = new DistillerRebindPermutationOracle(
-          compilerContext, compilationState, generatorArtifacts,
+          logger, compilerContext, compilationState, generatorArtifacts,
           new PropertyPermutations(module.getProperties(), module.getActiveLinkerNames()));
       // Allow GC later.
       compilationState = null;
@@ -267,7 +267,7 @@ public class Precompile {
 
       ArtifactSet generatedArtifacts = new ArtifactSet();
       DistillerRebindPermutationOracle rpo = new DistillerRebindPermutationOracle(
-          compilerContext, compilationState, generatedArtifacts, allPermutations);
+          logger, compilerContext, compilationState, generatedArtifacts, allPermutations);
       // Allow GC later.
       compilationState = null;
       PrecompilationMetricsArtifact precompilationMetrics =
@@ -16,27 +16,110 @@
 package com.google.gwt.dev;
 
 import com.google.gwt.core.ext.CachedGeneratorResult;
+import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.dev.cfg.Rule;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.util.tools.Utility;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * A cache for storing {@link CachedGeneratorResult} entries.  Entries are keyed
  * by rebind Rule and queryTypeName.
+ * <p>
+ * A cache can be saved to a file and loaded by a later compile. Only the
+ * entries that were used since the cache was created or loaded are saved, so
+ * that the results for types that are no longer rebound are dropped.
  */
 public class RebindCache implements Serializable {
 
-  private final Map<String, Map<String, CachedGeneratorResult>> rebindResults;
+  /**
+   * A Java system property that enables saving generator results between
+   * production compiles, next to the persistent unit cache. As in Development
+   * Mode, it is up to each generator to check whether its previous result is
+   * still valid.
+   */
+  public static final String PERSISTENT_CACHE_PROPERTY = "gwt.persistentgeneratorcache";
 
-  public RebindCache() {
-    rebindResults = new HashMap<String, Map<String, CachedGeneratorResult>>();
+  private static final int MAGIC = 0x47575243;
+
+  private static final String PERSISTENT_CACHE_DIR_NAME = "gwt-generatorCache";
+
+  /**
+   * Returns the directory to save caches in, given the directory of the
+   * persistent unit cache, or null if caches should not be saved.
+   */
+  public static File getPersistentCacheDir(File unitCacheDir) {
+    if (!Boolean.getBoolean(PERSISTENT_CACHE_PROPERTY)) {
+      return null;
+    }
+    String propertyCacheDir = System.getProperty("gwt.persistentunitcachedir");
+    if (propertyCacheDir != null) {
+      unitCacheDir = new File(propertyCacheDir);
+    }
+    return unitCacheDir == null ? null : new File(unitCacheDir, PERSISTENT_CACHE_DIR_NAME);
   }
 
-  public CachedGeneratorResult get(Rule rule, String queryTypeName) {
-    Map<String, CachedGeneratorResult> ruleResults;
-    ruleResults = rebindResults.get(rule.toString());
+  /**
+   * Loads a cache saved by {@link #save}. Entries that cannot be read, for
+   * example because their generator changed, are skipped.
+   *
+   * @return the loaded cache, or an empty cache if the file cannot be read
+   */
+  public static RebindCache load(TreeLogger logger, File file) {
+    RebindCache cache = new RebindCache();
+    if (!file.isFile()) {
+      return cache;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != MAGIC) {
+        logger.log(TreeLogger.TRACE, "Ignoring invalid generator cache " + file);
+        return cache;
+      }
+      for (int i = in.readInt(); i > 0; i--) {
+        String ruleName = in.readUTF();
+        String queryTypeName = in.readUTF();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try {
+          CachedGeneratorResult result = Util.readStreamAsObject(new ByteArrayInputStream(bytes),
+              CachedGeneratorResult.class);
+          put(cache.rebindResults, ruleName, queryTypeName, result);
+        } catch (ClassNotFoundException e) {
+          logger.log(TreeLogger.TRACE, "Ignoring cached result of " + ruleName + " for "
+              + queryTypeName, e);
+        } catch (IOException e) {
+          logger.log(TreeLogger.TRACE, "Ignoring cached result of " + ruleName + " for "
+              + queryTypeName, e);
+        }
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.TRACE, "Unable to read generator cache " + file, e);
+    } finally {
+      Utility.close(in);
+    }
+    return cache;
+  }
+
+  private static CachedGeneratorResult get(
+      Map<String, Map<String, CachedGeneratorResult>> rebindResults, String ruleName,
+      String queryTypeName) {
+    Map<String, CachedGeneratorResult> ruleResults = rebindResults.get(ruleName);
     if (ruleResults != null) {
       return ruleResults.get(queryTypeName);
     }
@@ -44,12 +127,109 @@ public class RebindCache implements Serializable {
     return null;
   }
 
-  public void put(Rule rule, String queryTypeName, CachedGeneratorResult results) {
-    Map<String, CachedGeneratorResult> ruleResults = rebindResults.get(rule.toString());
+  private static void put(Map<String, Map<String, CachedGeneratorResult>> rebindResults,
+      String ruleName, String queryTypeName, CachedGeneratorResult results) {
+    Map<String, CachedGeneratorResult> ruleResults = rebindResults.get(ruleName);
     if (ruleResults == null) {
       ruleResults = new HashMap<String, CachedGeneratorResult>();
-      rebindResults.put(rule.toString(), ruleResults);
+      rebindResults.put(ruleName, ruleResults);
     }
     ruleResults.put(queryTypeName, results);
   }
-}
\ No newline at end of file
+
+  private final Map<String, Map<String, CachedGeneratorResult>> rebindResults;
+
+  /**
+   * The entries that were read or written since this cache was created or
+   * loaded.
+   */
+  private transient Map<String, Map<String, CachedGeneratorResult>> usedRebindResults =
+      new HashMap<String, Map<String, CachedGeneratorResult>>();
+
+  public RebindCache() {
+    rebindResults = new HashMap<String, Map<String, CachedGeneratorResult>>();
+  }
+
+  public CachedGeneratorResult get(Rule rule, String queryTypeName) {
+    CachedGeneratorResult result = get(rebindResults, rule.toString(), queryTypeName);
+    if (result != null) {
+      put(getUsedRebindResults(), rule.toString(), queryTypeName, result);
+    }
+    return result;
+  }
+
+  public void put(Rule rule, String queryTypeName, CachedGeneratorResult results) {
+    put(rebindResults, rule.toString(), queryTypeName, results);
+    put(getUsedRebindResults(), rule.toString(), queryTypeName, results);
+  }
+
+  /**
+   * Saves the entries that were used since this cache was created or loaded.
+   * Entries that cannot be serialized are skipped.
+   */
+  public void save(TreeLogger logger, File file) {
+    ByteArrayOutputStream entries = new ByteArrayOutputStream();
+    DataOutputStream entriesStream = new DataOutputStream(entries);
+    int count = 0;
+    try {
+      for (Entry<String, Map<String, CachedGeneratorResult>> ruleEntry :
+          getUsedRebindResults().entrySet()) {
+        for (Entry<String, CachedGeneratorResult> entry : ruleEntry.getValue().entrySet()) {
+          byte[] bytes;
+          try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            Util.writeObjectToStream(result, entry.getValue());
+            bytes = result.toByteArray();
+          } catch (IOException e) {
+            logger.log(TreeLogger.TRACE, "Unable to cache result of " + ruleEntry.getKey()
+                + " for " + entry.getKey(), e);
+            continue;
+          }
+          entriesStream.writeUTF(ruleEntry.getKey());
+          entriesStream.writeUTF(entry.getKey());
+          entriesStream.writeInt(bytes.length);
+          entriesStream.write(bytes);
+          count++;
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected exception writing to memory", e);
+    }
+
+    // Write to a temporary file first, so that concurrent compiles never read a partial file.
+    File dir = file.getAbsoluteFile().getParentFile();
+    File tempFile = null;
+    DataOutputStream out = null;
+    try {
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        throw new IOException("Unable to create directory " + dir);
+      }
+      tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      out.writeInt(MAGIC);
+      out.writeInt(count);
+      entries.writeTo(out);
+      out.close();
+      out = null;
+      if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+        throw new IOException("Unable to rename " + tempFile + " to " + file);
+      }
+      tempFile = null;
+    } catch (IOException e) {
+      logger.log(TreeLogger.WARN, "Unable to save generator cache " + file, e);
+    } finally {
+      Utility.close(out);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private Map<String, Map<String, CachedGeneratorResult>> getUsedRebindResults() {
+    // Not restored by deserialization.
+    if (usedRebindResults == null) {
+      usedRebindResults = new HashMap<String, Map<String, CachedGeneratorResult>>();
+    }
+    return usedRebindResults;
+  }
+}
@@ -27,9 +27,9 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Create a single in-process PermutationWorker. This WorkerFactory is intended
- * to be used as a fall-back in case the other PermutationWorkers are unable to
- * complete.
+ * Create in-process PermutationWorkers, each running on its own thread. This
+ * WorkerFactory is also intended to be used as a fall-back in case the other
+ * PermutationWorkers are unable to complete.
  */
 public class ThreadedPermutationWorkerFactory extends PermutationWorkerFactory {
 
@@ -74,23 +74,56 @@ public class ThreadedPermutationWorkerFactory extends PermutationWorkerFactory {
 
   /**
    * A Java system property that can be used to change the number of in-process
-   * threads used.
+   * threads used. If unset, the number is derived from the available processors
+   * and heap; see {@link #getDefaultMaxThreads(UnifiedAst)}.
    */
   public static final String MAX_THREADS_PROPERTY = "gwt.jjs.maxThreads";
 
+  /**
+   * A rough estimate of how much heap a permutation compile needs per byte of
+   * the serialized unified AST, accounting for the deserialized AST and the
+   * structures built while compiling it.
+   */
+  private static final int HEAP_BYTES_PER_SERIALIZED_AST_BYTE = 10;
+
+  /**
+   * Returns the number of permutations that can be compiled concurrently in this
+   * process: one per available processor, as long as each of them can be
+   * expected to fit in the heap alongside the others.
+   */
+  public static int getDefaultMaxThreads(UnifiedAst unifiedAst) {
+    Runtime runtime = Runtime.getRuntime();
+    int maxThreads = runtime.availableProcessors();
+    long heapPerThread =
+        (long) unifiedAst.getSerializedAstSize() * HEAP_BYTES_PER_SERIALIZED_AST_BYTE;
+    if (heapPerThread > 0) {
+      long availableHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+      maxThreads = (int) Math.min(maxThreads, availableHeap / heapPerThread);
+    }
+    return Math.max(1, maxThreads);
+  }
+
+  /**
+   * Returns the number of in-process threads to use, as set by
+   * {@value #MAX_THREADS_PROPERTY} or else the default.
+   */
+  static int getMaxThreads(UnifiedAst unifiedAst) {
+    Integer maxThreads = Integer.getInteger(MAX_THREADS_PROPERTY);
+    return maxThreads != null ? maxThreads : getDefaultMaxThreads(unifiedAst);
+  }
+
   @Override
   public Collection<PermutationWorker> getWorkers(TreeLogger logger,
       UnifiedAst unifiedAst, int numWorkers) throws UnableToCompleteException {
     logger.log(TreeLogger.SPAM, "Creating ThreadedPermutationWorkers");
 
-    numWorkers = Math.min(numWorkers, Integer.getInteger(MAX_THREADS_PROPERTY,
-        1));
+    numWorkers = Math.min(numWorkers, getMaxThreads(unifiedAst));
 
     if (numWorkers == 0) {
       return Collections.emptyList();
     }
 
-    // The worker will deserialize a new copy
+    // Each worker deserializes its own copy from the serialized AST shared in memory
     List<PermutationWorker> toReturn = new ArrayList<PermutationWorker>(
         numWorkers);
     for (int i = 0; i < numWorkers; i++) {
@@ -20,11 +20,13 @@ import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.dev.CompilerContext;
 import com.google.gwt.dev.javac.CompilationStateBuilder.CompileMoreLater;
 import com.google.gwt.dev.javac.typemodel.TypeOracle;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.log.speedtracer.DevModeEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 import com.google.gwt.thirdparty.guava.common.annotations.VisibleForTesting;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -188,6 +190,23 @@ public class CompilationState {
     return compilerContext;
   }
 
+  /**
+   * Returns a hash of the content of every compilation unit, including generated ones, which does
+   * not depend on the order in which the units were added.
+   */
+  public String getContentHash() {
+    List<String> contentIds = new ArrayList<String>(unitMap.size());
+    for (CompilationUnit unit : unitMap.values()) {
+      contentIds.add(unit.getContentId().get());
+    }
+    Collections.sort(contentIds);
+    StringBuilder sb = new StringBuilder();
+    for (String contentId : contentIds) {
+      sb.append(contentId).append('\n');
+    }
+    return Util.computeStrongName(Util.getBytes(sb.toString()));
+  }
+
   public int getGeneratedSourceCount() {
     return generatedSourceCount;
   }
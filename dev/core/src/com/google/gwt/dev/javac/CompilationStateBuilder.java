@@ -57,8 +57,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages a centralized cache for compiled units.
@@ -187,7 +193,7 @@ public class CompilationStateBuilder {
               .setClasses(compiledClasses)
               .setProblems(cud.compilationResult().getProblems());
 
-          buildQueue.add(builder);
+          submitBuild(builder);
         } finally {
           event.end();
         }
@@ -203,7 +209,16 @@ public class CompilationStateBuilder {
 
     private final GwtAstBuilder astBuilder = new GwtAstBuilder();
 
-    private transient LinkedBlockingQueue<CompilationUnitBuilder> buildQueue;
+    /**
+     * Builds the units processed by the JDT compiler, in the order they were processed.
+     */
+    private transient ExecutorService buildExecutor;
+
+    private transient List<Future<CompilationUnit>> buildResults;
+
+    private transient AtomicInteger builtUnitCount;
+
+    private transient ProgressLogger buildProgressLogger;
 
     /**
      * The JDT compiler.
@@ -257,6 +272,54 @@ public class CompilationStateBuilder {
       }
     }
 
+    /**
+     * Creates the pool that builds compilation units while JDT keeps compiling on the calling
+     * thread.
+     */
+    private ExecutorService createBuildExecutor() {
+      int threads = Integer.getInteger(UNIT_BUILDER_THREADS_PROPERTY,
+          Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+      return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable,
+              "CompilationUnitBuilder-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    /**
+     * Schedules the expensive part of building a unit, serializing its GWT AST types to bytes, on
+     * the build pool.
+     */
+    private void submitBuild(final CompilationUnitBuilder builder) {
+      final AtomicInteger builtUnitCount = this.builtUnitCount;
+      final ProgressLogger progressLogger = buildProgressLogger;
+      buildResults.add(buildExecutor.submit(new Callable<CompilationUnit>() {
+        @Override
+        public CompilationUnit call() {
+          synchronized (progressLogger) {
+            if (!progressLogger.isTimerStarted()) {
+              // Set start time here, after first job has arrived, since it can take a little
+              // while for the first job to arrive, and this helps with the accuracy of the
+              // estimated times.
+              progressLogger.startTimer();
+            }
+          }
+          CompilationUnit unit = builder.build();
+          int processedCompilationUnitBuilders = builtUnitCount.incrementAndGet();
+          synchronized (progressLogger) {
+            progressLogger.updateProgress(processedCompilationUnitBuilders);
+          }
+          return unit;
+        }
+      }));
+    }
+
     /**
      * Compiles the source code in each supplied CompilationUnitBuilder into a CompilationUnit and
      * reports errors.
@@ -297,66 +360,43 @@ public class CompilationStateBuilder {
       do {
         final TreeLogger branch = logger.branch(TreeLogger.TRACE, "Compiling...");
         // Compile anything that needs to be compiled.
-        buildQueue = new LinkedBlockingQueue<CompilationUnitBuilder>();
-        final List<CompilationUnit> newlyBuiltUnits = Lists.newArrayList();
-        final CompilationUnitBuilder sentinel = CompilationUnitBuilder.create((GeneratedUnit) null);
-        final Throwable[] workerException = new Throwable[1];
-        final ProgressLogger progressLogger =
-            new ProgressLogger(branch, TreeLogger.TRACE, builders.size(), 10);
-        Thread buildThread = new Thread() {
-          @Override
-          public void run() {
-            int processedCompilationUnitBuilders = 0;
-            try {
-              do {
-                CompilationUnitBuilder builder = buildQueue.take();
-                if (!progressLogger.isTimerStarted()) {
-                  // Set start time here, after first job has arrived, since it can take a little
-                  // while for the first job to arrive, and this helps with the accuracy of the
-                  // estimated times.
-                  progressLogger.startTimer();
-                }
-                if (builder == sentinel) {
-                  return;
-                }
-                // Expensive, must serialize GWT AST types to bytes.
-                CompilationUnit unit = builder.build();
-                newlyBuiltUnits.add(unit);
-
-                processedCompilationUnitBuilders++;
-                progressLogger.updateProgress(processedCompilationUnitBuilders);
-              } while (true);
-            } catch (Throwable e) {
-              workerException[0] = e;
-            }
-          }
-        };
-        buildThread.setName("CompilationUnitBuilder");
-        buildThread.start();
+        buildExecutor = createBuildExecutor();
+        buildResults = Lists.newArrayList();
+        builtUnitCount = new AtomicInteger();
+        buildProgressLogger = new ProgressLogger(branch, TreeLogger.TRACE, builders.size(), 10);
+        List<CompilationUnit> newlyBuiltUnits = Lists.newArrayList();
         Event jdtCompilerEvent = SpeedTracerLogger.start(eventType);
         long compilationStartNanos = System.nanoTime();
         try {
-          compiler.doCompile(branch, builders);
-        } finally {
-          jdtCompilerEvent.end();
-        }
-        buildQueue.add(sentinel);
-        try {
-          buildThread.join();
+          try {
+            compiler.doCompile(branch, builders);
+          } finally {
+            jdtCompilerEvent.end();
+          }
+          // Collect the units in the order JDT processed them, regardless of which finished first.
+          for (Future<CompilationUnit> buildResult : buildResults) {
+            newlyBuiltUnits.add(buildResult.get());
+          }
           long compilationNanos = System.nanoTime() - compilationStartNanos;
           // Convert nanos to seconds.
           double compilationSeconds = compilationNanos / (double) TimeUnit.SECONDS.toNanos(1);
           branch.log(TreeLogger.TRACE,
               String.format("Compilation completed in %.02f seconds", compilationSeconds));
-          if (workerException[0] != null) {
-            throw workerException[0];
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
           }
-        } catch (RuntimeException e) {
-          throw e;
-        } catch (Throwable e) {
-          throw new RuntimeException("Exception processing units", e);
+          throw new RuntimeException("Exception processing units", e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while processing units", e);
         } finally {
-          buildQueue = null;
+          // Stops the remaining builds if JDT aborted or a build failed.
+          buildExecutor.shutdownNow();
+          buildExecutor = null;
+          buildResults = null;
+          builtUnitCount = null;
+          buildProgressLogger = null;
         }
         resultUnits.addAll(newlyBuiltUnits);
         builders.clear();
@@ -465,6 +505,13 @@ public class CompilationStateBuilder {
     }
   }
 
+  /**
+   * A Java system property that sets the number of threads that build compilation units, mainly
+   * serializing their GWT AST, while JDT compiles on the calling thread. Defaults to one less than
+   * the number of available processors, and at least 1.
+   */
+  public static final String UNIT_BUILDER_THREADS_PROPERTY = "gwt.javac.unitBuilderThreads";
+
   private static final CompilationStateBuilder instance = new CompilationStateBuilder();
 
   /**
@@ -539,6 +586,7 @@ public class CompilationStateBuilder {
     Map<CompilationUnitBuilder, CompilationUnit> cachedUnits = Maps.newIdentityHashMap();
 
     CompileMoreLater compileMoreLater = new CompileMoreLater(compilerContext, compilerDelegate);
+    MinimalRebuildCache minimalRebuildCache = compilerContext.getMinimalRebuildCache();
     Set<String> modifiedCompilationUnitNames = Sets.newHashSet();
     Set<String> allCompilationUnitNames = Sets.newHashSet();
 
@@ -571,13 +619,20 @@ public class CompilationStateBuilder {
         }
       }
       if (cachedUnit != null) {
+        // The rebuild cache may have been built from other content, for example if it was saved
+        // by a previous process.
+        String contentId = cachedUnit.getContentId().get();
+        if (minimalRebuildCache.isContentIdStale(compilationUnitName, contentId)) {
+          modifiedCompilationUnitNames.add(compilationUnitName);
+        }
+        minimalRebuildCache.recordContentId(compilationUnitName, contentId);
         cachedUnits.put(builder, cachedUnit);
         compileMoreLater.addValidUnit(cachedUnit);
         continue;
       }
+      minimalRebuildCache.recordContentId(compilationUnitName, builder.getContentId().get());
       builders.add(builder);
     }
-    MinimalRebuildCache minimalRebuildCache = compilerContext.getMinimalRebuildCache();
     minimalRebuildCache.setModifiedCompilationUnitNames(logger, modifiedCompilationUnitNames);
     minimalRebuildCache.setAllCompilationUnitNames(logger, allCompilationUnitNames);
     int cachedSourceCount = cachedUnits.size();
@@ -631,6 +686,7 @@ public class CompilationStateBuilder {
 
     // Units we don't want to rebuild unless we have to.
     Map<CompilationUnitBuilder, CompilationUnit> cachedUnits = Maps.newIdentityHashMap();
+    MinimalRebuildCache minimalRebuildCache = compilerContext.getMinimalRebuildCache();
     Set<String> modifiedCompilationUnitNames = Sets.newHashSet();
 
     // For each incoming generated Java source file...
@@ -640,11 +696,16 @@ public class CompilationStateBuilder {
 
       // Look for units previously compiled
       CompilationUnit cachedUnit = unitCache.find(builder.getContentId());
+      String contentId = builder.getContentId().get();
+      boolean contentIdStale =
+          minimalRebuildCache.isContentIdStale(generatedUnit.getTypeName(), contentId);
+      minimalRebuildCache.recordContentId(generatedUnit.getTypeName(), contentId);
       // Keep track of the names of units that are new or are known to have changed.
-      if (cachedUnit == null) {
+      if (cachedUnit == null || contentIdStale) {
         // For the root type in a compilation unit the source and binary name are the same.
         modifiedCompilationUnitNames.add(generatedUnit.getTypeName());
-      } else if (cachedUnit != null) {
+      }
+      if (cachedUnit != null) {
         // Recompile generated units with errors so source can be dumped.
         if (!cachedUnit.isError()) {
           cachedUnits.put(builder, cachedUnit);
@@ -654,8 +715,7 @@ public class CompilationStateBuilder {
       }
       builders.add(builder);
     }
-    compilerContext.getMinimalRebuildCache().addModifiedCompilationUnitNames(logger,
-        modifiedCompilationUnitNames);
+    minimalRebuildCache.addModifiedCompilationUnitNames(logger, modifiedCompilationUnitNames);
     compilationState.incrementGeneratedSourceCount(builders.size() + cachedUnits.size());
     compilationState.incrementCachedGeneratedSourceCount(cachedUnits.size());
     return compileMoreLater.compile(logger, compilerContext, builders,
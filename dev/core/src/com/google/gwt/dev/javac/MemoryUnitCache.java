@@ -39,6 +39,14 @@ public class MemoryUnitCache implements UnitCache {
       this.origin = source;
     }
 
+    public ContentId getContentId() {
+      return unit.getContentId();
+    }
+
+    public long getLastModified() {
+      return unit.getLastModified();
+    }
+
     public UnitOrigin getOrigin() {
       return origin;
     }
@@ -138,7 +146,9 @@ public class MemoryUnitCache implements UnitCache {
     String resourcePath = newUnit.getResourcePath();
     UnitCacheEntry oldEntry = unitMap.get(resourcePath);
     if (oldEntry != null) {
-      remove(oldEntry.getUnit());
+      // Avoids loading the old unit just to find its content id.
+      unitMap.remove(resourcePath);
+      unitMapByContentId.remove(oldEntry.getContentId());
     }
     unitMap.put(resourcePath, newEntry);
     unitMapByContentId.put(newUnit.getContentId(), newEntry);
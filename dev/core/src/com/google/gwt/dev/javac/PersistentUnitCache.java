@@ -25,22 +25,16 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 import com.google.gwt.thirdparty.guava.common.hash.Hashing;
 import com.google.gwt.thirdparty.guava.common.io.Files;
-import com.google.gwt.util.tools.Utility;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.JarURLConnection;
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -61,12 +55,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * intended to support only a single PersistentUnitCache instance in the
  * compiler at a time.
  * <p>
- * As new units are compiled, the cache data is appended to a log. This allows
- * Java serialization to efficiently store references. The next time the cache
- * is started, all logs are replayed and loaded into the cache in chronological
- * order, with newer units taking precedence. A new cache file is created for
- * any newly compiled units in this session. After a threshold of a certain
- * number of files in the directory is reached
+ * As new units are compiled, they are appended to a log, each serialized on its
+ * own, and an index of the log is written when it is closed (see
+ * {@link PersistentUnitCacheFile}). The next time the cache is started, the
+ * indexes of all logs are read in chronological order, with newer units taking
+ * precedence. A unit is only read from its log and deserialized the first
+ * time it is looked up, so startup time and heap use do not depend on the
+ * number of units in the cache. A new cache file is created for any newly
+ * compiled units in this session. After a threshold of a certain number of
+ * files in the directory is reached
  * {@link PersistentUnitCache#CACHE_FILE_THRESHOLD} , the cache files are
  * consolidated back into a single file.
  *
@@ -83,10 +80,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Known Issues:
  *
  * <ul>
- * <li>This design uses an eager cache to load every unit in the cache on the
- * first reference to find() or add(). When the cache is large (10000 units), it
- * uses lots of heap and takes 5-10 seconds. Once the PersistentUnitCache is
- * created, it starts eagerly loading the cache in a background thread).</li>
+ * <li>The first reference to find() or add() waits until the indexes of all
+ * the cache files have been read in a background thread.</li>
  *
  * <li>Although units logged to disk with the same resource path are eventually
  * cleaned up, the most recently compiled unit stays in the cache forever. This
@@ -100,6 +95,80 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 class PersistentUnitCache extends MemoryUnitCache {
 
+  /**
+   * A unit in one of the cache files, which is only deserialized when it is
+   * first needed.
+   */
+  private class PersistentUnitCacheEntry extends UnitCacheEntry {
+    private PersistentUnitCacheFile.Entry fileEntry;
+
+    /**
+     * Set if the unit could not be deserialized, so that it is not copied over
+     * to new cache files.
+     */
+    private boolean invalid;
+
+    private CompilationUnit unit;
+
+    PersistentUnitCacheEntry(PersistentUnitCacheFile.Entry fileEntry) {
+      super(null, UnitOrigin.PERSISTENT);
+      this.fileEntry = fileEntry;
+    }
+
+    @Override
+    public ContentId getContentId() {
+      return getFileEntry().getContentId();
+    }
+
+    @Override
+    public long getLastModified() {
+      return getFileEntry().getLastModified();
+    }
+
+    /**
+     * Deserializes the unit the first time it is called. Returns null if the
+     * unit cannot be deserialized, in which case it will be recompiled.
+     */
+    @Override
+    public synchronized CompilationUnit getUnit() {
+      if (unit == null && !invalid) {
+        try {
+          unit = fileEntry.readUnit();
+        } catch (IOException ex) {
+          invalid = true;
+          logReadError(ex);
+        } catch (ClassNotFoundException ex) {
+          invalid = true;
+          logReadError(ex);
+        }
+      }
+      return unit;
+    }
+
+    synchronized PersistentUnitCacheFile.Entry getFileEntry() {
+      return fileEntry;
+    }
+
+    synchronized boolean isInvalid() {
+      return invalid;
+    }
+
+    /**
+     * Points to a copy of the unit in another cache file, so that the file it
+     * was read from can be deleted.
+     */
+    synchronized void moveTo(PersistentUnitCacheFile.Entry copy) {
+      fileEntry = copy;
+    }
+
+    private void logReadError(Exception ex) {
+      if (logger.isLoggable(TreeLogger.TRACE)) {
+        logger.log(TreeLogger.TRACE, "Ignoring cached unit " + fileEntry.getResourcePath()
+            + " due to deserialization error.", ex);
+      }
+    }
+  }
+
   /**
    * If there are more than this many files in the cache, clean up the old
    * files.
@@ -174,6 +243,24 @@ class PersistentUnitCache extends MemoryUnitCache {
     @Override
     public void run() {
       try {
+        /*
+         * Point the units that were copied to the current file at their
+         * copies, so that the files they were read from can be deleted before
+         * the units are deserialized.
+         */
+        try {
+          currentCacheFileWriter.flush();
+        } catch (IOException ex) {
+          logger.log(TreeLogger.TRACE, "Error flushing cache file " + currentCacheFile, ex);
+          backgroundService.shutdownNow();
+          return;
+        }
+        for (Map.Entry<PersistentUnitCacheEntry, PersistentUnitCacheFile.Entry> copy :
+            copiedEntries.entrySet()) {
+          copy.getKey().moveTo(copy.getValue());
+        }
+        copiedEntries.clear();
+
         // Delete all cache files in the directory except for the currently open
         // file.
         SpeedTracerLogger.Event deleteEvent = SpeedTracerLogger.start(DevModeEventType.DELETE_CACHE);
@@ -213,7 +300,7 @@ class PersistentUnitCache extends MemoryUnitCache {
     @Override
     public void run() {
       assert (currentCacheFile != null);
-      closeCurrentCacheFile(currentCacheFile, currentCacheFileStream);
+      closeCurrentCacheFile(currentCacheFile, currentCacheFileWriter);
       logger.log(TreeLogger.TRACE, "Shutting down PersistentUnitCache thread");
       backgroundService.shutdownNow();
     }
@@ -238,6 +325,13 @@ class PersistentUnitCache extends MemoryUnitCache {
 
   private int unitsWritten = 0;
 
+  /**
+   * Units from older cache files that were copied to the current one, and
+   * their copies. Only accessed by the background thread.
+   */
+  private final Map<PersistentUnitCacheEntry, PersistentUnitCacheFile.Entry> copiedEntries =
+      new HashMap<PersistentUnitCacheEntry, PersistentUnitCacheFile.Entry>();
+
   private int addedSinceLastCleanup = 0;
 
   /**
@@ -250,7 +344,7 @@ class PersistentUnitCache extends MemoryUnitCache {
    * Current file and stream being written to.
    */
   private File currentCacheFile;
-  private ObjectOutputStream currentCacheFileStream;
+  private PersistentUnitCacheFile.Writer currentCacheFileWriter;
 
   private final TreeLogger logger;
 
@@ -318,15 +412,10 @@ class PersistentUnitCache extends MemoryUnitCache {
      */
     unitMapLoadStatus = backgroundService.submit(unitMapLoadTask, Boolean.TRUE);
 
-    FileOutputStream fstream = null;
-    BufferedOutputStream bstream = null;
-
     try {
-      fstream = new FileOutputStream(currentCacheFile);
-      bstream = new BufferedOutputStream(fstream);
-      currentCacheFileStream = new ObjectOutputStream(bstream);
+      currentCacheFileWriter = new PersistentUnitCacheFile.Writer(currentCacheFile);
     } catch (IOException ex) {
-      closeCurrentCacheFile(currentCacheFile, currentCacheFileStream);
+      closeCurrentCacheFile(currentCacheFile, currentCacheFileWriter);
       logger.log(TreeLogger.ERROR, "Error creating cache " + currentCacheFile
           + ". Disabling cache.", ex);
       backgroundService.shutdownNow();
@@ -424,22 +513,15 @@ class PersistentUnitCache extends MemoryUnitCache {
       logger.log(TreeLogger.TRACE, "Wrote " + unitsWritten + " units to persistent cache.");
     }
 
-    // Close and re-open a new log file to drop object references kept
-    // alive in the existing file by Java serialization.
-    closeCurrentCacheFile(currentCacheFile, currentCacheFileStream);
+    // Close the log file, which writes its index, and open a new one.
+    closeCurrentCacheFile(currentCacheFile, currentCacheFileWriter);
     unitsWritten = 0;
     currentCacheFile = createCacheFile(logger, cacheDirectory);
-    FileOutputStream fstream = null;
-    BufferedOutputStream bstream = null;
+    currentCacheFileWriter = null;
     try {
-      fstream = new FileOutputStream(currentCacheFile);
-      bstream = new BufferedOutputStream(fstream);
-      currentCacheFileStream = new ObjectOutputStream(bstream);
+      currentCacheFileWriter = new PersistentUnitCacheFile.Writer(currentCacheFile);
     } catch (IOException ex) {
-      // Close all 3 streams, not sure where the exception occurred.
-      Utility.close(bstream);
-      Utility.close(fstream);
-      closeCurrentCacheFile(currentCacheFile, currentCacheFileStream);
+      closeCurrentCacheFile(currentCacheFile, currentCacheFileWriter);
       logger.log(TreeLogger.ERROR, "Error rotating file.  Shutting down cache thread.", ex);
       throw new UnableToCompleteException();
     }
@@ -487,9 +569,19 @@ class PersistentUnitCache extends MemoryUnitCache {
         public void run() {
           try {
             assert entry.getOrigin() != UnitOrigin.ARCHIVE;
-            CompilationUnit unit = entry.getUnit();
-            assert unit != null;
-            currentCacheFileStream.writeObject(unit);
+            if (entry instanceof PersistentUnitCacheEntry) {
+              // Copy units from older cache files without deserializing them.
+              PersistentUnitCacheEntry persistentEntry = (PersistentUnitCacheEntry) entry;
+              if (persistentEntry.isInvalid()) {
+                return;
+              }
+              copiedEntries.put(persistentEntry,
+                  currentCacheFileWriter.copyUnit(persistentEntry.getFileEntry()));
+            } else {
+              CompilationUnit unit = entry.getUnit();
+              assert unit != null;
+              currentCacheFileWriter.writeUnit(unit);
+            }
             unitsWritten++;
           } catch (IOException ex) {
             backgroundService.shutdownNow();
@@ -522,8 +614,14 @@ class PersistentUnitCache extends MemoryUnitCache {
     }
   }
 
-  private void closeCurrentCacheFile(File openFile, ObjectOutputStream stream) {
-    Utility.close(stream);
+  private void closeCurrentCacheFile(File openFile, PersistentUnitCacheFile.Writer writer) {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException ex) {
+        logger.log(TreeLogger.TRACE, "Error closing cache file " + openFile, ex);
+      }
+    }
     if (unitsWritten == 0) {
       // Remove useless empty file.
       openFile.delete();
@@ -531,7 +629,8 @@ class PersistentUnitCache extends MemoryUnitCache {
   }
 
   /**
-   * Load everything cached on disk into memory.
+   * Reads the index of every cache file on disk. The units themselves are
+   * deserialized when they are first looked up.
    */
   private void loadUnitMap(TreeLogger logger, File currentCacheFile) {
     Event loadPersistentUnitEvent =
@@ -544,74 +643,47 @@ class PersistentUnitCache extends MemoryUnitCache {
       if (cacheDirectory.isDirectory() && cacheDirectory.canRead()) {
         File[] files = getCacheFiles(cacheDirectory, true);
         for (File cacheFile : files) {
-          FileInputStream fis = null;
-          BufferedInputStream bis = null;
-          ObjectInputStream inputStream = null;
           if (cacheFile.equals(currentCacheFile)) {
             continue;
           }
-          boolean deleteCacheFile = false;
+          List<PersistentUnitCacheFile.Entry> fileEntries;
           try {
-            fis = new FileInputStream(cacheFile);
-            bis = new BufferedInputStream(fis);
-            /*
-             * It is possible for the next call to throw an exception, leaving
-             * inputStream null and fis still live.
-             */
-            inputStream = new ObjectInputStream(bis);
-            while (true) {
-              CachedCompilationUnit unit = (CachedCompilationUnit) inputStream.readObject();
-              if (unit == null) {
-                break;
-              }
-              if (unit.getTypesSerializedVersion() != GwtAstBuilder.getSerializationVersion()) {
-                continue;
-              }
-              UnitCacheEntry entry = new UnitCacheEntry(unit, UnitOrigin.PERSISTENT);
-              UnitCacheEntry existingEntry = unitMap.get(unit.getResourcePath());
-              /*
-               * Don't assume that an existing entry is stale - an entry might
-               * have been loaded already from another source like a
-               * CompilationUnitArchive that is more up to date. If the
-               * timestamps are the same, accept the latest version. If it turns
-               * out to be stale, it will be recompiled and the updated unit
-               * will win this test the next time the session starts.
-               */
-              if (existingEntry != null
-                  && unit.getLastModified() >= existingEntry.getUnit().getLastModified()) {
-                super.remove(existingEntry.getUnit());
-                unitMap.put(unit.getResourcePath(), entry);
-                unitMapByContentId.put(unit.getContentId(), entry);
-              } else if (existingEntry == null) {
-                unitMap.put(unit.getResourcePath(), entry);
-                unitMapByContentId.put(unit.getContentId(), entry);
-              }
-            }
-          } catch (EOFException ex) {
-            // Go on to the next file.
+            fileEntries = PersistentUnitCacheFile.read(cacheFile);
           } catch (IOException ex) {
-            deleteCacheFile = true;
             if (logger.isLoggable(TreeLogger.TRACE)) {
               logger.log(TreeLogger.TRACE, "Ignoring and deleting cache log "
                   + cacheFile.getAbsolutePath() + " due to read error.", ex);
             }
-          } catch (ClassNotFoundException ex) {
-            deleteCacheFile = true;
-            if (logger.isLoggable(TreeLogger.TRACE)) {
-              logger.log(TreeLogger.TRACE, "Ignoring and deleting cache log "
-                  + cacheFile.getAbsolutePath() + " due to deserialization error.", ex);
-            }
-          } finally {
-            Utility.close(inputStream);
-            Utility.close(bis);
-            Utility.close(fis);
-          }
-          if (deleteCacheFile) {
             cacheFile.delete();
-          } else {
-            if (logger.isLoggable(TreeLogger.TRACE)) {
-              logger.log(TreeLogger.TRACE, cacheFile.getName() + ": Load complete");
+            continue;
+          }
+          for (PersistentUnitCacheFile.Entry fileEntry : fileEntries) {
+            if (fileEntry.getTypesSerializedVersion() != GwtAstBuilder.getSerializationVersion()) {
+              continue;
             }
+            UnitCacheEntry entry = new PersistentUnitCacheEntry(fileEntry);
+            String resourcePath = fileEntry.getResourcePath();
+            UnitCacheEntry existingEntry = unitMap.get(resourcePath);
+            /*
+             * Don't assume that an existing entry is stale - an entry might
+             * have been loaded already from another source like a
+             * CompilationUnitArchive that is more up to date. If the
+             * timestamps are the same, accept the latest version. If it turns
+             * out to be stale, it will be recompiled and the updated unit
+             * will win this test the next time the session starts.
+             */
+            if (existingEntry != null
+                && fileEntry.getLastModified() >= existingEntry.getLastModified()) {
+              unitMapByContentId.remove(existingEntry.getContentId());
+              unitMap.put(resourcePath, entry);
+              unitMapByContentId.put(fileEntry.getContentId(), entry);
+            } else if (existingEntry == null) {
+              unitMap.put(resourcePath, entry);
+              unitMapByContentId.put(fileEntry.getContentId(), entry);
+            }
+          }
+          if (logger.isLoggable(TreeLogger.TRACE)) {
+            logger.log(TreeLogger.TRACE, cacheFile.getName() + ": Load complete");
           }
         }
       } else {
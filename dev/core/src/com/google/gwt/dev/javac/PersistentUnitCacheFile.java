@@ -0,0 +1,364 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.javac;
+
+import com.google.gwt.thirdparty.guava.common.io.ByteStreams;
+import com.google.gwt.thirdparty.guava.common.io.CountingInputStream;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the files of a {@link PersistentUnitCache}.
+ * <p>
+ * Each unit is serialized on its own into a record. The record starts with the
+ * information needed to index the unit: its resource path, content id, last
+ * modification time and AST version. When the file is closed an index of all
+ * the records is appended to it, followed by a trailer that points to the
+ * index. Only the index is read when a file is opened; a unit is read and
+ * deserialized when {@link Entry#readUnit()} is called. Files are neither kept
+ * open nor memory-mapped in between, since Windows cannot delete them
+ * otherwise.
+ * <p>
+ * If the writer never got to close a file, for example because the process
+ * was killed, the records are scanned instead of reading the index. A record
+ * that was only partially written is ignored.
+ */
+final class PersistentUnitCacheFile {
+
+  /**
+   * A unit stored in a cache file, which can be deserialized on demand.
+   */
+  static final class Entry {
+    private final ContentId contentId;
+    private final File file;
+    private final long lastModified;
+    private final int length;
+    private final int offset;
+    private final String resourcePath;
+    private final long typesSerializedVersion;
+
+    private Entry(File file, String resourcePath, ContentId contentId,
+        long lastModified, long typesSerializedVersion, int offset, int length) {
+      this.file = file;
+      this.resourcePath = resourcePath;
+      this.contentId = contentId;
+      this.lastModified = lastModified;
+      this.typesSerializedVersion = typesSerializedVersion;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    ContentId getContentId() {
+      return contentId;
+    }
+
+    long getLastModified() {
+      return lastModified;
+    }
+
+    String getResourcePath() {
+      return resourcePath;
+    }
+
+    long getTypesSerializedVersion() {
+      return typesSerializedVersion;
+    }
+
+    File getFile() {
+      return file;
+    }
+
+    /**
+     * Reads the serialized unit.
+     */
+    byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[length];
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      try {
+        randomAccessFile.seek(offset);
+        randomAccessFile.readFully(bytes);
+      } finally {
+        Utility.close(randomAccessFile);
+      }
+      return bytes;
+    }
+
+    /**
+     * Reads and deserializes the unit.
+     */
+    CachedCompilationUnit readUnit() throws IOException, ClassNotFoundException {
+      ObjectInputStream inputStream =
+          new ObjectInputStream(new ByteArrayInputStream(readBytes()));
+      try {
+        return (CachedCompilationUnit) inputStream.readObject();
+      } finally {
+        Utility.close(inputStream);
+      }
+    }
+  }
+
+  /**
+   * Appends units to a new cache file.
+   */
+  static final class Writer {
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final File file;
+    private long position;
+    private final DataOutputStream stream;
+
+    Writer(File file) throws IOException {
+      this.file = file;
+      FileOutputStream fileStream = new FileOutputStream(file);
+      stream = new DataOutputStream(new BufferedOutputStream(fileStream));
+      try {
+        stream.writeInt(MAGIC);
+      } catch (IOException e) {
+        Utility.close(stream);
+        throw e;
+      }
+      position = HEADER_LENGTH;
+    }
+
+    /**
+     * Writes the index and closes the file.
+     */
+    void close() throws IOException {
+      try {
+        long indexOffset = position;
+        stream.writeByte(INDEX_TAG);
+        stream.writeInt(entries.size());
+        for (Entry entry : entries) {
+          writeMetadata(stream, entry.resourcePath, entry.contentId, entry.lastModified,
+              entry.typesSerializedVersion);
+          stream.writeLong(entry.offset);
+          stream.writeInt(entry.length);
+        }
+        stream.writeLong(indexOffset);
+        stream.writeInt(MAGIC);
+      } finally {
+        stream.close();
+      }
+    }
+
+    /**
+     * Copies a unit read from another cache file, without deserializing it.
+     * The copy can only be read once the writer is flushed.
+     *
+     * @return the copy
+     */
+    Entry copyUnit(Entry entry) throws IOException {
+      return writeRecord(entry.resourcePath, entry.contentId, entry.lastModified,
+          entry.typesSerializedVersion, entry.readBytes());
+    }
+
+    /**
+     * Writes the records buffered so far to the file.
+     */
+    void flush() throws IOException {
+      stream.flush();
+    }
+
+    int getUnitCount() {
+      return entries.size();
+    }
+
+    void writeUnit(CompilationUnit unit) throws IOException {
+      CachedCompilationUnit cachedUnit = unit.asCachedCompilationUnit();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream objectStream = new ObjectOutputStream(bytes);
+      objectStream.writeObject(cachedUnit);
+      objectStream.close();
+      writeRecord(cachedUnit.getResourcePath(), cachedUnit.getContentId(),
+          cachedUnit.getLastModified(), cachedUnit.getTypesSerializedVersion(),
+          bytes.toByteArray());
+    }
+
+    private Entry writeRecord(String resourcePath, ContentId contentId, long lastModified,
+        long typesSerializedVersion, byte[] bytes) throws IOException {
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      DataOutputStream headerStream = new DataOutputStream(header);
+      headerStream.writeByte(RECORD_TAG);
+      writeMetadata(headerStream, resourcePath, contentId, lastModified, typesSerializedVersion);
+      headerStream.writeInt(bytes.length);
+      long offset = position + header.size();
+      if (offset + bytes.length > Integer.MAX_VALUE) {
+        throw new IOException("Unit cache file is too large");
+      }
+      header.writeTo(stream);
+      stream.write(bytes);
+      Entry entry = new Entry(file, resourcePath, contentId, lastModified,
+          typesSerializedVersion, (int) offset, bytes.length);
+      entries.add(entry);
+      position = offset + bytes.length;
+      return entry;
+    }
+  }
+
+  private static final int HEADER_LENGTH = 4;
+
+  private static final byte INDEX_TAG = 2;
+
+  /**
+   * Marks the start and the end of a cache file.
+   */
+  private static final int MAGIC = 0x47574355;
+
+  private static final byte RECORD_TAG = 1;
+
+  private static final int TRAILER_LENGTH = 12;
+
+  /**
+   * Reads the index of a cache file and returns the units it contains, in the
+   * order they were written.
+   *
+   * @throws IOException if the file cannot be read or is not a cache file
+   */
+  static List<Entry> read(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      long size = randomAccessFile.length();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Unit cache file is too large: " + file);
+      }
+      if (size < HEADER_LENGTH || randomAccessFile.readInt() != MAGIC) {
+        throw new IOException("Not a unit cache file: " + file);
+      }
+      List<Entry> entries = readIndex(file, randomAccessFile, (int) size);
+      return entries != null ? entries : scanRecords(file, randomAccessFile, (int) size);
+    } catch (EOFException e) {
+      throw new IOException("Corrupt unit cache file: " + file);
+    } finally {
+      Utility.close(randomAccessFile);
+    }
+  }
+
+  /**
+   * Returns a buffered stream that reads a file from the given offset. The
+   * stream does not need to be closed separately from the file.
+   */
+  private static DataInputStream openStream(RandomAccessFile randomAccessFile, long offset)
+      throws IOException {
+    randomAccessFile.seek(offset);
+    return new DataInputStream(new BufferedInputStream(
+        Channels.newInputStream(randomAccessFile.getChannel())));
+  }
+
+  /**
+   * Reads the index of a file that was closed properly, or returns null if
+   * there is none.
+   */
+  private static List<Entry> readIndex(File file, RandomAccessFile randomAccessFile, int size)
+      throws IOException {
+    if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+      return null;
+    }
+    randomAccessFile.seek(size - TRAILER_LENGTH);
+    long indexOffset = randomAccessFile.readLong();
+    if (randomAccessFile.readInt() != MAGIC || indexOffset < HEADER_LENGTH
+        || indexOffset >= size - TRAILER_LENGTH) {
+      return null;
+    }
+    DataInputStream in = openStream(randomAccessFile, indexOffset);
+    if (in.readByte() != INDEX_TAG) {
+      return null;
+    }
+    int count = in.readInt();
+    List<Entry> entries = new ArrayList<Entry>(count);
+    for (int i = 0; i < count; i++) {
+      String resourcePath = in.readUTF();
+      ContentId contentId = readContentId(in);
+      long lastModified = in.readLong();
+      long typesSerializedVersion = in.readLong();
+      long offset = in.readLong();
+      int length = in.readInt();
+      if (offset < HEADER_LENGTH || length < 0 || offset + length > indexOffset) {
+        throw new IOException("Invalid unit cache index entry for " + resourcePath);
+      }
+      entries.add(new Entry(file, resourcePath, contentId, lastModified,
+          typesSerializedVersion, (int) offset, length));
+    }
+    return entries;
+  }
+
+  private static ContentId readContentId(DataInputStream in) throws IOException {
+    String sourceTypeName = in.readUTF();
+    String value = in.readUTF();
+    if (!value.startsWith(sourceTypeName + ':')) {
+      throw new IOException("Invalid content id " + value);
+    }
+    return new ContentId(sourceTypeName, value.substring(sourceTypeName.length() + 1));
+  }
+
+  /**
+   * Rebuilds the index of a file that was not closed by reading its record
+   * headers, skipping over the serialized units.
+   */
+  private static List<Entry> scanRecords(File file, RandomAccessFile randomAccessFile,
+      int size) throws IOException {
+    List<Entry> entries = new ArrayList<Entry>();
+    CountingInputStream counter =
+        new CountingInputStream(openStream(randomAccessFile, HEADER_LENGTH));
+    DataInputStream in = new DataInputStream(counter);
+    try {
+      while (HEADER_LENGTH + counter.getCount() < size && in.readByte() == RECORD_TAG) {
+        String resourcePath = in.readUTF();
+        ContentId contentId = readContentId(in);
+        long lastModified = in.readLong();
+        long typesSerializedVersion = in.readLong();
+        int length = in.readInt();
+        long offset = HEADER_LENGTH + counter.getCount();
+        if (length < 0 || offset + length > size) {
+          // Truncated while it was being written.
+          break;
+        }
+        entries.add(new Entry(file, resourcePath, contentId, lastModified,
+            typesSerializedVersion, (int) offset, length));
+        ByteStreams.skipFully(in, length);
+      }
+    } catch (EOFException e) {
+      // Truncated while it was being written.
+    }
+    return entries;
+  }
+
+  private static void writeMetadata(DataOutputStream out, String resourcePath,
+      ContentId contentId, long lastModified, long typesSerializedVersion) throws IOException {
+    out.writeUTF(resourcePath);
+    out.writeUTF(contentId.getSourceTypeName());
+    out.writeUTF(contentId.get());
+    out.writeLong(lastModified);
+    out.writeLong(typesSerializedVersion);
+  }
+
+  private PersistentUnitCacheFile() {
+  }
+}
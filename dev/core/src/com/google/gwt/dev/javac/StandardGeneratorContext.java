@@ -48,8 +48,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -59,6 +63,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Manages generators and generated units during a single compilation.
@@ -78,20 +84,22 @@ public class StandardGeneratorContext implements GeneratorContext {
    * This generated unit acts as a normal generated unit as well as a buffer
    * into which generators can write their source. A controller should ensure
    * that source isn't requested until the generator has finished writing it.
-   * This version is backed by {@link StandardGeneratorContext#diskCache}.
+   * This version is backed by {@link StandardGeneratorContext#diskCache}, and
+   * can be serialized once committed, to save generator results for later
+   * compiles.
    */
-  public static class GeneratedUnitImpl implements Generated {
+  public static class GeneratedUnitImpl implements Generated, Serializable {
 
     /**
      * A token to retrieve this object's bytes from the disk cache.
      */
-    protected long sourceToken = -1;
+    protected transient long sourceToken = -1;
 
     private long creationTime;
 
     private String strongHash; // cache so that refreshes work correctly
 
-    private StringWriter sw;
+    private transient StringWriter sw;
 
     private final String typeName;
 
@@ -157,6 +165,20 @@ public class StandardGeneratorContext implements GeneratorContext {
     public String optionalFileLocation() {
       return null;
     }
+
+    private void readObject(ObjectInputStream stream) throws IOException,
+        ClassNotFoundException {
+      stream.defaultReadObject();
+      sourceToken = diskCache.transferFromStream(stream);
+    }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+      if (sw != null) {
+        throw new NotSerializableException("Uncommitted generated unit " + typeName);
+      }
+      stream.defaultWriteObject();
+      diskCache.transferToStream(sourceToken, stream);
+    }
   }
 
   /**
@@ -289,6 +311,18 @@ public class StandardGeneratorContext implements GeneratorContext {
 
   private final Set<String> newlyGeneratedTypeNames = new HashSet<String>();
 
+  /**
+   * The number of forks created from this context so far.
+   */
+  private int forkCount;
+
+  /**
+   * The index of the fork with the lowest index that is generating each type,
+   * so that later forks do not generate it as well.
+   */
+  private final ConcurrentMap<String, Integer> typeNameClaimsByForks =
+      new ConcurrentHashMap<String, Integer>();
+
   private final Map<String, PendingResource> pendingResources =
       new HashMap<String, PendingResource>();
 
@@ -309,12 +343,30 @@ public class StandardGeneratorContext implements GeneratorContext {
 
   private CompilerContext compilerContext;
 
+  /**
+   * The position of this context among the forks of its parent.
+   */
+  private final int forkIndex;
+
+  /**
+   * The context this one was forked from, if any.
+   */
+  private final StandardGeneratorContext parent;
+
   /**
    * Normally, the compiler host would be aware of the same types that are
    * available in the supplied type oracle although it isn't strictly required.
    */
   public StandardGeneratorContext(CompilerContext compilerContext,
       CompilationState compilationState, ArtifactSet allGeneratedArtifacts, boolean isProdMode) {
+    this(compilerContext, compilationState, allGeneratedArtifacts, isProdMode, null, 0);
+  }
+
+  private StandardGeneratorContext(CompilerContext compilerContext,
+      CompilationState compilationState, ArtifactSet allGeneratedArtifacts, boolean isProdMode,
+      StandardGeneratorContext parent, int forkIndex) {
+    this.parent = parent;
+    this.forkIndex = forkIndex;
     this.compilerContext = compilerContext;
     this.compilationState = compilationState;
     this.genDir = compilerContext.getOptions().getGenDir();
@@ -504,26 +556,61 @@ public class StandardGeneratorContext implements GeneratorContext {
       }
       return newlyGeneratedArtifacts;
     } finally {
-
-      // Remind the user if there uncommitted cups.
-      if (!uncommittedGeneratedCupsByPrintWriter.isEmpty()) {
-        String msg =
-            "For the following type(s), generated source was never committed (did you forget to call commit()?)";
-        logger = logger.branch(TreeLogger.WARN, msg, null);
-
-        for (Generated unit : uncommittedGeneratedCupsByPrintWriter.values()) {
-          logger.log(TreeLogger.WARN, unit.getTypeName(), null);
-        }
-      }
-
+      warnUncommittedUnits(logger);
       reset();
     }
   }
 
+  /**
+   * Returns a context that generators can use while other generators use this
+   * context, or other forks of it, on other threads. The fork shares this
+   * context's type oracle, which must not change while the fork is in use, and
+   * keeps the units and artifacts it generates to itself until they are added
+   * to this context by {@link #mergeFork}, which must be called in the order
+   * the forks were created. A fork's {@link #tryCreate} reports that a type
+   * already exists when an earlier fork is generating it, as it would in a
+   * serial run; when only later forks are generating it, the fork generates it
+   * too, and its copy is kept when the forks are merged.
+   */
+  public StandardGeneratorContext fork() {
+    StandardGeneratorContext fork = new StandardGeneratorContext(compilerContext,
+        compilationState, new ArtifactSet(), isProdMode, this, forkCount++);
+    fork.setGeneratorResultCachingEnabled(generatorResultCachingEnabled);
+    return fork;
+  }
+
   public boolean isDirty() {
     return !committedGeneratedCups.isEmpty();
   }
 
+  /**
+   * Adds the units and artifacts committed to a context returned by
+   * {@link #fork()} to this context, and resets the fork. When several forks
+   * generate an artifact with the same name, the one merged first is kept, as
+   * if the forks' generators had run one after another in merge order. Types
+   * that the fork claimed but did not commit can be generated again.
+   */
+  public void mergeFork(TreeLogger logger, StandardGeneratorContext fork) {
+    assert fork.parent == this;
+    fork.abortUncommittedResources(logger);
+    fork.warnUncommittedUnits(logger);
+    for (GeneratedUnit unit : fork.committedGeneratedCups.values()) {
+      addGeneratedUnit(unit);
+      newlyGeneratedTypeNames.add(unit.getTypeName());
+    }
+    for (Artifact<?> artifact : fork.newlyGeneratedArtifacts) {
+      if (!newlyGeneratedArtifacts.contains(artifact)) {
+        commitArtifact(logger, artifact);
+      }
+    }
+    // Types that were committed are now in newlyGeneratedTypeNames.
+    for (String typeName : fork.newlyGeneratedTypeNames) {
+      typeNameClaimsByForks.remove(typeName, fork.forkIndex);
+    }
+    fork.allGeneratedArtifacts.clear();
+    fork.reset();
+  }
+
   /**
    * Clears all accumulated artifacts and state so that the context can be used
    * as if from scratch. Is useful for clearing out undesired changes after
@@ -775,7 +862,13 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
 
     // Type recently generated?
-    if (newlyGeneratedTypeNames.contains(typeName)) {
+    if (newlyGeneratedTypeNames.contains(typeName)
+        || (parent != null && parent.newlyGeneratedTypeNames.contains(typeName))) {
+      return null;
+    }
+
+    // Type being generated by an earlier fork?
+    if (parent != null && !parent.claimTypeName(typeName, forkIndex)) {
       return null;
     }
 
@@ -851,11 +944,8 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
 
     // See if the file is already committed.
-    SortedSet<GeneratedResource> resources = allGeneratedArtifacts.find(GeneratedResource.class);
-    for (GeneratedResource resource : resources) {
-      if (partialPath.equals(resource.getPartialPath())) {
-        return null;
-      }
+    if (isResourceCommitted(partialPath)) {
+      return null;
     }
 
     // See if the file is pending.
@@ -913,4 +1003,48 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
     pendingResources.clear();
   }
+
+  /**
+   * Records that the fork with index {@code forkIndex} is generating
+   * {@code typeName}, unless an earlier fork already is.
+   */
+  private boolean claimTypeName(String typeName, int forkIndex) {
+    while (true) {
+      Integer claimingForkIndex = typeNameClaimsByForks.putIfAbsent(typeName, forkIndex);
+      if (claimingForkIndex == null || claimingForkIndex == forkIndex) {
+        return true;
+      }
+      if (claimingForkIndex < forkIndex) {
+        return false;
+      }
+      if (typeNameClaimsByForks.replace(typeName, claimingForkIndex, forkIndex)) {
+        return true;
+      }
+    }
+  }
+
+  private boolean isResourceCommitted(String partialPath) {
+    SortedSet<GeneratedResource> resources = allGeneratedArtifacts.find(GeneratedResource.class);
+    for (GeneratedResource resource : resources) {
+      if (partialPath.equals(resource.getPartialPath())) {
+        return true;
+      }
+    }
+    return parent != null && parent.isResourceCommitted(partialPath);
+  }
+
+  /**
+   * Reminds the user of any uncommitted units.
+   */
+  private void warnUncommittedUnits(TreeLogger logger) {
+    if (!uncommittedGeneratedCupsByPrintWriter.isEmpty()) {
+      String msg =
+          "For the following type(s), generated source was never committed (did you forget to call commit()?)";
+      logger = logger.branch(TreeLogger.WARN, msg, null);
+
+      for (Generated unit : uncommittedGeneratedCupsByPrintWriter.values()) {
+        logger.log(TreeLogger.WARN, unit.getTypeName(), null);
+      }
+    }
+  }
 }
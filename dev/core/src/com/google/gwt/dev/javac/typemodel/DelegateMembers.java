@@ -100,7 +100,7 @@ class DelegateMembers extends AbstractMembers {
   }
 
   @Override
-  protected List<JConstructor> doGetConstructors() {
+  protected synchronized List<JConstructor> doGetConstructors() {
     if (lazyConstructors != null) {
       /*
        * Return if the constructors are being initialized or have been
@@ -126,7 +126,7 @@ class DelegateMembers extends AbstractMembers {
     return Maps.create();
   }
 
-  private void initFields() {
+  private synchronized void initFields() {
     if (fields != null) {
       return;
     }
@@ -161,7 +161,7 @@ class DelegateMembers extends AbstractMembers {
   }
 
   @SuppressWarnings("unchecked")
-  private void initMethods() {
+  private synchronized void initMethods() {
     if (methods != null) {
       return;
     }
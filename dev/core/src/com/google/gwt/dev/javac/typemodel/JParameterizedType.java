@@ -156,7 +156,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
   }
 
   @Override
-  public JClassType[] getImplementedInterfaces() {
+  public synchronized JClassType[] getImplementedInterfaces() {
     if (interfaces == null) {
       interfaces = new ArrayList<JClassType>();
       JClassType[] intfs = getBaseType().getImplementedInterfaces();
@@ -313,7 +313,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
   }
 
   @Override
-  public JClassType getSuperclass() {
+  public synchronized JClassType getSuperclass() {
     if (isInterface() != null) {
       return null;
     }
@@ -441,7 +441,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
    * corresponding {@link JClassType}s. This can only be initialized after the
    * TypeOracleUpdater has fully resolved all of the {@link JClassType}s.
    */
-  void maybeInitializeTypeParameterSubstitutionMap() {
+  synchronized void maybeInitializeTypeParameterSubstitutionMap() {
     if (lazySubstitutionMap != null) {
       return;
     }
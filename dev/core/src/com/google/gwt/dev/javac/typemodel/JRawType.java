@@ -95,7 +95,7 @@ public class JRawType extends JMaybeParameterizedType implements
   }
 
   @Override
-  public JClassType[] getImplementedInterfaces() {
+  public synchronized JClassType[] getImplementedInterfaces() {
     if (interfaces == null) {
       interfaces = new ArrayList<JClassType>();
       JClassType[] intfs = getBaseType().getImplementedInterfaces();
@@ -42,6 +42,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides type-related information about a set of types.
@@ -285,7 +286,8 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
    * Cached types that represent Arrays of other types. These types are created
    * as needed.
    */
-  private final Map<JType, JArrayType> arrayTypes = new MapMaker().weakKeys().weakValues().makeMap();
+  private final ConcurrentMap<JType, JArrayType> arrayTypes =
+      new MapMaker().weakKeys().weakValues().makeMap();
 
   /**
    * Cached singleton type representing <code>java.lang.Object</code>.
@@ -319,7 +321,7 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
    * Subclasses of generic types that have type parameters filled in. These
    * types are created as needed.
    */
-  private final Map<ParameterizedTypeKey, JParameterizedType> parameterizedTypes =
+  private final ConcurrentMap<ParameterizedTypeKey, JParameterizedType> parameterizedTypes =
       new MapMaker().weakValues().makeMap();
 
   /**
@@ -330,7 +332,8 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
 
   private JWildcardType unboundWildCardType;
 
-  private final Map<WildCardKey, JWildcardType> wildcardTypes = new MapMaker().weakValues().makeMap();
+  private final ConcurrentMap<WildCardKey, JWildcardType> wildcardTypes =
+      new MapMaker().weakValues().makeMap();
 
   public TypeOracle() {
     // Always create the default package.
@@ -405,8 +408,12 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
   public JArrayType getArrayType(JType componentType) {
     JArrayType arrayType = arrayTypes.get(componentType);
     if (arrayType == null) {
+      // Generators may run concurrently, and must all see the same instance.
       arrayType = new JArrayType(componentType, this);
-      arrayTypes.put(componentType, arrayType);
+      JArrayType existingArrayType = arrayTypes.putIfAbsent(componentType, arrayType);
+      if (existingArrayType != null) {
+        arrayType = existingArrayType;
+      }
     }
     return arrayType;
   }
@@ -543,8 +550,8 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     // bounds if any were specified
 
     result = new JParameterizedType(genericType, enclosingType, typeArgs);
-    parameterizedTypes.put(key, result);
-    return result;
+    JParameterizedType existingResult = parameterizedTypes.putIfAbsent(key, result);
+    return existingResult != null ? existingResult : result;
   }
 
   /**
@@ -668,10 +675,7 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     JClassType typeBound = (JClassType) extTypeBound;
     if (typeBound == getJavaLangObject()
         && (boundType == BoundType.UNBOUND || boundType == BoundType.EXTENDS)) {
-      if (unboundWildCardType == null) {
-        unboundWildCardType = new JWildcardType(BoundType.UNBOUND, typeBound);
-      }
-      return unboundWildCardType;
+      return getUnboundWildcardType(typeBound);
     }
     // End special case / todo.
 
@@ -682,8 +686,8 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     }
 
     result = new JWildcardType(boundType, typeBound);
-    wildcardTypes.put(key, result);
-    return result;
+    JWildcardType existingResult = wildcardTypes.putIfAbsent(key, result);
+    return existingResult != null ? existingResult : result;
   }
 
   /**
@@ -914,6 +918,13 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     return match;
   }
 
+  private synchronized JWildcardType getUnboundWildcardType(JClassType javaLangObject) {
+    if (unboundWildCardType == null) {
+      unboundWildCardType = new JWildcardType(BoundType.UNBOUND, javaLangObject);
+    }
+    return unboundWildCardType;
+  }
+
   private JType parseImpl(String type) throws NotFoundException, ParseException,
       BadTypeArgsException {
     if (type.endsWith("[]")) {
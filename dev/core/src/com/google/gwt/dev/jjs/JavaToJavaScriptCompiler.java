@@ -39,6 +39,7 @@ import com.google.gwt.dev.MinimalRebuildCache.PermutationRebuildCache;
 import com.google.gwt.dev.Permutation;
 import com.google.gwt.dev.PrecompileTaskOptions;
 import com.google.gwt.dev.cfg.ConfigProps;
+import com.google.gwt.dev.cfg.ConfigurationProperty;
 import com.google.gwt.dev.cfg.EntryMethodHolderGenerator;
 import com.google.gwt.dev.cfg.LibraryGroup.CollidingCompilationUnitException;
 import com.google.gwt.dev.cfg.ModuleDef;
@@ -82,6 +83,7 @@ import com.google.gwt.dev.jjs.impl.MakeCallsStatic;
 import com.google.gwt.dev.jjs.impl.MethodCallSpecializer;
 import com.google.gwt.dev.jjs.impl.MethodCallTightener;
 import com.google.gwt.dev.jjs.impl.MethodInliner;
+import com.google.gwt.dev.jjs.impl.OptimizerContext;
 import com.google.gwt.dev.jjs.impl.OptimizerStats;
 import com.google.gwt.dev.jjs.impl.Pruner;
 import com.google.gwt.dev.jjs.impl.RecordRebinds;
@@ -111,6 +113,7 @@ import com.google.gwt.dev.js.JsNamespaceChooser;
 import com.google.gwt.dev.js.JsNamespaceOption;
 import com.google.gwt.dev.js.JsNormalizer;
 import com.google.gwt.dev.js.JsObfuscateNamer;
+import com.google.gwt.dev.js.JsOptimizerContext;
 import com.google.gwt.dev.js.JsPersistentPrettyNamer;
 import com.google.gwt.dev.js.JsPrettyNamer;
 import com.google.gwt.dev.js.JsReportGenerationVisitor;
@@ -158,6 +161,7 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -167,6 +171,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -760,6 +766,8 @@ public abstract class JavaToJavaScriptCompiler {
     protected void optimizeJsLoop(Collection<JsNode> toInline) throws InterruptedException {
       int optimizationLevel = options.getOptimizationLevel();
       List<OptimizerStats> allOptimizerStats = new ArrayList<OptimizerStats>();
+      // After the first pass, only revisit the functions affected by the previous pass.
+      JsOptimizerContext optimizerCtx = new JsOptimizerContext(jsProgram);
       int counter = 0;
       while (true) {
         counter++;
@@ -769,13 +777,14 @@ public abstract class JavaToJavaScriptCompiler {
         Event optimizeJsEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE_JS);
 
         OptimizerStats stats = new OptimizerStats("Pass " + counter);
+        OptimizerTimer timer = new OptimizerTimer();
 
         // Remove unused functions if possible.
-        stats.add(JsStaticEval.exec(jsProgram));
+        stats.add(timer.record(JsStaticEval.exec(jsProgram, optimizerCtx)));
         // Inline Js function invocations
-        stats.add(JsInliner.exec(jsProgram, toInline));
+        stats.add(timer.record(JsInliner.exec(jsProgram, toInline, optimizerCtx)));
         // Remove unused functions if possible.
-        stats.add(JsUnusedFunctionRemover.exec(jsProgram));
+        stats.add(timer.record(JsUnusedFunctionRemover.exec(jsProgram, optimizerCtx)));
 
         // Save the stats to print out after optimizers finish.
         allOptimizerStats.add(stats);
@@ -785,6 +794,7 @@ public abstract class JavaToJavaScriptCompiler {
             || !stats.didChange()) {
           break;
         }
+        optimizerCtx.nextPass();
       }
 
       if (optimizationLevel > OptionOptimize.OPTIMIZE_LEVEL_DRAFT) {
@@ -972,8 +982,9 @@ public abstract class JavaToJavaScriptCompiler {
 
         // (6) Construct and return a value.
         Event createUnifiedAstEvent = SpeedTracerLogger.start(CompilerEventType.CREATE_UNIFIED_AST);
-        UnifiedAst result = new UnifiedAst(
-            options, new AST(jprogram, jsProgram), singlePermutation, RecordRebinds.exec(jprogram));
+        UnifiedAst result = new UnifiedAst(options, new AST(jprogram, jsProgram),
+            singlePermutation, RecordRebinds.exec(jprogram),
+            computeInputsHash(compilationState, additionalRootTypes));
         createUnifiedAstEvent.end();
         return result;
       } catch (Throwable e) {
@@ -983,6 +994,24 @@ public abstract class JavaToJavaScriptCompiler {
       }
     }
 
+    /**
+     * Returns a hash of the sources, including generated ones, the root types and the
+     * configuration properties that the unified AST is built from.
+     */
+    private String computeInputsHash(CompilationState compilationState,
+        String[] additionalRootTypes) {
+      StringBuilder sb = new StringBuilder(compilationState.getContentHash());
+      sb.append('\n').append(Arrays.toString(entryPointTypeNames));
+      sb.append('\n').append(Arrays.toString(additionalRootTypes));
+      if (module != null) {
+        sb.append('\n').append(module.getName());
+        for (ConfigurationProperty property : module.getProperties().getConfigurationProperties()) {
+          sb.append('\n').append(property.getName()).append('=').append(property.getValues());
+        }
+      }
+      return Util.computeStrongName(Util.getBytes(sb.toString()));
+    }
+
     /**
      * Creates (and returns the name for) a new class to serve as the container for the invocation
      * of registered entry point methods as part of module bootstrapping.<br />
@@ -1112,7 +1141,8 @@ public abstract class JavaToJavaScriptCompiler {
            * compiles, so let's avoid doing potentially superlinear optimizations on the unified
            * AST.
            */
-          optimizeJavaOneTime("Early Optimization", jprogram.getNodeCount());
+          optimizeJavaOneTime("Early Optimization", jprogram.getNodeCount(),
+              new OptimizerContext(jprogram), null);
         }
       }
     }
@@ -1271,6 +1301,31 @@ public abstract class JavaToJavaScriptCompiler {
     }
   }
 
+  /**
+   * Attributes the wall clock and calling thread CPU time elapsed since the previous measurement
+   * to an optimizer's stats.
+   */
+  private static class OptimizerTimer {
+    private long startCpuTime;
+    private long startTime;
+
+    OptimizerTimer() {
+      reset();
+    }
+
+    OptimizerStats record(OptimizerStats stats) {
+      stats.recordElapsedTime(System.nanoTime() - startTime);
+      stats.recordCpuTime(OptimizerStats.currentThreadCpuTime() - startCpuTime);
+      reset();
+      return stats;
+    }
+
+    void reset() {
+      startTime = System.nanoTime();
+      startCpuTime = OptimizerStats.currentThreadCpuTime();
+    }
+  }
+
   private static class PermutationResultImpl implements PermutationResult {
 
     private final ArtifactSet artifacts = new ArtifactSet();
@@ -1355,6 +1410,13 @@ public abstract class JavaToJavaScriptCompiler {
    */
   private static final int MAX_PASSES = 100;
 
+  /**
+   * A Java system property that sets the number of threads on which the method-local Java
+   * optimizations are run, sharded by type. Defaults to 1, in which case every optimization runs
+   * on the compiling thread. Whole-program optimizations always run serially.
+   */
+  public static final String OPTIMIZER_THREADS_PROPERTY = "gwt.jjs.optimizerThreads";
+
   static {
     InternalCompilerException.preload();
   }
@@ -1411,25 +1473,49 @@ public abstract class JavaToJavaScriptCompiler {
     boolean atMaxLevel = options.getOptimizationLevel() == OptionOptimize.OPTIMIZE_LEVEL_MAX;
     int passLimit = atMaxLevel ? MAX_PASSES : options.getOptimizationLevel();
     float minChangeRate = atMaxLevel ? FIXED_POINT_CHANGE_RATE : EFFICIENT_CHANGE_RATE;
-    while (true) {
-      passCount++;
-      if (passCount > passLimit) {
-        break;
-      }
-      if (Thread.interrupted()) {
-        optimizeEvent.end();
-        throw new InterruptedException();
+    int optimizerThreads = Integer.getInteger(OPTIMIZER_THREADS_PROPERTY, 1);
+    ExecutorService executor =
+        optimizerThreads > 1 ? Executors.newFixedThreadPool(optimizerThreads) : null;
+    OptimizerContext optimizerCtx = new OptimizerContext(jprogram);
+    // The first pass visits every method.
+    boolean fullPass = true;
+    try {
+      while (true) {
+        passCount++;
+        if (passCount > passLimit) {
+          break;
+        }
+        if (Thread.interrupted()) {
+          optimizeEvent.end();
+          throw new InterruptedException();
+        }
+        AstDumper.maybeDumpAST(jprogram);
+        OptimizerStats stats = optimizeJavaOneTime("Pass " + passCount, nodeCount,
+            optimizerCtx, executor);
+        allOptimizerStats.add(stats);
+        lastNodeCount = nodeCount;
+        nodeCount = jprogram.getNodeCount();
+
+        float nodeChangeRate = stats.getNumMods() / (float) lastNodeCount;
+        float sizeChangeRate = (lastNodeCount - nodeCount) / (float) lastNodeCount;
+        if (nodeChangeRate <= minChangeRate && sizeChangeRate <= minChangeRate) {
+          if (fullPass) {
+            break;
+          }
+          /*
+           * The method-local optimizations only revisited the methods affected by recorded
+           * changes, which can miss opportunities that a change opened up elsewhere. Visit every
+           * method before concluding that the fixed point was reached.
+           */
+          optimizerCtx.markAllModified();
+          fullPass = true;
+        } else {
+          fullPass = false;
+        }
       }
-      AstDumper.maybeDumpAST(jprogram);
-      OptimizerStats stats = optimizeJavaOneTime("Pass " + passCount, nodeCount);
-      allOptimizerStats.add(stats);
-      lastNodeCount = nodeCount;
-      nodeCount = jprogram.getNodeCount();
-
-      float nodeChangeRate = stats.getNumMods() / (float) lastNodeCount;
-      float sizeChangeRate = (lastNodeCount - nodeCount) / (float) lastNodeCount;
-      if (nodeChangeRate <= minChangeRate && sizeChangeRate <= minChangeRate) {
-        break;
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
       }
     }
 
@@ -1454,24 +1540,44 @@ public abstract class JavaToJavaScriptCompiler {
     }
   }
 
-  private OptimizerStats optimizeJavaOneTime(String passName, int numNodes) {
+  /**
+   * Runs every Java optimization once. Method-local optimizations only revisit the methods
+   * affected by the changes recorded in {@code optimizerCtx}; if {@code executor} is non-null
+   * some of them are also sharded by type and run on it.
+   */
+  private OptimizerStats optimizeJavaOneTime(String passName, int numNodes,
+      OptimizerContext optimizerCtx, ExecutorService executor) throws InterruptedException {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "phase", "loop");
     // Clinits might have become empty become empty.
     jprogram.typeOracle.recomputeAfterOptimizations(jprogram.getDeclaredTypes());
     OptimizerStats stats = new OptimizerStats(passName);
-    stats.add(Pruner.exec(jprogram, true).recordVisits(numNodes));
-    stats.add(Finalizer.exec(jprogram).recordVisits(numNodes));
-    stats.add(MakeCallsStatic.exec(options, jprogram).recordVisits(numNodes));
-    stats.add(TypeTightener.exec(jprogram).recordVisits(numNodes));
-    stats.add(MethodCallTightener.exec(jprogram).recordVisits(numNodes));
-    stats.add(MethodCallSpecializer.exec(jprogram).recordVisits(numNodes));
-    stats.add(DeadCodeElimination.exec(jprogram).recordVisits(numNodes));
-    stats.add(MethodInliner.exec(jprogram).recordVisits(numNodes));
+    OptimizerTimer timer = new OptimizerTimer();
+    stats.add(timer.record(Pruner.exec(jprogram, true, optimizerCtx)).recordVisits(numNodes));
+    stats.add(timer.record(Finalizer.exec(jprogram, optimizerCtx)).recordVisits(numNodes));
+    stats.add(timer.record(MakeCallsStatic.exec(options, jprogram, optimizerCtx))
+        .recordVisits(numNodes));
+    stats.add(timer.record(TypeTightener.exec(jprogram, optimizerCtx)).recordVisits(numNodes));
+    if (executor != null) {
+      stats.add(timer.record(MethodCallTightener.exec(jprogram, executor, optimizerCtx))
+          .recordVisits(numNodes));
+      stats.add(timer.record(MethodCallSpecializer.exec(jprogram, executor, optimizerCtx))
+          .recordVisits(numNodes));
+    } else {
+      stats.add(timer.record(MethodCallTightener.exec(jprogram, optimizerCtx))
+          .recordVisits(numNodes));
+      stats.add(timer.record(MethodCallSpecializer.exec(jprogram, optimizerCtx))
+          .recordVisits(numNodes));
+    }
+    stats.add(timer.record(DeadCodeElimination.exec(jprogram, optimizerCtx))
+        .recordVisits(numNodes));
+    stats.add(timer.record(MethodInliner.exec(jprogram, optimizerCtx)).recordVisits(numNodes));
     if (options.shouldInlineLiteralParameters()) {
-      stats.add(SameParameterValueOptimizer.exec(jprogram).recordVisits(numNodes));
+      stats.add(timer.record(SameParameterValueOptimizer.exec(jprogram, optimizerCtx))
+          .recordVisits(numNodes));
     }
     if (options.shouldOrdinalizeEnums()) {
-      stats.add(EnumOrdinalizer.exec(jprogram).recordVisits(numNodes));
+      stats.add(timer.record(EnumOrdinalizer.exec(jprogram, optimizerCtx))
+          .recordVisits(numNodes));
     }
     optimizeEvent.end();
     return stats;
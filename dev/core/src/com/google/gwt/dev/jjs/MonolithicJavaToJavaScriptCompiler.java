@@ -117,11 +117,14 @@ public class MonolithicJavaToJavaScriptCompiler extends JavaToJavaScriptCompiler
 
         if (options.useDetailedTypeIds()) {
           return ResolveRuntimeTypeReferences.IntoStringLiterals.exec(jprogram);
-        } else {
-          TypeOrder typeIdOrder =
-              options.shouldCompilePerFile() ? TypeOrder.ALPHABETICAL : TypeOrder.FREQUENCY;
-          return ResolveRuntimeTypeReferences.IntoIntLiterals.exec(jprogram, typeIdOrder,
+        } else if (options.shouldCompilePerFile()) {
+          // Type ids must stay stable across recompiles.
+          return ResolveRuntimeTypeReferences.IntoIntLiterals.exec(jprogram,
+              TypeOrder.ALPHABETICAL,
               compilerContext.getMinimalRebuildCache().getIntTypeIdGenerator());
+        } else {
+          // Permutations may be compiled concurrently; each assigns its own ids.
+          return ResolveRuntimeTypeReferences.IntoIntLiterals.exec(jprogram);
         }
       } finally {
         event.end();
@@ -25,11 +25,15 @@ import com.google.gwt.dev.jjs.ast.JProgram;
 import com.google.gwt.dev.js.ast.JsProgram;
 import com.google.gwt.dev.util.DiskCache;
 import com.google.gwt.dev.util.Util;
+import com.google.gwt.thirdparty.guava.common.io.CountingInputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.util.Collections;
 import java.util.Set;
 import java.util.SortedSet;
@@ -97,17 +101,55 @@ public class UnifiedAst implements Serializable {
    */
   private final SortedSet<String> rebindRequests;
 
+  /**
+   * The bytes of the serialized AST, shared in memory by every in-process consumer so that each
+   * of them deserializes its own copy without going back to the disk cache. Reclaimed under
+   * memory pressure, in which case they are simply read again.
+   */
+  private transient SoftReference<byte[]> serializedAstBytes;
+
+  /**
+   * The size in bytes of the serialized AST, recorded when it is written to the disk cache.
+   */
+  private transient int serializedAstSize;
+
   /**
    * The serialized AST.
    */
   private transient long serializedAstToken;
 
+  /**
+   * A hash of the inputs the AST was built from, the rebind requests and the options, or null if
+   * the inputs are not known.
+   */
+  private final String strongName;
+
   public UnifiedAst(JJSOptions options, AST initialAst, boolean singlePermutation,
       Set<String> rebindRequests) {
+    this(options, initialAst, singlePermutation, rebindRequests, null);
+  }
+
+  /**
+   * @param inputsHash a hash of the inputs the AST was built from, which must be the same each
+   *          time the same inputs are compiled, or null if it is not known
+   */
+  public UnifiedAst(JJSOptions options, AST initialAst, boolean singlePermutation,
+      Set<String> rebindRequests, String inputsHash) {
     this.options = new JJSOptionsImpl(options);
     this.initialAst = initialAst;
     this.rebindRequests = Collections.unmodifiableSortedSet(new TreeSet<String>(rebindRequests));
-    this.serializedAstToken = singlePermutation ? -1 : diskCache.writeObject(initialAst);
+    // The serialized AST can not be hashed instead, it varies from one compile to the next since
+    // some of the AST's collections are ordered by identity hash codes.
+    this.strongName = inputsHash == null ? null : Util.computeStrongName(new byte[][] {
+        Util.getBytes(inputsHash), Util.getBytes(this.rebindRequests.toString()),
+        serialize(this.options)});
+    if (singlePermutation) {
+      this.serializedAstToken = -1;
+    } else {
+      byte[] bytes = serialize(initialAst);
+      this.serializedAstSize = bytes.length;
+      this.serializedAstToken = diskCache.writeByteArray(bytes);
+    }
   }
 
   /**
@@ -119,6 +161,8 @@ public class UnifiedAst implements Serializable {
     other.initialAst = null; // steal its copy
     this.rebindRequests = other.rebindRequests;
     this.serializedAstToken = other.serializedAstToken;
+    this.serializedAstSize = other.serializedAstSize;
+    this.strongName = other.strongName;
   }
 
   /**
@@ -148,19 +192,22 @@ public class UnifiedAst implements Serializable {
    * @return the current AST object holding the Java and JavaScript trees.
    */
   public AST getFreshAst() {
+    byte[] bytes;
     synchronized (myLockObject) {
       if (initialAst != null) {
         AST result = initialAst;
         initialAst = null;
         return result;
-      } else {
-        if (serializedAstToken < 0) {
-          throw new IllegalStateException(
-              "No serialized AST was cached and AST was already consumed.");
-        }
-        return diskCache.readObject(serializedAstToken, AST.class);
       }
+      if (serializedAstToken < 0) {
+        throw new IllegalStateException(
+            "No serialized AST was cached and AST was already consumed.");
+      }
+      bytes = getSerializedAstBytes();
     }
+    // Deserialize outside of the lock so that concurrent permutation workers do not wait on
+    // each other.
+    return deserializeAst(bytes);
   }
 
   /**
@@ -170,6 +217,22 @@ public class UnifiedAst implements Serializable {
     return moduleMetrics;
   }
 
+  /**
+   * Returns the size in bytes of the serialized AST, or 0 if the AST is not serialized because
+   * only a single permutation will be compiled.
+   */
+  public int getSerializedAstSize() {
+    return serializedAstToken < 0 ? 0 : serializedAstSize;
+  }
+
+  /**
+   * Returns a hash that identifies the inputs the AST was built from and the compilation options,
+   * or null if the inputs are not known.
+   */
+  public String getStrongName() {
+    return strongName;
+  }
+
   /**
    * Returns the active set of JJS options associated with this compile.
    */
@@ -198,7 +261,7 @@ public class UnifiedAst implements Serializable {
   public void prepare() {
     synchronized (myLockObject) {
       if (initialAst == null) {
-        initialAst = diskCache.readObject(serializedAstToken, AST.class);
+        initialAst = deserializeAst(getSerializedAstBytes());
       }
     }
   }
@@ -217,13 +280,48 @@ public class UnifiedAst implements Serializable {
     this.precompilationMetrics = metrics;
   }
 
+  private AST deserializeAst(byte[] bytes) {
+    try {
+      return Util.readStreamAsObject(new ByteArrayInputStream(bytes), AST.class);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Unexpected exception deserializing AST", e);
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected exception deserializing AST", e);
+    }
+  }
+
+  /**
+   * Returns the shared serialized AST, reading it from the disk cache if it is not in memory.
+   * Must be called while holding {@link #myLockObject}.
+   */
+  private byte[] getSerializedAstBytes() {
+    byte[] bytes = serializedAstBytes == null ? null : serializedAstBytes.get();
+    if (bytes == null) {
+      bytes = diskCache.readByteArray(serializedAstToken);
+      serializedAstBytes = new SoftReference<byte[]>(bytes);
+    }
+    return bytes;
+  }
+
+  private static byte[] serialize(Object object) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      Util.writeObjectToStream(bytes, object);
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected exception serializing " + object.getClass(), e);
+    }
+    return bytes.toByteArray();
+  }
+
   /**
    * Re-initialize lock object; copy serialized AST straight to cache.
    */
   private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
     stream.defaultReadObject();
     myLockObject = new Object();
-    serializedAstToken = diskCache.transferFromStream(stream);
+    CountingInputStream countingStream = new CountingInputStream(stream);
+    serializedAstToken = diskCache.transferFromStream(countingStream);
+    serializedAstSize = (int) countingStream.getCount();
   }
 
   /**
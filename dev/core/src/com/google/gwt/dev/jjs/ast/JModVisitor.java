@@ -92,7 +92,7 @@ public class JModVisitor extends JVisitor {
       try {
         for (index = 0; index < list.size(); ++index) {
           removed = replaced = false;
-          list.get(index).traverse(JModVisitor.this, this);
+          JModVisitor.this.traverse(list.get(index), this);
         }
       } catch (Throwable e) {
         throw translateException(list.get(index), e);
@@ -180,7 +180,7 @@ public class JModVisitor extends JVisitor {
       try {
         for (index = 0; index < list.size(); ++index) {
           removed = replaced = false;
-          list.get(index).traverse(JModVisitor.this, this);
+          JModVisitor.this.traverse(list.get(index), this);
         }
         return list;
       } catch (Throwable e) {
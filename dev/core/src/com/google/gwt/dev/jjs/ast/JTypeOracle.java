@@ -836,6 +836,19 @@ public class JTypeOracle implements Serializable {
     return null;
   }
 
+  /**
+   * Eagerly builds the by-signature method lookup for every class in {@code types}, so that
+   * {@link #getMethodBySignature} no longer mutates this oracle and can be called concurrently
+   * until the next call to {@link #recomputeAfterOptimizations}.
+   */
+  public void computeMethodsBySignature(Collection<JDeclaredType> types) {
+    for (JDeclaredType type : types) {
+      if (type instanceof JClassType) {
+        getOrCreateMethodsBySignatureForType((JClassType) type);
+      }
+    }
+  }
+
   public JMethod getMethodBySignature(JClassType type, String signature) {
     return getOrCreateMethodsBySignatureForType(type).get(signature);
   }
@@ -44,7 +44,6 @@ import com.google.gwt.dev.jjs.ast.JLocalRef;
 import com.google.gwt.dev.jjs.ast.JLongLiteral;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNewInstance;
 import com.google.gwt.dev.jjs.ast.JNode;
 import com.google.gwt.dev.jjs.ast.JParameterRef;
@@ -64,6 +63,7 @@ import com.google.gwt.dev.jjs.ast.JVariableRef;
 import com.google.gwt.dev.jjs.ast.JVisitor;
 import com.google.gwt.dev.jjs.ast.JWhileStatement;
 import com.google.gwt.dev.jjs.ast.js.JMultiExpression;
+import com.google.gwt.dev.util.collect.IdentityHashSet;
 import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
@@ -103,7 +103,7 @@ public class DeadCodeElimination {
    * {@link #cast(JExpression, SourceInfo, JType, JExpression) simplifyCast}, so
    * that more simplifications can be made on a single pass through a tree.
    */
-  public class DeadCodeVisitor extends JModVisitor {
+  public class DeadCodeVisitor extends JChangeTrackingVisitor {
     private JMethod currentMethod = null;
 
     /**
@@ -130,6 +130,10 @@ public class DeadCodeElimination {
 
     private final Set<JBlock> switchBlocks = new HashSet<JBlock>();
 
+    public DeadCodeVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
+
     /**
      * Short circuit binary operations.
      */
@@ -1870,16 +1874,42 @@ public class DeadCodeElimination {
     return new DeadCodeElimination(program).execImpl(program);
   }
 
+  /**
+   * Only revisits the methods affected by changes recorded in {@code optimizerCtx} since the last
+   * time this optimization ran with it.
+   */
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
+    int lastStep = optimizerCtx.getLastStepFor(NAME);
+    Set<JMethod> affectedMethods = optimizerCtx.getAffectedMethodsSince(lastStep);
+    optimizerCtx.setLastStepFor(NAME, optimizerCtx.getOptimizationStep());
+    OptimizerStats stats =
+        new DeadCodeElimination(program, optimizerCtx).execImpl(affectedMethods);
+    optimizerCtx.incOptimizationStep();
+    return stats;
+  }
+
   public static OptimizerStats exec(JProgram program, JNode node) {
     return new DeadCodeElimination(program).execImpl(node);
   }
 
+  public static OptimizerStats exec(JProgram program, JNode node,
+      OptimizerContext optimizerCtx) {
+    return new DeadCodeElimination(program, optimizerCtx).execImpl(node);
+  }
+
+  private final OptimizerContext optimizerCtx;
+
   private final JProgram program;
 
   private final Map<JType, Class<?>> typeClassMap = new IdentityHashMap<JType, Class<?>>();
 
   public DeadCodeElimination(JProgram program) {
+    this(program, new OptimizerContext(program));
+  }
+
+  private DeadCodeElimination(JProgram program, OptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
     typeClassMap.put(program.getTypeJavaLangObject(), Object.class);
     typeClassMap.put(program.getTypeJavaLangString(), String.class);
     typeClassMap.put(program.getTypePrimitiveBoolean(), boolean.class);
@@ -1896,10 +1926,29 @@ public class DeadCodeElimination {
     OptimizerStats stats = new OptimizerStats(NAME);
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
 
-    DeadCodeVisitor deadCodeVisitor = new DeadCodeVisitor();
+    DeadCodeVisitor deadCodeVisitor = new DeadCodeVisitor(optimizerCtx);
     deadCodeVisitor.accept(node);
     stats.recordModified(deadCodeVisitor.getNumMods());
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
+
+  private OptimizerStats execImpl(Set<JMethod> methods) {
+    OptimizerStats stats = new OptimizerStats(NAME);
+    Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
+
+    Set<JMethod> methodsToVisit = new IdentityHashSet<JMethod>();
+    for (JMethod method : methods) {
+      // We can't eliminate code from an external type
+      JDeclaredType enclosingType = method.getEnclosingType();
+      if (!(enclosingType instanceof JClassType) || !enclosingType.isExternal()) {
+        methodsToVisit.add(method);
+      }
+    }
+    DeadCodeVisitor deadCodeVisitor = new DeadCodeVisitor(optimizerCtx);
+    optimizerCtx.traverse(deadCodeVisitor, methodsToVisit);
+    stats.recordModified(deadCodeVisitor.getNumMods());
+    optimizeEvent.end("didChange", "" + stats.didChange());
+    return stats;
+  }
 }
@@ -817,10 +817,19 @@ public class EnumOrdinalizer {
   }
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
 
     startTracker();
     OptimizerStats stats = new EnumOrdinalizer(program).execImpl();
+    if (stats.didChange()) {
+      // Ordinalization retypes fields, methods and expressions all over the program.
+      optimizerCtx.markAllModified();
+    }
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
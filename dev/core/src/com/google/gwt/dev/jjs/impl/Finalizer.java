@@ -26,7 +26,6 @@ import com.google.gwt.dev.jjs.ast.JField;
 import com.google.gwt.dev.jjs.ast.JLocal;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodBody;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JParameter;
 import com.google.gwt.dev.jjs.ast.JPostfixOperation;
 import com.google.gwt.dev.jjs.ast.JPrefixOperation;
@@ -58,12 +57,20 @@ public class Finalizer {
    * program. But if it wasn't implemented, then the enclosing class should have
    * come up as not instantiated and been culled. So I think it's not possible.
    */
-  private class FinalizeVisitor extends JModVisitor {
+  private class FinalizeVisitor extends JChangeTrackingVisitor {
+
+    public FinalizeVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
 
     @Override
     public void endVisit(JClassType x, Context ctx) {
       if (!x.isFinal() && !isSubclassed.contains(x)) {
         setFinal(x);
+        // Calls to the methods of a final class might now be tightened.
+        for (JMethod method : x.getMethods()) {
+          optimizerCtx.markModified(method);
+        }
       }
     }
 
@@ -200,8 +207,13 @@ public class Finalizer {
   private static final String NAME = Finalizer.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new Finalizer().execImpl(program);
+    OptimizerStats stats = new Finalizer(optimizerCtx).execImpl(program);
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
@@ -212,14 +224,17 @@ public class Finalizer {
 
   private final Set<JClassType> isSubclassed = new HashSet<JClassType>();
 
-  private Finalizer() {
+  private final OptimizerContext optimizerCtx;
+
+  private Finalizer(OptimizerContext optimizerCtx) {
+    this.optimizerCtx = optimizerCtx;
   }
 
   private OptimizerStats execImpl(JProgram program) {
     MarkVisitor marker = new MarkVisitor();
     marker.accept(program);
 
-    FinalizeVisitor finalizer = new FinalizeVisitor();
+    FinalizeVisitor finalizer = new FinalizeVisitor(optimizerCtx);
     finalizer.accept(program);
 
     return new OptimizerStats(NAME).recordModified(finalizer.getNumMods());
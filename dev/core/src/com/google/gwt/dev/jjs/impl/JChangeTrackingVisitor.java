@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.dev.jjs.ast.Context;
+import com.google.gwt.dev.jjs.ast.JField;
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JModVisitor;
+import com.google.gwt.dev.jjs.ast.JNode;
+
+/**
+ * A visitor that reports every method or field it changes to an {@link OptimizerContext}.
+ * <p>
+ * Changes are attributed to the method or field being traversed when they are made, so the
+ * member has to be reached through the visitor rather than by accepting its body directly.
+ * Changes made outside of any method or field, such as removing members from a type, are not
+ * reported; the optimizer making them is responsible for informing the context.
+ */
+public class JChangeTrackingVisitor extends JModVisitor {
+
+  private final OptimizerContext optimizerCtx;
+
+  public JChangeTrackingVisitor(OptimizerContext optimizerCtx) {
+    this.optimizerCtx = optimizerCtx;
+  }
+
+  @Override
+  protected void traverse(JNode node, Context context) {
+    if (!(node instanceof JMethod) && !(node instanceof JField)) {
+      super.traverse(node, context);
+      return;
+    }
+
+    int numModsBefore = getNumMods();
+    super.traverse(node, context);
+    if (getNumMods() > numModsBefore) {
+      if (node instanceof JMethod) {
+        optimizerCtx.markModified((JMethod) node);
+      } else {
+        optimizerCtx.markModified((JField) node);
+      }
+    }
+  }
+}
@@ -300,10 +300,14 @@ public class MakeCallsStatic {
    * CreateStaticMethodVisitor, go and rewrite the call sites to call the static
    * method instead.
    */
-  private class RewriteCallSites extends JModVisitor {
+  private class RewriteCallSites extends JChangeTrackingVisitor {
     private boolean currentMethodIsInitiallyLive;
     private ControlFlowAnalyzer initiallyLive;
 
+    public RewriteCallSites(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
+
     /**
      * In cases where callers are directly referencing (effectively) final
      * instance methods, rewrite the call site to reference the newly-generated
@@ -422,8 +426,14 @@ public class MakeCallsStatic {
   private static final String NAME = MakeCallsStatic.class.getSimpleName();
 
   public static OptimizerStats exec(OptionCheckedMode option, JProgram program) {
+    return exec(option, program, new OptimizerContext(program));
+  }
+
+  public static OptimizerStats exec(OptionCheckedMode option, JProgram program,
+      OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new MakeCallsStatic(option, program).execImpl();
+    OptimizerStats stats = new MakeCallsStatic(option, program, optimizerCtx).execImpl();
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
@@ -432,10 +442,13 @@ public class MakeCallsStatic {
 
   protected Set<JMethod> toBeMadeStatic = new HashSet<JMethod>();
 
+  private final OptimizerContext optimizerCtx;
   private final JProgram program;
   private final StaticCallConverter converter;
 
-  private MakeCallsStatic(OptionCheckedMode option, JProgram program) {
+  private MakeCallsStatic(OptionCheckedMode option, JProgram program,
+      OptimizerContext optimizerCtx) {
+    this.optimizerCtx = optimizerCtx;
     this.program = program;
     this.converter = new StaticCallConverter(program, option.shouldAddRuntimeChecks());
   }
@@ -448,6 +461,9 @@ public class MakeCallsStatic {
     CreateStaticImplsVisitor creator = new CreateStaticImplsVisitor(program);
     for (JMethod method : toBeMadeStatic) {
       creator.accept(method);
+      // The body moved to a new static method and the instance method now delegates to it.
+      optimizerCtx.markModified(method);
+      optimizerCtx.markModified(program.getStaticImpl(method));
     }
     for (JMethod method : toBeMadeStatic) {
       // if method has specialization, add it to the static method
@@ -469,7 +485,7 @@ public class MakeCallsStatic {
      * optimizations can unlock devirtualizations even if no more static impls
      * are created.
      */
-    RewriteCallSites rewriter = new RewriteCallSites();
+    RewriteCallSites rewriter = new RewriteCallSites(optimizerCtx);
     rewriter.accept(program);
     stats.recordModified(rewriter.getNumMods());
     assert (rewriter.didChange() || toBeMadeStatic.isEmpty());
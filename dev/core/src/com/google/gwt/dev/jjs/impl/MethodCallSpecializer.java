@@ -16,9 +16,9 @@
 package com.google.gwt.dev.jjs.impl;
 
 import com.google.gwt.dev.jjs.ast.Context;
+import com.google.gwt.dev.jjs.ast.JDeclaredType;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNonNullType;
 import com.google.gwt.dev.jjs.ast.JNullType;
 import com.google.gwt.dev.jjs.ast.JProgram;
@@ -28,6 +28,8 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 /**
  * For each JMethodCall that contains a specialization, retarget the method
@@ -37,7 +39,11 @@ import java.util.List;
  */
 public class MethodCallSpecializer {
 
-  private class MethodCallSpecializingVisitor extends JModVisitor {
+  private class MethodCallSpecializingVisitor extends JChangeTrackingVisitor {
+
+    public MethodCallSpecializingVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
 
     @Override
     public void endVisit(JMethodCall x, Context ctx) {
@@ -90,22 +96,78 @@ public class MethodCallSpecializer {
   public static final String NAME = MethodCallSpecializer.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  /**
+   * Only revisits the methods affected by changes recorded in {@code optimizerCtx} since the last
+   * time this optimization ran with it.
+   */
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new MethodCallSpecializer(program).execImpl();
+    OptimizerStats stats = new MethodCallSpecializer(program, optimizerCtx).execImpl();
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
 
+  /**
+   * Runs the optimization on each module type concurrently, producing the same AST as
+   * {@link #exec(JProgram)}.
+   */
+  public static OptimizerStats exec(JProgram program, ExecutorService executor)
+      throws InterruptedException {
+    return exec(program, executor, new OptimizerContext(program));
+  }
+
+  /**
+   * Runs the optimization on each module type concurrently, producing the same AST as
+   * {@link #exec(JProgram, OptimizerContext)}.
+   */
+  public static OptimizerStats exec(JProgram program, ExecutorService executor,
+      OptimizerContext optimizerCtx) throws InterruptedException {
+    Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
+    OptimizerStats stats = new MethodCallSpecializer(program, optimizerCtx).execImpl(executor);
+    optimizerCtx.incOptimizationStep();
+    optimizeEvent.end("didChange", "" + stats.didChange());
+    return stats;
+  }
+
+  private final OptimizerContext optimizerCtx;
+
   private final JProgram program;
 
-  private MethodCallSpecializer(JProgram program) {
+  private MethodCallSpecializer(JProgram program, OptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
   }
 
   private OptimizerStats execImpl() {
-    MethodCallSpecializingVisitor specializer =
-        new MethodCallSpecializingVisitor();
-    specializer.accept(program);
+    Set<JMethod> affectedMethods = getAffectedMethods();
+    MethodCallSpecializingVisitor specializer = new MethodCallSpecializingVisitor(optimizerCtx);
+    optimizerCtx.traverse(specializer, affectedMethods);
     return new OptimizerStats(NAME).recordModified(specializer.getNumMods());
   }
-}
\ No newline at end of file
+
+  private OptimizerStats execImpl(ExecutorService executor) throws InterruptedException {
+    final Set<JMethod> affectedMethods = getAffectedMethods();
+    return new TypeShardedOptimizer(NAME) {
+      @Override
+      protected int optimize(JDeclaredType type) {
+        MethodCallSpecializingVisitor specializer = new MethodCallSpecializingVisitor(optimizerCtx);
+        for (JMethod method : type.getMethods()) {
+          if (affectedMethods.contains(method)) {
+            specializer.accept(method);
+          }
+        }
+        return specializer.getNumMods();
+      }
+    }.exec(program, executor);
+  }
+
+  private Set<JMethod> getAffectedMethods() {
+    int lastStep = optimizerCtx.getLastStepFor(NAME);
+    optimizerCtx.setLastStepFor(NAME, optimizerCtx.getOptimizationStep());
+    return optimizerCtx.getAffectedMethodsSince(lastStep);
+  }
+}
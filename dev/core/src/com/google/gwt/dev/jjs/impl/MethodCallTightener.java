@@ -17,9 +17,9 @@ package com.google.gwt.dev.jjs.impl;
 
 import com.google.gwt.dev.jjs.ast.Context;
 import com.google.gwt.dev.jjs.ast.JClassType;
+import com.google.gwt.dev.jjs.ast.JDeclaredType;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNewInstance;
 import com.google.gwt.dev.jjs.ast.JProgram;
 import com.google.gwt.dev.jjs.ast.JReferenceType;
@@ -28,6 +28,9 @@ import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
 /**
  * Update polymorphic method calls to tighter bindings based on the type of the
  * qualifier. For a given polymorphic method call to a non-final target, see if
@@ -52,7 +55,11 @@ public class MethodCallTightener {
    * Updates polymorphic method calls to tighter bindings based on the type of
    * the qualifier.
    */
-  public class MethodCallTighteningVisitor extends JModVisitor {
+  public class MethodCallTighteningVisitor extends JChangeTrackingVisitor {
+
+    public MethodCallTighteningVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
 
     @Override
     public void endVisit(JMethodCall x, Context ctx) {
@@ -118,21 +125,79 @@ public class MethodCallTightener {
   public static final String NAME = MethodCallTightener.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  /**
+   * Only revisits the methods affected by changes recorded in {@code optimizerCtx} since the last
+   * time this optimization ran with it.
+   */
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
+    Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
+    OptimizerStats stats = new MethodCallTightener(program, optimizerCtx).execImpl();
+    optimizerCtx.incOptimizationStep();
+    optimizeEvent.end("didChange", "" + stats.didChange());
+    return stats;
+  }
+
+  /**
+   * Runs the optimization on each module type concurrently, producing the same AST as
+   * {@link #exec(JProgram)}.
+   */
+  public static OptimizerStats exec(JProgram program, ExecutorService executor)
+      throws InterruptedException {
+    return exec(program, executor, new OptimizerContext(program));
+  }
+
+  /**
+   * Runs the optimization on each module type concurrently, producing the same AST as
+   * {@link #exec(JProgram, OptimizerContext)}.
+   */
+  public static OptimizerStats exec(JProgram program, ExecutorService executor,
+      OptimizerContext optimizerCtx) throws InterruptedException {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new MethodCallTightener(program).execImpl();
+    OptimizerStats stats = new MethodCallTightener(program, optimizerCtx).execImpl(executor);
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
 
+  private final OptimizerContext optimizerCtx;
+
   private final JProgram program;
 
-  private MethodCallTightener(JProgram program) {
+  private MethodCallTightener(JProgram program, OptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
   }
 
   private OptimizerStats execImpl() {
-    MethodCallTighteningVisitor tightener = new MethodCallTighteningVisitor();
-    tightener.accept(program);
+    Set<JMethod> affectedMethods = getAffectedMethods();
+    MethodCallTighteningVisitor tightener = new MethodCallTighteningVisitor(optimizerCtx);
+    optimizerCtx.traverse(tightener, affectedMethods);
     return new OptimizerStats(NAME).recordModified(tightener.getNumMods());
   }
-}
\ No newline at end of file
+
+  private OptimizerStats execImpl(ExecutorService executor) throws InterruptedException {
+    program.typeOracle.computeMethodsBySignature(program.getDeclaredTypes());
+    final Set<JMethod> affectedMethods = getAffectedMethods();
+    return new TypeShardedOptimizer(NAME) {
+      @Override
+      protected int optimize(JDeclaredType type) {
+        MethodCallTighteningVisitor tightener = new MethodCallTighteningVisitor(optimizerCtx);
+        for (JMethod method : type.getMethods()) {
+          if (affectedMethods.contains(method)) {
+            tightener.accept(method);
+          }
+        }
+        return tightener.getNumMods();
+      }
+    }.exec(program, executor);
+  }
+
+  private Set<JMethod> getAffectedMethods() {
+    int lastStep = optimizerCtx.getLastStepFor(NAME);
+    optimizerCtx.setLastStepFor(NAME, optimizerCtx.getOptimizationStep());
+    return optimizerCtx.getAffectedMethodsSince(lastStep);
+  }
+}
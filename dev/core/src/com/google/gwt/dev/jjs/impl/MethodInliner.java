@@ -76,7 +76,7 @@ public class MethodInliner {
   /**
    * Method inlining visitor.
    */
-  private class InliningVisitor extends JModVisitor {
+  private class InliningVisitor extends JChangeTrackingVisitor {
     protected final Set<JMethod> modifiedMethods = new LinkedHashSet<JMethod>();
 
     /**
@@ -86,6 +86,10 @@ public class MethodInliner {
     private final Set<JMethod> cannotInline = Sets.newHashSet();
     private JExpression ignoringReturnValueFor;
 
+    public InliningVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
+
     @Override
     public void endVisit(JMethod x, Context ctx) {
       currentMethod = null;
@@ -525,25 +529,42 @@ public class MethodInliner {
   public static String NAME = MethodInliner.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  /**
+   * Only revisits the methods affected by changes recorded in {@code optimizerCtx} since the last
+   * time this optimization ran with it.
+   */
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new MethodInliner(program).execImpl();
+    OptimizerStats stats = new MethodInliner(program, optimizerCtx).execImpl();
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
 
   private JMethod currentMethod;
 
+  private final OptimizerContext optimizerCtx;
+
   private final JProgram program;
 
-  private MethodInliner(JProgram program) {
+  private MethodInliner(JProgram program, OptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
   }
 
   private OptimizerStats execImpl() {
     OptimizerStats stats = new OptimizerStats(NAME);
     while (true) {
-      InliningVisitor inliner = new InliningVisitor();
-      inliner.accept(program);
+      // Inlining into a method, or changing a method that is inlined, enables more inlining.
+      int lastStep = optimizerCtx.getLastStepFor(NAME);
+      Set<JMethod> affectedMethods = optimizerCtx.getAffectedMethodsSince(lastStep);
+      optimizerCtx.setLastStepFor(NAME, optimizerCtx.getOptimizationStep());
+
+      InliningVisitor inliner = new InliningVisitor(optimizerCtx);
+      optimizerCtx.traverse(inliner, affectedMethods);
       stats.recordModified(inliner.getNumMods());
       if (!inliner.didChange()) {
         break;
@@ -551,9 +572,10 @@ public class MethodInliner {
 
       // Run a cleanup on the methods we just modified
       for (JMethod method : inliner.modifiedMethods) {
-        OptimizerStats innerStats = DeadCodeElimination.exec(program, method);
+        OptimizerStats innerStats = DeadCodeElimination.exec(program, method, optimizerCtx);
         stats.recordModified(innerStats.getNumMods());
       }
+      optimizerCtx.incOptimizationStep();
     }
     return stats;
   }
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.dev.jjs.ast.Context;
+import com.google.gwt.dev.jjs.ast.JDeclaredType;
+import com.google.gwt.dev.jjs.ast.JField;
+import com.google.gwt.dev.jjs.ast.JFieldRef;
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JMethodCall;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.dev.jjs.ast.JVisitor;
+import com.google.gwt.dev.jjs.ast.js.JsniFieldRef;
+import com.google.gwt.dev.jjs.ast.js.JsniMethodRef;
+import com.google.gwt.dev.util.collect.IdentityHashSet;
+import com.google.gwt.thirdparty.guava.common.collect.HashMultimap;
+import com.google.gwt.thirdparty.guava.common.collect.Maps;
+import com.google.gwt.thirdparty.guava.common.collect.SetMultimap;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks which methods and fields the Java optimizers modified, and when, so that
+ * method-local optimizations only need to revisit the methods that changed since they last ran
+ * and the methods that call them or read the changed fields.
+ * <p>
+ * Time is measured in optimization steps; every optimizer advances the step once it finishes.
+ * Optimization starts at step 1, and every method is considered to have been modified at
+ * step 0.
+ */
+public class OptimizerContext {
+
+  /**
+   * Records the methods called and the fields referenced by a method body.
+   */
+  private class ReferenceRecorder extends JVisitor {
+    private final JMethod caller;
+
+    ReferenceRecorder(JMethod caller) {
+      this.caller = caller;
+    }
+
+    @Override
+    public void endVisit(JFieldRef x, Context ctx) {
+      recordFieldReference(x.getField());
+    }
+
+    @Override
+    public void endVisit(JMethodCall x, Context ctx) {
+      recordCall(x.getTarget());
+    }
+
+    @Override
+    public void endVisit(JsniFieldRef x, Context ctx) {
+      recordFieldReference(x.getField());
+    }
+
+    @Override
+    public void endVisit(JsniMethodRef x, Context ctx) {
+      recordCall(x.getTarget());
+    }
+
+    private void recordCall(JMethod callee) {
+      calleesByCaller.put(caller, callee);
+      callersByCallee.put(callee, caller);
+    }
+
+    private void recordFieldReference(JField field) {
+      fieldsByReferencingMethod.put(caller, field);
+      referencingMethodsByField.put(field, caller);
+    }
+  }
+
+  private final SetMultimap<JMethod, JMethod> calleesByCaller = HashMultimap.create();
+
+  private final SetMultimap<JMethod, JMethod> callersByCallee = HashMultimap.create();
+
+  private final SetMultimap<JMethod, JField> fieldsByReferencingMethod = HashMultimap.create();
+
+  /**
+   * The step at which every method was last considered modified.
+   */
+  private int lastAllModifiedStep = 0;
+
+  /**
+   * The step since which method modifications are not yet reflected in the reference graph.
+   */
+  private int lastReferenceGraphStep = 0;
+
+  private final Map<String, Integer> lastStepByOptimizer = Maps.newHashMap();
+
+  private final Map<JField, Integer> modificationStepByField = Maps.newIdentityHashMap();
+
+  private final Map<JMethod, Integer> modificationStepByMethod = Maps.newIdentityHashMap();
+
+  private int optimizationStep = 1;
+
+  private final JProgram program;
+
+  private boolean referenceGraphNeedsRebuild = true;
+
+  private final SetMultimap<JField, JMethod> referencingMethodsByField = HashMultimap.create();
+
+  public OptimizerContext(JProgram program) {
+    this.program = program;
+  }
+
+  /**
+   * Returns the methods that must be revisited by a method-local optimization that last ran at
+   * {@code step}: the methods modified since then, their callers, and the methods that reference
+   * fields modified since then.
+   */
+  public Set<JMethod> getAffectedMethodsSince(int step) {
+    Set<JMethod> modifiedMethods = getModifiedMethodsSince(step);
+    if (lastAllModifiedStep >= step) {
+      return modifiedMethods;
+    }
+    Set<JMethod> affectedMethods = new IdentityHashSet<JMethod>();
+    affectedMethods.addAll(modifiedMethods);
+    affectedMethods.addAll(getCallers(modifiedMethods));
+    affectedMethods.addAll(getMethodsReferencing(getModifiedFieldsSince(step)));
+    return affectedMethods;
+  }
+
+  /**
+   * Returns the methods that are called by any of {@code callers}.
+   */
+  public Set<JMethod> getCallees(Collection<JMethod> callers) {
+    syncReferenceGraph();
+    Set<JMethod> callees = new IdentityHashSet<JMethod>();
+    for (JMethod caller : callers) {
+      callees.addAll(calleesByCaller.get(caller));
+    }
+    return callees;
+  }
+
+  /**
+   * Returns the methods that call any of {@code callees}.
+   */
+  public Set<JMethod> getCallers(Collection<JMethod> callees) {
+    syncReferenceGraph();
+    Set<JMethod> callers = new IdentityHashSet<JMethod>();
+    for (JMethod callee : callees) {
+      callers.addAll(callersByCallee.get(callee));
+    }
+    return callers;
+  }
+
+  /**
+   * Returns the step at which the optimizer named {@code optimizerName} last started, or 0 if it
+   * never ran.
+   */
+  public int getLastStepFor(String optimizerName) {
+    Integer step = lastStepByOptimizer.get(optimizerName);
+    return step == null ? 0 : step;
+  }
+
+  /**
+   * Returns the methods that reference any of {@code fields}.
+   */
+  public Set<JMethod> getMethodsReferencing(Collection<JField> fields) {
+    syncReferenceGraph();
+    Set<JMethod> methods = new IdentityHashSet<JMethod>();
+    for (JField field : fields) {
+      methods.addAll(referencingMethodsByField.get(field));
+    }
+    return methods;
+  }
+
+  /**
+   * Returns the fields modified at or after {@code step}.
+   */
+  public Set<JField> getModifiedFieldsSince(int step) {
+    Set<JField> fields = new IdentityHashSet<JField>();
+    for (Map.Entry<JField, Integer> entry : modificationStepByField.entrySet()) {
+      if (entry.getValue() >= step) {
+        fields.add(entry.getKey());
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the methods modified at or after {@code step}.
+   */
+  public Set<JMethod> getModifiedMethodsSince(int step) {
+    Set<JMethod> methods = new IdentityHashSet<JMethod>();
+    if (lastAllModifiedStep >= step) {
+      for (JDeclaredType type : program.getModuleDeclaredTypes()) {
+        methods.addAll(type.getMethods());
+      }
+      return methods;
+    }
+    for (Map.Entry<JMethod, Integer> entry : modificationStepByMethod.entrySet()) {
+      if (entry.getValue() >= step) {
+        methods.add(entry.getKey());
+      }
+    }
+    return methods;
+  }
+
+  public int getOptimizationStep() {
+    return optimizationStep;
+  }
+
+  /**
+   * Advances to the next optimization step; called by each optimizer when it finishes.
+   */
+  public void incOptimizationStep() {
+    optimizationStep++;
+  }
+
+  /**
+   * Marks every method as modified, for optimizations whose changes cannot be attributed to
+   * individual methods, or so that the next method-local optimizations visit every method.
+   */
+  public synchronized void markAllModified() {
+    lastAllModifiedStep = optimizationStep;
+    modificationStepByMethod.clear();
+    modificationStepByField.clear();
+    referenceGraphNeedsRebuild = true;
+  }
+
+  public synchronized void markModified(JField field) {
+    modificationStepByField.put(field, optimizationStep);
+  }
+
+  public synchronized void markModified(JMethod method) {
+    modificationStepByMethod.put(method, optimizationStep);
+  }
+
+  /**
+   * Forgets a field that has been removed from the program.
+   */
+  public void removeField(JField field) {
+    modificationStepByField.remove(field);
+    for (JMethod method : referencingMethodsByField.removeAll(field)) {
+      fieldsByReferencingMethod.remove(method, field);
+    }
+  }
+
+  /**
+   * Forgets a method that has been removed from the program.
+   */
+  public void removeMethod(JMethod method) {
+    modificationStepByMethod.remove(method);
+    removeReferencesFrom(method);
+    for (JMethod caller : callersByCallee.removeAll(method)) {
+      calleesByCaller.remove(caller, method);
+    }
+  }
+
+  public void setLastStepFor(String optimizerName, int step) {
+    lastStepByOptimizer.put(optimizerName, step);
+  }
+
+  /**
+   * Traverses those of {@code methods} that are still in the program, in program order so that
+   * the result does not depend on the iteration order of the set.
+   */
+  public void traverse(JVisitor visitor, Set<JMethod> methods) {
+    if (methods.isEmpty()) {
+      return;
+    }
+    for (JDeclaredType type : program.getModuleDeclaredTypes()) {
+      for (JMethod method : type.getMethods()) {
+        if (methods.contains(method)) {
+          visitor.accept(method);
+        }
+      }
+    }
+  }
+
+  private void removeReferencesFrom(JMethod method) {
+    for (JMethod callee : calleesByCaller.removeAll(method)) {
+      callersByCallee.remove(callee, method);
+    }
+    for (JField field : fieldsByReferencingMethod.removeAll(method)) {
+      referencingMethodsByField.remove(field, method);
+    }
+  }
+
+  /**
+   * Brings the reference graph up to date by rescanning the methods modified since it was last
+   * synchronized.
+   */
+  private void syncReferenceGraph() {
+    Set<JMethod> staleMethods;
+    if (referenceGraphNeedsRebuild) {
+      calleesByCaller.clear();
+      callersByCallee.clear();
+      fieldsByReferencingMethod.clear();
+      referencingMethodsByField.clear();
+      staleMethods = getModifiedMethodsSince(lastAllModifiedStep);
+      referenceGraphNeedsRebuild = false;
+    } else {
+      staleMethods = getModifiedMethodsSince(lastReferenceGraphStep);
+    }
+    for (JMethod method : staleMethods) {
+      removeReferencesFrom(method);
+      new ReferenceRecorder(method).accept(method);
+    }
+    // Methods modified later during this step must be rescanned next time.
+    lastReferenceGraphStep = optimizationStep;
+  }
+}
@@ -16,14 +16,32 @@
 
 package com.google.gwt.dev.jjs.impl;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Stores statistics on the results of running an optimizer pass.
  */
 public class OptimizerStats {
+  private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Returns the CPU time in nanoseconds consumed so far by the current thread, or 0 if the JVM
+   * does not support measuring it.
+   */
+  public static long currentThreadCpuTime() {
+    if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+      return 0;
+    }
+    return threadMXBean.getCurrentThreadCpuTime();
+  }
+
   private final List<OptimizerStats> children = new ArrayList<OptimizerStats>();
+  private long cpuTimeNanos = 0;
+  private long elapsedTimeNanos = 0;
   private final String name;
   private int numMods = 0;
   private int numVisits = 0;
@@ -61,6 +79,28 @@ public class OptimizerStats {
     return children;
   }
 
+  /**
+   * @return the CPU time in nanoseconds spent by the optimizer, summed over all threads it ran on
+   */
+  public long getCpuTimeNanos() {
+    long childTime = 0;
+    for (OptimizerStats child : children) {
+      childTime += child.getCpuTimeNanos();
+    }
+    return cpuTimeNanos + childTime;
+  }
+
+  /**
+   * @return the wall clock time in nanoseconds spent by the optimizer
+   */
+  public long getElapsedTimeNanos() {
+    long childTime = 0;
+    for (OptimizerStats child : children) {
+      childTime += child.getElapsedTimeNanos();
+    }
+    return elapsedTimeNanos + childTime;
+  }
+
   public String getName() {
     return name;
   }
@@ -96,6 +136,24 @@ public class OptimizerStats {
     return builder.toString();
   }
 
+  /**
+   * Add to the CPU time spent by the optimizer.
+   *
+   * @param cpuTimeNanos CPU time in nanoseconds, possibly summed over several threads
+   */
+  public OptimizerStats recordCpuTime(long cpuTimeNanos) {
+    this.cpuTimeNanos += cpuTimeNanos;
+    return this;
+  }
+
+  /**
+   * Add to the wall clock time spent by the optimizer.
+   */
+  public OptimizerStats recordElapsedTime(long elapsedTimeNanos) {
+    this.elapsedTimeNanos += elapsedTimeNanos;
+    return this;
+  }
+
   /**
    * Increment the number of times the tree was modified.
    */
@@ -138,6 +196,12 @@ public class OptimizerStats {
       ratioString = String.format("%5.2f", ((double) mods / (double) visits) * 100.0);
     }
     String entry = String.format("%-6s%% (%6d/%6d)", ratioString, mods, visits);
+    long elapsedTime = getElapsedTimeNanos();
+    long cpuTime = getCpuTimeNanos();
+    if (elapsedTime > 0 || cpuTime > 0) {
+      entry += String.format(" %6dms/%6dms cpu", TimeUnit.NANOSECONDS.toMillis(elapsedTime),
+          TimeUnit.NANOSECONDS.toMillis(cpuTime));
+    }
     builder.append(String.format("%12s: %-22s  ", name, entry));
 
     if (children.size() > 0) {
@@ -34,7 +34,6 @@ import com.google.gwt.dev.jjs.ast.JInterfaceType;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodBody;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNameOf;
 import com.google.gwt.dev.jjs.ast.JNewInstance;
 import com.google.gwt.dev.jjs.ast.JNode;
@@ -88,7 +87,7 @@ public class Pruner {
    * references to pruned variables and methods by references to the null field
    * and null method, and drop assignments to pruned variables.
    */
-  private class CleanupRefsVisitor extends JModVisitor {
+  private class CleanupRefsVisitor extends JChangeTrackingVisitor {
     private final Stack<JExpression> lValues = new Stack<JExpression>();
     private final Map<JMethod, ArrayList<JParameter>> methodToOriginalParamsMap;
     private final Set<? extends JNode> referencedNonTypes;
@@ -99,6 +98,7 @@ public class Pruner {
 
     public CleanupRefsVisitor(Set<? extends JNode> referencedNodes,
         Map<JMethod, ArrayList<JParameter>> methodToOriginalParamsMap) {
+      super(optimizerCtx);
       this.referencedNonTypes = referencedNodes;
       this.methodToOriginalParamsMap = methodToOriginalParamsMap;
     }
@@ -335,7 +335,7 @@ public class Pruner {
    * Remove any unreferenced classes and interfaces from JProgram. Remove any
    * unreferenced methods and fields from their containing classes.
    */
-  private class PruneVisitor extends JModVisitor {
+  private class PruneVisitor extends JChangeTrackingVisitor {
     private final Map<JMethod, ArrayList<JParameter>> methodToOriginalParamsMap =
         new HashMap<JMethod, ArrayList<JParameter>>();
     private final Set<? extends JNode> referencedNonTypes;
@@ -343,6 +343,7 @@ public class Pruner {
 
     public PruneVisitor(Set<? extends JReferenceType> referencedTypes,
         Set<? extends JNode> referencedNodes) {
+      super(optimizerCtx);
       this.referencedTypes = referencedTypes;
       this.referencedNonTypes = referencedNodes;
     }
@@ -358,6 +359,7 @@ public class Pruner {
         JField field = type.getFields().get(i);
         if (!referencedNonTypes.contains(field)) {
           type.removeField(i);
+          optimizerCtx.removeField(field);
           madeChanges();
           --i;
         }
@@ -370,6 +372,7 @@ public class Pruner {
           if (i > 0) {
             type.removeMethod(i);
             program.removeStaticImplMapping(method);
+            optimizerCtx.removeMethod(method);
             madeChanges();
             --i;
           }
@@ -391,6 +394,7 @@ public class Pruner {
         // all interface fields are static and final
         if (!isReferenced || !referencedNonTypes.contains(field)) {
           type.removeField(i);
+          optimizerCtx.removeField(field);
           madeChanges();
           --i;
         }
@@ -403,6 +407,7 @@ public class Pruner {
         if (!isInstantiated || !referencedNonTypes.contains(method)) {
           type.removeMethod(i);
           assert program.instanceMethodForStaticImpl(method) == null;
+          optimizerCtx.removeMethod(method);
           madeChanges();
           --i;
         }
@@ -488,6 +493,12 @@ public class Pruner {
           accept(type);
         } else {
           it.remove();
+          for (JField field : type.getFields()) {
+            optimizerCtx.removeField(field);
+          }
+          for (JMethod method : type.getMethods()) {
+            optimizerCtx.removeMethod(method);
+          }
           madeChanges();
         }
       }
@@ -498,8 +509,14 @@ public class Pruner {
   private static final String NAME = Pruner.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program, boolean noSpecialTypes) {
+    return exec(program, noSpecialTypes, new OptimizerContext(program));
+  }
+
+  public static OptimizerStats exec(JProgram program, boolean noSpecialTypes,
+      OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new Pruner(program, noSpecialTypes).execImpl();
+    OptimizerStats stats = new Pruner(program, noSpecialTypes, optimizerCtx).execImpl();
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
@@ -598,13 +615,16 @@ public class Pruner {
     return program.getTypeNull();
   }
 
+  private final OptimizerContext optimizerCtx;
+
   private final JProgram program;
 
   private final boolean saveCodeGenTypes;
 
-  private Pruner(JProgram program, boolean saveCodeGenTypes) {
+  private Pruner(JProgram program, boolean saveCodeGenTypes, OptimizerContext optimizerCtx) {
     this.program = program;
     this.saveCodeGenTypes = saveCodeGenTypes;
+    this.optimizerCtx = optimizerCtx;
   }
 
   private OptimizerStats execImpl() {
@@ -21,7 +21,6 @@ import com.google.gwt.dev.jjs.ast.JConstructor;
 import com.google.gwt.dev.jjs.ast.JExpression;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNode;
 import com.google.gwt.dev.jjs.ast.JParameter;
 import com.google.gwt.dev.jjs.ast.JParameterRef;
@@ -163,12 +162,13 @@ public class SameParameterValueOptimizer {
   /**
    * Substitute all parameter references with expression.
    */
-  private class SubstituteParameterVisitor extends JModVisitor {
+  private class SubstituteParameterVisitor extends JChangeTrackingVisitor {
     private final CloneExpressionVisitor cloner;
     private final JExpression expression;
     private final JParameter parameter;
 
     public SubstituteParameterVisitor(JParameter parameter, JExpression expression) {
+      super(optimizerCtx);
       this.parameter = parameter;
       this.expression = expression;
       cloner = new CloneExpressionVisitor();
@@ -185,12 +185,20 @@ public class SameParameterValueOptimizer {
   private static final String NAME = SameParameterValueOptimizer.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new SameParameterValueOptimizer(program).execImpl(program);
+    OptimizerStats stats =
+        new SameParameterValueOptimizer(program, optimizerCtx).execImpl(program);
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
 
+  private final OptimizerContext optimizerCtx;
+
   /**
    * Parameter values.
    *
@@ -211,8 +219,9 @@ public class SameParameterValueOptimizer {
    */
   private final Set<JMethod> rescuedMethods = new HashSet<JMethod>();
 
-  private SameParameterValueOptimizer(JProgram program) {
+  private SameParameterValueOptimizer(JProgram program, OptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
   }
 
   private OptimizerStats execImpl(JNode node) {
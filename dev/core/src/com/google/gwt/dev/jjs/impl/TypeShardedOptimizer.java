@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.dev.jjs.InternalCompilerException;
+import com.google.gwt.dev.jjs.ast.JDeclaredType;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.thirdparty.guava.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a method-local optimization over each of the module's declared types concurrently.
+ * <p>
+ * A pass may only be sharded this way if its rewrite of a type depends on nothing but that type's
+ * own nodes and on program-wide state that the pass itself never modifies. Under that condition
+ * the resulting AST is identical to the one produced by a serial traversal of the program, in
+ * whatever order the shards happen to complete.
+ */
+abstract class TypeShardedOptimizer {
+
+  private final String name;
+
+  TypeShardedOptimizer(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Optimizes every module type of {@code program} on {@code executor} and returns the combined
+   * statistics. CPU time is summed over the worker threads; wall clock time is left to the caller.
+   */
+  OptimizerStats exec(JProgram program, ExecutorService executor) throws InterruptedException {
+    List<Future<long[]>> results = Lists.newArrayList();
+    for (final JDeclaredType type : program.getModuleDeclaredTypes()) {
+      results.add(executor.submit(new Callable<long[]>() {
+        @Override
+        public long[] call() {
+          long startCpuTime = OptimizerStats.currentThreadCpuTime();
+          int numMods = optimize(type);
+          return new long[] {numMods, OptimizerStats.currentThreadCpuTime() - startCpuTime};
+        }
+      }));
+    }
+
+    OptimizerStats stats = new OptimizerStats(name);
+    try {
+      for (Future<long[]> result : results) {
+        long[] modsAndCpuTime = result.get();
+        stats.recordModified((int) modsAndCpuTime[0]).recordCpuTime(modsAndCpuTime[1]);
+      }
+    } catch (ExecutionException e) {
+      cancelAll(results);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new InternalCompilerException("Unexpected failure in " + name, cause);
+    } catch (InterruptedException e) {
+      cancelAll(results);
+      throw e;
+    }
+    return stats;
+  }
+
+  /**
+   * Optimizes a single type and returns the number of modifications made to it. Called
+   * concurrently for different types.
+   */
+  protected abstract int optimize(JDeclaredType type);
+
+  private static void cancelAll(List<Future<long[]>> results) {
+    for (Future<long[]> result : results) {
+      result.cancel(true);
+    }
+  }
+}
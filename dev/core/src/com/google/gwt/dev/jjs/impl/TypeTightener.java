@@ -35,7 +35,6 @@ import com.google.gwt.dev.jjs.ast.JInterfaceType;
 import com.google.gwt.dev.jjs.ast.JLocal;
 import com.google.gwt.dev.jjs.ast.JMethod;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
-import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNewInstance;
 import com.google.gwt.dev.jjs.ast.JNullLiteral;
 import com.google.gwt.dev.jjs.ast.JNullType;
@@ -122,7 +121,11 @@ public class TypeTightener {
   /**
    * Replaces dangling null references with dummy calls.
    */
-  public class FixDanglingRefsVisitor extends JModVisitor {
+  public class FixDanglingRefsVisitor extends JChangeTrackingVisitor {
+
+    public FixDanglingRefsVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
 
     @Override
     public void endVisit(JFieldRef x, Context ctx) {
@@ -358,7 +361,11 @@ public class TypeTightener {
    *
    * Also optimize dynamic casts and instanceof operations where possible.
    */
-  public class TightenTypesVisitor extends JModVisitor {
+  public class TightenTypesVisitor extends JChangeTrackingVisitor {
+
+    public TightenTypesVisitor(OptimizerContext optimizerCtx) {
+      super(optimizerCtx);
+    }
 
     /**
      * Tries to determine a specific concrete type for the cast, then either
@@ -778,8 +785,13 @@ public class TypeTightener {
   private static final String NAME = TypeTightener.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, new OptimizerContext(program));
+  }
+
+  public static OptimizerStats exec(JProgram program, OptimizerContext optimizerCtx) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new TypeTightener(program).execImpl();
+    OptimizerStats stats = new TypeTightener(program, optimizerCtx).execImpl();
+    optimizerCtx.incOptimizationStep();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
@@ -852,10 +864,12 @@ public class TypeTightener {
   private final Map<JMethod, Collection<JExpression>> returns =
       new IdentityHashMap<JMethod, Collection<JExpression>>();
 
+  private final OptimizerContext optimizerCtx;
   private final JProgram program;
   private final JNullType typeNull;
 
-  private TypeTightener(JProgram program) {
+  private TypeTightener(JProgram program, OptimizerContext optimizerCtx) {
+    this.optimizerCtx = optimizerCtx;
     this.program = program;
     typeNull = program.getTypeNull();
   }
@@ -875,7 +889,7 @@ public class TypeTightener {
      * output.
      */
     while (true) {
-      TightenTypesVisitor tightener = new TightenTypesVisitor();
+      TightenTypesVisitor tightener = new TightenTypesVisitor(optimizerCtx);
       tightener.accept(program);
       stats.recordModified(tightener.getNumMods());
       if (!tightener.didChange()) {
@@ -884,7 +898,7 @@ public class TypeTightener {
     }
 
     if (stats.didChange()) {
-      FixDanglingRefsVisitor fixer = new FixDanglingRefsVisitor();
+      FixDanglingRefsVisitor fixer = new FixDanglingRefsVisitor(optimizerCtx);
       fixer.accept(program);
     }
 
@@ -32,10 +32,10 @@ import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 import com.google.gwt.thirdparty.guava.common.base.Predicate;
+import com.google.gwt.thirdparty.guava.common.base.Predicates;
 import com.google.gwt.thirdparty.guava.common.collect.Collections2;
 import com.google.gwt.thirdparty.guava.common.collect.Iterables;
 import com.google.gwt.thirdparty.guava.common.collect.Lists;
-import com.google.gwt.thirdparty.guava.common.collect.Maps;
 import com.google.gwt.thirdparty.guava.common.collect.Multimap;
 
 
@@ -43,7 +43,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -269,42 +268,6 @@ public class CodeSplitter {
     return fragmentExtractor.extractStatements(liveNow, alreadyLoaded);
   }
 
-  /**
-   * For each exclusive fragment (those that are not part of the initial load sequence) compute
-   * a CFA that traces every split point not in the fragment.
-   */
-  private Map<Fragment, ControlFlowAnalyzer> computeComplementCfaForFragments(
-      Collection<Fragment> exclusiveFragments) {
-    String dependencyGraphNameAfterInitialSequence = dependencyGraphNameAfterInitialSequence();
-
-    Map<Fragment, ControlFlowAnalyzer> notLiveCfaByFragment = Maps.newHashMap();
-
-    for (Fragment fragment : exclusiveFragments) {
-      assert fragment.isExclusive();
-
-      dependencyRecorder.startDependencyGraph("sp" + fragment.getFragmentId(),
-          dependencyGraphNameAfterInitialSequence);
-      ControlFlowAnalyzer cfa = new ControlFlowAnalyzer(initialSequenceCfa);
-      cfa.setDependencyRecorder(dependencyRecorder);
-      for (Fragment otherFragment : exclusiveFragments) {
-        // don't trace the initial fragments as they have already been traced and their atoms are
-        // already in {@code initialSequenceCfa}
-        if (otherFragment.isInitial()) {
-          continue;
-        }
-        if (otherFragment == fragment) {
-          continue;
-        }
-        for (JRunAsync otherRunAsync : otherFragment.getRunAsyncs()) {
-          cfa.traverseFromRunAsync(otherRunAsync);
-        }
-      }
-      dependencyRecorder.endDependencyGraph();
-      notLiveCfaByFragment.put(fragment, cfa);
-    }
-    return notLiveCfaByFragment;
-  }
-
   /**
    * Compute a CFA that covers the entire live code of the program.
    */
@@ -336,10 +299,15 @@ public class CodeSplitter {
    */
   private ExclusivityMap computeExclusivityMapWithFixups(Collection<Fragment> exclusiveFragments) {
     ControlFlowAnalyzer completeCfa = computeCompleteCfa();
-    Map<Fragment, ControlFlowAnalyzer> notLiveCfaByFragment =
-        computeComplementCfaForFragments(exclusiveFragments);
-    ExclusivityMap exclusivityMap =  ExclusivityMap.computeExclusivityMap(exclusiveFragments,
-        completeCfa, notLiveCfaByFragment);
+    ExclusivityMap exclusivityMap = ExclusivityMap.create(completeCfa, initialSequenceCfa);
+    if (dependencyRecorder != MultipleDependencyGraphRecorder.NULL_RECORDER) {
+      // A separate dependency graph is recorded for each fragment.
+      recordExclusiveAtomsByFragment(exclusivityMap, exclusiveFragments);
+    } else if (!exclusiveFragments.isEmpty()) {
+      List<Fragment> fragmentList = Lists.newArrayList(exclusiveFragments);
+      recordExclusiveAtoms(exclusivityMap, fragmentList, 0, fragmentList.size(),
+          new ControlFlowAnalyzer(initialSequenceCfa));
+    }
     exclusivityMap.fixUpLoadOrderDependencies(logger, jprogram, methodsInJavaScript);
     return exclusivityMap;
   }
@@ -505,10 +473,75 @@ public class CodeSplitter {
     replaceFragmentId();
   }
 
+  /**
+   * Record the atoms that are exclusive to each fragment in {@code fragments[from, to)}.
+   *
+   * <p>{@code notLiveCfa} traces every split point outside of that range. The range is split in
+   * halves and the CFA for each half is extended with the split points of the other half, which
+   * only traverses code that was not already live. This way the code of each split point is
+   * traversed a logarithmic number of times and only a logarithmic number of CFAs are alive at
+   * any time, instead of computing one complete CFA per fragment. {@code notLiveCfa} is modified.
+   */
+  private void recordExclusiveAtoms(ExclusivityMap exclusivityMap, List<Fragment> fragments,
+      int from, int to, ControlFlowAnalyzer notLiveCfa) {
+    if (to - from == 1) {
+      exclusivityMap.recordExclusiveAtoms(fragments.get(from), notLiveCfa);
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    ControlFlowAnalyzer notLiveInFirstHalfCfa = new ControlFlowAnalyzer(notLiveCfa);
+    traverseFromRunAsyncs(notLiveInFirstHalfCfa, fragments.subList(middle, to));
+    recordExclusiveAtoms(exclusivityMap, fragments, from, middle, notLiveInFirstHalfCfa);
+
+    // The CFA for the whole range is not needed anymore, reuse it for the second half.
+    traverseFromRunAsyncs(notLiveCfa, fragments.subList(from, middle));
+    recordExclusiveAtoms(exclusivityMap, fragments, middle, to, notLiveCfa);
+  }
+
+  /**
+   * For each exclusive fragment (those that are not part of the initial load sequence) compute
+   * a CFA that traces every split point not in the fragment, recording its dependency graph, and
+   * record the atoms that are exclusive to the fragment.
+   */
+  private void recordExclusiveAtomsByFragment(ExclusivityMap exclusivityMap,
+      Collection<Fragment> exclusiveFragments) {
+    String dependencyGraphNameAfterInitialSequence = dependencyGraphNameAfterInitialSequence();
+
+    for (Fragment fragment : exclusiveFragments) {
+      assert fragment.isExclusive();
+
+      dependencyRecorder.startDependencyGraph("sp" + fragment.getFragmentId(),
+          dependencyGraphNameAfterInitialSequence);
+      ControlFlowAnalyzer cfa = new ControlFlowAnalyzer(initialSequenceCfa);
+      cfa.setDependencyRecorder(dependencyRecorder);
+      traverseFromRunAsyncs(cfa, Collections2.filter(exclusiveFragments,
+          Predicates.not(Predicates.equalTo(fragment))));
+      dependencyRecorder.endDependencyGraph();
+      exclusivityMap.recordExclusiveAtoms(fragment, cfa);
+    }
+  }
+
   private boolean isInitial(JRunAsync runAsync) {
     return initialLoadSequence.contains(runAsync);
   }
 
+  /**
+   * Extend {@code cfa} with the runAsyncs in {@code fragments}.
+   */
+  private static void traverseFromRunAsyncs(ControlFlowAnalyzer cfa,
+      Collection<Fragment> fragments) {
+    for (Fragment fragment : fragments) {
+      // don't trace the initial fragments as they have already been traced and their atoms are
+      // already in {@code initialSequenceCfa}
+      if (fragment.isInitial()) {
+        continue;
+      }
+      for (JRunAsync runAsync : fragment.getRunAsyncs()) {
+        cfa.traverseFromRunAsync(runAsync);
+      }
+    }
+  }
+
   /**
    * Patch up the fragment loading code in the JavaScript AST.
    *
@@ -36,7 +36,6 @@ import com.google.gwt.thirdparty.guava.common.base.Predicates;
 import com.google.gwt.thirdparty.guava.common.collect.Sets;
 
 import java.util.ArrayDeque;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -205,8 +204,14 @@ class ExclusivityMap {
   private Map<String, Fragment> fragmentForString = new HashMap<String, Fragment>();
   private Map<JDeclaredType, Fragment> fragmentForType = new HashMap<JDeclaredType, Fragment>();
 
+  /**
+   * The atoms that are live in the complete program but not after the initial load sequence;
+   * only these can be exclusive to a fragment.
+   */
   private Set<JField> allFields = Sets.newHashSet();
   private Set<JMethod> allMethods = Sets.newHashSet();
+  private Set<String> allStrings = Sets.newHashSet();
+  private Set<JDeclaredType> allTypes = Sets.newHashSet();
 
 
   /**
@@ -225,14 +230,13 @@ class ExclusivityMap {
   }
 
   /**
-   * Map atoms to exclusive fragments. Do this by trying to find code atoms that
-   * are only needed by a single split point. Such code can be moved to the
-   * exclusively live fragment associated with that split point.
+   * Create an exclusivity map in which no atom is exclusive yet. Atoms are mapped to exclusive
+   * fragments by calling {@link #recordExclusiveAtoms} once per exclusive fragment.
    */
-  public static ExclusivityMap computeExclusivityMap(Collection<Fragment> exclusiveFragments,
-      ControlFlowAnalyzer completeCfa, Map<Fragment, ControlFlowAnalyzer> notLiveCfaByFragment) {
+  public static ExclusivityMap create(ControlFlowAnalyzer completeCfa,
+      ControlFlowAnalyzer initialSequenceCfa) {
     ExclusivityMap exclusivityMap = new ExclusivityMap();
-    exclusivityMap.compute(exclusiveFragments, completeCfa, notLiveCfaByFragment);
+    exclusivityMap.collectCandidateAtoms(completeCfa, initialSequenceCfa);
     return exclusivityMap;
   }
 
@@ -278,13 +282,36 @@ class ExclusivityMap {
   }
 
   /**
-   * Map atoms to exclusive fragments. Do this by trying to find code atoms that
-   * are only needed by a single split point. Such code can be moved to the
-   * exclusively live fragment associated with that split point.
+   * Map atoms to an exclusive fragment. Do this by trying to find code atoms that
+   * are only needed by the split points in {@code fragment}. Such code can be moved to the
+   * exclusively live fragment associated with those split points.
+   *
+   * @param fragment an exclusive fragment
+   * @param notLiveInFragment a CFA that traces every split point not in {@code fragment}
    */
-  private void compute(Collection<Fragment> exclusiveFragments,
-      ControlFlowAnalyzer completeCfa, Map<Fragment, ControlFlowAnalyzer> notLiveCfaByFragment) {
+  public void recordExclusiveAtoms(Fragment fragment, ControlFlowAnalyzer notLiveInFragment) {
+    assert fragment.isExclusive();
+    Set<JNode> allLiveNodes =
+        Sets.union(notLiveInFragment.getLiveFieldsAndMethods(),
+            notLiveInFragment.getFieldsWritten());
+    updateFields(fragment, allLiveNodes, allFields);
+    updateMethods(fragment, notLiveInFragment.getLiveFieldsAndMethods(), allMethods);
+    updateStrings(fragment, notLiveInFragment.getLiveStrings(), allStrings);
+    updateTypes(fragment, declaredTypesIn(notLiveInFragment.getInstantiatedTypes()), allTypes);
+  }
+
+  /**
+   * Collect the atoms that might be exclusive to some fragment. Atoms that are live after the
+   * initial load sequence are live in every complement CFA and hence never exclusive, so they
+   * are left out to avoid checking them once per fragment.
+   */
+  private void collectCandidateAtoms(ControlFlowAnalyzer completeCfa,
+      ControlFlowAnalyzer initialSequenceCfa) {
+    Set<? extends JNode> initiallyLiveNodes = initialSequenceCfa.getLiveFieldsAndMethods();
     for (JNode node : completeCfa.getLiveFieldsAndMethods()) {
+      if (initiallyLiveNodes.contains(node)) {
+        continue;
+      }
       if (node instanceof JField) {
         allFields.add((JField) node);
       }
@@ -293,22 +320,11 @@ class ExclusivityMap {
       }
     }
     allFields.addAll(completeCfa.getFieldsWritten());
-
-    for (Fragment fragment : exclusiveFragments) {
-      assert fragment.isExclusive();
-      ControlFlowAnalyzer notLiveInFragment = notLiveCfaByFragment.get(fragment);
-      Set<JNode> allLiveNodes =
-          Sets.union(notLiveInFragment.getLiveFieldsAndMethods(),
-              notLiveInFragment.getFieldsWritten());
-      updateFields(fragment, allLiveNodes, allFields);
-      updateMethods(fragment, notLiveInFragment.getLiveFieldsAndMethods(),
-          allMethods);
-      updateStrings(fragment, notLiveInFragment.getLiveStrings(), completeCfa
-          .getLiveStrings());
-      updateTypes(fragment,
-          declaredTypesIn(notLiveInFragment.getInstantiatedTypes()),
-          declaredTypesIn(completeCfa.getInstantiatedTypes()));
-    }
+    allFields.removeAll(initialSequenceCfa.getFieldsWritten());
+    allStrings.addAll(
+        Sets.difference(completeCfa.getLiveStrings(), initialSequenceCfa.getLiveStrings()));
+    allTypes.addAll(Sets.difference(declaredTypesIn(completeCfa.getInstantiatedTypes()),
+        declaredTypesIn(initialSequenceCfa.getInstantiatedTypes())));
   }
 
   /**
@@ -21,7 +21,9 @@ import com.google.gwt.dev.jjs.ast.JNode;
 import com.google.gwt.dev.jjs.ast.JReferenceType;
 import com.google.gwt.dev.jjs.ast.JRunAsync;
 import com.google.gwt.dev.jjs.impl.ControlFlowAnalyzer;
+import com.google.gwt.thirdparty.guava.common.collect.ArrayListMultimap;
 import com.google.gwt.thirdparty.guava.common.collect.HashMultiset;
+import com.google.gwt.thirdparty.guava.common.collect.ListMultimap;
 import com.google.gwt.thirdparty.guava.common.collect.Lists;
 import com.google.gwt.thirdparty.guava.common.collect.Maps;
 import com.google.gwt.thirdparty.guava.common.collect.Multiset;
@@ -32,6 +34,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * Maps an atom to a set of runAsyncs that can be live (NOT necessary exclusively) when that
@@ -41,7 +44,11 @@ import java.util.PriorityQueue;
  * In this class "payload size" is the size of the atoms that will be loaded (beyond the set of
  * atoms already loaded in the initial sequence) as part of a particular exclusive fragment.
  *
- * "Subset" refers to an arbitrary combination of runAsync ids.
+ * "Subset" refers to an arbitrary combination of runAsync ids.<br />
+ *
+ * Only atoms that are not live after the initial sequence are recorded, so the size of the map is
+ * proportional to the code that is not part of the initial download rather than to the whole
+ * program.
  */
 class LiveAtomsByRunAsyncSets {
 
@@ -125,6 +132,12 @@ class LiveAtomsByRunAsyncSets {
   private Map<JDeclaredType, BitSet> liveSubsetForType = Maps.newHashMap();
   private int nextRunAsyncId = 0;
   private final Multiset<BitSet> payloadSizeBySubset = HashMultiset.create();
+
+  /**
+   * The subsets in {@link #payloadSizeBySubset} indexed by their lowest runAsync id.
+   */
+  private final ListMultimap<Integer, BitSet> payloadSubsetsByLowestRunAsyncId =
+      ArrayListMultimap.create();
   private final Map<Integer, JRunAsync> runAsyncForId = Maps.newHashMap();
   private final TreeLogger logger;
   private Collection<Collection<JRunAsync>> groupedRunAsyncs;
@@ -225,7 +238,7 @@ class LiveAtomsByRunAsyncSets {
       for (JRunAsync runAsync : runAsyncGroup) {
         ControlFlowAnalyzer withRunAsyncCfa = new ControlFlowAnalyzer(initialSequenceCfa);
         withRunAsyncCfa.traverseFromRunAsync(runAsync);
-        recordLiveSubset(withRunAsyncCfa, runAsync);
+        recordLiveSubset(withRunAsyncCfa, initialSequenceCfa, runAsync);
       }
     }
     accumulatePayloadSizes();
@@ -290,6 +303,9 @@ class LiveAtomsByRunAsyncSets {
     accumulatePayloadSizes(liveSubsetForMethod);
     accumulatePayloadSizes(liveSubsetForString);
     accumulatePayloadSizes(liveSubsetForType);
+    for (BitSet subset : payloadSizeBySubset.elementSet()) {
+      payloadSubsetsByLowestRunAsyncId.put(subset.nextSetBit(0), subset);
+    }
   }
 
   private int getIdForRunAsync(JRunAsync runAsync) {
@@ -300,24 +316,35 @@ class LiveAtomsByRunAsyncSets {
     BitSet fragmentSubset = asBitSet(fragmentRunAsyncs);
 
     int size = 0;
-    // TODO(rluble): This might be quite inefficient as it compare to all possible (non trivially
-    // empty) subsets (bounded by the number of atoms). But is only run at most #runAsyncs times to
-    // determine whether to merge small fragments.
-    for (BitSet subset : payloadSizeBySubset.elementSet()) {
-      if (isSubset(subset, fragmentSubset)) {
-
-        size += payloadSizeBySubset.count(subset);
-        if (size >= minSize) {
-          return false;
+    // Every subset of the fragment has its lowest runAsync in the fragment, so there is no need to
+    // look at the subsets (bounded by the number of atoms) that do not.
+    int runAsyncId = -1;
+    while ((runAsyncId = fragmentSubset.nextSetBit(runAsyncId + 1)) != -1) {
+      for (BitSet subset : payloadSubsetsByLowestRunAsyncId.get(runAsyncId)) {
+        if (isSubset(subset, fragmentSubset)) {
+
+          size += payloadSizeBySubset.count(subset);
+          if (size >= minSize) {
+            return false;
+          }
         }
       }
     }
     return true;
   }
 
-  private ControlFlowAnalyzer recordLiveSubset(ControlFlowAnalyzer cfa, JRunAsync runAsync) {
+  /**
+   * Record the atoms that are live in {@code cfa} but were not live in {@code initialSequenceCfa}
+   * as live when {@code runAsync} is activated.
+   */
+  private ControlFlowAnalyzer recordLiveSubset(ControlFlowAnalyzer cfa,
+      ControlFlowAnalyzer initialSequenceCfa, JRunAsync runAsync) {
     addRunAsync(runAsync);
+    Set<? extends JNode> initiallyLiveNodes = initialSequenceCfa.getLiveFieldsAndMethods();
     for (JNode node : cfa.getLiveFieldsAndMethods()) {
+      if (initiallyLiveNodes.contains(node)) {
+        continue;
+      }
       if (node instanceof JField) {
         setLive(liveSubsetForField, (JField) node, runAsync);
       }
@@ -325,14 +352,21 @@ class LiveAtomsByRunAsyncSets {
         setLive(liveSubsetForMethod, (JMethod) node, runAsync);
       }
     }
+    Set<JField> initiallyWrittenFields = initialSequenceCfa.getFieldsWritten();
     for (JField field : cfa.getFieldsWritten()) {
-      setLive(liveSubsetForField, field, runAsync);
+      if (!initiallyWrittenFields.contains(field) && !initiallyLiveNodes.contains(field)) {
+        setLive(liveSubsetForField, field, runAsync);
+      }
     }
+    Set<String> initiallyLiveStrings = initialSequenceCfa.getLiveStrings();
     for (String string : cfa.getLiveStrings()) {
-      setLive(liveSubsetForString, string, runAsync);
+      if (!initiallyLiveStrings.contains(string)) {
+        setLive(liveSubsetForString, string, runAsync);
+      }
     }
+    Set<JReferenceType> initiallyInstantiatedTypes = initialSequenceCfa.getInstantiatedTypes();
     for (JReferenceType type : cfa.getInstantiatedTypes()) {
-      if (type instanceof JDeclaredType) {
+      if (type instanceof JDeclaredType && !initiallyInstantiatedTypes.contains(type)) {
         setLive(liveSubsetForType, (JDeclaredType) type, runAsync);
       }
     }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.js;
+
+import com.google.gwt.dev.js.ast.JsContext;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsModVisitor;
+import com.google.gwt.dev.js.ast.JsVisitable;
+
+/**
+ * A visitor that reports every function it changes to a {@link JsOptimizerContext}, and skips
+ * the functions the context does not consider affected. Without a context, every function is
+ * visited.
+ * <p>
+ * A change is attributed to the innermost function being traversed when it is made, as well as
+ * to the functions enclosing it.
+ */
+public class JsChangeTrackingVisitor extends JsModVisitor {
+
+  private final JsOptimizerContext optimizerCtx;
+
+  /**
+   * @param optimizerCtx the context to report to, or {@code null} to visit every function
+   */
+  public JsChangeTrackingVisitor(JsOptimizerContext optimizerCtx) {
+    this.optimizerCtx = optimizerCtx;
+  }
+
+  @Override
+  protected <T extends JsVisitable> void doTraverse(T node, JsContext ctx) {
+    if (optimizerCtx == null || !(node instanceof JsFunction)) {
+      super.doTraverse(node, ctx);
+      return;
+    }
+
+    JsFunction function = (JsFunction) node;
+    if (!optimizerCtx.isAffected(function)) {
+      return;
+    }
+    boolean didChangeBefore = didChange;
+    didChange = false;
+    super.doTraverse(node, ctx);
+    if (didChange) {
+      optimizerCtx.markModified(function);
+    }
+    didChange |= didChangeBefore;
+  }
+}
@@ -607,7 +607,7 @@ public class JsInliner {
    * step may convert the expressions in the comma expression back to multiple
    * statements if the context of the invocation would allow this.
    */
-  private static class InliningVisitor extends JsModVisitor {
+  private static class InliningVisitor extends JsChangeTrackingVisitor {
     private final Set<JsFunction> blacklist = new HashSet<JsFunction>();
     private final Set<JsNode> whitelist;
     /**
@@ -635,7 +635,9 @@ public class JsInliner {
 
     private JsProgram program;
 
-    public InliningVisitor(JsProgram program, Set<JsNode> whitelist) {
+    public InliningVisitor(JsProgram program, Set<JsNode> whitelist,
+        JsOptimizerContext optimizerCtx) {
+      super(optimizerCtx);
       this.program = program;
       this.whitelist = whitelist;
       invocationCountingVisitor.accept(program);
@@ -1563,9 +1565,18 @@ public class JsInliner {
    * Static entry point used by JavaToJavaScriptCompiler.
    */
   public static OptimizerStats exec(JsProgram program, Collection<JsNode> toInline) {
+    return exec(program, toInline, null);
+  }
+
+  /**
+   * Only inlines into the functions that {@code optimizerCtx} considers affected, and records the
+   * functions it modifies.
+   */
+  public static OptimizerStats exec(JsProgram program, Collection<JsNode> toInline,
+      JsOptimizerContext optimizerCtx) {
     Event optimizeJsEvent = SpeedTracerLogger.start(
         CompilerEventType.OPTIMIZE_JS, "optimizer", NAME);
-    OptimizerStats stats = execImpl(program, toInline);
+    OptimizerStats stats = execImpl(program, toInline, optimizerCtx);
     optimizeJsEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
@@ -1609,7 +1620,8 @@ public class JsInliner {
   }
 
 
-  private static OptimizerStats execImpl(JsProgram program, Collection<JsNode> toInline) {
+  private static OptimizerStats execImpl(JsProgram program, Collection<JsNode> toInline,
+      JsOptimizerContext optimizerCtx) {
     OptimizerStats stats = new OptimizerStats(NAME);
 
     // We are not covering the whole AST, hence we will try to inline functions with a single call
@@ -1627,7 +1639,7 @@ public class JsInliner {
       rc.accept(fn);
     }
 
-    InliningVisitor v = new InliningVisitor(program, candidates);
+    InliningVisitor v = new InliningVisitor(program, candidates, optimizerCtx);
     v.blacklist(d.getRedefined());
     v.blacklist(rc.getRecursive());
     // Do not accept among candidates as the list might get stale and contain nodes that are not
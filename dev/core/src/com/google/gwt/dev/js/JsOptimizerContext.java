@@ -0,0 +1,259 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.js;
+
+import com.google.gwt.dev.js.ast.JsContext;
+import com.google.gwt.dev.js.ast.JsExpression;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsInvocation;
+import com.google.gwt.dev.js.ast.JsNameRef;
+import com.google.gwt.dev.js.ast.JsNew;
+import com.google.gwt.dev.js.ast.JsProgram;
+import com.google.gwt.dev.js.ast.JsVisitor;
+import com.google.gwt.dev.util.collect.IdentityHashSet;
+import com.google.gwt.thirdparty.guava.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks which functions the JavaScript optimizers modified during a pass of the optimization
+ * loop, so that the next pass only needs to revisit those functions and the functions that call
+ * them.
+ * <p>
+ * A caller is also revisited when the number of call sites of one of its callees changed, since
+ * that may have made the callee inlinable. Statements outside of any function are always
+ * visited.
+ */
+public class JsOptimizerContext {
+
+  /**
+   * Records the call graph and the number of call sites of every function. Functions that were
+   * not modified since they were last scanned are not traversed again; their recorded calls are
+   * reused instead.
+   */
+  private class CallRecorder extends JsVisitor {
+    private final Set<JsFunction> dirtyFunctions;
+    private final List<FunctionCalls> callsStack = new ArrayList<FunctionCalls>();
+    private final List<JsFunction> functionStack = new ArrayList<JsFunction>();
+    private final Map<JsFunction, FunctionCalls> previousCalls;
+
+    public CallRecorder(Map<JsFunction, FunctionCalls> previousCalls,
+        Set<JsFunction> dirtyFunctions) {
+      this.previousCalls = previousCalls;
+      this.dirtyFunctions = dirtyFunctions;
+    }
+
+    @Override
+    public void endVisit(JsFunction x, JsContext ctx) {
+      functionStack.remove(functionStack.size() - 1);
+      callsStack.remove(callsStack.size() - 1);
+    }
+
+    @Override
+    public void endVisit(JsInvocation x, JsContext ctx) {
+      recordCall(x.getQualifier());
+    }
+
+    @Override
+    public void endVisit(JsNew x, JsContext ctx) {
+      recordCall(x.getConstructorExpression());
+    }
+
+    @Override
+    public boolean visit(JsFunction x, JsContext ctx) {
+      if (!functionStack.isEmpty()) {
+        enclosingFunctions.put(x, functionStack.get(functionStack.size() - 1));
+        callsStack.get(callsStack.size() - 1).nestedFunctions.add(x);
+      }
+      functionStack.add(x);
+      FunctionCalls calls = previousCalls.get(x);
+      if (calls != null && !dirtyFunctions.contains(x)) {
+        callsStack.add(calls);
+        replayCalls(x, calls);
+        return false;
+      }
+      calls = new FunctionCalls();
+      callsStack.add(calls);
+      callsByFunction.put(x, calls);
+      return true;
+    }
+
+    private void recordCall(JsExpression qualifier) {
+      if (qualifier instanceof JsNameRef && ((JsNameRef) qualifier).getName() == null) {
+        // The program's names have not been resolved.
+        return;
+      }
+      JsFunction callee = JsUtils.isFunction(qualifier);
+      if (callee == null) {
+        return;
+      }
+      if (functionStack.isEmpty()) {
+        countCall(callee);
+        return;
+      }
+      callsStack.get(callsStack.size() - 1).callees.add(callee);
+      addCall(functionStack.get(functionStack.size() - 1), callee);
+    }
+
+    private void replayCalls(JsFunction function, FunctionCalls calls) {
+      callsByFunction.put(function, calls);
+      for (JsFunction callee : calls.callees) {
+        addCall(function, callee);
+      }
+      for (JsFunction nested : calls.nestedFunctions) {
+        enclosingFunctions.put(nested, function);
+        replayCalls(nested, previousCalls.get(nested));
+      }
+    }
+  }
+
+  /**
+   * The calls made directly by a function, and the functions declared directly in its body.
+   */
+  private static class FunctionCalls {
+    private final List<JsFunction> callees = new ArrayList<JsFunction>();
+    private final List<JsFunction> nestedFunctions = new ArrayList<JsFunction>();
+  }
+
+  /**
+   * The functions to visit in the current pass, or null if every function must be visited.
+   */
+  private Set<JsFunction> affectedFunctions = null;
+
+  private Map<JsFunction, Set<JsFunction>> callersByCallee;
+
+  private Map<JsFunction, FunctionCalls> callsByFunction;
+
+  private Map<JsFunction, JsFunction> enclosingFunctions;
+
+  private Map<JsFunction, Integer> invocationCounts;
+
+  private final Set<JsFunction> modifiedFunctions = new IdentityHashSet<JsFunction>();
+
+  private final JsProgram program;
+
+  public JsOptimizerContext(JsProgram program) {
+    this.program = program;
+    recordCalls(Collections.<JsFunction>emptySet());
+  }
+
+  /**
+   * Returns the functions modified so far in the current pass.
+   */
+  public Set<JsFunction> getModifiedFunctions() {
+    return Collections.unmodifiableSet(modifiedFunctions);
+  }
+
+  /**
+   * Returns whether optimizers should visit {@code function} in the current pass.
+   */
+  public boolean isAffected(JsFunction function) {
+    return affectedFunctions == null || affectedFunctions.contains(function);
+  }
+
+  /**
+   * Records that an optimizer modified the body of {@code function}. The calls made by a function
+   * are only scanned again in the next pass if it was reported here.
+   */
+  public void markModified(JsFunction function) {
+    modifiedFunctions.add(function);
+  }
+
+  /**
+   * Starts the next pass of the optimization loop, in which only the functions modified in the
+   * current pass, their callers, and the callers of functions whose number of call sites changed
+   * are visited.
+   */
+  public void nextPass() {
+    Map<JsFunction, Integer> previousInvocationCounts = invocationCounts;
+    // Only the modified functions and the functions enclosing them need to be scanned again.
+    Set<JsFunction> dirty = new IdentityHashSet<JsFunction>();
+    dirty.addAll(modifiedFunctions);
+    addEnclosingFunctions(dirty);
+    recordCalls(dirty);
+
+    Set<JsFunction> changedCallees = new IdentityHashSet<JsFunction>();
+    changedCallees.addAll(modifiedFunctions);
+    addChangedCounts(changedCallees, previousInvocationCounts, invocationCounts);
+    addChangedCounts(changedCallees, invocationCounts, previousInvocationCounts);
+
+    Set<JsFunction> affected = new IdentityHashSet<JsFunction>();
+    affected.addAll(modifiedFunctions);
+    for (JsFunction callee : changedCallees) {
+      Set<JsFunction> callers = callersByCallee.get(callee);
+      if (callers != null) {
+        affected.addAll(callers);
+      }
+    }
+    // A nested function is only reached by visiting the functions that enclose it.
+    addEnclosingFunctions(affected);
+    affectedFunctions = affected;
+    modifiedFunctions.clear();
+  }
+
+  private void addCall(JsFunction caller, JsFunction callee) {
+    countCall(callee);
+    Set<JsFunction> callers = callersByCallee.get(callee);
+    if (callers == null) {
+      callers = new IdentityHashSet<JsFunction>();
+      callersByCallee.put(callee, callers);
+    }
+    callers.add(caller);
+  }
+
+  private void addChangedCounts(Collection<JsFunction> changed, Map<JsFunction, Integer> counts,
+      Map<JsFunction, Integer> otherCounts) {
+    for (Map.Entry<JsFunction, Integer> entry : counts.entrySet()) {
+      if (!entry.getValue().equals(otherCounts.get(entry.getKey()))) {
+        changed.add(entry.getKey());
+      }
+    }
+  }
+
+  private void addEnclosingFunctions(Set<JsFunction> functions) {
+    for (JsFunction function : new ArrayList<JsFunction>(functions)) {
+      for (JsFunction enclosing = enclosingFunctions.get(function); enclosing != null;
+          enclosing = enclosingFunctions.get(enclosing)) {
+        functions.add(enclosing);
+      }
+    }
+  }
+
+  private void countCall(JsFunction callee) {
+    Integer count = invocationCounts.get(callee);
+    invocationCounts.put(callee, count == null ? 1 : count + 1);
+  }
+
+  /**
+   * Rebuilds the call graph, only traversing the bodies of {@code dirtyFunctions} and of the
+   * functions that were not seen before.
+   */
+  private void recordCalls(Set<JsFunction> dirtyFunctions) {
+    Map<JsFunction, FunctionCalls> previousCalls =
+        callsByFunction == null ? Collections.<JsFunction, FunctionCalls>emptyMap()
+            : callsByFunction;
+    callersByCallee = Maps.newIdentityHashMap();
+    callsByFunction = Maps.newIdentityHashMap();
+    enclosingFunctions = Maps.newIdentityHashMap();
+    invocationCounts = Maps.newIdentityHashMap();
+    new CallRecorder(previousCalls, dirtyFunctions).accept(program);
+  }
+}
@@ -23,6 +23,7 @@ import com.google.gwt.thirdparty.guava.common.collect.Maps;
 import com.google.gwt.thirdparty.guava.common.collect.Multiset;
 import com.google.gwt.thirdparty.guava.common.collect.Sets;
 
+import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,7 +36,7 @@ public class JsPersistentPrettyNamer extends JsNamer {
   /**
    * Encapsulates the complete state of this namer so that state can be persisted and reused.
    */
-  public static class PersistentPrettyNamerState {
+  public static class PersistentPrettyNamerState implements Serializable {
 
     private Multiset<String> shortIdentCollisionCounts = HashMultiset.create();
 
@@ -34,7 +34,6 @@ import com.google.gwt.dev.js.ast.JsExpression;
 import com.google.gwt.dev.js.ast.JsFor;
 import com.google.gwt.dev.js.ast.JsFunction;
 import com.google.gwt.dev.js.ast.JsIf;
-import com.google.gwt.dev.js.ast.JsModVisitor;
 import com.google.gwt.dev.js.ast.JsNullLiteral;
 import com.google.gwt.dev.js.ast.JsNumberLiteral;
 import com.google.gwt.dev.js.ast.JsPrefixOperation;
@@ -154,7 +153,7 @@ public class JsStaticEval {
    * {@link com.google.gwt.dev.jjs.impl.DeadCodeElimination}, such as ignored
    * expression results.
    */
-  private class StaticEvalVisitor extends JsModVisitor {
+  private class StaticEvalVisitor extends JsChangeTrackingVisitor {
 
     private Set<JsExpression> evalBooleanContext = new HashSet<JsExpression>();
 
@@ -163,6 +162,10 @@ public class JsStaticEval {
      */
     private Map<JsExpression, Boolean> coercesToStringMap = new IdentityHashMap<JsExpression, Boolean>();
 
+    public StaticEvalVisitor() {
+      super(optimizerCtx);
+    }
+
     @Override
     public void endVisit(JsBinaryOperation x, JsContext ctx) {
       JsBinaryOperator op = x.getOperator();
@@ -857,6 +860,18 @@ public class JsStaticEval {
     return stats;
   }
 
+  /**
+   * Only visits the functions that {@code optimizerCtx} considers affected, and records the
+   * functions it modifies.
+   */
+  public static OptimizerStats exec(JsProgram program, JsOptimizerContext optimizerCtx) {
+    Event optimizeJsEvent = SpeedTracerLogger.start(
+        CompilerEventType.OPTIMIZE_JS, "optimizer", NAME);
+    OptimizerStats stats = new JsStaticEval(program, optimizerCtx).execImpl();
+    optimizeJsEvent.end("didChange", "" + stats.didChange());
+    return stats;
+  }
+
   /**
    * Attempts to extract a single expression from a given statement and returns
    * it. If no such expression exists, returns <code>null</code>.
@@ -949,10 +964,17 @@ public class JsStaticEval {
     }
   }
 
+  private final JsOptimizerContext optimizerCtx;
+
   private final JsProgram program;
 
   public JsStaticEval(JsProgram program) {
+    this(program, null);
+  }
+
+  public JsStaticEval(JsProgram program, JsOptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
   }
 
   public <T extends JsVisitable> T execImpl(T node) {
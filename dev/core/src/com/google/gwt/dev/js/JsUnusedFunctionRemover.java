@@ -30,6 +30,8 @@ import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -38,6 +40,8 @@ import java.util.Set;
 public class JsUnusedFunctionRemover {
   private class RemovalVisitor extends JsModVisitor {
 
+    private final List<JsFunction> functionStack = new ArrayList<JsFunction>();
+
     @Override
     public void endVisit(JsExprStmt x, JsContext ctx) {
       if (!(x.getExpression() instanceof JsFunction)) {
@@ -59,6 +63,20 @@ public class JsUnusedFunctionRemover {
       }
       // Remove the statement
       ctx.removeMe();
+      if (optimizerCtx != null && !functionStack.isEmpty()) {
+        optimizerCtx.markModified(functionStack.get(functionStack.size() - 1));
+      }
+    }
+
+    @Override
+    public void endVisit(JsFunction x, JsContext ctx) {
+      functionStack.remove(functionStack.size() - 1);
+    }
+
+    @Override
+    public boolean visit(JsFunction x, JsContext ctx) {
+      functionStack.add(x);
+      return true;
     }
   }
 
@@ -76,18 +94,32 @@ public class JsUnusedFunctionRemover {
   public static final String NAME = JsUnusedFunctionRemover.class.getSimpleName();
 
   public static OptimizerStats exec(JsProgram program) {
+    return exec(program, null);
+  }
+
+  /**
+   * Reports the functions whose nested function declarations were removed to
+   * {@code optimizerCtx}.
+   */
+  public static OptimizerStats exec(JsProgram program, JsOptimizerContext optimizerCtx) {
     Event optimizeJsEvent =
         SpeedTracerLogger.start(CompilerEventType.OPTIMIZE_JS, "optimizer", NAME);
-    OptimizerStats stats = new JsUnusedFunctionRemover(program).execImpl();
+    OptimizerStats stats = new JsUnusedFunctionRemover(program, optimizerCtx).execImpl();
     optimizeJsEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
 
+  private final JsOptimizerContext optimizerCtx;
   private final JsProgram program;
   private final Set<JsName> seen = new IdentityHashSet<JsName>();
 
   public JsUnusedFunctionRemover(JsProgram program) {
+    this(program, null);
+  }
+
+  public JsUnusedFunctionRemover(JsProgram program, JsOptimizerContext optimizerCtx) {
     this.program = program;
+    this.optimizerCtx = optimizerCtx;
   }
 
   public OptimizerStats execImpl() {
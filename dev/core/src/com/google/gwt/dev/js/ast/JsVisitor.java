@@ -462,7 +462,11 @@ public class JsVisitor {
     }
   }
 
-  protected final <T extends JsVisitable> void doTraverse(T node, JsContext ctx) {
+  /**
+   * Traverses a single node. Subclasses may override this to act before and after any node is
+   * traversed, whichever way it was reached.
+   */
+  protected <T extends JsVisitable> void doTraverse(T node, JsContext ctx) {
     try {
       node.traverse(this, ctx);
     } catch (Throwable e) {
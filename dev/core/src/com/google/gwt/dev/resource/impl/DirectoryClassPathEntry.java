@@ -24,12 +24,29 @@ import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A {@link ClassPathEntry} for a directory on the file system.
  */
 public class DirectoryClassPathEntry extends ClassPathEntry {
 
+  /**
+   * The subdirectories and files of a directory, as of a modification time of the directory.
+   */
+  private static class DirectoryListing {
+    private final File[] dirs;
+    private final File[] files;
+    private final long lastModified;
+
+    public DirectoryListing(long lastModified, File[] dirs, File[] files) {
+      this.lastModified = lastModified;
+      this.dirs = dirs;
+      this.files = files;
+    }
+  }
+
   private static class Messages {
     static final Message1String DESCENDING_INTO_DIR = new Message1String(
         TreeLogger.SPAM, "Descending into dir: $0");
@@ -41,11 +58,25 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
         TreeLogger.DEBUG, "Excluding file: $0");
   }
 
+  /**
+   * File systems may record modification times with a granularity as coarse as two seconds.
+   */
+  private static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2000;
+
   /**
    * Absolute directory.
    */
   private final File dir;
 
+  /**
+   * The modification time of a directory changes whenever a child is added, removed or renamed,
+   * so a directory only needs to be listed again when its modification time changes. This avoids
+   * listing every directory, and checking whether each child is a file or a directory, every
+   * time the resources are refreshed.
+   */
+  private final ConcurrentMap<File, DirectoryListing> listingsByDir =
+      new ConcurrentHashMap<File, DirectoryListing>();
+
   private final String location;
 
   /**
@@ -101,31 +132,65 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
 
     // Assert: this directory is included in the path prefix set.
 
-    File[] children = dir.listFiles();
-    for (File child : children) {
+    DirectoryListing listing = getListing(dir);
+    for (File child : listing.dirs) {
+      String childDirPath = dirPath + child.getName() + "/";
+      for (int i = 0; i < len; ++i) {
+        if (pathPrefixSets.get(i).includesDirectory(childDirPath)) {
+          Messages.DESCENDING_INTO_DIR.log(logger, child.getPath(), null);
+          descendToFindResources(logger, pathPrefixSets, results, child,
+              childDirPath);
+          break;
+        }
+      }
+    }
+    for (File child : listing.files) {
       String childPath = dirPath + child.getName();
-      if (child.isDirectory()) {
-        String childDirPath = childPath + "/";
-        for (int i = 0; i < len; ++i) {
-          if (pathPrefixSets.get(i).includesDirectory(childDirPath)) {
-            Messages.DESCENDING_INTO_DIR.log(logger, child.getPath(), null);
-            descendToFindResources(logger, pathPrefixSets, results, child,
-                childDirPath);
-            break;
-          }
+      for (int i = 0; i < len; ++i) {
+        ResourceResolution resourceResolution = null;
+        if ((resourceResolution = pathPrefixSets.get(i).includesResource(childPath)) != null) {
+          Messages.INCLUDING_FILE.log(logger, childPath, null);
+          FileResource r = new FileResource(this, childPath, child);
+          results.get(i).put(r, resourceResolution);
+        } else {
+          Messages.EXCLUDING_FILE.log(logger, childPath, null);
         }
-      } else if (child.isFile()) {
-        for (int i = 0; i < len; ++i) {
-          ResourceResolution resourceResolution = null;
-          if ((resourceResolution = pathPrefixSets.get(i).includesResource(childPath)) != null) {
-            Messages.INCLUDING_FILE.log(logger, childPath, null);
-            FileResource r = new FileResource(this, childPath, child);
-            results.get(i).put(r, resourceResolution);
-          } else {
-            Messages.EXCLUDING_FILE.log(logger, childPath, null);
-          }
+      }
+    }
+  }
+
+  /**
+   * Returns the subdirectories and files of a directory, listing it only if it was modified since
+   * it was last listed.
+   */
+  private DirectoryListing getListing(File dir) {
+    long lastModified = dir.lastModified();
+    DirectoryListing listing = listingsByDir.get(dir);
+    if (listing != null && listing.lastModified == lastModified) {
+      return listing;
+    }
+
+    List<File> dirs = new ArrayList<File>();
+    List<File> files = new ArrayList<File>();
+    File[] children = dir.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          dirs.add(child);
+        } else if (child.isFile()) {
+          files.add(child);
         }
       }
     }
+    listing = new DirectoryListing(lastModified, dirs.toArray(new File[dirs.size()]),
+        files.toArray(new File[files.size()]));
+
+    // A change made right after listing the directory might not change its modification time.
+    if (System.currentTimeMillis() - lastModified > MODIFICATION_TIME_GRANULARITY_MILLIS) {
+      listingsByDir.put(dir, listing);
+    } else {
+      listingsByDir.remove(dir);
+    }
+    return listing;
   }
 }
@@ -26,6 +26,7 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 import com.google.gwt.dev.util.msg.Message0;
 import com.google.gwt.dev.util.msg.Message1String;
 import com.google.gwt.thirdparty.guava.common.base.Joiner;
+import com.google.gwt.thirdparty.guava.common.base.Throwables;
 import com.google.gwt.thirdparty.guava.common.collect.HashMultimap;
 import com.google.gwt.thirdparty.guava.common.collect.MapMaker;
 import com.google.gwt.thirdparty.guava.common.collect.Maps;
@@ -49,6 +50,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The normal implementation of {@link ResourceOracle}.
@@ -160,6 +168,12 @@ public class ResourceOracleImpl implements ResourceOracle {
     }
   }
 
+  /**
+   * A Java system property that sets the number of class path entries that are scanned
+   * concurrently. Defaults to the number of available processors.
+   */
+  public static final String SCAN_THREADS_PROPERTY = "gwt.resourceOracle.scanThreads";
+
   private static final Map<ResourceLoader, List<ClassPathEntry>> classPathCache =
       new MapMaker().weakKeys().makeMap();
 
@@ -276,12 +290,19 @@ public class ResourceOracleImpl implements ResourceOracle {
     Map<String, ResourceDescription> resourceDescriptionsByPath =
         new LinkedHashMap<String, ResourceDescription>();
 
+    List<TreeLogger> branchesForClassPathEntries = new ArrayList<TreeLogger>();
     for (ClassPathEntry classPathEntry : classPathEntries) {
-      TreeLogger branchForClassPathEntry =
-          Messages.EXAMINING_PATH_ROOT.branch(refreshBranch, classPathEntry.getLocation(), null);
+      branchesForClassPathEntries.add(
+          Messages.EXAMINING_PATH_ROOT.branch(refreshBranch, classPathEntry.getLocation(), null));
+    }
+    List<Map<AbstractResource, ResourceResolution>> prefixesByResourceForClassPathEntries =
+        findApplicableResources(branchesForClassPathEntries);
 
+    // Merge in class path order, so that resources are shadowed as if scanned serially.
+    for (int i = 0; i < classPathEntries.size(); i++) {
+      TreeLogger branchForClassPathEntry = branchesForClassPathEntries.get(i);
       Map<AbstractResource, ResourceResolution> prefixesByResource =
-          classPathEntry.findApplicableResources(branchForClassPathEntry, pathPrefixSet);
+          prefixesByResourceForClassPathEntries.get(i);
       for (Entry<AbstractResource, ResourceResolution> entry : prefixesByResource.entrySet()) {
         AbstractResource resource = entry.getKey();
         ResourceResolution resourceResolution = entry.getValue();
@@ -318,6 +339,66 @@ public class ResourceOracleImpl implements ResourceOracle {
     resourceOracle.end();
   }
 
+  /**
+   * Finds the applicable resources in each class path entry. Entries are scanned concurrently,
+   * as most of the time is spent waiting on the file system.
+   */
+  private List<Map<AbstractResource, ResourceResolution>> findApplicableResources(
+      final List<TreeLogger> branchesForClassPathEntries) {
+    int entryCount = classPathEntries.size();
+    List<Map<AbstractResource, ResourceResolution>> results =
+        new ArrayList<Map<AbstractResource, ResourceResolution>>(entryCount);
+    int threads = Math.min(entryCount, Integer.getInteger(SCAN_THREADS_PROPERTY,
+        Runtime.getRuntime().availableProcessors()));
+    if (threads <= 1) {
+      for (int i = 0; i < entryCount; i++) {
+        results.add(classPathEntries.get(i).findApplicableResources(
+            branchesForClassPathEntries.get(i), pathPrefixSet));
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread =
+            new Thread(runnable, "ResourceOracle-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      final PathPrefixSet pathPrefixSet = this.pathPrefixSet;
+      List<Future<Map<AbstractResource, ResourceResolution>>> futures =
+          new ArrayList<Future<Map<AbstractResource, ResourceResolution>>>(entryCount);
+      for (int i = 0; i < entryCount; i++) {
+        final ClassPathEntry classPathEntry = classPathEntries.get(i);
+        final TreeLogger branchForClassPathEntry = branchesForClassPathEntries.get(i);
+        futures.add(executor.submit(new Callable<Map<AbstractResource, ResourceResolution>>() {
+          @Override
+          public Map<AbstractResource, ResourceResolution> call() {
+            return classPathEntry.findApplicableResources(branchForClassPathEntry,
+                pathPrefixSet);
+          }
+        }));
+      }
+      for (Future<Map<AbstractResource, ResourceResolution>> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while scanning resources", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new RuntimeException("Unexpected exception while scanning resources", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private void maybeRecordTypeForModule(ResourceResolution resourceResolution,
       String resourcePath) {
     // If PathPrefix->Module associations are inaccurate because PathPrefixes have been merged.
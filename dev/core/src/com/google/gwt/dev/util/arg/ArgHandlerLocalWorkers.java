@@ -31,13 +31,14 @@ public class ArgHandlerLocalWorkers extends ArgHandlerInt {
 
   @Override
   public String[] getDefaultArgs() {
-    // Default to 1 for now; we might do an "auto" later.
+    // Default to 1 for now; 0 picks a number based on the processors and heap.
     return new String[] {getTag(), "1"};
   }
 
   @Override
   public String getPurpose() {
-    return "The number of local workers to use when compiling permutations";
+    return "The number of local workers to use when compiling permutations "
+        + "(0 to choose based on the available processors and memory)";
   }
 
   @Override
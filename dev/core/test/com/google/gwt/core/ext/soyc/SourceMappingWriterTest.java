@@ -41,7 +41,14 @@ public class SourceMappingWriterTest extends TestCase {
   protected void setUp() throws Exception {
     super.setUp();
     generator = new SourceMapGeneratorV3();
-    writer = new SourceMappingWriter(generator);
+    writer = new SourceMappingWriter(new SourceMappingSink() {
+      @Override
+      public void addMapping(String sourceName, String symbolName,
+          FilePosition sourceStartPosition, FilePosition startPosition, FilePosition endPosition) {
+        generator.addMapping(sourceName, symbolName, sourceStartPosition, startPosition,
+            endPosition);
+      }
+    });
   }
 
   public void testNoMappings() throws Exception {
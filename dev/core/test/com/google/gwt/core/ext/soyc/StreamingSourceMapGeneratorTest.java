@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.ext.soyc;
+
+import com.google.gwt.thirdparty.debugging.sourcemap.FilePosition;
+import com.google.gwt.thirdparty.debugging.sourcemap.SourceMapGeneratorV3;
+
+import junit.framework.TestCase;
+
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Verifies that {@link StreamingSourceMapGenerator} writes the same mappings as
+ * {@link SourceMapGeneratorV3}.
+ */
+public class StreamingSourceMapGeneratorTest extends TestCase {
+
+  /**
+   * The length of each line of the simulated JavaScript.
+   */
+  private static final int LINE_LENGTH = 40;
+
+  private SourceMapGeneratorV3 expected;
+  private StreamingSourceMapGenerator actual;
+  private StringBuilder actualOutput;
+  private Random random;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    expected = new SourceMapGeneratorV3();
+    expected.setSourceRoot("http://example.com/src/");
+    expected.addExtension("x_gwt_permutation", 3);
+    actualOutput = new StringBuilder();
+    actual = new StreamingSourceMapGenerator(actualOutput, "test", "http://example.com/src/");
+    actual.addExtension("x_gwt_permutation", 3);
+    random = new Random(42);
+  }
+
+  public void testNoMappings() throws Exception {
+    checkSameOutput();
+  }
+
+  public void testInlinedExpression() throws Exception {
+    addMapping("Hello.java", null, 10, 0, 11);
+    addMapping("Hello.java", null, 20, 3, 7);
+    checkSameOutput();
+  }
+
+  public void testUnmappedGapsAndLines() throws Exception {
+    addMapping("Hello.java", null, 1, 2, 5);
+    addMapping("Hello.java", null, 2, 9, 12);
+    addMapping("World.java", null, 3, 3 * LINE_LENGTH + 4, 5 * LINE_LENGTH + 1);
+    addMapping("Hello.java", null, 4, 5 * LINE_LENGTH + 1, 5 * LINE_LENGTH + 8);
+    checkSameOutput();
+  }
+
+  public void testNamesAndSources() throws Exception {
+    addMapping("Hello.java", "foo", 1, 0, 3);
+    addMapping("World.java", "bar", 2, 4, 7);
+    addMapping("Hello.java", "foo", 3, 8, 11);
+    addMapping("Other.java", "baz", 4, LINE_LENGTH, LINE_LENGTH + 3);
+    // Mappings without a source are dropped.
+    addMapping(null, null, 5, LINE_LENGTH + 4, LINE_LENGTH + 5);
+    checkSameOutput();
+  }
+
+  public void testRandomNesting() throws Exception {
+    addRandomMappings(0, 100 * LINE_LENGTH, 0);
+    checkSameOutput();
+  }
+
+  public void testOutOfOrderMapping() {
+    addMapping("Hello.java", null, 1, 10, 20);
+    try {
+      actual.addMapping("Hello.java", null, new FilePosition(0, 0), new FilePosition(0, 5),
+          new FilePosition(0, 6));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  /**
+   * Adds mappings for nested and sibling JavaScript ranges between two offsets, in the order
+   * that they would be recorded for a JavaScript AST.
+   */
+  private void addRandomMappings(int start, int end, int depth) {
+    int offset = start;
+    while (offset < end) {
+      // Leave some JavaScript unmapped.
+      offset += random.nextInt(3) == 0 ? random.nextInt(Math.min(5, end - offset) + 1) : 0;
+      if (offset >= end) {
+        return;
+      }
+      int length = 1 + random.nextInt(Math.min(end - offset, depth == 0 ? 3 * LINE_LENGTH : 20));
+      String name = random.nextInt(4) == 0 ? "name" + random.nextInt(10) : null;
+      addMapping("File" + random.nextInt(5) + ".java", name, random.nextInt(1000), offset,
+          offset + length);
+      if (depth < 4 && length > 1) {
+        addRandomMappings(offset, offset + length, depth + 1);
+      }
+      offset += length;
+    }
+  }
+
+  private void addMapping(String sourceName, String symbolName, int sourceLine, int startOffset,
+      int endOffset) {
+    FilePosition sourceStart = new FilePosition(sourceLine, 0);
+    FilePosition start = new FilePosition(startOffset / LINE_LENGTH, startOffset % LINE_LENGTH);
+    FilePosition end = new FilePosition(endOffset / LINE_LENGTH, endOffset % LINE_LENGTH);
+    expected.addMapping(sourceName, symbolName, sourceStart, start, end);
+    actual.addMapping(sourceName, symbolName, sourceStart, start, end);
+  }
+
+  private void checkSameOutput() throws Exception {
+    StringBuilder expectedOutput = new StringBuilder();
+    expected.appendTo(expectedOutput, "test");
+    actual.finish();
+
+    JSONObject expectedJson = new JSONObject(expectedOutput.toString());
+    JSONObject actualJson = new JSONObject(actualOutput.toString());
+    assertEquals(expectedJson.length(), actualJson.length());
+    for (String key : JSONObject.getNames(expectedJson)) {
+      assertEquals(key, expectedJson.get(key).toString(), actualJson.get(key).toString());
+    }
+  }
+}
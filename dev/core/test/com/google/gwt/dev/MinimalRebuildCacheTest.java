@@ -16,10 +16,14 @@ package com.google.gwt.dev;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.dev.MinimalRebuildCache.PermutationRebuildCache;
 import com.google.gwt.dev.jjs.ast.JTypeOracle;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.thirdparty.guava.common.collect.Sets;
 
 import junit.framework.TestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
 /**
  * Tests for {@link MinimalRebuildCache}.
  */
@@ -91,6 +95,43 @@ public class MinimalRebuildCacheTest extends TestCase {
         minimalRebuildCache.computeDeletedTypeNames());
   }
 
+  public void testContentIdStale() {
+    // A new cache knows nothing about previous content.
+    assertFalse(minimalRebuildCache.isContentIdStale("Foo", "Foo:1"));
+
+    minimalRebuildCache.recordContentId("Foo", "Foo:1");
+    assertFalse(minimalRebuildCache.isContentIdStale("Foo", "Foo:1"));
+    assertTrue(minimalRebuildCache.isContentIdStale("Foo", "Foo:2"));
+    assertTrue(minimalRebuildCache.isContentIdStale("Bar", "Bar:1"));
+  }
+
+  public void testSerialization() throws Exception {
+    minimalRebuildCache.setAllCompilationUnitNames(TreeLogger.NULL, Sets.newHashSet("Foo", "Bar"));
+    minimalRebuildCache.recordNestedTypeName("Foo", "Foo");
+    minimalRebuildCache.recordNestedTypeName("Foo", "Foo$Inner");
+    minimalRebuildCache.recordContentId("Foo", "Foo:1");
+    minimalRebuildCache.setRootTypeNames(Sets.newHashSet("Bar"));
+    minimalRebuildCache.getIntTypeIdGenerator().getOrCreateTypeId("Foo");
+    PermutationRebuildCache permutationRebuildCache =
+        minimalRebuildCache.getPermutationRebuildCache(0);
+    permutationRebuildCache.setJsForType(TreeLogger.NULL, "Foo", "Some Js for Foo");
+    permutationRebuildCache.addTypeReference("Bar", "Foo");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Util.writeObjectToStream(bytes, minimalRebuildCache);
+    MinimalRebuildCache copy = Util.readStreamAsObject(
+        new ByteArrayInputStream(bytes.toByteArray()), MinimalRebuildCache.class);
+
+    assertEquals(Sets.newHashSet("Foo", "Bar"), copy.getAllCompilationUnitNames());
+    assertFalse(copy.isContentIdStale("Foo", "Foo:1"));
+    assertTrue(copy.isContentIdStale("Foo", "Foo:2"));
+    assertEquals(minimalRebuildCache.getIntTypeIdGenerator().getOrCreateTypeId("Foo"),
+        copy.getIntTypeIdGenerator().getOrCreateTypeId("Foo"));
+    assertEquals("Some Js for Foo", copy.getPermutationRebuildCache(0).getJs("Foo"));
+    assertEquals(Sets.newHashSet("Bar", "Foo"),
+        copy.getPermutationRebuildCache(0).computeReachableTypeNames());
+  }
+
   @Override
   protected void setUp() throws Exception {
     super.setUp();
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.cfg.BindingProperty;
+import com.google.gwt.dev.cfg.BindingProps;
+import com.google.gwt.dev.cfg.ConditionAll;
+import com.google.gwt.dev.cfg.ConfigProps;
+import com.google.gwt.dev.cfg.ModuleDef;
+import com.google.gwt.dev.cfg.ModuleDefLoader;
+import com.google.gwt.dev.cfg.ResourceLoader;
+import com.google.gwt.dev.cfg.ResourceLoaders;
+import com.google.gwt.dev.jjs.PermutationResult;
+import com.google.gwt.dev.jjs.UnifiedAst;
+import com.google.gwt.dev.util.FileBackedObject;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.thirdparty.guava.common.collect.ImmutableList;
+import com.google.gwt.thirdparty.guava.common.collect.ImmutableMap;
+import com.google.gwt.util.tools.Utility;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link PermutationResultCache}.
+ */
+public class PermutationResultCacheTest extends TestCase {
+
+  private File cacheDir;
+
+  private File workDir;
+
+  @Override
+  protected void setUp() throws IOException {
+    cacheDir = Utility.makeTemporaryDirectory(null, "permutationCache");
+    workDir = Utility.makeTemporaryDirectory(null, "permutationWork");
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(cacheDir, false);
+    Util.recursiveDelete(workDir, false);
+  }
+
+  public void testAstStrongName() throws UnableToCompleteException {
+    writeFile(new File(workDir, "com/foo/SimpleModule.gwt.xml"),
+        "<module><source path=''/><entry-point class='com.foo.TestEntryPoint'/></module>");
+    writeFile(new File(workDir, "com/foo/TestEntryPoint.java"), "package com.foo;\n"
+        + "import com.google.gwt.core.client.EntryPoint;\n"
+        + "import java.util.HashMap;\n"
+        + "public class TestEntryPoint implements EntryPoint {\n"
+        + "  public void onModuleLoad() {\n"
+        + "    Object[][] arrays = new String[1][];\n"
+        + "    new HashMap<String, Object>().put(\"arrays\", arrays);\n"
+        + "  }\n"
+        + "}\n");
+
+    // Precompiling the same sources again must give the same name, even though the serialized AST
+    // is not deterministic.
+    String strongName = precompile(new CompilerOptionsImpl()).getStrongName();
+    assertNotNull(strongName);
+    assertEquals(strongName, precompile(new CompilerOptionsImpl()).getStrongName());
+
+    CompilerOptionsImpl otherOptions = new CompilerOptionsImpl();
+    otherOptions.setEnableAssertions(true);
+    assertFalse(strongName.equals(precompile(otherOptions).getStrongName()));
+  }
+
+  public void testEntryName() {
+    PermutationResultCache cache = new PermutationResultCache(cacheDir, Long.MAX_VALUE, "ast");
+    String name = cache.getEntryName(createPermutation(0, "safari", "1"));
+    assertEquals(name, cache.getEntryName(createPermutation(0, "safari", "1")));
+    assertFalse(name.equals(cache.getEntryName(createPermutation(1, "safari", "1"))));
+    assertFalse(name.equals(cache.getEntryName(createPermutation(0, "gecko1_8", "1"))));
+    assertFalse(name.equals(cache.getEntryName(createPermutation(0, "safari", "2"))));
+
+    Permutation withAnswer = createPermutation(0, "safari", "1");
+    withAnswer.putRebindAnswer("com.example.Foo", "com.example.FooImpl");
+    assertFalse(name.equals(cache.getEntryName(withAnswer)));
+
+    PermutationResultCache otherAst =
+        new PermutationResultCache(cacheDir, Long.MAX_VALUE, "otherAst");
+    assertFalse(name.equals(otherAst.getEntryName(createPermutation(0, "safari", "1"))));
+  }
+
+  public void testEvict() throws IOException {
+    PermutationResultCache cache = new PermutationResultCache(cacheDir, 10, "ast");
+    File oldest = writeFile(new File(cacheDir, "a.perm"), "12345");
+    File newest = writeFile(new File(cacheDir, "b.perm"), "12345");
+    File notAnEntry = writeFile(new File(cacheDir, "c.tmp"), "12345");
+    oldest.setLastModified(1000000000000L);
+    newest.setLastModified(2000000000000L);
+
+    cache.evict(TreeLogger.NULL);
+    assertTrue(oldest.exists());
+
+    File newer = writeFile(new File(cacheDir, "d.perm"), "12345");
+    newer.setLastModified(1500000000000L);
+    cache.evict(TreeLogger.NULL);
+    assertFalse(oldest.exists());
+    assertTrue(newer.exists());
+    assertTrue(newest.exists());
+    assertTrue(notAnEntry.exists());
+  }
+
+  public void testStoreAndRestore() throws IOException {
+    PermutationResultCache cache = new PermutationResultCache(cacheDir, Long.MAX_VALUE, "ast");
+    Permutation permutation = createPermutation(0, "safari", "1");
+
+    FileBackedObject<PermutationResult> missing = createResultFile("missing");
+    assertFalse(cache.restore(TreeLogger.NULL, permutation, missing));
+    assertFalse(missing.exists());
+
+    FileBackedObject<PermutationResult> compiled = createResultFile("compiled");
+    writeFile(new File(compiled.getPath()), "compiled permutation");
+    cache.store(TreeLogger.NULL, permutation, compiled);
+
+    FileBackedObject<PermutationResult> restored = createResultFile("restored");
+    assertTrue(cache.restore(TreeLogger.NULL, permutation, restored));
+    assertEquals("compiled permutation", Util.readFileAsString(new File(restored.getPath())));
+
+    FileBackedObject<PermutationResult> otherPermutation = createResultFile("other");
+    assertFalse(cache.restore(TreeLogger.NULL, createPermutation(1, "safari", "1"),
+        otherPermutation));
+  }
+
+  private Permutation createPermutation(int id, String userAgent, String configValue) {
+    BindingProperty userAgentProperty = new BindingProperty("user.agent");
+    userAgentProperty.addDefinedValue(new ConditionAll(), userAgent);
+    ConfigProps configProps = new ConfigProps(
+        ImmutableMap.<String, List<String>>of("conf", Arrays.asList(configValue)));
+    return new Permutation(id, new BindingProps(new BindingProperty[] {userAgentProperty},
+        new String[] {userAgent}, configProps));
+  }
+
+  /**
+   * Precompiles com.foo.SimpleModule from scratch.
+   */
+  private UnifiedAst precompile(CompilerOptionsImpl options) throws UnableToCompleteException {
+    System.setProperty(CompilerTest.GWT_PERSISTENTUNITCACHE, "false");
+    ResourceLoader resourceLoader = ResourceLoaders.forPathAndFallback(ImmutableList.of(workDir),
+        ResourceLoaders.forClassLoader(Thread.currentThread()));
+    CompilerContext.Builder builder = new CompilerContext.Builder().options(options);
+    ModuleDefLoader.clearModuleCache();
+    ModuleDef module = ModuleDefLoader.loadFromResources(TreeLogger.NULL, builder.build(),
+        "com.foo.SimpleModule", resourceLoader, true);
+    return Precompile.precompile(TreeLogger.NULL, builder.module(module).build()).getUnifiedAst();
+  }
+
+  private FileBackedObject<PermutationResult> createResultFile(String name) {
+    return new FileBackedObject<PermutationResult>(PermutationResult.class,
+        new File(workDir, name + ".js"));
+  }
+
+  private static File writeFile(File file, String contents) {
+    assertTrue(Util.writeStringAsFile(file, contents));
+    return file;
+  }
+}
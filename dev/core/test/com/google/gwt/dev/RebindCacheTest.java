@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev;
+
+import com.google.gwt.core.ext.CachedGeneratorResult;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.linker.ArtifactSet;
+import com.google.gwt.core.ext.linker.impl.StandardGeneratedResource;
+import com.google.gwt.dev.cfg.Rule;
+import com.google.gwt.dev.cfg.RuleGenerateWith;
+import com.google.gwt.dev.javac.CachedGeneratorResultImpl;
+import com.google.gwt.dev.javac.GeneratedUnit;
+import com.google.gwt.dev.javac.StandardGeneratorContext.GeneratedUnitImpl;
+import com.google.gwt.dev.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link RebindCache}.
+ */
+public class RebindCacheTest extends TestCase {
+
+  private File file;
+
+  private final Rule rule = new RuleGenerateWith(FooBarGenerator.class);
+
+  @Override
+  protected void setUp() throws IOException {
+    file = File.createTempFile("RebindCacheTest", ".rebind");
+  }
+
+  @Override
+  protected void tearDown() {
+    file.delete();
+  }
+
+  public void testLoadMissingFile() {
+    assertTrue(file.delete());
+    assertNull(RebindCache.load(TreeLogger.NULL, file).get(rule, "com.example.Foo"));
+  }
+
+  public void testSaveAndLoad() throws Exception {
+    RebindCache cache = new RebindCache();
+    cache.put(rule, "com.example.Foo", createResult("com.example.FooImpl", "class FooImpl {}"));
+    cache.save(TreeLogger.NULL, file);
+
+    RebindCache loadedCache = RebindCache.load(TreeLogger.NULL, file);
+    CachedGeneratorResultImpl result =
+        (CachedGeneratorResultImpl) loadedCache.get(rule, "com.example.Foo");
+    assertEquals("com.example.FooImpl", result.getResultTypeName());
+    assertEquals("42", result.getClientData("version"));
+    GeneratedUnit unit = result.getGeneratedUnit("com.example.FooImpl");
+    assertEquals("class FooImpl {}", unit.getSource());
+    assertEquals(Util.computeStrongName(Util.getBytes("class FooImpl {}")), unit.getStrongHash());
+    StandardGeneratedResource resource =
+        (StandardGeneratedResource) result.getArtifacts().iterator().next();
+    assertEquals("foo.txt", resource.getPartialPath());
+    assertEquals("foo", Util.readStreamAsString(resource.getContents(TreeLogger.NULL)));
+  }
+
+  public void testSaveOnlyUsedEntries() {
+    RebindCache cache = new RebindCache();
+    cache.put(rule, "com.example.Foo", createResult("com.example.FooImpl", "class FooImpl {}"));
+    cache.put(rule, "com.example.Bar", createResult("com.example.BarImpl", "class BarImpl {}"));
+    cache.save(TreeLogger.NULL, file);
+
+    // Only Bar is rebound by the next compile.
+    RebindCache loadedCache = RebindCache.load(TreeLogger.NULL, file);
+    assertNotNull(loadedCache.get(rule, "com.example.Bar"));
+    loadedCache.save(TreeLogger.NULL, file);
+
+    loadedCache = RebindCache.load(TreeLogger.NULL, file);
+    assertNull(loadedCache.get(rule, "com.example.Foo"));
+    assertNotNull(loadedCache.get(rule, "com.example.Bar"));
+  }
+
+  private CachedGeneratorResult createResult(String resultTypeName, String source) {
+    StringWriter writer = new StringWriter();
+    new PrintWriter(writer).append(source).flush();
+    GeneratedUnitImpl unit = new GeneratedUnitImpl(writer, resultTypeName);
+    unit.commit(TreeLogger.NULL);
+    ArtifactSet artifacts = new ArtifactSet();
+    artifacts.add(new StandardGeneratedResource("foo.txt", Util.getBytes("foo")));
+    Map<String, Serializable> clientData = new HashMap<String, Serializable>();
+    clientData.put("version", "42");
+    return new CachedGeneratorResultImpl(resultTypeName, artifacts,
+        Collections.<String, GeneratedUnit> singletonMap(resultTypeName, unit),
+        System.currentTimeMillis(), clientData);
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.google.gwt.dev.javac;
 
+import com.google.gwt.dev.CompilerContext;
 import com.google.gwt.dev.MinimalRebuildCache;
 import com.google.gwt.dev.javac.Dependencies.Ref;
 import com.google.gwt.dev.javac.testing.impl.JavaResourceBase;
@@ -36,7 +37,9 @@ import com.google.gwt.dev.util.collect.Lists;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -408,6 +411,35 @@ public class CompilationStateTest extends CompilationStateTestBase {
     validateCompilationState();
   }
 
+  public void testUnitBuilderThreads() throws Exception {
+    List<String> expectedTypeNames = getTypeNamesOf(state.getCompilationUnits());
+    String oldThreads = System.getProperty(CompilationStateBuilder.UNIT_BUILDER_THREADS_PROPERTY);
+    System.setProperty(CompilationStateBuilder.UNIT_BUILDER_THREADS_PROPERTY, "4");
+    try {
+      CompilationState parallelState = new CompilationStateBuilder().doBuildFrom(
+          createTreeLogger(), new CompilerContext(), oracle.getResources());
+      assertEquals(expectedTypeNames, getTypeNamesOf(parallelState.getCompilationUnits()));
+      for (CompilationUnit unit : parallelState.getCompilationUnits()) {
+        assertFalse(unit.isError());
+        assertFalse(unit.getTypes().isEmpty());
+      }
+    } finally {
+      if (oldThreads == null) {
+        System.clearProperty(CompilationStateBuilder.UNIT_BUILDER_THREADS_PROPERTY);
+      } else {
+        System.setProperty(CompilationStateBuilder.UNIT_BUILDER_THREADS_PROPERTY, oldThreads);
+      }
+    }
+  }
+
+  private List<String> getTypeNamesOf(Collection<CompilationUnit> units) {
+    List<String> typeNames = new ArrayList<String>();
+    for (CompilationUnit unit : units) {
+      typeNames.add(unit.getTypeName());
+    }
+    return typeNames;
+  }
+
   private void testCaching(MockJavaResource... resources) {
     Set<String> reusedTypes = new HashSet<String>();
     for (MockJavaResource resource : resources) {
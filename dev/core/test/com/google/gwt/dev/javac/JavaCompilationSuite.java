@@ -55,6 +55,7 @@ public class JavaCompilationSuite {
     suite.addTestSuite(JSORestrictionsTest.class);
     suite.addTestSuite(MemoryUnitCacheTest.class);
     suite.addTestSuite(PersistentUnitCacheTest.class);
+    suite.addTestSuite(PersistentUnitCacheFileTest.class);
     suite.addTestSuite(CompilationStateBuilderTest.class);
     suite.addTestSuite(CompilationUnitTypeOracleUpdaterFromByteCodeTest.class);
     suite.addTestSuite(CompilationUnitTypeOracleUpdaterFromSourceTest.class);
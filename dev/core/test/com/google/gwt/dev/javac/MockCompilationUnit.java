@@ -29,7 +29,8 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Used by {@link MemoryUnitCacheTest} and {@link PersistentUnitCacheTest}.
+ * Used by {@link MemoryUnitCacheTest}, {@link PersistentUnitCacheTest} and
+ * {@link PersistentUnitCacheFileTest}.
  */
 public class MockCompilationUnit extends CompilationUnit {
   private static final AtomicInteger nextTimestamp = new AtomicInteger(1);
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.javac;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+/**
+ * Unit test for {@link PersistentUnitCacheFile}.
+ */
+public class PersistentUnitCacheFileTest extends TestCase {
+
+  private File file;
+
+  private final MockCompilationUnit bar = new MockCompilationUnit("com.example.Bar", "Bar");
+
+  private final MockCompilationUnit foo = new MockCompilationUnit("com.example.Foo", "Foo");
+
+  @Override
+  public void setUp() throws IOException {
+    file = File.createTempFile("PersistentUnitCacheFileTest", "");
+  }
+
+  @Override
+  public void tearDown() {
+    file.delete();
+  }
+
+  public void testCopyUnit() throws Exception {
+    writeUnits(foo, bar);
+    List<PersistentUnitCacheFile.Entry> entries = PersistentUnitCacheFile.read(file);
+
+    File copy = File.createTempFile("PersistentUnitCacheFileTest-copy", "");
+    try {
+      PersistentUnitCacheFile.Writer writer = new PersistentUnitCacheFile.Writer(copy);
+      writer.copyUnit(entries.get(1));
+      writer.close();
+
+      List<PersistentUnitCacheFile.Entry> copiedEntries = PersistentUnitCacheFile.read(copy);
+      assertEquals(1, copiedEntries.size());
+      assertEntry(bar, copiedEntries.get(0));
+    } finally {
+      copy.delete();
+    }
+  }
+
+  public void testInvalidFile() throws IOException {
+    FileOutputStream stream = new FileOutputStream(file);
+    stream.write(new byte[] {1, 2, 3, 4, 5, 6});
+    stream.close();
+    try {
+      PersistentUnitCacheFile.read(file);
+      fail("Expected an IOException");
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testReadIndex() throws Exception {
+    writeUnits(foo, bar);
+    List<PersistentUnitCacheFile.Entry> entries = PersistentUnitCacheFile.read(file);
+    assertEquals(2, entries.size());
+    assertEntry(foo, entries.get(0));
+    assertEntry(bar, entries.get(1));
+  }
+
+  /**
+   * A file that was not closed has no index, and its last record may be
+   * incomplete.
+   */
+  public void testReadTruncatedFile() throws Exception {
+    writeUnits(foo, bar);
+    int barLength = PersistentUnitCacheFile.read(file).get(1).readBytes().length;
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      // The trailer ends with the offset of the index and the magic number.
+      randomAccessFile.seek(randomAccessFile.length() - 12);
+      long indexOffset = randomAccessFile.readLong();
+
+      // The index is gone, but both records are complete.
+      randomAccessFile.setLength(indexOffset);
+      List<PersistentUnitCacheFile.Entry> entries = PersistentUnitCacheFile.read(file);
+      assertEquals(2, entries.size());
+      assertEntry(bar, entries.get(1));
+
+      // The last record is incomplete.
+      randomAccessFile.setLength(indexOffset - barLength / 2);
+      entries = PersistentUnitCacheFile.read(file);
+      assertEquals(1, entries.size());
+      assertEntry(foo, entries.get(0));
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private void assertEntry(CompilationUnit expected, PersistentUnitCacheFile.Entry entry)
+      throws Exception {
+    assertEquals(expected.getResourcePath(), entry.getResourcePath());
+    assertEquals(expected.getContentId(), entry.getContentId());
+    assertEquals(expected.getLastModified(), entry.getLastModified());
+
+    CompilationUnit unit = entry.readUnit();
+    assertEquals(expected.getTypeName(), unit.getTypeName());
+    assertEquals(expected.getContentId(), unit.getContentId());
+  }
+
+  private void writeUnits(CompilationUnit... units) throws IOException {
+    PersistentUnitCacheFile.Writer writer = new PersistentUnitCacheFile.Writer(file);
+    for (CompilationUnit unit : units) {
+      writer.writeUnit(unit);
+    }
+    assertEquals(units.length, writer.getUnitCount());
+    writer.close();
+  }
+}
@@ -68,6 +68,39 @@ public class PersistentUnitCacheTest extends TestCase {
     checkInvalidObjectInCache(new ThrowsClassNotFoundException());
   }
 
+  /**
+   * Units that were never looked up must still be readable after the files
+   * they were loaded from have been consolidated and deleted.
+   */
+  public void testConsolidatedUnitsStayReadable() throws IOException, InterruptedException,
+      UnableToCompleteException, ExecutionException {
+    TreeLogger logger = TreeLogger.NULL;
+    File cacheDir = lastCacheDir = File.createTempFile("PersistentUnitTest-consolidate", "");
+    File unitCacheDir = mkCacheDir(cacheDir);
+
+    MockCompilationUnit bar = new MockCompilationUnit("com.example.Bar", "Bar: source");
+    PersistentUnitCache cache;
+    for (int i = 1; i < PersistentUnitCache.CACHE_FILE_THRESHOLD; i++) {
+      cache = new PersistentUnitCache(logger, cacheDir);
+      cache.add(i == 1 ? bar : new MockCompilationUnit("com.example.Foo", "Foo Source" + i));
+      cache.cleanup(logger);
+      cache.shutdown();
+    }
+    assertNumCacheFiles(unitCacheDir, PersistentUnitCache.CACHE_FILE_THRESHOLD - 1);
+
+    // Consolidate the files without looking up Bar.
+    cache = new PersistentUnitCache(logger, cacheDir);
+    cache.add(new MockCompilationUnit("com.example.Foo", "Foo Source"));
+    cache.cleanup(logger);
+    cache.shutdown();
+    assertNumCacheFiles(unitCacheDir, 1);
+
+    CompilationUnit result = cache.find(bar.getContentId());
+    assertNotNull(result);
+    assertEquals("com.example.Bar", result.getTypeName());
+    assertEquals(bar.getContentId(), result.getContentId());
+  }
+
   /**
    * Test if a file already exists with the name we want to put the cache dir
    * in.
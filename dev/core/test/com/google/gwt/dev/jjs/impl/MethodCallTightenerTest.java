@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JProgram;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Test for {@link MethodCallTightener}.
+ */
+public class MethodCallTightenerTest extends OptimizerTestBase {
+
+  private ExecutorService executor;
+
+  private OptimizerStats stats;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    addSnippetClassDecl("static class A { void m() { } }");
+    addSnippetClassDecl("static class B extends A { void m() { } }");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    super.tearDown();
+  }
+
+  public void testTightenCall() throws Exception {
+    optimize("void", "A a = new B();", "a.m();").into(
+        "B a = new B();",
+        "a.m();");
+    assertEquals(1, stats.getNumMods());
+  }
+
+  public void testTightenCall_Sharded() throws Exception {
+    executor = Executors.newFixedThreadPool(4);
+    testTightenCall();
+  }
+
+  public void testNoTightening() throws Exception {
+    optimize("void", "A a = new A();", "a.m();").noChange();
+  }
+
+  public void testNoTightening_Sharded() throws Exception {
+    executor = Executors.newFixedThreadPool(4);
+    testNoTightening();
+  }
+
+  @Override
+  protected boolean optimizeMethod(JProgram program, JMethod method) {
+    TypeTightener.exec(program);
+    if (executor == null) {
+      stats = MethodCallTightener.exec(program);
+    } else {
+      try {
+        stats = MethodCallTightener.exec(program, executor);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    }
+    return stats.didChange();
+  }
+}
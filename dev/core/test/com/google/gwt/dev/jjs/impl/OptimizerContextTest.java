@@ -0,0 +1,182 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.dev.jjs.JJSOptionsImpl;
+import com.google.gwt.dev.jjs.ast.JField;
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.thirdparty.guava.common.collect.Sets;
+
+import java.util.Set;
+
+/**
+ * Test for {@link OptimizerContext}.
+ */
+public class OptimizerContextTest extends JJSTestBase {
+
+  private JMethod callee;
+
+  private JMethod caller;
+
+  private JField field;
+
+  private OptimizerContext optimizerCtx;
+
+  private JProgram program;
+
+  private JMethod reader;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    addSnippetClassDecl("static int f;");
+    addSnippetClassDecl("static int callee() { return 1; }");
+    addSnippetClassDecl("static int caller() { return callee(); }");
+    addSnippetClassDecl("static int reader() { return f; }");
+    addSnippetClassDecl("static int foldable() { if (true) { return 1; } return 2; }");
+    program = compileSnippet("void", "caller(); reader(); foldable();");
+    callee = findMethod(program, "callee");
+    caller = findMethod(program, "caller");
+    reader = findMethod(program, "reader");
+    field = findField(program.getFromTypeMap("test.EntryPoint"), "f");
+    optimizerCtx = new OptimizerContext(program);
+  }
+
+  public void testAllMethodsInitiallyModified() {
+    Set<JMethod> modified = optimizerCtx.getModifiedMethodsSince(0);
+    assertTrue(modified.contains(callee));
+    assertTrue(modified.contains(caller));
+    assertTrue(modified.contains(reader));
+    assertTrue(optimizerCtx.getModifiedMethodsSince(1).isEmpty());
+  }
+
+  public void testAffectedMethods() {
+    int step = optimizerCtx.getOptimizationStep();
+    optimizerCtx.markModified(callee);
+    assertEquals(Sets.newHashSet(callee, caller), optimizerCtx.getAffectedMethodsSince(step));
+
+    optimizerCtx.incOptimizationStep();
+    optimizerCtx.markModified(field);
+    assertEquals(Sets.newHashSet(callee, caller, reader),
+        optimizerCtx.getAffectedMethodsSince(step));
+    assertEquals(Sets.newHashSet(reader),
+        optimizerCtx.getAffectedMethodsSince(optimizerCtx.getOptimizationStep()));
+  }
+
+  public void testMarkAllModified() {
+    optimizerCtx.incOptimizationStep();
+    int step = optimizerCtx.getOptimizationStep();
+    assertTrue(optimizerCtx.getAffectedMethodsSince(step).isEmpty());
+    optimizerCtx.markAllModified();
+    assertTrue(optimizerCtx.getAffectedMethodsSince(step).contains(reader));
+  }
+
+  public void testRemoveMethod() {
+    int step = optimizerCtx.getOptimizationStep();
+    assertEquals(Sets.newHashSet(caller), optimizerCtx.getCallers(Sets.newHashSet(callee)));
+    optimizerCtx.markModified(callee);
+    optimizerCtx.removeMethod(caller);
+    assertEquals(Sets.newHashSet(callee), optimizerCtx.getAffectedMethodsSince(step));
+  }
+
+  /**
+   * Revisiting only the affected methods, and visiting every method once those passes stop
+   * changing the program, optimizes as well as visiting every method in every pass.
+   */
+  public void testSameOutputAsFullPasses() throws Exception {
+    addSnippetClassDecl("static int b = 2;");
+    addSnippetClassDecl("static int getB() { return b; }");
+    addSnippetClassDecl("static int twice(int x) { return x + x; }");
+    addSnippetClassDecl("static int chain1() { return chain2(); }");
+    addSnippetClassDecl("static int chain2() { return chain3(); }");
+    addSnippetClassDecl("static int chain3() { return twice(getB()) > 3 ? 1 : 0; }");
+    addSnippetClassDecl("static boolean flag() { return false; }");
+    addSnippetClassDecl("static int dead() { if (flag()) { return chain1(); } return 5; }");
+    // Other's clinit only becomes empty after a few passes; its callers can then inline get().
+    addSnippetClassDecl("static class Other { static int x; static { if (flag()) { x = 1; } } "
+        + "static int get() { return 3; } static int getX() { return x; } }");
+    addSnippetClassDecl("static int useOther() { return Other.get(); }");
+    // Triangle is never instantiated, so sides() can be devirtualized once it is pruned.
+    addSnippetClassDecl("static abstract class Shape { abstract int sides(); }");
+    addSnippetClassDecl("static class Square extends Shape { int sides() { return 4; } }");
+    addSnippetClassDecl("static class Triangle extends Shape { int sides() { return 3; } }");
+    addSnippetClassDecl("static int sides(Shape shape) { return shape.sides(); }");
+    String snippet = "int r = chain1() + dead() + caller() + reader() + useOther() + Other.getX()"
+        + " + sides(new Square()); if (r > 0) { r = twice(r); } return r;";
+
+    JProgram fullProgram = compileSnippet("int", snippet);
+    fullProgram.addEntryMethod(findMainMethod(fullProgram));
+    while (optimizeOnce(fullProgram, null)) {
+    }
+
+    JProgram incrementalProgram = compileSnippet("int", snippet);
+    incrementalProgram.addEntryMethod(findMainMethod(incrementalProgram));
+    OptimizerContext incrementalCtx = new OptimizerContext(incrementalProgram);
+    do {
+      while (optimizeOnce(incrementalProgram, incrementalCtx)) {
+      }
+      incrementalCtx.markAllModified();
+    } while (optimizeOnce(incrementalProgram, incrementalCtx));
+
+    assertEquals(fullProgram.getFromTypeMap("test.EntryPoint").toSource(),
+        incrementalProgram.getFromTypeMap("test.EntryPoint").toSource());
+  }
+
+  public void testChangesAreTracked() {
+    int step = optimizerCtx.getOptimizationStep();
+    assertTrue(DeadCodeElimination.exec(program, optimizerCtx).didChange());
+    assertEquals(Sets.newHashSet(findMethod(program, "foldable")),
+        optimizerCtx.getModifiedMethodsSince(step));
+    assertEquals(step, optimizerCtx.getLastStepFor(DeadCodeElimination.NAME));
+
+    // Only the methods affected by the last run are revisited, and they do not change again.
+    assertFalse(DeadCodeElimination.exec(program, optimizerCtx).didChange());
+    assertTrue(optimizerCtx.getModifiedMethodsSince(step + 1).isEmpty());
+  }
+
+  /**
+   * Runs the optimizations of a pass of the Java optimization loop, visiting every method if
+   * {@code optimizerCtx} is null. Returns whether the program changed.
+   */
+  private static boolean optimizeOnce(JProgram program, OptimizerContext optimizerCtx) {
+    program.typeOracle.recomputeAfterOptimizations(program.getDeclaredTypes());
+    JJSOptionsImpl options = new JJSOptionsImpl();
+    OptimizerStats stats = new OptimizerStats("Pass");
+    if (optimizerCtx == null) {
+      stats.add(Pruner.exec(program, true));
+      stats.add(Finalizer.exec(program));
+      stats.add(MakeCallsStatic.exec(options, program));
+      stats.add(TypeTightener.exec(program));
+      stats.add(MethodCallTightener.exec(program));
+      stats.add(MethodCallSpecializer.exec(program));
+      stats.add(DeadCodeElimination.exec(program));
+      stats.add(MethodInliner.exec(program));
+      stats.add(SameParameterValueOptimizer.exec(program));
+    } else {
+      stats.add(Pruner.exec(program, true, optimizerCtx));
+      stats.add(Finalizer.exec(program, optimizerCtx));
+      stats.add(MakeCallsStatic.exec(options, program, optimizerCtx));
+      stats.add(TypeTightener.exec(program, optimizerCtx));
+      stats.add(MethodCallTightener.exec(program, optimizerCtx));
+      stats.add(MethodCallSpecializer.exec(program, optimizerCtx));
+      stats.add(DeadCodeElimination.exec(program, optimizerCtx));
+      stats.add(MethodInliner.exec(program, optimizerCtx));
+      stats.add(SameParameterValueOptimizer.exec(program, optimizerCtx));
+    }
+    return stats.didChange();
+  }
+}
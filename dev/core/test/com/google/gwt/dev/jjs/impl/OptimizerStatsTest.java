@@ -75,4 +75,24 @@ public class OptimizerStatsTest extends TestCase {
     childStats.recordModified();
     assertTrue(stats.didChange());
   }
+
+  public void testOptimizerStatsTimes() {
+    OptimizerStats stats = new OptimizerStats("foo");
+    assertEquals(0, stats.getElapsedTimeNanos());
+    assertEquals(0, stats.getCpuTimeNanos());
+
+    OptimizerStats childStats = new OptimizerStats("bar");
+    childStats.recordElapsedTime(100).recordCpuTime(250);
+    childStats.recordCpuTime(50);
+    stats.add(childStats);
+    stats.recordElapsedTime(10);
+
+    // Child times should be added to parent object's tally
+    assertEquals(110, stats.getElapsedTimeNanos());
+    assertEquals(300, stats.getCpuTimeNanos());
+    assertEquals(100, childStats.getElapsedTimeNanos());
+    assertEquals(300, childStats.getCpuTimeNanos());
+    assertFalse(stats.didChange());
+    assertNotNull(stats.prettyPrint());
+  }
 }
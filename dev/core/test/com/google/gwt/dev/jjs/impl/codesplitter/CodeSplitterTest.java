@@ -34,6 +34,7 @@ import com.google.gwt.dev.js.ast.JsNode;
 import com.google.gwt.dev.js.ast.JsProgram;
 import com.google.gwt.dev.js.ast.JsVisitor;
 import com.google.gwt.dev.util.Pair;
+import com.google.gwt.thirdparty.guava.common.collect.Lists;
 import com.google.gwt.thirdparty.guava.common.collect.Sets;
 
 import java.util.List;
@@ -45,9 +46,11 @@ import java.util.Set;
 public class CodeSplitterTest extends FullCompileTestBase {
 
   /**
-   * A {@link MultipleDependencyGraphRecorder} that does nothing.
+   * A {@link MultipleDependencyGraphRecorder} that does nothing. Unlike
+   * {@link MultipleDependencyGraphRecorder#NULL_RECORDER} it makes the code splitter record a
+   * separate dependency graph for each fragment.
    */
-  private static final MultipleDependencyGraphRecorder NULL_RECORDER =
+  private static final MultipleDependencyGraphRecorder IGNORING_RECORDER =
       new MultipleDependencyGraphRecorder() {
         @Override
         public void close() {
@@ -81,6 +84,8 @@ public class CodeSplitterTest extends FullCompileTestBase {
 
   public int leftOverMergeSize = 0;
   public int expectedFragmentCount = 0;
+  public MultipleDependencyGraphRecorder dependencyRecorder =
+      MultipleDependencyGraphRecorder.NULL_RECORDER;
 
   private ConfigurationProperty initialSequenceProp =
       new ConfigurationProperty(CodeSplitters.PROP_INITIAL_SEQUENCE, true);
@@ -426,6 +431,58 @@ public class CodeSplitterTest extends FullCompileTestBase {
     assertInFragment("functionC", 3);
   }
 
+  /**
+   * Splits a program with many split points, each of which has some exclusive code and shares
+   * some code with its neighbour.
+   */
+  public void testManySplitPoints() throws UnableToCompleteException {
+    int splitPointCount = 200;
+    StringBuffer code = new StringBuffer();
+    code.append("package test;\n");
+    code.append("import com.google.gwt.core.client.GWT;\n");
+    code.append("import com.google.gwt.core.client.RunAsyncCallback;\n");
+    code.append("public class EntryPoint {\n");
+    for (int i = 0; i < splitPointCount; i++) {
+      code.append("public static void exclusive" + i + "() {}\n");
+      code.append("public static void shared" + i + "() {}\n");
+    }
+    code.append("  public static void onModuleLoad() {\n");
+    for (int i = 0; i < splitPointCount; i++) {
+      code.append(createRunAsync("exclusive" + i + "(); shared" + i + "(); shared"
+          + (i + 1) % splitPointCount + "();"));
+    }
+    code.append("  }\n");
+    code.append("}\n");
+
+    expectedFragmentCount = -1;
+    compileSnippet(code.toString());
+
+    // init + 1 fragment per split point + leftover.
+    int leftOverFragment = splitPointCount + 1;
+    assertFragmentCount(splitPointCount + 2);
+    Set<Integer> exclusiveFragments = Sets.newHashSet();
+    for (int i = 0; i < splitPointCount; i++) {
+      int fragment = findFragmentOf("exclusive" + i);
+      assertTrue("exclusive" + i + " is in fragment " + fragment,
+          fragment > 0 && fragment < leftOverFragment);
+      exclusiveFragments.add(fragment);
+      assertInFragment("shared" + i, leftOverFragment);
+    }
+    assertEquals(splitPointCount, exclusiveFragments.size());
+
+    // Recording a dependency graph for each fragment computes the exclusive atoms differently.
+    List<Integer> fragmentsBySplitPoint = Lists.newArrayList();
+    for (int i = 0; i < splitPointCount; i++) {
+      fragmentsBySplitPoint.add(findFragmentOf("exclusive" + i));
+    }
+    jsProgram = new JsProgram();
+    dependencyRecorder = IGNORING_RECORDER;
+    compileSnippet(code.toString());
+    for (int i = 0; i < splitPointCount; i++) {
+      assertEquals(fragmentsBySplitPoint.get(i).intValue(), findFragmentOf("exclusive" + i));
+    }
+  }
+
   private void assertFragmentCount(int num) {
     assertEquals(num, jsProgram.getFragmentCount());
   }
@@ -448,6 +505,21 @@ public class CodeSplitterTest extends FullCompileTestBase {
         findFunctionIn(functionName, fragment));
   }
 
+  /**
+   * Returns the only fragment that contains a function.
+   */
+  private int findFragmentOf(String functionName) {
+    int fragmentFound = -1;
+    for (int i = 0; i < jsProgram.getFragmentCount(); i++) {
+      if (findFunctionIn(functionName, jsProgram.getFragmentBlock(i))) {
+        assertEquals("function " + functionName + " is in more than one fragment", -1,
+            fragmentFound);
+        fragmentFound = i;
+      }
+    }
+    return fragmentFound;
+  }
+
   /**
    * @return true if the function exists in that fragment.
    */
@@ -483,7 +555,7 @@ public class CodeSplitterTest extends FullCompileTestBase {
       throws UnableToCompleteException {
     JavaToJavaScriptMap map = super.compileSnippet(code).getLeft();
     CodeSplitter.exec(logger, jProgram, jsProgram, map, expectedFragmentCount, leftOverMergeSize,
-       NULL_RECORDER);
+       dependencyRecorder);
     return null;
   }
 
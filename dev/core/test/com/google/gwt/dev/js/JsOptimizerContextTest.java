@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.js;
+
+import com.google.gwt.dev.jjs.SourceOrigin;
+import com.google.gwt.dev.js.ast.JsContext;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsName;
+import com.google.gwt.dev.js.ast.JsProgram;
+import com.google.gwt.dev.js.ast.JsVisitor;
+import com.google.gwt.dev.util.DefaultTextOutput;
+import com.google.gwt.dev.util.TextOutput;
+
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+import java.util.Set;
+
+/**
+ * Tests {@link JsOptimizerContext}.
+ */
+public class JsOptimizerContextTest extends TestCase {
+
+  private JsProgram program;
+
+  public void testCallersAreAffected() throws Exception {
+    parse("function a() { return 1 + 1; }"
+        + "function b() { return a(); }"
+        + "function c() { return 3; }"
+        + "function d() { return c(); }");
+    JsOptimizerContext optimizerCtx = new JsOptimizerContext(program);
+    JsStaticEval.exec(program, optimizerCtx);
+    assertEquals(1, optimizerCtx.getModifiedFunctions().size());
+    assertTrue(optimizerCtx.getModifiedFunctions().contains(function("a")));
+
+    optimizerCtx.nextPass();
+    assertTrue(optimizerCtx.isAffected(function("a")));
+    assertTrue(optimizerCtx.isAffected(function("b")));
+    assertFalse(optimizerCtx.isAffected(function("c")));
+    assertFalse(optimizerCtx.isAffected(function("d")));
+    assertTrue(optimizerCtx.getModifiedFunctions().isEmpty());
+  }
+
+  public void testCallersOfFunctionsWithRemovedCallSitesAreAffected() throws Exception {
+    parse("function c() { return 3; }"
+        + "function d() { if (false) { c(); } return c(); }"
+        + "function e() { return c(); }"
+        + "function f() { return 4; }");
+    JsOptimizerContext optimizerCtx = new JsOptimizerContext(program);
+    JsStaticEval.exec(program, optimizerCtx);
+
+    optimizerCtx.nextPass();
+    assertFalse(optimizerCtx.isAffected(function("c")));
+    assertTrue(optimizerCtx.isAffected(function("d")));
+    assertTrue(optimizerCtx.isAffected(function("e")));
+    assertFalse(optimizerCtx.isAffected(function("f")));
+  }
+
+  public void testEnclosingFunctionsAreAffected() throws Exception {
+    parse("function a() { return 1 + 1; }"
+        + "function b() { return function() { return a(); }; }");
+    JsOptimizerContext optimizerCtx = new JsOptimizerContext(program);
+    JsStaticEval.exec(program, optimizerCtx);
+
+    optimizerCtx.nextPass();
+    assertTrue(optimizerCtx.isAffected(function("b")));
+  }
+
+  public void testRemovedNestedFunctionsAreRescanned() throws Exception {
+    parse("function c() { return 3; }"
+        + "function d() { function unused() { return c(); } return 1; }"
+        + "function e() { return c(); }"
+        + "function f() { return 4; }"
+        + "d(); e(); f();");
+    JsOptimizerContext optimizerCtx = new JsOptimizerContext(program);
+    JsUnusedFunctionRemover.exec(program, optimizerCtx);
+    assertEquals(1, optimizerCtx.getModifiedFunctions().size());
+    assertTrue(optimizerCtx.getModifiedFunctions().contains(function("d")));
+
+    optimizerCtx.nextPass();
+    assertTrue(optimizerCtx.isAffected(function("d")));
+    assertTrue(optimizerCtx.isAffected(function("e")));
+    assertFalse(optimizerCtx.isAffected(function("f")));
+  }
+
+  public void testUnaffectedFunctionsAreSkipped() throws Exception {
+    parse("function a() { return 1 + 1; }"
+        + "function b() { return 2 + 2; }");
+    JsOptimizerContext optimizerCtx = new JsOptimizerContext(program);
+    optimizerCtx.markModified(function("a"));
+    optimizerCtx.nextPass();
+
+    JsStaticEval.exec(program, optimizerCtx);
+    Set<JsFunction> modified = optimizerCtx.getModifiedFunctions();
+    assertEquals(1, modified.size());
+    assertTrue(modified.contains(function("a")));
+    assertEquals("function a(){return 2}\nfunction b(){return 2+2}\n", toSource());
+  }
+
+  private JsFunction function(String name) {
+    return (JsFunction) program.getScope().findExistingName(name).getStaticRef();
+  }
+
+  private void parse(String js) throws Exception {
+    program = new JsProgram();
+    program.getGlobalBlock().getStatements().addAll(
+        JsParser.parse(SourceOrigin.UNKNOWN, program.getScope(), new StringReader(js)));
+    JsSymbolResolver.exec(program);
+    new JsVisitor() {
+      @Override
+      public void endVisit(JsFunction x, JsContext ctx) {
+        JsName name = x.getName();
+        if (name != null) {
+          name.setStaticRef(x);
+        }
+      }
+    }.accept(program);
+  }
+
+  private String toSource() {
+    TextOutput text = new DefaultTextOutput(true);
+    new JsSourceGenerationVisitor(text).accept(program);
+    return text.toString();
+  }
+}
@@ -16,7 +16,9 @@
 package com.google.gwt.dev.resource.impl;
 
 import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Set;
@@ -38,6 +40,41 @@ public class ClassPathEntryTest extends AbstractResourceOrientedTestBase {
     testAllCpe2FilesFound(getClassPathEntry2AsZip());
   }
 
+  public void testDirectoryChangesFound() throws IOException {
+    File root = File.createTempFile("ClassPathEntryTest", "");
+    assertTrue(root.delete());
+    File dir = new File(root, "org/example");
+    assertTrue(dir.mkdirs());
+    try {
+      ClassPathEntry cpe = new DirectoryClassPathEntry(root);
+      TreeLogger logger = createTestTreeLogger();
+      PathPrefixSet pps = new PathPrefixSet();
+      pps.add(new PathPrefix("", null));
+
+      assertTrue(new File(dir, "Foo.java").createNewFile());
+      long lastModified = System.currentTimeMillis() - 60 * 1000;
+      assertTrue(dir.setLastModified(lastModified));
+      Set<AbstractResource> r = cpe.findApplicableResources(logger, pps).keySet();
+      assertEquals(1, r.size());
+      assertPathIncluded(r, "org/example/Foo.java");
+
+      // The listing of an unmodified directory is reused.
+      assertTrue(new File(dir, "Bar.java").createNewFile());
+      assertTrue(dir.setLastModified(lastModified));
+      r = cpe.findApplicableResources(logger, pps).keySet();
+      assertEquals(1, r.size());
+
+      // A modified directory is listed again.
+      assertTrue(dir.setLastModified(lastModified + 1000));
+      r = cpe.findApplicableResources(logger, pps).keySet();
+      assertEquals(2, r.size());
+      assertPathIncluded(r, "org/example/Bar.java");
+      assertPathIncluded(r, "org/example/Foo.java");
+    } finally {
+      Util.recursiveDelete(root, false);
+    }
+  }
+
   public void testPathPrefixSetChanges() throws IOException, URISyntaxException {
     ClassPathEntry cpe1jar = getClassPathEntry1AsJar();
     ClassPathEntry cpe1dir = getClassPathEntry1AsDirectory();
@@ -38,6 +38,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -96,6 +97,69 @@ public class StandardGeneratorContextTest extends TestCase {
     genCtx.setCurrentGenerator(Generator.class);
   }
 
+  public void testMergeFork() throws UnableToCompleteException, IOException {
+    StandardGeneratorContext fork1 = genCtx.fork();
+    StandardGeneratorContext fork2 = genCtx.fork();
+
+    String path = "testMergeFork/resource";
+    OutputStream os1 = fork1.tryCreateResource(mockLogger, path);
+    OutputStream os2 = fork2.tryCreateResource(mockLogger, path);
+    os1.write(1);
+    os2.write(2);
+    fork1.commitResource(mockLogger, os1);
+    fork2.commitResource(mockLogger, os2);
+
+    // A later fork does not generate a type an earlier fork is generating.
+    PrintWriter pw1 = fork1.tryCreate(mockLogger, "com.example", "Foo");
+    assertNull(fork2.tryCreate(mockLogger, "com.example", "Foo"));
+    pw1.print("class Foo {}");
+    fork1.commit(mockLogger, pw1);
+    assertNotNull(fork2.tryCreate(mockLogger, "com.example", "Bar"));
+    assertTrue(artifactSet.isEmpty());
+    assertFalse(genCtx.isDirty());
+
+    // The first fork to be merged wins the resource.
+    genCtx.mergeFork(mockLogger, fork1);
+    genCtx.mergeFork(mockLogger, fork2);
+    assertEquals("class Foo {}", genCtx.getGeneratedUnitMap().get("com.example.Foo").getSource());
+    assertEquals(1, artifactSet.size());
+    GeneratedResource resource = artifactSet.find(GeneratedResource.class).first();
+    assertEquals(path, resource.getPartialPath());
+    assertTrue(Arrays.equals(new byte[] {1},
+        Util.readStreamAsBytes(resource.getContents(mockLogger))));
+
+    // Forks see what was merged into their parent.
+    assertFalse(fork2.isDirty());
+    assertNull(fork2.tryCreateResource(mockLogger, path));
+    assertNull(fork2.tryCreate(mockLogger, "com.example", "Foo"));
+
+    // Bar was never committed, so it can be generated again.
+    assertNull(genCtx.getGeneratedUnitMap().get("com.example.Bar"));
+    assertNotNull(fork1.tryCreate(mockLogger, "com.example", "Bar"));
+  }
+
+  public void testMergeFork_earlierForkWins() throws UnableToCompleteException {
+    StandardGeneratorContext fork1 = genCtx.fork();
+    StandardGeneratorContext fork2 = genCtx.fork();
+    StandardGeneratorContext fork3 = genCtx.fork();
+
+    // The second fork gets to the type first, but the first fork still generates it.
+    PrintWriter pw2 = fork2.tryCreate(mockLogger, "com.example", "Foo");
+    assertNull(fork3.tryCreate(mockLogger, "com.example", "Foo"));
+    PrintWriter pw1 = fork1.tryCreate(mockLogger, "com.example", "Foo");
+    assertNotNull(pw1);
+    pw2.print("class Foo { int x; }");
+    fork2.commit(mockLogger, pw2);
+    pw1.print("class Foo {}");
+    fork1.commit(mockLogger, pw1);
+
+    // The result is the same as in a serial run, where the first fork's unit wins.
+    genCtx.mergeFork(mockLogger, fork1);
+    genCtx.mergeFork(mockLogger, fork2);
+    genCtx.mergeFork(mockLogger, fork3);
+    assertEquals("class Foo {}", genCtx.getGeneratedUnitMap().get("com.example.Foo").getSource());
+  }
+
   public void testTryCreateResource_badFileName() {
     try {
       genCtx.tryCreateResource(mockLogger, null);
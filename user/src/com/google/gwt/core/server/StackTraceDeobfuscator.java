@@ -26,8 +26,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
@@ -147,19 +149,54 @@ public abstract class StackTraceDeobfuscator {
   private static final int LINE_NUMBER_UNKNOWN = -1;
   private static final String SYMBOL_DATA_UNKNOWN = "";
 
-  private final Map<String, SourceMapping> sourceMaps = new HashMap<String, SourceMapping>();
+  private static final int DEFAULT_MAX_SOURCE_MAPS = 32;
+
+  private volatile int maxSourceMaps = DEFAULT_MAX_SOURCE_MAPS;
+
+  /**
+   * The parsed source maps, by permutation strong name and fragment id, in access order so that
+   * the least recently used ones can be evicted.
+   */
+  private final Map<String, SourceMapping> sourceMaps = Collections.synchronizedMap(
+      new LinkedHashMap<String, SourceMapping>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SourceMapping> eldest) {
+          return size() > maxSourceMaps;
+        }
+      });
   private final SymbolCache symbolCache = new SymbolCache();
-  private boolean lazyLoad = false;
+
+  /**
+   * The fully loaded symbol maps, by permutation strong name.
+   */
+  private final ConcurrentHashMap<String, SymbolIndex> symbolIndexes =
+      new ConcurrentHashMap<String, SymbolIndex>();
+  private volatile boolean lazyLoad = false;
 
   /**
    * If set to {@code true}, only symbols requested to be deobfuscated are cached and the rest is
    * discarded. This provides a large memory savings at the expense of occasional extra disk reads.
    * Note that, this will only have effect on symbol maps that haven't been fully loaded yet.
+   * <p>
+   * Otherwise, each symbol map is read once, into a compact index that is searched for every
+   * symbol.
    */
   public void setLazyLoad(boolean lazyLoad) {
     this.lazyLoad = lazyLoad;
   }
 
+  /**
+   * Sets the number of parsed source maps to keep in memory. When more source maps are needed, the
+   * least recently used ones are discarded and parsed again when they are next needed. The default
+   * is 32.
+   */
+  public void setMaxSourceMaps(int maxSourceMaps) {
+    if (maxSourceMaps < 1) {
+      throw new IllegalArgumentException("maxSourceMaps must be positive: " + maxSourceMaps);
+    }
+    this.maxSourceMaps = maxSourceMaps;
+  }
+
   /**
    * Replaces the stack traces in the given Throwable and its causes with deobfuscated stack traces
    * wherever possible.
@@ -185,12 +222,14 @@ public abstract class StackTraceDeobfuscator {
     if (st == null) {
       return null;
     }
-    // Warm the symbol cache for all symbols in this stack trace.
-    Set<String> requiredSymbols = new HashSet<String>();
-    for (StackTraceElement ste : st) {
-      requiredSymbols.add(ste.getMethodName());
+    if (getSymbolIndex(strongName) == null) {
+      // Warm the symbol cache for all symbols in this stack trace.
+      Set<String> requiredSymbols = new HashSet<String>();
+      for (StackTraceElement ste : st) {
+        requiredSymbols.add(ste.getMethodName());
+      }
+      loadSymbolMap(strongName, requiredSymbols);
     }
-    loadSymbolMap(strongName, requiredSymbols);
 
     StackTraceElement[] newSt = new StackTraceElement[st.length];
     for (int i = 0; i < st.length; i++) {
@@ -339,14 +378,41 @@ public abstract class StackTraceDeobfuscator {
    */
   protected abstract InputStream openInputStream(String fileName) throws IOException;
 
+  /**
+   * Returns the index of the symbol map for the given strong name, reading it if necessary, or
+   * null if symbol maps are lazily loaded and this one has not been fully loaded yet.
+   */
+  private SymbolIndex getSymbolIndex(String strongName) {
+    if (strongName == null) {
+      return null;
+    }
+    SymbolIndex toReturn = symbolIndexes.get(strongName);
+    if (toReturn == null && !lazyLoad) {
+      try {
+        toReturn = SymbolIndex.read(getSymbolMapInputStream(strongName));
+      } catch (IOException e) {
+        // As with lazy loading, don't read the file again for symbols that can't be translated.
+        toReturn = SymbolIndex.EMPTY;
+      }
+      // Threads that raced to read the same symbol map end up using the same index.
+      SymbolIndex existing = symbolIndexes.putIfAbsent(strongName, toReturn);
+      if (existing != null) {
+        toReturn = existing;
+      }
+    }
+    return toReturn;
+  }
+
   private SourceMapping loadSourceMap(String permutationStrongName, int fragmentId) {
-    SourceMapping toReturn = sourceMaps.get(permutationStrongName + fragmentId);
+    String key = permutationStrongName + fragmentId;
+    SourceMapping toReturn = sourceMaps.get(key);
     if (toReturn == null) {
+      // Parse outside of the lock, since source maps can be large.
       try {
         String sourceMapString = loadStreamAsString(
             getSourceMapInputStream(permutationStrongName, fragmentId));
         toReturn = SourceMapConsumerFactory.parse(sourceMapString);
-        sourceMaps.put(permutationStrongName + fragmentId, toReturn);
+        sourceMaps.put(key, toReturn);
       } catch (Exception e) {
       }
     }
@@ -354,10 +420,21 @@ public abstract class StackTraceDeobfuscator {
   }
 
   private String loadStreamAsString(InputStream stream) {
-    return new Scanner(stream).useDelimiter("\\A").next();
+    // Source maps are read again when they are evicted, so don't leak the stream.
+    Scanner scanner = new Scanner(stream);
+    try {
+      return scanner.useDelimiter("\\A").next();
+    } finally {
+      scanner.close();
+    }
   }
 
   private String loadOneSymbol(String strongName, String symbol) {
+    SymbolIndex symbolIndex = getSymbolIndex(strongName);
+    if (symbolIndex != null) {
+      String symbolData = symbolIndex.get(symbol);
+      return symbolData == null ? SYMBOL_DATA_UNKNOWN : symbolData;
+    }
     Set<String> symbolSet = new HashSet<String>();
     symbolSet.add(symbol);
     Map<String, String> symbolMap = loadSymbolMap(strongName, symbolSet);
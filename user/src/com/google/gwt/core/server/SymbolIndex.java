@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable index of the symbols of a symbol map file, which maps each obfuscated symbol to
+ * its symbol data.
+ * <p>
+ * The entries are sorted by symbol and packed into a single character array, so that an index
+ * takes about as much memory as the file it was read from, and symbols are looked up with a
+ * binary search. Instances are thread-safe.
+ */
+final class SymbolIndex {
+
+  static final SymbolIndex EMPTY = new SymbolIndex(new char[0], new int[] {0});
+
+  /**
+   * Reads the symbol map in the given stream, and closes it.
+   */
+  static SymbolIndex read(InputStream stream) throws IOException {
+    // A symbol that is listed more than once maps to its last entry
+    Map<String, String> symbols = new TreeMap<String, String>();
+    int length = 0;
+    BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int idx = line.indexOf(',');
+        if (line.length() == 0 || line.charAt(0) == '#' || idx == -1) {
+          continue;
+        }
+        String symbol = line.substring(0, idx);
+        String previous = symbols.put(symbol, line);
+        length += line.length() - (previous == null ? 0 : previous.length());
+      }
+    } finally {
+      reader.close();
+    }
+
+    char[] chars = new char[length];
+    int[] offsets = new int[symbols.size() + 1];
+    int i = 0;
+    int offset = 0;
+    for (String line : symbols.values()) {
+      offsets[i++] = offset;
+      line.getChars(0, line.length(), chars, offset);
+      offset += line.length();
+    }
+    offsets[i] = offset;
+    return new SymbolIndex(chars, offsets);
+  }
+
+  /**
+   * The entries, each of which is a line of the symbol map: the symbol followed by a comma and
+   * the symbol data.
+   */
+  private final char[] chars;
+
+  /**
+   * The start of each entry in {@link #chars}, followed by the end of the last entry.
+   */
+  private final int[] offsets;
+
+  private SymbolIndex(char[] chars, int[] offsets) {
+    this.chars = chars;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Returns the data of a symbol, or {@code null} if the symbol is not in the index.
+   */
+  String get(String symbol) {
+    int low = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int comparison = compareSymbol(mid, symbol);
+      if (comparison < 0) {
+        low = mid + 1;
+      } else if (comparison > 0) {
+        high = mid - 1;
+      } else {
+        int dataStart = offsets[mid] + symbol.length() + 1;
+        return new String(chars, dataStart, offsets[mid + 1] - dataStart);
+      }
+    }
+    return null;
+  }
+
+  int size() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Compares the symbol of an entry with the given symbol, in the order of
+   * {@link String#compareTo(String)}.
+   */
+  private int compareSymbol(int entry, String symbol) {
+    // Every entry has a comma after its symbol, so this never reads past the entry
+    int start = offsets[entry];
+    int length = symbol.length();
+    for (int i = 0; i < length; i++) {
+      char c = chars[start + i];
+      if (c == ',') {
+        // The symbol of the entry is a prefix of the given symbol
+        return -1;
+      }
+      if (c != symbol.charAt(i)) {
+        return c - symbol.charAt(i);
+      }
+    }
+    return chars[start + length] == ',' ? 0 : 1;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.precompress.linker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Produces a compressed variant of an artifact for {@link PrecompressLinker}.
+ * Encoders are listed in the configuration property
+ * <code>precompress.encoders</code> and must have a public no-arg
+ * constructor. Implementations must be thread-safe, since several artifacts
+ * are encoded concurrently.
+ */
+public interface ArtifactEncoder {
+
+  /**
+   * Encodes the contents of an artifact. Neither stream should be closed.
+   */
+  void encode(InputStream in, OutputStream out) throws IOException;
+
+  /**
+   * Returns the extension appended to the path of an artifact to name its
+   * encoded variant, for example <code>.gz</code>.
+   */
+  String getExtension();
+}
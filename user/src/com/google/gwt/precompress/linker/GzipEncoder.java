@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.precompress.linker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The default {@link ArtifactEncoder}, which gzips artifacts. Subclasses may
+ * override {@link #getLevel()} to trade compression ratio for speed.
+ */
+public class GzipEncoder implements ArtifactEncoder {
+
+  /**
+   * Buffer size to use when streaming data through {@link GZIPOutputStream}.
+   */
+  private static final int BUF_SIZE = 10000;
+
+  @Override
+  public void encode(InputStream in, OutputStream out) throws IOException {
+    final int level = getLevel();
+    GZIPOutputStream gzip = new GZIPOutputStream(out, BUF_SIZE) {
+        {
+          def.setLevel(level);
+        }
+
+        @Override
+        public void close() throws IOException {
+          // Leave the underlying stream open, but release the deflater.
+          try {
+            finish();
+          } finally {
+            def.end();
+          }
+        }
+    };
+    try {
+      byte[] buf = new byte[BUF_SIZE];
+      int n;
+      while ((n = in.read(buf)) > 0) {
+        gzip.write(buf, 0, n);
+      }
+    } finally {
+      gzip.close();
+    }
+  }
+
+  @Override
+  public String getExtension() {
+    return ".gz";
+  }
+
+  /**
+   * Returns the {@link Deflater} compression level to use.
+   */
+  protected int getLevel() {
+    return Deflater.BEST_COMPRESSION;
+  }
+}
@@ -26,16 +26,29 @@ import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.linker.LinkerOrder;
 import com.google.gwt.core.ext.linker.LinkerOrder.Order;
 import com.google.gwt.core.ext.linker.Shardable;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.HashSet;
 import com.google.gwt.util.regexfilter.RegexFilter;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.Deflater;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * <p>
@@ -56,10 +69,38 @@ import java.util.zip.GZIPOutputStream;
  * are left in the artifact set. If the configuration property
  * <code>precompress.leave.originals</code> is set to <code>false</code>,
  * however, then the uncompressed version is removed.
+ *
+ * <p>
+ * The compressed variants to produce are specified by the configuration
+ * property <code>precompress.encoders</code>, which lists the names of
+ * {@link ArtifactEncoder} classes and defaults to {@link GzipEncoder}.
+ * Artifacts are compressed concurrently, using as many threads as there are
+ * processors unless the system property <code>gwt.precompress.threads</code>
+ * says otherwise. If the system property <code>gwt.precompress.cacheDir</code>
+ * names a directory, compressed variants are cached there by content hash and
+ * reused by later links. The least recently used variants are deleted when the
+ * cache grows beyond <code>gwt.precompress.cacheMaxBytes</code>, 256 MB by
+ * default.
  */
 @Shardable
 @LinkerOrder(Order.POST)
 public class PrecompressLinker extends AbstractLinker {
+  /**
+   * The compressed variants of one artifact.
+   */
+  private static class CompressedArtifact {
+    final List<Boolean> cached = new ArrayList<Boolean>();
+    final List<ArtifactEncoder> encoders = new ArrayList<ArtifactEncoder>();
+    long millis;
+    final EmittedArtifact original;
+    int originalLength;
+    final List<byte[]> variants = new ArrayList<byte[]>();
+
+    CompressedArtifact(EmittedArtifact original) {
+      this.original = original;
+    }
+  }
+
   private static class PrecompressFilter extends RegexFilter {
     public PrecompressFilter(TreeLogger logger, List<String> regexes)
         throws UnableToCompleteException {
@@ -77,16 +118,128 @@ public class PrecompressLinker extends AbstractLinker {
     }
   }
 
-  /**
-   * Buffer size to use when streaming data from artifacts and through
-   * {@link GZIPOutputStream}.
-   */
-  private static final int BUF_SIZE = 10000;
+  private static final long DEFAULT_CACHE_MAX_BYTES = 256L << 20;
+
+  private static final String PROP_CACHE_DIR = "gwt.precompress.cacheDir";
+
+  private static final String PROP_CACHE_MAX_BYTES = "gwt.precompress.cacheMaxBytes";
+
+  private static final String PROP_ENCODERS = "precompress.encoders";
 
   private static final String PROP_LEAVE_ORIGINALS = "precompress.leave.originals";
 
   private static final String PROP_PATH_REGEXES = "precompress.path.regexes";
 
+  private static final String PROP_THREADS = "gwt.precompress.threads";
+
+  private static CompressedArtifact compress(TreeLogger logger, EmittedArtifact art,
+      List<ArtifactEncoder> encoders, File cacheDir) throws UnableToCompleteException {
+    long start = System.currentTimeMillis();
+    byte[] original = Util.readStreamAsBytes(art.getContents(logger));
+    if (original == null) {
+      logger.log(TreeLogger.ERROR, "Unable to read " + art.getPartialPath());
+      throw new UnableToCompleteException();
+    }
+
+    CompressedArtifact result = new CompressedArtifact(art);
+    result.originalLength = original.length;
+    for (ArtifactEncoder encoder : encoders) {
+      File cacheFile = null;
+      byte[] compressed = null;
+      if (cacheDir != null) {
+        cacheFile = new File(cacheDir, Util.computeStrongName(new byte[][] {
+            original, Util.getBytes(encoder.getClass().getName())})
+            + encoder.getExtension());
+        compressed = cacheFile.isFile() ? Util.readFileAsBytes(cacheFile) : null;
+        if (compressed != null) {
+          // Keep recently used variants from being evicted.
+          cacheFile.setLastModified(System.currentTimeMillis());
+        }
+      }
+      result.cached.add(compressed != null);
+      if (compressed == null) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+          encoder.encode(new ByteArrayInputStream(original), out);
+        } catch (IOException e) {
+          logger.log(TreeLogger.ERROR, "Unable to compress " + art.getPartialPath(), e);
+          throw new UnableToCompleteException();
+        }
+        compressed = out.toByteArray();
+        if (cacheFile != null) {
+          writeCacheFile(cacheFile, compressed);
+        }
+      }
+      result.encoders.add(encoder);
+      result.variants.add(compressed);
+    }
+    result.millis = System.currentTimeMillis() - start;
+    return result;
+  }
+
+  private static List<ArtifactEncoder> createEncoders(TreeLogger logger,
+      LinkerContext context) throws UnableToCompleteException {
+    List<String> classNames = Collections.singletonList(GzipEncoder.class.getName());
+    for (ConfigurationProperty prop : context.getConfigurationProperties()) {
+      if (prop.getName().equals(PROP_ENCODERS)) {
+        classNames = prop.getValues();
+      }
+    }
+
+    List<ArtifactEncoder> encoders = new ArrayList<ArtifactEncoder>();
+    for (String className : classNames) {
+      try {
+        encoders.add(Class.forName(className).asSubclass(ArtifactEncoder.class).newInstance());
+      } catch (Exception e) {
+        logger.log(TreeLogger.ERROR, "Unable to create artifact encoder "
+            + className, e);
+        throw new UnableToCompleteException();
+      }
+    }
+    return encoders;
+  }
+
+  /**
+   * Deletes the least recently used files of the cache until it fits in its
+   * maximum size.
+   */
+  private static void evictCache(TreeLogger logger, File cacheDir) {
+    File[] files = cacheDir.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        // Skip the files that are still being written.
+        return file.isFile() && !file.getName().endsWith(".tmp");
+      }
+    });
+    if (files == null) {
+      return;
+    }
+    long maxBytes = Long.getLong(PROP_CACHE_MAX_BYTES, DEFAULT_CACHE_MAX_BYTES);
+    long totalBytes = 0;
+    // Read the modification times once, other links may touch the files while sorting.
+    final Map<File, Long> lastModifiedByFile = new HashMap<File, Long>();
+    for (File file : files) {
+      totalBytes += file.length();
+      lastModifiedByFile.put(file, file.lastModified());
+    }
+    if (totalBytes <= maxBytes) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File a, File b) {
+        return lastModifiedByFile.get(a).compareTo(lastModifiedByFile.get(b));
+      }
+    });
+    for (int i = 0; i < files.length && totalBytes > maxBytes; i++) {
+      long length = files[i].length();
+      if (files[i].delete()) {
+        totalBytes -= length;
+        logger.log(TreeLogger.DEBUG, "Evicted cached compressed artifact " + files[i].getName());
+      }
+    }
+  }
+
   private static ConfigurationProperty findProperty(
       TreeLogger logger,
       Iterable<com.google.gwt.core.ext.linker.ConfigurationProperty> properties,
@@ -102,13 +255,82 @@ public class PrecompressLinker extends AbstractLinker {
     throw new UnableToCompleteException();
   }
 
+  private static File getCacheDir(TreeLogger logger) {
+    String path = System.getProperty(PROP_CACHE_DIR);
+    if (path == null) {
+      return null;
+    }
+    File cacheDir = new File(path);
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+      logger.log(TreeLogger.WARN, "Unable to create precompress cache directory "
+          + cacheDir + "; compressed artifacts will not be cached");
+      return null;
+    }
+    return cacheDir;
+  }
+
+  private static CompressedArtifact getResult(TreeLogger logger, Future<CompressedArtifact> future)
+      throws UnableToCompleteException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while compressing artifacts", e);
+      throw new UnableToCompleteException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UnableToCompleteException) {
+        throw (UnableToCompleteException) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unexpected exception", e.getCause());
+      throw new UnableToCompleteException();
+    }
+  }
+
+  private static boolean isCompressed(String path, List<ArtifactEncoder> encoders) {
+    if (path.endsWith(".gz")) {
+      return true;
+    }
+    for (ArtifactEncoder encoder : encoders) {
+      if (path.endsWith(encoder.getExtension())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes a cache file atomically, so that concurrent links never see a
+   * partial file.
+   */
+  private static void writeCacheFile(File cacheFile, byte[] compressed) {
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile("precompress", ".tmp", cacheFile.getParentFile());
+      FileOutputStream out = new FileOutputStream(tempFile);
+      try {
+        out.write(compressed);
+      } finally {
+        out.close();
+      }
+      if (tempFile.renameTo(cacheFile)) {
+        tempFile = null;
+      }
+    } catch (IOException e) {
+      // The cache is only an optimization.
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
   @Override
   public String getDescription() {
     return "PrecompressLinker";
   }
 
   @Override
-  public ArtifactSet link(TreeLogger logger, LinkerContext context,
+  public ArtifactSet link(final TreeLogger logger, LinkerContext context,
       ArtifactSet artifacts, boolean onePermutation)
       throws UnableToCompleteException {
     ConfigurationProperty leaveOriginalsProp = findProperty(logger,
@@ -120,67 +342,101 @@ public class PrecompressLinker extends AbstractLinker {
         TreeLogger.TRACE, "Analyzing the path patterns"), findProperty(logger,
         context.getConfigurationProperties(), PROP_PATH_REGEXES).getValues());
 
+    final List<ArtifactEncoder> encoders = createEncoders(logger, context);
+    final File cacheDir = getCacheDir(logger);
+
     // Record the list of all paths for later lookup
     Set<String> allPaths = new HashSet<String>();
     for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
       allPaths.add(art.getPartialPath());
     }
 
-    try {
-      // Buffer for streaming data to be compressed
-      byte[] buf = new byte[BUF_SIZE];
-
-      ArtifactSet updated = new ArtifactSet(artifacts);
-      for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
-        if (art.getVisibility() != Visibility.Public) {
-          // only compress things that will be served to the client
-          continue;
-        }
-        if (art.getPartialPath().endsWith(".gz")) {
-          // Already a compressed artifact
-          continue;
-        }
-        if (allPaths.contains(art.getPartialPath() + ".gz")) {
-          // It's already been compressed
-          continue;
+    List<Callable<CompressedArtifact>> tasks = new ArrayList<Callable<CompressedArtifact>>();
+    for (final EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
+      if (art.getVisibility() != Visibility.Public) {
+        // only compress things that will be served to the client
+        continue;
+      }
+      if (isCompressed(art.getPartialPath(), encoders)) {
+        // Already a compressed artifact
+        continue;
+      }
+      final List<ArtifactEncoder> missing = new ArrayList<ArtifactEncoder>();
+      for (ArtifactEncoder encoder : encoders) {
+        if (!allPaths.contains(art.getPartialPath() + encoder.getExtension())) {
+          missing.add(encoder);
         }
-        if (!filter.isIncluded(logger.branch(TreeLogger.TRACE,
-            "Checking the path patterns"), art.getPartialPath())) {
-          continue;
+      }
+      if (missing.isEmpty()) {
+        // It's already been compressed
+        continue;
+      }
+      if (!filter.isIncluded(logger.branch(TreeLogger.TRACE,
+          "Checking the path patterns"), art.getPartialPath())) {
+        continue;
+      }
+
+      tasks.add(new Callable<CompressedArtifact>() {
+        @Override
+        public CompressedArtifact call() throws Exception {
+          return compress(logger, art, missing, cacheDir);
         }
+      });
+    }
+    if (tasks.isEmpty()) {
+      return artifacts;
+    }
+
+    int threads = Math.min(tasks.size(), Integer.getInteger(PROP_THREADS,
+        Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      List<Future<CompressedArtifact>> results = new ArrayList<Future<CompressedArtifact>>();
+      for (Callable<CompressedArtifact> task : tasks) {
+        results.add(executor.submit(task));
+      }
 
+      ArtifactSet updated = new ArtifactSet(artifacts);
+      long originalBytes = 0;
+      long compressedBytes = 0;
+      for (Future<CompressedArtifact> future : results) {
+        CompressedArtifact result = getResult(logger, future);
         TreeLogger compressBranch = logger.branch(TreeLogger.TRACE,
-            "Compressing " + art.getPartialPath());
-
-        InputStream originalBytes = art.getContents(compressBranch);
-        ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
-        GZIPOutputStream gzip = new GZIPOutputStream(compressedBytes) {
-            {
-              def.setLevel(Deflater.BEST_COMPRESSION);
-            }
-        };
-
-        int originalLength = 0;
-        int n;
-        while ((n = originalBytes.read(buf)) > 0) {
-          originalLength += n;
-          gzip.write(buf, 0, n);
-        }
-        gzip.close();
-
-        byte[] compressed = compressedBytes.toByteArray();
-        if (compressed.length < originalLength) {
-          updated.add(emitBytes(compressBranch, compressed,
-              art.getPartialPath() + ".gz"));
-          if (!leaveOriginals) {
-            updated.remove(art);
+            "Compressing " + result.original.getPartialPath());
+
+        boolean emitted = false;
+        for (int i = 0; i < result.variants.size(); i++) {
+          byte[] compressed = result.variants.get(i);
+          String path = result.original.getPartialPath() + result.encoders.get(i).getExtension();
+          if (compressBranch.isLoggable(TreeLogger.DEBUG)) {
+            compressBranch.log(TreeLogger.DEBUG, path + ": " + result.originalLength
+                + " -> " + compressed.length + " bytes"
+                + (result.cached.get(i) ? " (cached)" : ""));
+          }
+          if (compressed.length < result.originalLength) {
+            updated.add(emitBytes(compressBranch, compressed, path));
+            originalBytes += result.originalLength;
+            compressedBytes += compressed.length;
+            emitted = true;
           }
         }
+        if (compressBranch.isLoggable(TreeLogger.DEBUG)) {
+          compressBranch.log(TreeLogger.DEBUG, "Took " + result.millis + " ms");
+        }
+        if (emitted && !leaveOriginals) {
+          updated.remove(result.original);
+        }
+      }
+      if (logger.isLoggable(TreeLogger.DEBUG)) {
+        logger.log(TreeLogger.DEBUG, "Precompressed " + results.size() + " artifacts from "
+            + originalBytes + " to " + compressedBytes + " bytes");
       }
       return updated;
-    } catch (IOException e) {
-      logger.log(TreeLogger.ERROR, "Unexpected exception", e);
-      throw new UnableToCompleteException();
+    } finally {
+      executor.shutdownNow();
+      if (cacheDir != null) {
+        evictCache(logger, cacheDir);
+      }
     }
   }
 }
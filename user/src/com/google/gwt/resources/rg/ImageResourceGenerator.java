@@ -24,6 +24,7 @@ import com.google.gwt.dev.util.StringKey;
 import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.Maps;
 import com.google.gwt.dev.util.collect.Sets;
+import com.google.gwt.resources.client.ImageResource;
 import com.google.gwt.resources.client.ImageResource.ImageOptions;
 import com.google.gwt.resources.client.ImageResource.RepeatStyle;
 import com.google.gwt.resources.client.impl.ImageResourcePrototype;
@@ -43,7 +44,10 @@ import java.awt.geom.AffineTransform;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -530,6 +534,7 @@ public final class ImageResourceGenerator extends AbstractResourceGenerator
     } else {
       shared = new CachedState();
       context.putCachedData(key, shared);
+      decodeImages(logger, context);
     }
   }
 
@@ -632,6 +637,29 @@ public final class ImageResourceGenerator extends AbstractResourceGenerator
     return sb.toString();
   }
 
+  /**
+   * Decodes the images of all of the ClientBundle's ImageResource methods
+   * concurrently, before {@link #prepare} assimilates them one at a time.
+   * Images that cannot be found are reported by {@link #prepare}.
+   */
+  private void decodeImages(TreeLogger logger, ResourceContext context) {
+    JClassType imageResourceType = context.getGeneratorContext().getTypeOracle().findType(
+        ImageResource.class.getCanonicalName());
+    List<URL> imageUrls = new ArrayList<URL>();
+    for (JMethod method : context.getClientBundleType().getOverridableMethods()) {
+      if (method.getReturnType() != imageResourceType) {
+        continue;
+      }
+      try {
+        imageUrls.addAll(Arrays.asList(
+            ResourceGeneratorUtil.findResources(TreeLogger.NULL, context, method)));
+      } catch (UnableToCompleteException e) {
+        // Reported by prepare()
+      }
+    }
+    ImageBundleBuilder.decodeImages(logger, imageUrls);
+  }
+
   private DisplayedImage getImage(ImageResourceDeclaration image) {
     DisplayedImage toReturn = shared.externalImages.get(new BundleKey(image, true));
     if (toReturn != null) {
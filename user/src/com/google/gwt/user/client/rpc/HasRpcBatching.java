@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.user.client.rpc;
+
+/**
+ * An interface implemented by client-side RPC proxy objects. Cast the object
+ * returned from {@link com.google.gwt.core.client.GWT#create(Class)} on a
+ * {@link RemoteService} to this interface to send the calls made within one
+ * event loop iteration as a single HTTP request.
+ * <p>
+ * Batched calls are sent by a
+ * {@link com.google.gwt.core.client.Scheduler#scheduleFinally finally command},
+ * and the service methods that return a
+ * {@link com.google.gwt.http.client.Request} return {@code null} for them. A
+ * batch that contains a single call is sent as a regular request. The servlet
+ * must be a {@link com.google.gwt.user.server.rpc.RemoteServiceServlet}, which
+ * dispatches the calls of a batch and returns all their responses at once.
+ */
+public interface HasRpcBatching {
+
+  /**
+   * Returns whether calls are batched.
+   */
+  boolean isRpcBatchingEnabled();
+
+  /**
+   * Sets whether calls are batched. Calls that have already been made are sent
+   * with the current batch.
+   */
+  void setRpcBatchingEnabled(boolean enabled);
+}
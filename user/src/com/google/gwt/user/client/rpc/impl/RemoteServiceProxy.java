@@ -15,12 +15,18 @@
  */
 package com.google.gwt.user.client.rpc.impl;
 
+import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.http.client.Header;
 import com.google.gwt.http.client.Request;
 import com.google.gwt.http.client.RequestBuilder;
 import com.google.gwt.http.client.RequestCallback;
 import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
 import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.gwt.user.client.rpc.HasRpcBatching;
 import com.google.gwt.user.client.rpc.HasRpcToken;
 import com.google.gwt.user.client.rpc.InvocationException;
 import com.google.gwt.user.client.rpc.RpcRequestBuilder;
@@ -33,6 +39,9 @@ import com.google.gwt.user.client.rpc.SerializationStreamWriter;
 import com.google.gwt.user.client.rpc.ServiceDefTarget;
 import com.google.gwt.user.client.rpc.impl.RequestCallbackAdapter.ResponseReader;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Superclass for client-side
  * {@link com.google.gwt.user.client.rpc.RemoteService RemoteService} proxies.
@@ -40,7 +49,7 @@ import com.google.gwt.user.client.rpc.impl.RequestCallbackAdapter.ResponseReader
  * For internal use only.
  */
 public abstract class RemoteServiceProxy implements SerializationStreamFactory,
-    ServiceDefTarget, HasRpcToken {
+    ServiceDefTarget, HasRpcBatching, HasRpcToken {
 
   /**
    * The content type to be used in HTTP requests.
@@ -104,6 +113,127 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
     }
   }
 
+  /**
+   * A call waiting to be sent with the current batch.
+   */
+  private static class BatchedCall {
+    final AsyncCallback<?> callback;
+    final String methodName;
+    final String requestData;
+    final ResponseReader responseReader;
+    final RpcStatsContext statsContext;
+
+    BatchedCall(ResponseReader responseReader, String methodName,
+        RpcStatsContext statsContext, String requestData, AsyncCallback<?> callback) {
+      this.responseReader = responseReader;
+      this.methodName = methodName;
+      this.statsContext = statsContext;
+      this.requestData = requestData;
+      this.callback = callback;
+    }
+  }
+
+  /**
+   * Hands each response of a batch to the callback of its call.
+   */
+  private static class BatchRequestCallback implements RequestCallback {
+    private final List<RequestCallback> callbacks;
+
+    BatchRequestCallback(List<RequestCallback> callbacks) {
+      this.callbacks = callbacks;
+    }
+
+    public void onError(Request request, Throwable exception) {
+      for (RequestCallback callback : callbacks) {
+        try {
+          callback.onError(request, exception);
+        } catch (Throwable e) {
+          GWT.reportUncaughtException(e);
+        }
+      }
+    }
+
+    public void onResponseReceived(Request request, Response response) {
+      if (response.getStatusCode() != Response.SC_OK) {
+        // Let each call report that the whole batch failed
+        for (RequestCallback callback : callbacks) {
+          try {
+            callback.onResponseReceived(request, response);
+          } catch (Throwable e) {
+            GWT.reportUncaughtException(e);
+          }
+        }
+        return;
+      }
+
+      List<String> responses = null;
+      if (RpcBatch.isBatch(response.getText())) {
+        try {
+          responses = RpcBatch.decode(response.getText());
+        } catch (IllegalArgumentException e) {
+          // Reported below
+        }
+      }
+      if (responses == null || responses.size() != callbacks.size()) {
+        onError(request, new InvocationException("Invalid response to a batch of "
+            + callbacks.size() + " calls"));
+        return;
+      }
+
+      for (int i = 0, j = callbacks.size(); i < j; i++) {
+        try {
+          callbacks.get(i).onResponseReceived(request,
+              new BatchedResponse(response, responses.get(i)));
+        } catch (Throwable e) {
+          GWT.reportUncaughtException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * The response to one of the calls of a batch.
+   */
+  private static class BatchedResponse extends Response {
+    private final Response batchResponse;
+    private final String text;
+
+    BatchedResponse(Response batchResponse, String text) {
+      this.batchResponse = batchResponse;
+      this.text = text;
+    }
+
+    @Override
+    public String getHeader(String header) {
+      return batchResponse.getHeader(header);
+    }
+
+    @Override
+    public Header[] getHeaders() {
+      return batchResponse.getHeaders();
+    }
+
+    @Override
+    public String getHeadersAsString() {
+      return batchResponse.getHeadersAsString();
+    }
+
+    @Override
+    public int getStatusCode() {
+      return batchResponse.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() {
+      return batchResponse.getStatusText();
+    }
+
+    @Override
+    public String getText() {
+      return text;
+    }
+  }
+
   /**
    * @deprecated use {@link RpcStatsContext}.
    */
@@ -198,6 +328,11 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
     return encodedResponse;
   }
 
+  /**
+   * The calls waiting to be sent, or null if no batch has been started.
+   */
+  private List<BatchedCall> batchedCalls;
+
   /**
    * The module base URL as specified during construction.
    */
@@ -209,6 +344,8 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
    */
   private String remoteServiceURL;
 
+  private boolean rpcBatchingEnabled;
+
   private RpcRequestBuilder rpcRequestBuilder;
 
   private RpcToken rpcToken;
@@ -305,6 +442,20 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
     return remoteServiceURL;
   }
 
+  /**
+   * @see HasRpcBatching#isRpcBatchingEnabled()
+   */
+  public boolean isRpcBatchingEnabled() {
+    return rpcBatchingEnabled;
+  }
+
+  /**
+   * @see HasRpcBatching#setRpcBatchingEnabled(boolean)
+   */
+  public void setRpcBatchingEnabled(boolean enabled) {
+    this.rpcBatchingEnabled = enabled;
+  }
+
   public void setRpcRequestBuilder(RpcRequestBuilder builder) {
     this.rpcRequestBuilder = builder;
   }
@@ -359,30 +510,22 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
    *          RPC call
    * @param callback callback handler
    *
-   * @return a {@link Request} object that can be used to track the request
+   * @return a {@link Request} object that can be used to track the request, or
+   *         {@code null} if the call is batched
    */
   protected <T> Request doInvoke(ResponseReader responseReader,
       String methodName, RpcStatsContext statsContext, String requestData,
       AsyncCallback<T> callback) {
 
-    RequestBuilder rb = doPrepareRequestBuilderImpl(responseReader, methodName,
-        statsContext, requestData, callback);
-
-    try {
-      return rb.send();
-    } catch (RequestException ex) {
-      InvocationException iex = new InvocationException(
-          "Unable to initiate the asynchronous service invocation (" +
-          methodName + ") -- check the network connection",
-          ex);
-      callback.onFailure(iex);
-    } finally {
-      if (statsContext.isStatsAvailable()) {
-        statsContext.stats(statsContext.bytesStat(methodName,
-            requestData.length(), "requestSent"));
+    if (rpcBatchingEnabled) {
+      if (getServiceEntryPoint() == null) {
+        throw new NoServiceEntryPointSpecifiedException();
       }
+      addToBatch(new BatchedCall(responseReader, methodName, statsContext, requestData,
+          callback));
+      return null;
     }
-    return null;
+    return send(responseReader, methodName, statsContext, requestData, callback);
   }
 
   /**
@@ -409,6 +552,26 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
     return rb;
   }
 
+  /**
+   * Adds a call to the current batch, starting a new batch if there is none or
+   * it is full.
+   */
+  private void addToBatch(BatchedCall call) {
+    if (batchedCalls == null || batchedCalls.size() == RpcBatch.MAX_CALLS) {
+      final List<BatchedCall> calls = new ArrayList<BatchedCall>();
+      batchedCalls = calls;
+      Scheduler.get().scheduleFinally(new ScheduledCommand() {
+        public void execute() {
+          if (batchedCalls == calls) {
+            batchedCalls = null;
+          }
+          sendBatch(calls);
+        }
+      });
+    }
+    batchedCalls.add(call);
+  }
+
   /**
    * Configures a RequestBuilder to send an RPC request.
    *
@@ -433,6 +596,17 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
     RequestCallback responseHandler = doCreateRequestCallback(responseReader,
         methodName, statsContext, callback);
 
+    return prepareRequestBuilder(responseHandler, statsContext, requestData);
+  }
+
+  private void ensureRpcRequestBuilder() {
+    if (rpcRequestBuilder == null) {
+      rpcRequestBuilder = new RpcRequestBuilder();
+    }
+  }
+
+  private RequestBuilder prepareRequestBuilder(RequestCallback responseHandler,
+      RpcStatsContext statsContext, String requestData) {
     ensureRpcRequestBuilder();
 
     rpcRequestBuilder.create(getServiceEntryPoint());
@@ -443,9 +617,70 @@ public abstract class RemoteServiceProxy implements SerializationStreamFactory,
     return rpcRequestBuilder.finish();
   }
 
-  private void ensureRpcRequestBuilder() {
-    if (rpcRequestBuilder == null) {
-      rpcRequestBuilder = new RpcRequestBuilder();
+  private <T> Request send(ResponseReader responseReader,
+      String methodName, RpcStatsContext statsContext, String requestData,
+      AsyncCallback<T> callback) {
+
+    RequestBuilder rb = doPrepareRequestBuilderImpl(responseReader, methodName,
+        statsContext, requestData, callback);
+
+    try {
+      return rb.send();
+    } catch (RequestException ex) {
+      InvocationException iex = new InvocationException(
+          "Unable to initiate the asynchronous service invocation (" +
+          methodName + ") -- check the network connection",
+          ex);
+      callback.onFailure(iex);
+    } finally {
+      if (statsContext.isStatsAvailable()) {
+        statsContext.stats(statsContext.bytesStat(methodName,
+            requestData.length(), "requestSent"));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sends the calls of a batch. A batch of one call is sent as a regular
+   * request.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private void sendBatch(List<BatchedCall> calls) {
+    if (calls.size() == 1) {
+      BatchedCall call = calls.get(0);
+      send(call.responseReader, call.methodName, call.statsContext, call.requestData,
+          (AsyncCallback) call.callback);
+      return;
+    }
+
+    List<String> payloads = new ArrayList<String>(calls.size());
+    List<RequestCallback> callbacks = new ArrayList<RequestCallback>(calls.size());
+    for (BatchedCall call : calls) {
+      payloads.add(call.requestData);
+      callbacks.add(doCreateRequestCallback(call.responseReader, call.methodName,
+          call.statsContext, (AsyncCallback) call.callback));
+    }
+    RequestBuilder rb = prepareRequestBuilder(new BatchRequestCallback(callbacks),
+        calls.get(0).statsContext, RpcBatch.encode(payloads));
+
+    try {
+      rb.send();
+    } catch (RequestException ex) {
+      for (BatchedCall call : calls) {
+        InvocationException iex = new InvocationException(
+            "Unable to initiate the asynchronous service invocation (" +
+            call.methodName + ") -- check the network connection",
+            ex);
+        call.callback.onFailure(iex);
+      }
+    } finally {
+      for (BatchedCall call : calls) {
+        if (call.statsContext.isStatsAvailable()) {
+          call.statsContext.stats(call.statsContext.bytesStat(call.methodName,
+              call.requestData.length(), "requestSent"));
+        }
+      }
     }
   }
 }
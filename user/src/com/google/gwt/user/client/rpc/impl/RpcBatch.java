@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.user.client.rpc.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes and decodes the payloads of batched RPC requests and responses.
+ * <p>
+ * A batch starts with {@value #BATCH_PREFIX}, which neither an RPC request nor
+ * an RPC response starts with, and is followed by the payloads of the calls in
+ * the order they were made. Each payload is preceded by its length and a
+ * {@code '|'}.
+ *
+ * For internal use only.
+ */
+public final class RpcBatch {
+
+  public static final String BATCH_PREFIX = "//BATCH";
+
+  /**
+   * The most calls a batch may contain. Clients send more calls as several
+   * batches, and servers reject larger batches.
+   */
+  public static final int MAX_CALLS = 100;
+
+  /**
+   * Splits a batch into the payloads it contains.
+   *
+   * @throws IllegalArgumentException if the batch is malformed
+   */
+  public static List<String> decode(String batch) {
+    if (!isBatch(batch)) {
+      throw new IllegalArgumentException("Not a batch");
+    }
+    List<String> toReturn = new ArrayList<String>();
+    int idx = BATCH_PREFIX.length();
+    while (idx < batch.length()) {
+      int separator = batch.indexOf('|', idx);
+      if (separator == -1) {
+        throw new IllegalArgumentException("Malformed batch");
+      }
+      int length;
+      try {
+        length = Integer.parseInt(batch.substring(idx, separator));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Malformed batch");
+      }
+      int end = separator + 1 + length;
+      if (length < 0 || end > batch.length()) {
+        throw new IllegalArgumentException("Malformed batch");
+      }
+      toReturn.add(batch.substring(separator + 1, end));
+      idx = end;
+    }
+    return toReturn;
+  }
+
+  /**
+   * Combines several payloads into a batch.
+   */
+  public static String encode(List<String> payloads) {
+    StringBuilder sb = new StringBuilder(BATCH_PREFIX);
+    for (String payload : payloads) {
+      sb.append(payload.length()).append('|').append(payload);
+    }
+    return sb.toString();
+  }
+
+  public static boolean isBatch(String payload) {
+    return payload != null && payload.startsWith(BATCH_PREFIX);
+  }
+
+  private RpcBatch() {
+  }
+}
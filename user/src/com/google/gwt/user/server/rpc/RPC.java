@@ -27,6 +27,8 @@ import com.google.gwt.user.server.rpc.impl.ServerSerializationStreamReader;
 import com.google.gwt.user.server.rpc.impl.ServerSerializationStreamWriter;
 import com.google.gwt.user.server.rpc.impl.TypeNameObfuscator;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -233,95 +235,58 @@ public final class RPC {
     }
 
     ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-
+    ServerSerializationStreamReader streamReader =
+        new ServerSerializationStreamReader(classLoader, serializationPolicyProvider);
     try {
-      ServerSerializationStreamReader streamReader =
-          new ServerSerializationStreamReader(classLoader, serializationPolicyProvider);
       streamReader.prepareToRead(encodedRequest);
+    } catch (SerializationException ex) {
+      throw new IncompatibleRemoteServiceException(ex.getMessage(), ex);
+    }
+    return decodeRequest(streamReader, type, classLoader);
+  }
 
-      RpcToken rpcToken = null;
-      if (streamReader.hasFlags(AbstractSerializationStream.FLAG_RPC_TOKEN_INCLUDED)) {
-        // Read the RPC token
-        rpcToken = (RpcToken) streamReader.deserializeValue(RpcToken.class);
-      }
-
-      // Read the name of the RemoteService interface
-      String serviceIntfName = maybeDeobfuscate(streamReader, streamReader.readString());
-
-      if (type != null) {
-        if (!implementsInterface(type, serviceIntfName)) {
-          // The service does not implement the requested interface
-          throw new IncompatibleRemoteServiceException("Blocked attempt to access interface '"
-              + serviceIntfName + "', which is not implemented by '" + printTypeName(type)
-              + "'; this is either misconfiguration or a hack attempt");
-        }
-      }
-
-      SerializationPolicy serializationPolicy = streamReader.getSerializationPolicy();
-      Class<?> serviceIntf;
-      try {
-        serviceIntf = getClassFromSerializedName(serviceIntfName, classLoader);
-        if (!RemoteService.class.isAssignableFrom(serviceIntf)) {
-          // The requested interface is not a RemoteService interface
-          throw new IncompatibleRemoteServiceException(
-              "Blocked attempt to access interface '"
-                  + printTypeName(serviceIntf)
-                  + "', which doesn't extend RemoteService; this is either "
-                  + "misconfiguration or a hack attempt");
-        }
-      } catch (ClassNotFoundException e) {
-        throw new IncompatibleRemoteServiceException("Could not locate requested interface '"
-            + serviceIntfName + "' in default classloader", e);
-      }
-
-      String serviceMethodName = streamReader.readString();
-
-      int paramCount = streamReader.readInt();
-      if (paramCount > streamReader.getNumberOfTokens()) {
-        throw new IncompatibleRemoteServiceException("Invalid number of parameters");
-      }
-      Class<?>[] parameterTypes = new Class[paramCount];
-
-      for (int i = 0; i < parameterTypes.length; i++) {
-        String paramClassName = maybeDeobfuscate(streamReader, streamReader.readString());
-
-        try {
-          parameterTypes[i] = getClassFromSerializedName(paramClassName, classLoader);
-        } catch (ClassNotFoundException e) {
-          throw new IncompatibleRemoteServiceException("Parameter " + i
-              + " of is of an unknown type '" + paramClassName + "'", e);
-        }
-      }
-
-      try {
-        Method method = serviceIntf.getMethod(serviceMethodName, parameterTypes);
-
-        // The parameter types we have are the non-parameterized versions in the
-        // RPC stream. For stronger message verification, get the parameterized
-        // types from the method declaration.
-        Type[] methodParameterTypes = method.getGenericParameterTypes();
-        DequeMap<TypeVariable<?>, Type> resolvedTypes = new DequeMap<TypeVariable<?>, Type>();
-
-        TypeVariable<Method>[] methodTypes = method.getTypeParameters();
-        for (TypeVariable<Method> methodType : methodTypes) {
-          SerializabilityUtil.resolveTypes(methodType, resolvedTypes);
-        }
+  /**
+   * Returns an {@link RPCRequest} that is built by decoding the UTF-8 encoded
+   * contents of an encoded RPC request, without decoding the whole request into
+   * a String first. Otherwise equivalent to
+   * {@link #decodeRequest(String, Class, SerializationPolicyProvider)}.
+   * 
+   * @param encodedRequest the UTF-8 encoding of a string that encodes the
+   *          {@link RemoteService} interface, the service method, and the
+   *          arguments to pass to the service method
+   * @param type if not <code>null</code>, the implementation checks that the
+   *          type is assignable to the {@link RemoteService} interface encoded
+   *          in the encoded request
+   * @param serializationPolicyProvider if not <code>null</code>, the
+   *          implementation asks this provider for a
+   *          {@link SerializationPolicy} which will be used to restrict the set
+   *          of types that can be decoded from this request
+   * @return an {@link RPCRequest} instance
+   * 
+   * @throws NullPointerException if the encodedRequest is <code>null</code>
+   * @throws IllegalArgumentException if the encodedRequest is empty
+   * @throws IncompatibleRemoteServiceException in the same conditions as
+   *           {@link #decodeRequest(String, Class, SerializationPolicyProvider)}
+   */
+  public static RPCRequest decodeRequest(byte[] encodedRequest, Class<?> type,
+      SerializationPolicyProvider serializationPolicyProvider) {
+    if (encodedRequest == null) {
+      throw new NullPointerException("encodedRequest cannot be null");
+    }
 
-        Object[] parameterValues = new Object[parameterTypes.length];
-        for (int i = 0; i < parameterValues.length; i++) {
-          parameterValues[i] = streamReader.deserializeValue(parameterTypes[i],
-              methodParameterTypes[i], resolvedTypes);
-        }
+    if (encodedRequest.length == 0) {
+      throw new IllegalArgumentException("encodedRequest cannot be empty");
+    }
 
-        return new RPCRequest(method, parameterValues, rpcToken, serializationPolicy, streamReader
-            .getFlags());
-      } catch (NoSuchMethodException e) {
-        throw new IncompatibleRemoteServiceException(formatMethodNotFoundErrorMessage(serviceIntf,
-            serviceMethodName, parameterTypes));
-      }
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    ServerSerializationStreamReader streamReader =
+        new ServerSerializationStreamReader(classLoader, serializationPolicyProvider);
+    try {
+      streamReader.prepareToRead(encodedRequest, encodedRequest.length);
     } catch (SerializationException ex) {
       throw new IncompatibleRemoteServiceException(ex.getMessage(), ex);
     }
+    return decodeRequest(streamReader, type, classLoader);
   }
 
   /**
@@ -403,20 +368,20 @@ public final class RPC {
 
   public static String encodeResponseForFailure(Method serviceMethod, Throwable cause,
       SerializationPolicy serializationPolicy, int flags) throws SerializationException {
-    if (cause == null) {
-      throw new NullPointerException("cause cannot be null");
-    }
-
-    if (serializationPolicy == null) {
-      throw new NullPointerException("serializationPolicy");
-    }
-
-    if (serviceMethod != null && !RPCServletUtils.isExpectedException(serviceMethod, cause)) {
-      throw new UnexpectedException("Service method '" + getSourceRepresentation(serviceMethod)
-          + "' threw an unexpected exception: " + cause.toString(), cause);
-    }
+    return encodeResponse(true,
+        serializeResponseForFailure(serviceMethod, cause, serializationPolicy, flags));
+  }
 
-    return encodeResponse(cause.getClass(), cause, true, flags, serializationPolicy);
+  /**
+   * Like {@link #encodeResponseForFailure(Method, Throwable, SerializationPolicy, int)},
+   * but writes the encoded response to <code>writer</code> instead of building
+   * it as a string. Nothing is written if the exception cannot be serialized.
+   */
+  public static void encodeResponseForFailure(Method serviceMethod, Throwable cause,
+      SerializationPolicy serializationPolicy, int flags, Writer writer)
+      throws SerializationException, IOException {
+    writeResponse(true,
+        serializeResponseForFailure(serviceMethod, cause, serializationPolicy, flags), writer);
   }
 
   /**
@@ -470,31 +435,20 @@ public final class RPC {
 
   public static String encodeResponseForSuccess(Method serviceMethod, Object object,
       SerializationPolicy serializationPolicy, int flags) throws SerializationException {
-    if (serviceMethod == null) {
-      throw new NullPointerException("serviceMethod cannot be null");
-    }
-
-    if (serializationPolicy == null) {
-      throw new NullPointerException("serializationPolicy");
-    }
-
-    Class<?> methodReturnType = serviceMethod.getReturnType();
-    if (methodReturnType != void.class && object != null) {
-      Class<?> actualReturnType;
-      if (methodReturnType.isPrimitive()) {
-        actualReturnType = getPrimitiveClassFromWrapper(object.getClass());
-      } else {
-        actualReturnType = object.getClass();
-      }
-
-      if (actualReturnType == null || !methodReturnType.isAssignableFrom(actualReturnType)) {
-        throw new IllegalArgumentException("Type '" + printTypeName(object.getClass())
-            + "' does not match the return type in the method's signature: '"
-            + getSourceRepresentation(serviceMethod) + "'");
-      }
-    }
+    return encodeResponse(false,
+        serializeResponseForSuccess(serviceMethod, object, serializationPolicy, flags));
+  }
 
-    return encodeResponse(methodReturnType, object, false, flags, serializationPolicy);
+  /**
+   * Like {@link #encodeResponseForSuccess(Method, Object, SerializationPolicy, int)},
+   * but writes the encoded response to <code>writer</code> instead of building
+   * it as a string. Nothing is written if the object cannot be serialized.
+   */
+  public static void encodeResponseForSuccess(Method serviceMethod, Object object,
+      SerializationPolicy serializationPolicy, int flags, Writer writer)
+      throws SerializationException, IOException {
+    writeResponse(false,
+        serializeResponseForSuccess(serviceMethod, object, serializationPolicy, flags), writer);
   }
 
   /**
@@ -584,19 +538,9 @@ public final class RPC {
 
     String responsePayload;
     try {
-      Object result = serviceMethod.invoke(target, args);
+      Object result = invoke(target, serviceMethod, args);
 
       responsePayload = encodeResponseForSuccess(serviceMethod, result, serializationPolicy, flags);
-    } catch (IllegalAccessException e) {
-      SecurityException securityException =
-          new SecurityException(formatIllegalAccessErrorMessage(target, serviceMethod));
-      securityException.initCause(e);
-      throw securityException;
-    } catch (IllegalArgumentException e) {
-      SecurityException securityException =
-          new SecurityException(formatIllegalArgumentErrorMessage(target, serviceMethod, args));
-      securityException.initCause(e);
-      throw securityException;
     } catch (InvocationTargetException e) {
       // Try to encode the caught exception
       //
@@ -609,30 +553,142 @@ public final class RPC {
   }
 
   /**
-   * Returns a string that encodes the results of an RPC call. Private overload
-   * that takes a flag signaling the preamble of the response payload.
-   * 
-   * @param object the object that we wish to send back to the client
-   * @param wasThrown if true, the object being returned was an exception thrown
-   *          by the service method; if false, it was the result of the service
-   *          method's invocation
-   * @return a string that encodes the response from a service method
-   * @throws SerializationException if the object cannot be serialized
+   * Like {@link #invokeAndEncodeResponse(Object, Method, Object[], SerializationPolicy, int)},
+   * but writes the encoded response to <code>writer</code> instead of building
+   * it as a string. The response is still serialized completely before anything
+   * is written, and its tokens are held in memory until then; what is saved for
+   * large responses is the response string and the copies made of it. Nothing
+   * is written if the response cannot be serialized. The writer is neither
+   * flushed nor closed.
+   *
+   * @throws IOException if the response could not be written
    */
-  private static String encodeResponse(Class<?> responseClass, Object object, boolean wasThrown,
-      int flags, SerializationPolicy serializationPolicy) throws SerializationException {
+  public static void invokeAndStreamResponse(Object target, Method serviceMethod, Object[] args,
+      SerializationPolicy serializationPolicy, int flags, Writer writer)
+      throws SerializationException, IOException {
+    if (serviceMethod == null) {
+      throw new NullPointerException("serviceMethod");
+    }
 
-    ServerSerializationStreamWriter stream =
-        new ServerSerializationStreamWriter(serializationPolicy);
-    stream.setFlags(flags);
+    if (serializationPolicy == null) {
+      throw new NullPointerException("serializationPolicy");
+    }
 
-    stream.prepareToWrite();
-    if (responseClass != void.class) {
-      stream.serializeValue(object, responseClass);
+    try {
+      Object result = invoke(target, serviceMethod, args);
+
+      encodeResponseForSuccess(serviceMethod, result, serializationPolicy, flags, writer);
+    } catch (InvocationTargetException e) {
+      // Try to encode the caught exception
+      //
+      Throwable cause = e.getCause();
+
+      encodeResponseForFailure(serviceMethod, cause, serializationPolicy, flags, writer);
+    }
+  }
+
+  /**
+   * Decodes a request from a stream reader that has been prepared to read it.
+   */
+  private static RPCRequest decodeRequest(ServerSerializationStreamReader streamReader,
+      Class<?> type, ClassLoader classLoader) {
+    try {
+      RpcToken rpcToken = null;
+      if (streamReader.hasFlags(AbstractSerializationStream.FLAG_RPC_TOKEN_INCLUDED)) {
+        // Read the RPC token
+        rpcToken = (RpcToken) streamReader.deserializeValue(RpcToken.class);
+      }
+
+      // Read the name of the RemoteService interface
+      String serviceIntfName = maybeDeobfuscate(streamReader, streamReader.readString());
+
+      if (type != null) {
+        if (!implementsInterface(type, serviceIntfName)) {
+          // The service does not implement the requested interface
+          throw new IncompatibleRemoteServiceException("Blocked attempt to access interface '"
+              + serviceIntfName + "', which is not implemented by '" + printTypeName(type)
+              + "'; this is either misconfiguration or a hack attempt");
+        }
+      }
+
+      SerializationPolicy serializationPolicy = streamReader.getSerializationPolicy();
+      Class<?> serviceIntf;
+      try {
+        serviceIntf = getClassFromSerializedName(serviceIntfName, classLoader);
+        if (!RemoteService.class.isAssignableFrom(serviceIntf)) {
+          // The requested interface is not a RemoteService interface
+          throw new IncompatibleRemoteServiceException(
+              "Blocked attempt to access interface '"
+                  + printTypeName(serviceIntf)
+                  + "', which doesn't extend RemoteService; this is either "
+                  + "misconfiguration or a hack attempt");
+        }
+      } catch (ClassNotFoundException e) {
+        throw new IncompatibleRemoteServiceException("Could not locate requested interface '"
+            + serviceIntfName + "' in default classloader", e);
+      }
+
+      String serviceMethodName = streamReader.readString();
+
+      int paramCount = streamReader.readInt();
+      if (paramCount > streamReader.getNumberOfTokens()) {
+        throw new IncompatibleRemoteServiceException("Invalid number of parameters");
+      }
+      Class<?>[] parameterTypes = new Class[paramCount];
+
+      for (int i = 0; i < parameterTypes.length; i++) {
+        String paramClassName = maybeDeobfuscate(streamReader, streamReader.readString());
+
+        try {
+          parameterTypes[i] = getClassFromSerializedName(paramClassName, classLoader);
+        } catch (ClassNotFoundException e) {
+          throw new IncompatibleRemoteServiceException("Parameter " + i
+              + " of is of an unknown type '" + paramClassName + "'", e);
+        }
+      }
+
+      try {
+        Method method = serviceIntf.getMethod(serviceMethodName, parameterTypes);
+
+        // The parameter types we have are the non-parameterized versions in the
+        // RPC stream. For stronger message verification, get the parameterized
+        // types from the method declaration.
+        Type[] methodParameterTypes = method.getGenericParameterTypes();
+        DequeMap<TypeVariable<?>, Type> resolvedTypes = new DequeMap<TypeVariable<?>, Type>();
+
+        TypeVariable<Method>[] methodTypes = method.getTypeParameters();
+        for (TypeVariable<Method> methodType : methodTypes) {
+          SerializabilityUtil.resolveTypes(methodType, resolvedTypes);
+        }
+
+        Object[] parameterValues = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterValues.length; i++) {
+          parameterValues[i] = streamReader.deserializeValue(parameterTypes[i],
+              methodParameterTypes[i], resolvedTypes);
+        }
+
+        return new RPCRequest(method, parameterValues, rpcToken, serializationPolicy, streamReader
+            .getFlags());
+      } catch (NoSuchMethodException e) {
+        throw new IncompatibleRemoteServiceException(formatMethodNotFoundErrorMessage(serviceIntf,
+            serviceMethodName, parameterTypes));
+      }
+    } catch (SerializationException ex) {
+      throw new IncompatibleRemoteServiceException(ex.getMessage(), ex);
     }
+  }
 
-    String bufferStr = (wasThrown ? "//EX" : "//OK") + stream.toString();
-    return bufferStr;
+  /**
+   * Returns a string that encodes the results of an RPC call.
+   *
+   * @param wasThrown if true, the object being returned was an exception thrown
+   *          by the service method; if false, it was the result of the service
+   *          method's invocation
+   * @param stream the stream the response was serialized into
+   * @return a string that encodes the response from a service method
+   */
+  private static String encodeResponse(boolean wasThrown, ServerSerializationStreamWriter stream) {
+    return (wasThrown ? "//EX" : "//OK") + stream.toString();
   }
 
   private static String formatIllegalAccessErrorMessage(Object target, Method serviceMethod) {
@@ -800,6 +856,27 @@ public final class RPC {
     return false;
   }
 
+  /**
+   * Invokes the service method, reporting access or argument errors as security
+   * exceptions.
+   */
+  private static Object invoke(Object target, Method serviceMethod, Object[] args)
+      throws InvocationTargetException {
+    try {
+      return serviceMethod.invoke(target, args);
+    } catch (IllegalAccessException e) {
+      SecurityException securityException =
+          new SecurityException(formatIllegalAccessErrorMessage(target, serviceMethod));
+      securityException.initCause(e);
+      throw securityException;
+    } catch (IllegalArgumentException e) {
+      SecurityException securityException =
+          new SecurityException(formatIllegalArgumentErrorMessage(target, serviceMethod, args));
+      securityException.initCause(e);
+      throw securityException;
+    }
+  }
+
   /**
    * Given a type identifier in the stream, attempt to deobfuscate it. Retuns
    * the original identifier if deobfuscation is unnecessary or no mapping is
@@ -865,6 +942,82 @@ public final class RPC {
     return type.getName().replace('$', '.');
   }
 
+  /**
+   * Serializes the response object, which is written out by the caller.
+   */
+  private static ServerSerializationStreamWriter serializeResponse(Class<?> responseClass,
+      Object object, int flags, SerializationPolicy serializationPolicy)
+      throws SerializationException {
+    ServerSerializationStreamWriter stream =
+        new ServerSerializationStreamWriter(serializationPolicy);
+    stream.setFlags(flags);
+
+    stream.prepareToWrite();
+    if (responseClass != void.class) {
+      stream.serializeValue(object, responseClass);
+    }
+    return stream;
+  }
+
+  private static ServerSerializationStreamWriter serializeResponseForFailure(Method serviceMethod,
+      Throwable cause, SerializationPolicy serializationPolicy, int flags)
+      throws SerializationException {
+    if (cause == null) {
+      throw new NullPointerException("cause cannot be null");
+    }
+
+    if (serializationPolicy == null) {
+      throw new NullPointerException("serializationPolicy");
+    }
+
+    if (serviceMethod != null && !RPCServletUtils.isExpectedException(serviceMethod, cause)) {
+      throw new UnexpectedException("Service method '" + getSourceRepresentation(serviceMethod)
+          + "' threw an unexpected exception: " + cause.toString(), cause);
+    }
+
+    return serializeResponse(cause.getClass(), cause, flags, serializationPolicy);
+  }
+
+  private static ServerSerializationStreamWriter serializeResponseForSuccess(Method serviceMethod,
+      Object object, SerializationPolicy serializationPolicy, int flags)
+      throws SerializationException {
+    if (serviceMethod == null) {
+      throw new NullPointerException("serviceMethod cannot be null");
+    }
+
+    if (serializationPolicy == null) {
+      throw new NullPointerException("serializationPolicy");
+    }
+
+    Class<?> methodReturnType = serviceMethod.getReturnType();
+    if (methodReturnType != void.class && object != null) {
+      Class<?> actualReturnType;
+      if (methodReturnType.isPrimitive()) {
+        actualReturnType = getPrimitiveClassFromWrapper(object.getClass());
+      } else {
+        actualReturnType = object.getClass();
+      }
+
+      if (actualReturnType == null || !methodReturnType.isAssignableFrom(actualReturnType)) {
+        throw new IllegalArgumentException("Type '" + printTypeName(object.getClass())
+            + "' does not match the return type in the method's signature: '"
+            + getSourceRepresentation(serviceMethod) + "'");
+      }
+    }
+
+    return serializeResponse(methodReturnType, object, flags, serializationPolicy);
+  }
+
+  /**
+   * Writes out the results of an RPC call; see
+   * {@link #encodeResponse(boolean, ServerSerializationStreamWriter)}.
+   */
+  private static void writeResponse(boolean wasThrown, ServerSerializationStreamWriter stream,
+      Writer writer) throws IOException {
+    writer.write(wasThrown ? "//EX" : "//OK");
+    stream.writeTo(writer);
+  }
+
   /**
    * Static classes have no constructability.
    */
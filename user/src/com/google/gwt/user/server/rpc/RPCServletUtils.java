@@ -20,8 +20,14 @@ import com.google.gwt.core.shared.impl.StringCase;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPOutputStream;
 
@@ -212,27 +218,7 @@ public class RPCServletUtils {
       checkCharacterEncodingIgnoreCase(request, expectedCharSet);
     }
 
-    /*
-     * Need to support 'Transfer-Encoding: chunked', so do not rely on
-     * presence of a 'Content-Length' request header.
-     */
-    InputStream in = request.getInputStream();
-    byte[] buffer = new byte[BUFFER_SIZE];
-    ByteArrayOutputStream out = new  ByteArrayOutputStream(BUFFER_SIZE);
-    try {
-      while (true) {
-        int byteCount = in.read(buffer);
-        if (byteCount == -1) {
-          break;
-        }
-        out.write(buffer, 0, byteCount);
-      }
-      return new String(out.toByteArray(), getCharset(expectedCharSet));
-    } finally {
-      if (in != null) {
-        in.close();
-      }
-    }
+    return new String(readBytes(request, Integer.MAX_VALUE), getCharset(expectedCharSet));
   }
 
   /**
@@ -252,6 +238,29 @@ public class RPCServletUtils {
       return readContent(request, GWT_RPC_CONTENT_TYPE, CHARSET_UTF8_NAME);
   }
 
+  /**
+   * Returns the undecoded content of an {@link HttpServletRequest}, after
+   * verifying a <code>text/x-gwt-rpc; charset=utf-8</code> content type. The
+   * content can be passed to
+   * {@link RPC#decodeRequest(byte[], Class, SerializationPolicyProvider)}
+   * without being decoded into a String.
+   *
+   * @param request the servlet request whose content we want to read
+   * @param maxContentLength the maximum number of bytes of content to accept
+   * @return the UTF-8 encoded content of an {@link HttpServletRequest}
+   * @throws IOException if the request's input stream cannot be accessed, read
+   *         from or closed
+   * @throws ServletException if the request's content type is not
+   *         <code>text/x-gwt-rpc; charset=utf-8</code>, ignoring case, or if the
+   *         content is longer than <code>maxContentLength</code>
+   */
+  public static byte[] readContentAsGwtRpcBytes(HttpServletRequest request,
+      int maxContentLength) throws IOException, ServletException {
+    checkContentTypeIgnoreCase(request, GWT_RPC_CONTENT_TYPE);
+    checkCharacterEncodingIgnoreCase(request, CHARSET_UTF8_NAME);
+    return readBytes(request, maxContentLength);
+  }
+
  /**
    * Returns the content of an {@link HttpServletRequest} by decoding it using
    * the UTF-8 charset.
@@ -303,6 +312,62 @@ public class RPCServletUtils {
     response.setHeader(CONTENT_ENCODING, CONTENT_ENCODING_GZIP);
   }
 
+  /**
+   * Returns a reader that decodes the content of an {@link HttpServletRequest}
+   * as it is read, for content that does not need to be held in memory as a
+   * whole, after performing the same checks as
+   * {@link #readContent(HttpServletRequest, String, String)}.
+   *
+   * @param request the servlet request whose content we want to read
+   * @param expectedContentType the expected content (i.e. 'type/subtype' only)
+   *          in the Content-Type request header, or <code>null</code> if no
+   *          validation is to be performed
+   * @param expectedCharSet the expected request charset, or <code>null</code>
+   *          if no charset validation is to be performed and <code>UTF-8</code>
+   *          should be assumed
+   * @throws IOException if the request's input stream cannot be accessed
+   * @throws ServletException if the request's content type does not
+   *         equal the supplied <code>expectedContentType</code> or
+   *         <code>expectedCharSet</code>
+   */
+  public static Reader createContentReader(HttpServletRequest request,
+      String expectedContentType, String expectedCharSet)
+      throws IOException, ServletException {
+    if (expectedContentType != null) {
+      checkContentTypeIgnoreCase(request, expectedContentType);
+    }
+    if (expectedCharSet != null) {
+      checkCharacterEncodingIgnoreCase(request, expectedCharSet);
+    }
+    return new InputStreamReader(request.getInputStream(), getCharset(expectedCharSet));
+  }
+
+  /**
+   * Sets the headers of a successful response and returns a writer that encodes
+   * the response content into the response's output stream as it is written,
+   * for content that is too large to be built in memory first, such as the
+   * output of {@link RPC#invokeAndStreamResponse}.
+   * No content length is set. The writer must be closed to complete the
+   * response.
+   *
+   * @param response response instance
+   * @param gzipResponse if <code>true</code> the response content will be gzip
+   *          encoded as it is written
+   * @throws IOException if the response's output stream cannot be opened
+   */
+  public static Writer createResponseWriter(HttpServletResponse response, boolean gzipResponse)
+      throws IOException {
+    response.setContentType(CONTENT_TYPE_APPLICATION_JSON_UTF8);
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setHeader(CONTENT_DISPOSITION, ATTACHMENT);
+    OutputStream output = response.getOutputStream();
+    if (gzipResponse) {
+      setGzipEncodingHeader(response);
+      output = new GZIPOutputStream(output, BUFFER_SIZE);
+    }
+    return new OutputStreamWriter(output, CHARSET_UTF8);
+  }
+
   /**
    * Returns <code>true</code> if the request accepts gzip encoding and the
    * response content's estimated UTF-8 byte length exceeds 256 bytes.
@@ -483,4 +548,56 @@ public class RPCServletUtils {
   private RPCServletUtils() {
     // Not instantiable
   }
+
+  /**
+   * Reads the content of a request, failing as soon as it turns out to be
+   * longer than <code>maxContentLength</code>.
+   */
+  private static byte[] readBytes(HttpServletRequest request, int maxContentLength)
+      throws IOException, ServletException {
+    int contentLength = request.getContentLength();
+    if (contentLength > maxContentLength) {
+      throw new ServletException("Content-Length of " + contentLength
+          + " bytes exceeds the limit of " + maxContentLength + " bytes");
+    }
+
+    /*
+     * Need to support 'Transfer-Encoding: chunked', so do not rely on
+     * presence of a 'Content-Length' request header. The header comes from the
+     * client, so it only limits the first buffer; larger buffers are allocated
+     * as the content actually arrives.
+     */
+    InputStream in = request.getInputStream();
+    try {
+      byte[] buffer = new byte[contentLength >= 0 ? Math.min(contentLength, BUFFER_SIZE)
+          : BUFFER_SIZE];
+      byte[] probe = new byte[1];
+      int count = 0;
+      while (true) {
+        if (count == buffer.length) {
+          // Full; see whether there is more before growing the buffer.
+          if (in.read(probe, 0, 1) == -1) {
+            break;
+          }
+          if (count >= maxContentLength) {
+            throw new ServletException("Content exceeds the limit of " + maxContentLength
+                + " bytes");
+          }
+          buffer = Arrays.copyOf(buffer,
+              (int) Math.min(maxContentLength, Math.max(BUFFER_SIZE, 2L * count)));
+          buffer[count++] = probe[0];
+        }
+        int byteCount = in.read(buffer, count, buffer.length - count);
+        if (byteCount == -1) {
+          break;
+        }
+        count += byteCount;
+      }
+      return count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+    } finally {
+      if (in != null) {
+        in.close();
+      }
+    }
+  }
 }
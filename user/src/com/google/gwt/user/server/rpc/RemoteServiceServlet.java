@@ -20,14 +20,23 @@ import static com.google.gwt.user.client.rpc.RpcRequestBuilder.MODULE_BASE_HEADE
 import com.google.gwt.user.client.rpc.IncompatibleRemoteServiceException;
 import com.google.gwt.user.client.rpc.RpcTokenException;
 import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.client.rpc.impl.RpcBatch;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -50,6 +59,17 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
    */
   static SerializationPolicy loadSerializationPolicy(HttpServlet servlet,
       HttpServletRequest request, String moduleBaseURL, String strongName) {
+    return loadSerializationPolicy(servlet, request, moduleBaseURL, strongName, null);
+  }
+
+  /**
+   * Loads a serialization policy stored as a servlet resource in the same
+   * ServletContext as this servlet, taking it from {@code preloadedPolicies}
+   * instead if it has already been read from there. Returns null if not found.
+   */
+  private static SerializationPolicy loadSerializationPolicy(HttpServlet servlet,
+      HttpServletRequest request, String moduleBaseURL, String strongName,
+      Map<String, SerializationPolicy> preloadedPolicies) {
     // The request can tell you the path of the web app relative to the
     // container root.
     String contextPath = request.getContextPath();
@@ -86,6 +106,14 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
       String serializationPolicyFilePath = SerializationPolicyLoader.getSerializationPolicyFileName(contextRelativePath
           + strongName);
 
+      if (preloadedPolicies != null) {
+        // Each policy is only needed once, since the caller caches it.
+        serializationPolicy = preloadedPolicies.remove(serializationPolicyFilePath);
+        if (serializationPolicy != null) {
+          return serializationPolicy;
+        }
+      }
+
       // Open the RPC resource file and read its contents.
       InputStream is = servlet.getServletContext().getResourceAsStream(
           serializationPolicyFilePath);
@@ -121,14 +149,133 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
     return serializationPolicy;
   }
 
+  /**
+   * Reads the serialization policy files of a web application, outside of
+   * WEB-INF, so that they need not be loaded while serving the first request of
+   * each permutation. Stops after as many policies as the servlet caches.
+   */
+  private static class SerializationPolicyPreloader extends Thread {
+    private final int maxPolicies;
+    private int preloadedCount;
+    private final Map<String, SerializationPolicy> preloadedPolicies;
+    private final HttpServlet servlet;
+
+    SerializationPolicyPreloader(HttpServlet servlet,
+        Map<String, SerializationPolicy> preloadedPolicies, int maxPolicies) {
+      super("SerializationPolicyPreloader-" + servlet.getServletName());
+      this.servlet = servlet;
+      this.preloadedPolicies = preloadedPolicies;
+      this.maxPolicies = maxPolicies;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      try {
+        preload("/");
+      } catch (RuntimeException e) {
+        servlet.log("WARNING: Failed to preload the serialization policies", e);
+      }
+    }
+
+    private void preload(String directoryPath) {
+      Set<String> paths = servlet.getServletContext().getResourcePaths(directoryPath);
+      if (paths == null) {
+        return;
+      }
+      for (String path : paths) {
+        if (isInterrupted() || preloadedCount >= maxPolicies) {
+          return;
+        }
+        if (path.equals(WEB_INF_PATH)) {
+          // Not served to clients, so it holds no module's policies.
+          continue;
+        }
+        if (path.endsWith("/")) {
+          preload(path);
+        } else if (path.endsWith(POLICY_FILE_SUFFIX)) {
+          preloadPolicy(path);
+        }
+      }
+    }
+
+    private void preloadPolicy(String serializationPolicyFilePath) {
+      InputStream is = servlet.getServletContext().getResourceAsStream(serializationPolicyFilePath);
+      if (is == null) {
+        return;
+      }
+      try {
+        preloadedPolicies.put(serializationPolicyFilePath,
+            SerializationPolicyLoader.loadFromStream(is, null));
+        ++preloadedCount;
+      } catch (ParseException e) {
+        servlet.log("ERROR: Failed to parse the policy file '"
+            + serializationPolicyFilePath + "'", e);
+      } catch (IOException e) {
+        servlet.log("ERROR: Could not read the policy file '"
+            + serializationPolicyFilePath + "'", e);
+      } finally {
+        try {
+          is.close();
+        } catch (IOException e) {
+          // Ignore this error
+        }
+      }
+    }
+  }
+
   private static final SerializationPolicyClient CODE_SERVER_CLIENT =
       new SerializationPolicyClient(5000, 5000);
 
+  /**
+   * The default maximum number of serialization policies cached by a servlet.
+   */
+  private static final int DEFAULT_POLICY_CACHE_SIZE = 256;
+
+  /**
+   * The system property setting the maximum number of serialization policies
+   * cached by each servlet.
+   */
+  private static final String POLICY_CACHE_SIZE_PROPERTY = "gwt.rpc.policyCacheSize";
+
+  /**
+   * The system property setting the number of seconds after which a cached
+   * serialization policy is loaded again. Unset or 0 means never.
+   */
+  private static final String POLICY_CACHE_MAX_AGE_PROPERTY = "gwt.rpc.policyCacheMaxAgeSeconds";
+
+  private static final String POLICY_FILE_SUFFIX =
+      SerializationPolicyLoader.getSerializationPolicyFileName("");
+
+  /**
+   * The system property that, when true, makes each servlet read all the
+   * serialization policy files of its web application in the background when
+   * it is initialized.
+   */
+  private static final String PRELOAD_POLICIES_PROPERTY = "gwt.rpc.preloadPolicies";
+
+  private static final String WEB_INF_PATH = "/WEB-INF/";
+
   /**
    * A cache of moduleBaseURL and serialization policy strong name to
-   * {@link SerializationPolicy}.
+   * {@link SerializationPolicy}. Replaced by a configured cache in
+   * {@link #init(ServletConfig)}.
+   */
+  private SerializationPolicyCache serializationPolicyCache =
+      new SerializationPolicyCache(DEFAULT_POLICY_CACHE_SIZE, 0);
+
+  /**
+   * Serialization policies read by the {@link #policyPreloader}, keyed by the
+   * context-relative path of their file, that have not been cached yet.
+   */
+  private final Map<String, SerializationPolicy> preloadedPolicies =
+      new ConcurrentHashMap<String, SerializationPolicy>();
+
+  /**
+   * The thread preloading serialization policies, or null if preloading is
+   * disabled.
    */
-  private final Map<String, SerializationPolicy> serializationPolicyCache = new HashMap<String, SerializationPolicy>();
+  private Thread policyPreloader;
 
   /**
    * The implementation of the service.
@@ -161,12 +308,44 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
   }
 
   /**
-   * Overridden to load the gwt.codeserver.port system property.
+   * Overridden to stop preloading serialization policies and release the
+   * cached ones.
+   */
+  @Override
+  public void destroy() {
+    if (policyPreloader != null) {
+      policyPreloader.interrupt();
+      policyPreloader = null;
+    }
+    preloadedPolicies.clear();
+    serializationPolicyCache.clear();
+    super.destroy();
+  }
+
+  /**
+   * Overridden to load the gwt.codeserver.port system property, configure the
+   * serialization policy cache from the gwt.rpc.policyCacheSize and
+   * gwt.rpc.policyCacheMaxAgeSeconds system properties, and start preloading
+   * serialization policies if the gwt.rpc.preloadPolicies system property is
+   * true.
    */
   @Override
   public void init(ServletConfig config) throws ServletException {
     super.init(config);
     codeServerPort = getCodeServerPort();
+
+    int policyCacheSize =
+        getIntegerProperty(POLICY_CACHE_SIZE_PROPERTY, DEFAULT_POLICY_CACHE_SIZE, 1);
+    serializationPolicyCache = new SerializationPolicyCache(policyCacheSize,
+        getIntegerProperty(POLICY_CACHE_MAX_AGE_PROPERTY, 0, 0) * 1000L);
+    serializationPolicyCache.setMetrics(getSerializationPolicyCacheMetrics());
+
+    if (Boolean.getBoolean(PRELOAD_POLICIES_PROPERTY)) {
+      // Never hold more preloaded policies than the cache would keep.
+      policyPreloader =
+          new SerializationPolicyPreloader(this, preloadedPolicies, policyCacheSize);
+      policyPreloader.start();
+    }
   }
 
   /**
@@ -196,6 +375,35 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
         + " expected an integer in the range [1-65535] but got: " + value);
   }
 
+  /**
+   * Returns the value of an integer system property, or the default value if it
+   * is not defined.
+   *
+   * @throws ServletException if the system property has an invalid value.
+   */
+  private static int getIntegerProperty(String name, int defaultValue, int minValue)
+      throws ServletException {
+    String value = System.getProperty(name);
+    if (value == null) {
+      return defaultValue;
+    }
+
+    try {
+      int result = Integer.parseInt(value);
+      if (result >= minValue) {
+        return result;
+      }
+      // invalid because too small; fall through
+
+    } catch (NumberFormatException e) {
+      // fall through
+    }
+
+    // Fail loudly so that that a configuration error will be noticed.
+    throw new ServletException("Invalid value of " + name + " system property;"
+        + " expected an integer of at least " + minValue + " but got: " + value);
+  }
+
   /**
    * Extract the module's base path from the current request.
    *
@@ -225,12 +433,13 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
   public final SerializationPolicy getSerializationPolicy(String moduleBaseURL,
       String strongName) {
 
-    SerializationPolicy serializationPolicy = getCachedSerializationPolicy(
-        moduleBaseURL, strongName);
+    String cacheKey = moduleBaseURL + strongName;
+    SerializationPolicy serializationPolicy = serializationPolicyCache.get(cacheKey);
     if (serializationPolicy != null) {
       return serializationPolicy;
     }
 
+    long startNanos = System.nanoTime();
     serializationPolicy = doGetSerializationPolicy(getThreadLocalRequest(),
         moduleBaseURL, strongName);
 
@@ -253,13 +462,104 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
       serializationPolicy = RPC.getDefaultSerializationPolicy();
     }
 
-    // This could cache null or an actual instance. Either way we will not
-    // attempt to lookup the policy again.
-    putCachedSerializationPolicy(moduleBaseURL, strongName, serializationPolicy);
+    // This could cache the default policy or an actual instance. Either way we
+    // will not attempt to lookup the policy again until it is evicted.
+    serializationPolicyCache.put(cacheKey, serializationPolicy, System.nanoTime() - startNanos);
 
     return serializationPolicy;
   }
 
+  /**
+   * Process a batch of calls sent by a client that has enabled
+   * {@link com.google.gwt.user.client.rpc.HasRpcBatching batching}. Each call
+   * is processed with {@link #processCall(String)} as if it had been sent on its
+   * own, and the responses are returned together, in the order of the calls.
+   * <p>
+   * The calls are processed one after the other, unless
+   * {@link #getBatchExecutor()} returns an executor. A call that fails
+   * unexpectedly fails the whole batch, once the other calls are done, so that
+   * the failure reaches {@link #doUnexpectedFailure(Throwable)} like the
+   * failure of a call sent on its own. The client then reports it to every call
+   * of the batch.
+   * </p>
+   * This is public so that it can be unit tested easily without HTTP.
+   *
+   * @param payload the UTF-8 request payload, which contains the payloads of
+   *          the calls
+   * @return a string which encodes the responses of the calls
+   * @throws IllegalArgumentException if the payload is not a valid batch or it
+   *           contains more than {@link RpcBatch#MAX_CALLS} calls
+   * @throws SerializationException if a call cannot be deserialized or its
+   *           response cannot be serialized
+   */
+  public String processBatch(String payload) throws SerializationException {
+    List<String> payloads = RpcBatch.decode(payload);
+    if (payloads.size() > RpcBatch.MAX_CALLS) {
+      throw new IllegalArgumentException("A batch of " + payloads.size()
+          + " calls exceeds the maximum of " + RpcBatch.MAX_CALLS);
+    }
+    List<String> responses = new ArrayList<String>(payloads.size());
+    Executor executor = payloads.size() > 1 ? getBatchExecutor() : null;
+    if (executor == null) {
+      for (String callPayload : payloads) {
+        responses.add(processBatchedCall(callPayload));
+      }
+      return RpcBatch.encode(responses);
+    }
+
+    final HttpServletRequest request = getThreadLocalRequest();
+    final HttpServletResponse response = getThreadLocalResponse();
+    List<FutureTask<String>> tasks = new ArrayList<FutureTask<String>>(payloads.size());
+    for (final String callPayload : payloads) {
+      FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+        @Override
+        public String call() throws SerializationException {
+          // The executor may run the call on the current thread
+          HttpServletRequest previousRequest = perThreadRequest.get();
+          HttpServletResponse previousResponse = perThreadResponse.get();
+          perThreadRequest.set(request);
+          perThreadResponse.set(response);
+          try {
+            return processBatchedCall(callPayload);
+          } finally {
+            perThreadRequest.set(previousRequest);
+            perThreadResponse.set(previousResponse);
+          }
+        }
+      });
+      tasks.add(task);
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        task.run();
+      }
+    }
+    Throwable failure = null;
+    for (FutureTask<String> task : tasks) {
+      try {
+        responses.add(task.get());
+      } catch (ExecutionException e) {
+        // Only fail once the other calls, which share the request, are done
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+    if (failure instanceof SerializationException) {
+      throw (SerializationException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+    return RpcBatch.encode(responses);
+  }
+
   /**
    * Process a call originating from the given request. This method calls
    * {@link RemoteServiceServlet#checkPermutationStrongName()} to prevent
@@ -363,18 +663,25 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
     //
     String requestPayload = readContent(request);
 
-    // Let subclasses see the serialized request.
-    //
-    onBeforeRequestDeserialized(requestPayload);
-
-    // Invoke the core dispatching logic, which returns the serialized
-    // result.
-    //
-    String responsePayload = processCall(requestPayload);
-
-    // Let subclasses see the serialized response.
-    //
-    onAfterResponseSerialized(responsePayload);
+    String responsePayload;
+    if (RpcBatch.isBatch(requestPayload)) {
+      // Each call of the batch is handled as below.
+      //
+      responsePayload = processBatch(requestPayload);
+    } else {
+      // Let subclasses see the serialized request.
+      //
+      onBeforeRequestDeserialized(requestPayload);
+
+      // Invoke the core dispatching logic, which returns the serialized
+      // result.
+      //
+      responsePayload = processCall(requestPayload);
+
+      // Let subclasses see the serialized response.
+      //
+      onAfterResponseSerialized(responsePayload);
+    }
 
     // Write the response.
     //
@@ -417,7 +724,23 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
    */
   protected SerializationPolicy doGetSerializationPolicy(
       HttpServletRequest request, String moduleBaseURL, String strongName) {
-    return RemoteServiceServlet.loadSerializationPolicy(this, request, moduleBaseURL, strongName);
+    return RemoteServiceServlet.loadSerializationPolicy(this, request, moduleBaseURL, strongName,
+        preloadedPolicies);
+  }
+
+  /**
+   * Returns the executor on which the calls of a batch are processed in
+   * parallel, or null to process them one after the other on the thread of the
+   * request. Calls that the executor rejects are processed on the thread of the
+   * request.
+   * <p>
+   * By default, returns null. Service implementations that process the calls
+   * of a batch in parallel must be thread-safe; {@link #getThreadLocalRequest()}
+   * and {@link #getThreadLocalResponse()} return the request of the batch
+   * from any of its calls.
+   */
+  protected Executor getBatchExecutor() {
+    return null;
   }
 
   /**
@@ -441,6 +764,25 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
     return "http://localhost:" + codeServerPort + "/policies/" + strongName + ".gwt.rpc";
   }
 
+  /**
+   * Returns the cache of serialization policies, for example to read its
+   * counters.
+   */
+  protected final SerializationPolicyCache getSerializationPolicyCache() {
+    return serializationPolicyCache;
+  }
+
+  /**
+   * Returns the hook notified of the activity of the serialization policy
+   * cache. Called once, from {@link #init(ServletConfig)}.
+   * <p>
+   * By default, returns null. Override this method to export the cache hits,
+   * misses and load times to a monitoring system.
+   */
+  protected SerializationPolicyCache.Metrics getSerializationPolicyCacheMetrics() {
+    return null;
+  }
+
   /**
    * Loads a serialization policy from a Super Dev Mode code server.
    * (Not used unless {@link #getCodeServerPolicyUrl} returns a URL.)
@@ -505,19 +847,15 @@ public class RemoteServiceServlet extends AbstractRemoteServiceServlet
     return RPCServletUtils.exceedsUncompressedContentLengthLimit(responsePayload);
   }
 
-  private SerializationPolicy getCachedSerializationPolicy(
-      String moduleBaseURL, String strongName) {
-    synchronized (serializationPolicyCache) {
-      return serializationPolicyCache.get(moduleBaseURL + strongName);
-    }
-  }
-
-  private void putCachedSerializationPolicy(String moduleBaseURL,
-      String strongName, SerializationPolicy serializationPolicy) {
-    synchronized (serializationPolicyCache) {
-      serializationPolicyCache.put(moduleBaseURL + strongName,
-          serializationPolicy);
-    }
+  /**
+   * Processes one of the calls of a batch, like {@link #processPost} processes
+   * a call that was sent on its own.
+   */
+  private String processBatchedCall(String payload) throws SerializationException {
+    onBeforeRequestDeserialized(payload);
+    String responsePayload = processCall(payload);
+    onAfterResponseSerialized(responsePayload);
+    return responsePayload;
   }
 
   private void writeResponse(HttpServletRequest request,
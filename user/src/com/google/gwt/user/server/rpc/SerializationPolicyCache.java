@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.user.server.rpc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache of {@link SerializationPolicy} instances, bounded in size
+ * and optionally in age.
+ * <p>
+ * Lookups do not lock. When the cache grows beyond its maximum size, the
+ * entries that were least recently used are evicted; entries older than the
+ * maximum age are dropped the next time they are looked up, so that they get
+ * loaded again.
+ */
+public class SerializationPolicyCache {
+
+  /**
+   * Receives notifications about the activity of a
+   * {@link SerializationPolicyCache}, for example to export them to a
+   * monitoring system. Implementations must be thread-safe.
+   */
+  public interface Metrics {
+
+    /**
+     * Called when a policy is evicted because the cache is full or the policy
+     * expired.
+     */
+    void onEviction(String key);
+
+    /**
+     * Called when a lookup finds a policy.
+     */
+    void onHit(String key);
+
+    /**
+     * Called when a policy has been loaded and added to the cache.
+     *
+     * @param loadTimeNanos the time taken to load the policy, in nanoseconds
+     */
+    void onLoad(String key, long loadTimeNanos);
+
+    /**
+     * Called when a lookup does not find a policy.
+     */
+    void onMiss(String key);
+  }
+
+  private static class Entry {
+    private final long createdNanos;
+    private volatile long lastAccessNanos;
+    private final SerializationPolicy policy;
+
+    Entry(SerializationPolicy policy, long nowNanos) {
+      this.policy = policy;
+      this.createdNanos = nowNanos;
+      this.lastAccessNanos = nowNanos;
+    }
+  }
+
+  private static final Metrics NO_METRICS = new Metrics() {
+    @Override
+    public void onEviction(String key) {
+    }
+
+    @Override
+    public void onHit(String key) {
+    }
+
+    @Override
+    public void onLoad(String key, long loadTimeNanos) {
+    }
+
+    @Override
+    public void onMiss(String key) {
+    }
+  };
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong loadCount = new AtomicLong();
+
+  private final long maxAgeNanos;
+
+  private final int maxSize;
+
+  private volatile Metrics metrics = NO_METRICS;
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final AtomicLong totalLoadTimeNanos = new AtomicLong();
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxSize the maximum number of policies to keep
+   * @param maxAgeMillis the time after which a policy is loaded again, in
+   *          milliseconds, or 0 to keep policies until they are evicted
+   */
+  public SerializationPolicyCache(int maxSize, long maxAgeMillis) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    if (maxAgeMillis < 0) {
+      throw new IllegalArgumentException("maxAgeMillis must not be negative: " + maxAgeMillis);
+    }
+    this.maxSize = maxSize;
+    this.maxAgeNanos = maxAgeMillis * 1000000L;
+  }
+
+  /**
+   * Removes all policies from the cache. The counters are not reset.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the cached policy for {@code key}, or null if there is none or it
+   * expired.
+   */
+  public SerializationPolicy get(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      long now = currentTimeNanos();
+      if (maxAgeNanos > 0 && now - entry.createdNanos >= maxAgeNanos) {
+        // Only remove the expired entry, not one another thread has just put.
+        if (entries.remove(key, entry)) {
+          recordEviction(key);
+        }
+      } else {
+        entry.lastAccessNanos = now;
+        hitCount.incrementAndGet();
+        metrics.onHit(key);
+        return entry.policy;
+      }
+    }
+    missCount.incrementAndGet();
+    metrics.onMiss(key);
+    return null;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getLoadCount() {
+    return loadCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Returns the total time spent loading the policies that were put into the
+   * cache, in nanoseconds.
+   */
+  public long getTotalLoadTimeNanos() {
+    return totalLoadTimeNanos.get();
+  }
+
+  /**
+   * Adds a policy to the cache, evicting the least recently used policies if
+   * the cache is full.
+   *
+   * @param loadTimeNanos the time taken to load the policy, in nanoseconds
+   */
+  public void put(String key, SerializationPolicy policy, long loadTimeNanos) {
+    entries.put(key, new Entry(policy, currentTimeNanos()));
+    loadCount.incrementAndGet();
+    totalLoadTimeNanos.addAndGet(loadTimeNanos);
+    metrics.onLoad(key, loadTimeNanos);
+    if (entries.size() > maxSize) {
+      evictLeastRecentlyUsed();
+    }
+  }
+
+  /**
+   * Sets the hook notified of cache activity, or null to remove it.
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics == null ? NO_METRICS : metrics;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the current time, in nanoseconds. Overridden in tests.
+   */
+  long currentTimeNanos() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its
+   * maximum size. Policies are only added once per permutation, so a linear
+   * scan is cheap enough here and keeps lookups free of bookkeeping.
+   */
+  private synchronized void evictLeastRecentlyUsed() {
+    while (entries.size() > maxSize) {
+      String oldestKey = null;
+      Entry oldestEntry = null;
+      long oldestAccessNanos = 0;
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        long lastAccessNanos = entry.getValue().lastAccessNanos;
+        if (oldestKey == null || lastAccessNanos - oldestAccessNanos < 0) {
+          oldestKey = entry.getKey();
+          oldestEntry = entry.getValue();
+          oldestAccessNanos = lastAccessNanos;
+        }
+      }
+      if (oldestKey == null) {
+        return;
+      }
+      if (entries.remove(oldestKey, oldestEntry)) {
+        recordEviction(oldestKey);
+      }
+    }
+  }
+
+  private void recordEviction(String key) {
+    evictionCount.incrementAndGet();
+    metrics.onEviction(key);
+  }
+}
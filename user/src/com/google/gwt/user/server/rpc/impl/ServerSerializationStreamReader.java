@@ -38,12 +38,18 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
@@ -91,6 +97,191 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
     }
   }
 
+  /**
+   * The precomputed steps for deserializing the fields of one class under one
+   * {@link SerializationPolicy}. The fields to read, their setters and the
+   * superclass handling are resolved when the plan is built, so that reading an
+   * instance requires neither cache lookups nor policy queries.
+   */
+  private static final class DeserializationPlan {
+
+    /**
+     * The fields known to the client, in the order they are read.
+     */
+    private Field[] clientFields;
+
+    /**
+     * For enhanced classes, the setter to call for each of {@link #clientFields}
+     * or null to set the field directly; null for classes that are not enhanced.
+     */
+    private Method[] clientFieldSetters;
+
+    /**
+     * The server custom field serializer of {@link #superClass}, if any.
+     */
+    private Class<?> superClassCustomSerializer;
+
+    /**
+     * The superclass whose fields are deserialized next, or null if there is
+     * none.
+     */
+    private Class<?> superClass;
+
+    /**
+     * Whether server-only fields are encoded ahead of the client fields.
+     */
+    private boolean enhanced;
+
+    private DeserializationPlan(SerializationPolicy serializationPolicy, Class<?> instanceClass) {
+      /**
+       * A list of fields of this class known to the client. If null, assume the
+       * class is not enhanced and don't attempt to deal with server-only fields.
+       */
+      Set<String> clientFieldNames =
+          serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass);
+      enhanced = clientFieldNames != null;
+
+      /**
+       * A map from field names to corresponding setter methods, for classes that
+       * require special handling for server-only fields.
+       */
+      Map<String, Method> setters = enhanced ? getSetters(instanceClass) : null;
+
+      List<Field> fieldList = new ArrayList<Field>();
+      List<Method> setterList = new ArrayList<Method>();
+      for (Field declField : SerializabilityUtil.applyFieldSerializationPolicy(instanceClass)) {
+        assert (declField != null);
+        if (enhanced && !clientFieldNames.contains(declField.getName())) {
+          continue;
+        }
+
+        Method setter = enhanced ? setters.get(declField.getName()) : null;
+        if (setter == null) {
+          boolean isAccessible = declField.isAccessible();
+          boolean needsAccessOverride =
+              !isAccessible && !Modifier.isPublic(declField.getModifiers());
+          if (needsAccessOverride) {
+            // Override access restrictions
+            declField.setAccessible(true);
+          }
+        }
+        fieldList.add(declField);
+        setterList.add(setter);
+      }
+      clientFields = fieldList.toArray(new Field[fieldList.size()]);
+      if (enhanced) {
+        clientFieldSetters = setterList.toArray(new Method[setterList.size()]);
+      }
+
+      Class<?> superClass = instanceClass.getSuperclass();
+      if (serializationPolicy.shouldDeserializeFields(superClass)) {
+        this.superClass = superClass;
+        superClassCustomSerializer = SerializabilityUtil.hasServerCustomFieldSerializer(superClass);
+      }
+    }
+  }
+
+  /**
+   * An encoded RPC request, held either as a String or as its UTF-8 bytes.
+   * Tokens are located and parsed in place; only the tokens that are needed as
+   * Strings get decoded into one.
+   */
+  private abstract static class EncodedRequest {
+
+    /**
+     * Returns the character at {@code index} if it is an ASCII character, or
+     * {@code '\uFFFD'} otherwise.
+     */
+    abstract char asciiCharAt(int index);
+
+    /**
+     * Returns the index of the first occurrence of the ASCII character
+     * {@code ch} in the range [{@code start}, {@code end}), or -1 if none.
+     */
+    abstract int indexOf(char ch, int start, int end);
+
+    abstract int length();
+
+    /**
+     * Returns the decoded characters in the range [{@code start}, {@code end}).
+     */
+    abstract String substring(int start, int end);
+  }
+
+  private static class StringEncodedRequest extends EncodedRequest {
+    private final String encoded;
+
+    StringEncodedRequest(String encoded) {
+      this.encoded = encoded;
+    }
+
+    @Override
+    char asciiCharAt(int index) {
+      char ch = encoded.charAt(index);
+      return ch < 0x80 ? ch : '\uFFFD';
+    }
+
+    @Override
+    int indexOf(char ch, int start, int end) {
+      int idx = encoded.indexOf(ch, start);
+      return idx < end ? idx : -1;
+    }
+
+    @Override
+    int length() {
+      return encoded.length();
+    }
+
+    @Override
+    String substring(int start, int end) {
+      return encoded.substring(start, end);
+    }
+  }
+
+  /**
+   * A request held as UTF-8 bytes. Since UTF-8 encodes ASCII characters as
+   * single bytes that never occur inside the encoding of other characters, the
+   * separators, escapes and numbers can be found without decoding the bytes.
+   */
+  private static class Utf8EncodedRequest extends EncodedRequest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] encoded;
+    private final int length;
+
+    Utf8EncodedRequest(byte[] encoded, int length) {
+      this.encoded = encoded;
+      this.length = length;
+    }
+
+    @Override
+    char asciiCharAt(int index) {
+      byte b = encoded[index];
+      return b >= 0 ? (char) b : '\uFFFD';
+    }
+
+    @Override
+    int indexOf(char ch, int start, int end) {
+      assert ch < 0x80;
+      for (int i = start; i < end; i++) {
+        if (encoded[i] == ch) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    int length() {
+      return length;
+    }
+
+    @Override
+    String substring(int start, int end) {
+      return new String(encoded, start, end - start, UTF_8);
+    }
+  }
+
   /**
    * Enumeration used to provided typed instance readers.
    */
@@ -372,17 +563,41 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
   private final SerializationPolicyProvider serializationPolicyProvider;
 
   /**
-   * Used to look up setter methods of the form 'void Class.setXXX(T value)'
-   * given a Class type and a field name XXX corresponding to a field of type T.
+   * The deserialization plans built for each {@link SerializationPolicy}.
    */
-  private final Map<Class<?>, Map<String, Method>> settersByClass =
-      new HashMap<Class<?>, Map<String, Method>>();
+  private static final Map<SerializationPolicy, ConcurrentMap<Class<?>, DeserializationPlan>>
+      PLANS_BY_POLICY = Collections.synchronizedMap(
+          new WeakHashMap<SerializationPolicy, ConcurrentMap<Class<?>, DeserializationPlan>>());
 
-  private String[] stringTable;
+  /**
+   * The deserialization plans for {@link #serializationPolicy}, or null if they
+   * have not been looked up yet.
+   */
+  private Map<Class<?>, DeserializationPlan> deserializationPlans;
+
+  private EncodedRequest encodedRequest;
+
+  /**
+   * The number of tokens in {@link #encodedRequest}, or -1 if not counted yet.
+   */
+  private int numberOfTokens;
+
+  /**
+   * The start of the next token in {@link #encodedRequest}.
+   */
+  private int position;
 
-  private final ArrayList<String> tokenList = new ArrayList<String>();
+  /**
+   * The entries of the string table, decoded on first use; null for entries
+   * that have not been decoded yet.
+   */
+  private String[] stringTable;
 
-  private int tokenListIndex;
+  /**
+   * The start and end indices of the string table entries in
+   * {@link #encodedRequest}, two per entry.
+   */
+  private int[] stringTableBounds;
 
   {
     CLASS_TO_VECTOR_READER.put(boolean[].class, VectorReader.BOOLEAN_VECTOR);
@@ -436,7 +651,16 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
   }
 
   public int getNumberOfTokens() {
-    return tokenList.size();
+    if (numberOfTokens < 0) {
+      int count = 0;
+      int end = encodedRequest.length();
+      int idx = -1;
+      while (-1 != (idx = encodedRequest.indexOf(RPC_SEPARATOR_CHAR, idx + 1, end))) {
+        ++count;
+      }
+      numberOfTokens = count;
+    }
+    return numberOfTokens;
   }
 
   public SerializationPolicy getSerializationPolicy() {
@@ -445,21 +669,39 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
 
   @Override
   public void prepareToRead(String encodedTokens) throws SerializationException {
-    tokenList.clear();
-    tokenListIndex = 0;
+    prepareToRead(new StringEncodedRequest(encodedTokens), encodedTokens);
+  }
+
+  /**
+   * Prepares to read a request from its UTF-8 encoding, without decoding it
+   * into a String first.
+   *
+   * @param encodedTokens the UTF-8 encoded request
+   * @param length the number of bytes of {@code encodedTokens} holding the
+   *          request
+   */
+  public void prepareToRead(byte[] encodedTokens, int length) throws SerializationException {
+    prepareToRead(new Utf8EncodedRequest(encodedTokens, length), null);
+  }
+
+  /**
+   * @param encodedTokens the request as a String, or null if it is only
+   *          available as bytes
+   */
+  private void prepareToRead(EncodedRequest request, String encodedTokens)
+      throws SerializationException {
+    encodedRequest = request;
+    numberOfTokens = -1;
+    position = 0;
     stringTable = null;
+    stringTableBounds = null;
 
-    int idx = 0, nextIdx;
-    while (-1 != (nextIdx = encodedTokens.indexOf(RPC_SEPARATOR_CHAR, idx))) {
-      String current = encodedTokens.substring(idx, nextIdx);
-      tokenList.add(current);
-      idx = nextIdx + 1;
-    }
-    if (idx == 0) {
+    if (-1 == request.indexOf(RPC_SEPARATOR_CHAR, 0, request.length())) {
       // Didn't find any separator, assume an older version with different
       // separators and get the version as the sequence of digits at the
       // beginning of the encoded string.
-      while (idx < encodedTokens.length() && Character.isDigit(encodedTokens.charAt(idx))) {
+      int idx = 0;
+      while (idx < request.length() && Character.isDigit(request.asciiCharAt(idx))) {
         ++idx;
       }
       if (idx == 0) {
@@ -467,7 +709,7 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
             "Malformed or old RPC message received - expecting version between "
                 + SERIALIZATION_STREAM_MIN_VERSION + " and " + SERIALIZATION_STREAM_VERSION);
       } else {
-        int version = Integer.valueOf(encodedTokens.substring(0, idx));
+        int version = Integer.valueOf(request.substring(0, idx));
         throw new IncompatibleRemoteServiceException("Expecting version between "
             + SERIALIZATION_STREAM_MIN_VERSION + " and " + SERIALIZATION_STREAM_VERSION
             + " from client, got " + version + ".");
@@ -504,6 +746,7 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
 
       serializationPolicy =
           serializationPolicyProvider.getSerializationPolicy(moduleBaseURL, strongName);
+      deserializationPlans = null;
 
       if (serializationPolicy == null) {
         throw new NullPointerException("serializationPolicyProvider.getSerializationPolicy()");
@@ -513,7 +756,9 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
 
   @Override
   public boolean readBoolean() throws SerializationException {
-    return !extract().equals("0");
+    int start = position;
+    int end = nextTokenEnd();
+    return !(end - start == 1 && encodedRequest.asciiCharAt(start) == '0');
   }
 
   @Override
@@ -544,7 +789,29 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
 
   @Override
   public int readInt() throws SerializationException {
-    String value = extract();
+    int start = position;
+    int end = nextTokenEnd();
+
+    // Parse the common case of an optional minus sign and up to 9 digits in
+    // place; anything else is left to Integer.parseInt.
+    boolean negative = end > start && encodedRequest.asciiCharAt(start) == '-';
+    int digitsStart = negative ? start + 1 : start;
+    if (end > digitsStart && end - digitsStart <= 9) {
+      int result = 0;
+      int idx = digitsStart;
+      for (; idx < end; idx++) {
+        int digit = encodedRequest.asciiCharAt(idx) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        result = result * 10 + digit;
+      }
+      if (idx == end) {
+        return negative ? -result : result;
+      }
+    }
+
+    String value = encodedRequest.substring(start, end);
     try {
       return Integer.parseInt(value);
     } catch (NumberFormatException e) {
@@ -727,7 +994,14 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
     // index is 1-based
     assert (index > 0);
     assert (index <= stringTable.length);
-    return stringTable[index - 1];
+    String str = stringTable[index - 1];
+    if (str == null) {
+      // Entries containing escapes were decoded upfront, so this is a plain substring.
+      str = encodedRequest.substring(stringTableBounds[2 * index - 2],
+          stringTableBounds[2 * index - 1]);
+      stringTable[index - 1] = str;
+    }
+    return str;
   }
 
   /**
@@ -781,20 +1055,8 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
       Type[] expectedParameterTypes, DequeMap<TypeVariable<?>, Type> resolvedTypes) throws
       SerializationException, IllegalAccessException, NoSuchMethodException,
       InvocationTargetException, ClassNotFoundException {
-    /**
-     * A map from field names to corresponding setter methods. The reference
-     * will be null for classes that do not require special handling for
-     * server-only fields.
-     */
-    Map<String, Method> setters = null;
-
-    /**
-     * A list of fields of this class known to the client. If null, assume the
-     * class is not enhanced and don't attempt to deal with server-only fields.
-     */
-    Set<String> clientFieldNames =
-        serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass);
-    if (clientFieldNames != null) {
+    DeserializationPlan plan = getDeserializationPlan(instanceClass);
+    if (plan.enhanced) {
       // Read and set server-only instance fields encoded in the RPC data
       try {
         String encodedData = readString();
@@ -817,49 +1079,35 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
       } catch (NoSuchFieldException e) {
         throw new SerializationException(e);
       }
-
-      setters = getSetters(instanceClass);
     }
 
-    Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass);
-    for (Field declField : serializableFields) {
-      assert (declField != null);
-      if ((clientFieldNames != null) && !clientFieldNames.contains(declField.getName())) {
-        continue;
-      }
+    Field[] clientFields = plan.clientFields;
+    for (int i = 0; i < clientFields.length; i++) {
+      Field declField = clientFields[i];
+      Object value =
+          deserializeValue(declField.getType(), declField.getGenericType(), resolvedTypes);
 
-      Type declGenericType = declField.getGenericType();
-      Object value = deserializeValue(declField.getType(), declGenericType, resolvedTypes);
-
-      String fieldName = declField.getName();
-      Method setter;
       /*
-       * If setters is non-null and there is a setter method for the given
-       * field, call the setter. Otherwise, set the field value directly. For
-       * persistence APIs such as JDO, the setter methods have been enhanced to
-       * manipulate additional object state, causing direct field writes to fail
-       * to update the object state properly.
+       * If there is a setter method for the given field, call the setter.
+       * Otherwise, set the field value directly. For persistence APIs such as
+       * JDO, the setter methods have been enhanced to manipulate additional
+       * object state, causing direct field writes to fail to update the object
+       * state properly.
        */
-      if ((setters != null) && ((setter = setters.get(fieldName)) != null)) {
+      Method setter = plan.clientFieldSetters == null ? null : plan.clientFieldSetters[i];
+      if (setter != null) {
         setter.invoke(instance, value);
       } else {
-        boolean isAccessible = declField.isAccessible();
-        boolean needsAccessOverride = !isAccessible && !Modifier.isPublic(declField.getModifiers());
-        if (needsAccessOverride) {
-          // Override access restrictions
-          declField.setAccessible(true);
-        }
-
         declField.set(instance, value);
       }
     }
 
-    Class<?> superClass = instanceClass.getSuperclass();
-    if (serializationPolicy.shouldDeserializeFields(superClass)) {
+    Class<?> superClass = plan.superClass;
+    if (superClass != null) {
       Type[] superParameterTypes = SerializabilityUtil.findExpectedParameterTypes(
           superClass, superClass, resolvedTypes);
-      deserializeImpl(SerializabilityUtil.hasServerCustomFieldSerializer(superClass), superClass,
-          instance, expectedType, superParameterTypes, resolvedTypes);
+      deserializeImpl(plan.superClassCustomSerializer, superClass, instance, expectedType,
+          superParameterTypes, resolvedTypes);
     }
   }
 
@@ -907,61 +1155,34 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
     return instance;
   }
 
+  /**
+   * Locates the entries of the string table. Entries are only decoded when they
+   * are first read, except for those with escaped characters, which are
+   * decoded right away so that malformed escapes are reported here.
+   */
   private void deserializeStringTable() throws SerializationException {
     int typeNameCount = readInt();
-    BoundedList<String> buffer = new BoundedList<String>(String.class, typeNameCount);
+    if (typeNameCount < 0) {
+      throw new SerializationException("Expected " + typeNameCount
+          + " string table elements; received 0");
+    }
+    if (typeNameCount > getNumberOfTokens()) {
+      throw new SerializationException("Too few tokens in RPC request");
+    }
+    String[] strings = new String[typeNameCount];
+    int[] bounds = new int[2 * typeNameCount];
     for (int typeNameIndex = 0; typeNameIndex < typeNameCount; ++typeNameIndex) {
-      String str = extract();
-      // Change quoted characters back.
-      int idx = str.indexOf('\\');
-      if (idx >= 0) {
-        StringBuilder buf = new StringBuilder();
-        int pos = 0;
-        while (idx >= 0) {
-          buf.append(str.substring(pos, idx));
-          if (++idx == str.length()) {
-            throw new SerializationException("Unmatched backslash: \"" + str + "\"");
-          }
-          char ch = str.charAt(idx);
-          pos = idx + 1;
-          switch (ch) {
-            case '0':
-              buf.append('\u0000');
-              break;
-            case '!':
-              buf.append(RPC_SEPARATOR_CHAR);
-              break;
-            case '\\':
-              buf.append(ch);
-              break;
-            case 'u':
-              try {
-                ch = (char) Integer.parseInt(str.substring(idx + 1, idx + 5), 16);
-              } catch (NumberFormatException e) {
-                throw new SerializationException("Invalid Unicode escape sequence in \"" + str
-                    + "\"");
-              }
-              buf.append(ch);
-              pos += 4;
-              break;
-            default:
-              throw new SerializationException("Unexpected escape character " + ch
-                  + " after backslash: \"" + str + "\"");
-          }
-          idx = str.indexOf('\\', pos);
-        }
-        buf.append(str.substring(pos));
-        str = buf.toString();
+      int start = position;
+      int end = nextTokenEnd();
+      bounds[2 * typeNameIndex] = start;
+      bounds[2 * typeNameIndex + 1] = end;
+      if (encodedRequest.indexOf('\\', start, end) >= 0) {
+        strings[typeNameIndex] = unescape(encodedRequest.substring(start, end));
       }
-      buffer.add(str);
-    }
-
-    if (buffer.size() != buffer.getExpectedSize()) {
-      throw new SerializationException("Expected " + buffer.getExpectedSize()
-          + " string table elements; received " + buffer.size());
     }
 
-    stringTable = buffer.toArray(new String[buffer.getExpectedSize()]);
+    stringTable = strings;
+    stringTableBounds = bounds;
   }
 
   private void deserializeWithCustomFieldDeserializer(Class<?> customSerializer,
@@ -988,11 +1209,34 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
   }
 
   private String extract() throws SerializationException {
-    try {
-      return tokenList.get(tokenListIndex++);
-    } catch (IndexOutOfBoundsException e) {
-      throw new SerializationException("Too few tokens in RPC request", e);
+    int start = position;
+    return encodedRequest.substring(start, nextTokenEnd());
+  }
+
+  /**
+   * Returns the plan for deserializing the fields of {@code instanceClass} under
+   * the current serialization policy, building and caching it on first use.
+   */
+  private DeserializationPlan getDeserializationPlan(Class<?> instanceClass) {
+    if (deserializationPlans == null) {
+      synchronized (PLANS_BY_POLICY) {
+        ConcurrentMap<Class<?>, DeserializationPlan> plans =
+            PLANS_BY_POLICY.get(serializationPolicy);
+        if (plans == null) {
+          plans = new ConcurrentHashMap<Class<?>, DeserializationPlan>();
+          PLANS_BY_POLICY.put(serializationPolicy, plans);
+        }
+        deserializationPlans = plans;
+      }
     }
+
+    DeserializationPlan plan = deserializationPlans.get(instanceClass);
+    if (plan == null) {
+      // Racing threads build equivalent plans, so it does not matter which one is kept.
+      plan = new DeserializationPlan(serializationPolicy, instanceClass);
+      deserializationPlans.put(instanceClass, plan);
+    }
+    return plan;
   }
 
   /**
@@ -1027,7 +1271,8 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
 
   /**
    * Returns a Map from a field name to the setter method for that field, for a
-   * given class. The results are computed once for each class and cached.
+   * given class. The results are computed once for each class and policy, when
+   * its {@link DeserializationPlan} is built.
    * 
    * @param instanceClass the class to query
    * @return a Map from Strings to Methods such that the name <code>XXX</code>
@@ -1035,35 +1280,27 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
    *         <code>void setXXX(T value)</code>, or null if no such method
    *         exists.
    */
-  private Map<String, Method> getSetters(Class<?> instanceClass) {
-    synchronized (settersByClass) {
-      Map<String, Method> setters = settersByClass.get(instanceClass);
-      if (setters == null) {
-        setters = new HashMap<String, Method>();
-
-        // Iterate over each field and locate a suitable setter method
-        Field[] fields = instanceClass.getDeclaredFields();
-        for (Field field : fields) {
-          // Consider non-final, non-static, non-transient (or @GwtTransient)
-          // fields only
-          if (SerializabilityUtil.isNotStaticTransientOrFinal(field)) {
-            String fieldName = field.getName();
-            String setterName =
-                "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-            try {
-              Method setter = instanceClass.getMethod(setterName, field.getType());
-              setters.put(fieldName, setter);
-            } catch (NoSuchMethodException e) {
-              // Just leave this field out of the map
-            }
-          }
+  private static Map<String, Method> getSetters(Class<?> instanceClass) {
+    Map<String, Method> setters = new HashMap<String, Method>();
+
+    // Iterate over each field and locate a suitable setter method
+    Field[] fields = instanceClass.getDeclaredFields();
+    for (Field field : fields) {
+      // Consider non-final, non-static, non-transient (or @GwtTransient)
+      // fields only
+      if (SerializabilityUtil.isNotStaticTransientOrFinal(field)) {
+        String fieldName = field.getName();
+        String setterName =
+            "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        try {
+          Method setter = instanceClass.getMethod(setterName, field.getType());
+          setters.put(fieldName, setter);
+        } catch (NoSuchMethodException e) {
+          // Just leave this field out of the map
         }
-
-        settersByClass.put(instanceClass, setters);
       }
-
-      return setters;
     }
+    return setters;
   }
 
   private Object instantiate(Class<?> customSerializer, Class<?> instanceClass,
@@ -1138,6 +1375,64 @@ public final class ServerSerializationStreamReader extends AbstractSerialization
     return cl.getTypeParameters().length == 0 && cl.getEnclosingClass() == null;
   }
 
+  /**
+   * Advances past the next token and returns the index where it ends.
+   *
+   * @throws SerializationException if there are no more tokens
+   */
+  private int nextTokenEnd() throws SerializationException {
+    int end = encodedRequest.indexOf(RPC_SEPARATOR_CHAR, position, encodedRequest.length());
+    if (end == -1) {
+      throw new SerializationException("Too few tokens in RPC request");
+    }
+    position = end + 1;
+    return end;
+  }
+
+  /**
+   * Changes quoted characters back.
+   */
+  private String unescape(String str) throws SerializationException {
+    int idx = str.indexOf('\\');
+    StringBuilder buf = new StringBuilder();
+    int pos = 0;
+    while (idx >= 0) {
+      buf.append(str.substring(pos, idx));
+      if (++idx == str.length()) {
+        throw new SerializationException("Unmatched backslash: \"" + str + "\"");
+      }
+      char ch = str.charAt(idx);
+      pos = idx + 1;
+      switch (ch) {
+        case '0':
+          buf.append('\u0000');
+          break;
+        case '!':
+          buf.append(RPC_SEPARATOR_CHAR);
+          break;
+        case '\\':
+          buf.append(ch);
+          break;
+        case 'u':
+          try {
+            ch = (char) Integer.parseInt(str.substring(idx + 1, idx + 5), 16);
+          } catch (NumberFormatException e) {
+            throw new SerializationException("Invalid Unicode escape sequence in \"" + str
+                + "\"");
+          }
+          buf.append(ch);
+          pos += 4;
+          break;
+        default:
+          throw new SerializationException("Unexpected escape character " + ch
+              + " after backslash: \"" + str + "\"");
+      }
+      idx = str.indexOf('\\', pos);
+    }
+    buf.append(str.substring(pos));
+    return buf.toString();
+  }
+
   private void validateTypeVersions(Class<?> instanceClass,
       SerializedInstanceReference serializedInstRef) throws SerializationException {
     String clientTypeSignature = serializedInstRef.getSignature();
@@ -24,16 +24,21 @@ import com.google.gwt.user.server.rpc.SerializationPolicy;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * For internal use only. Used for server call serialization. This class is
@@ -100,6 +105,289 @@ public final class ServerSerializationStreamWriter extends
     }
   }
 
+  /**
+   * Writes the same array expression as {@link LengthConstrainedArray} directly
+   * to a {@link Writer}, without buffering the tokens.
+   */
+  private static class LengthConstrainedArrayWriter {
+    private int count = 0;
+    private boolean needsComma = false;
+    private int total = 0;
+    private final Writer writer;
+
+    public LengthConstrainedArrayWriter(Writer writer) throws IOException {
+      this.writer = writer;
+      writer.write('[');
+    }
+
+    public void addToken(String token) throws IOException {
+      startToken();
+      writer.write(String.valueOf(token));
+    }
+
+    public void addToken(int i) throws IOException {
+      addToken(String.valueOf(i));
+    }
+
+    public void close() throws IOException {
+      if (total > LengthConstrainedArray.MAXIMUM_ARRAY_LENGTH) {
+        writer.write(LengthConstrainedArray.POSTLUDE);
+      } else {
+        writer.write(']');
+      }
+    }
+
+    /**
+     * Starts a token whose content the caller writes to the underlying writer.
+     */
+    public void startToken() throws IOException {
+      total++;
+      if (count++ == LengthConstrainedArray.MAXIMUM_ARRAY_LENGTH) {
+        if (total == LengthConstrainedArray.MAXIMUM_ARRAY_LENGTH + 1) {
+          writer.write(LengthConstrainedArray.PRELUDE);
+        } else {
+          writer.write("],[");
+        }
+        count = 0;
+        needsComma = false;
+      }
+
+      if (needsComma) {
+        writer.write(',');
+      } else {
+        needsComma = true;
+      }
+    }
+  }
+
+  /**
+   * The precomputed steps for serializing instances of one class under one
+   * {@link SerializationPolicy}. Everything that only depends on the class and
+   * the policy, such as the custom field serializer, the serializable fields
+   * and their value writers, is resolved when the plan is built, so that
+   * serializing an instance requires neither cache lookups nor policy queries.
+   */
+  private static final class SerializationPlan {
+
+    /**
+     * The fields known to the client, made accessible.
+     */
+    private Field[] clientFields;
+
+    /**
+     * The writers for the values of {@link #clientFields}, in the same order.
+     */
+    private ValueWriter[] clientFieldWriters;
+
+    /**
+     * The custom field serializer class, or null if the fields are serialized
+     * by reflection.
+     */
+    private Class<?> customSerializer;
+
+    /**
+     * The custom field serializer instance, or null if the custom field
+     * serializer only provides a static serialize method.
+     */
+    private CustomFieldSerializer<Object> customFieldSerializer;
+
+    /**
+     * The static serialize method of a custom field serializer that does not
+     * implement {@link CustomFieldSerializer}, or null if there is none.
+     */
+    private Method customSerializeMethod;
+
+    private final Class<?> instanceClass;
+
+    /**
+     * The server-only fields of an enhanced class, made accessible, or null if
+     * the class is not enhanced.
+     */
+    private Field[] serverFields;
+
+    /**
+     * The plan for the fields of the superclass, or null if they are not
+     * serialized.
+     */
+    private SerializationPlan superclassPlan;
+
+    /**
+     * The writer for an array class, or null if the class is not an array.
+     */
+    private VectorWriter vectorWriter;
+
+    private SerializationPlan(Class<?> instanceClass) {
+      this.instanceClass = instanceClass;
+    }
+
+    void serialize(ServerSerializationStreamWriter stream, Object instance)
+        throws SerializationException {
+      if (customFieldSerializer != null) {
+        customFieldSerializer.serializeInstance(stream, instance);
+      } else if (customSerializer != null) {
+        serializeWithCustomSerializer(stream, instance);
+      } else if (vectorWriter != null) {
+        vectorWriter.write(stream, instance);
+      } else if (instanceClass.isEnum()) {
+        stream.writeInt(((Enum<?>) instance).ordinal());
+      } else {
+        serializeFields(stream, instance);
+      }
+    }
+
+    /**
+     * Resolves the steps for serializing {@link #instanceClass}.
+     */
+    private void build(SerializationPolicy serializationPolicy,
+        Map<Class<?>, SerializationPlan> plans) throws SerializationException {
+      customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
+      if (customSerializer != null) {
+        @SuppressWarnings("unchecked")
+        CustomFieldSerializer<Object> serializer =
+            (CustomFieldSerializer<Object>)
+                SerializabilityUtil.loadCustomFieldSerializer(customSerializer);
+        customFieldSerializer = serializer;
+        if (customFieldSerializer == null) {
+          assert (!instanceClass.isArray());
+          for (Method method : customSerializer.getMethods()) {
+            if ("serialize".equals(method.getName())) {
+              customSerializeMethod = method;
+              break;
+            }
+          }
+        }
+        return;
+      }
+
+      if (instanceClass.isArray()) {
+        vectorWriter = CLASS_TO_VECTOR_WRITER.get(instanceClass);
+        if (vectorWriter == null) {
+          vectorWriter = VectorWriter.OBJECT_VECTOR;
+        }
+        return;
+      }
+
+      if (instanceClass.isEnum()) {
+        return;
+      }
+
+      Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass);
+
+      /*
+       * If clientFieldNames is non-null, identify any additional server-only
+       * fields; they are serialized separately.
+       */
+      Set<String> clientFieldNames =
+          serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass);
+      List<Field> clientFieldList = new ArrayList<Field>();
+      List<Field> serverFieldList = new ArrayList<Field>();
+      for (Field declField : serializableFields) {
+        assert (declField != null);
+        if ((clientFieldNames != null) && !clientFieldNames.contains(declField.getName())) {
+          declField.setAccessible(true);
+          serverFieldList.add(declField);
+        } else {
+          boolean isAccessible = declField.isAccessible();
+          boolean needsAccessOverride = !isAccessible
+              && !Modifier.isPublic(declField.getModifiers());
+          if (needsAccessOverride) {
+            // Override the access restrictions
+            declField.setAccessible(true);
+          }
+          clientFieldList.add(declField);
+        }
+      }
+
+      clientFields = clientFieldList.toArray(new Field[clientFieldList.size()]);
+      clientFieldWriters = new ValueWriter[clientFields.length];
+      for (int i = 0; i < clientFields.length; i++) {
+        ValueWriter valueWriter = CLASS_TO_VALUE_WRITER.get(clientFields[i].getType());
+        // Arrays of primitive or reference types need to go through writeObject.
+        clientFieldWriters[i] = valueWriter != null ? valueWriter : ValueWriter.OBJECT;
+      }
+      if (clientFieldNames != null) {
+        serverFields = serverFieldList.toArray(new Field[serverFieldList.size()]);
+      }
+
+      Class<?> superClass = instanceClass.getSuperclass();
+      if (serializationPolicy.shouldSerializeFields(superClass)) {
+        superclassPlan = getSerializationPlan(serializationPolicy, plans, superClass);
+      }
+    }
+
+    private void serializeFields(ServerSerializationStreamWriter stream, Object instance)
+        throws SerializationException {
+      try {
+        if (serverFields != null) {
+          serializeServerFields(stream, instance);
+        }
+
+        // Write the client-visible field data
+        for (int i = 0; i < clientFields.length; i++) {
+          clientFieldWriters[i].write(stream, clientFields[i].get(instance));
+        }
+      } catch (IllegalArgumentException e) {
+        throw new SerializationException(e);
+
+      } catch (IllegalAccessException e) {
+        throw new SerializationException(e);
+      }
+
+      if (superclassPlan != null) {
+        superclassPlan.serialize(stream, instance);
+      }
+    }
+
+    /**
+     * Serializes the server-only fields of an enhanced class. Java serialization
+     * is used to construct a byte array, which is encoded as a String and written
+     * prior to the rest of the field data.
+     */
+    private void serializeServerFields(ServerSerializationStreamWriter stream, Object instance)
+        throws IllegalAccessException, SerializationException {
+      try {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeInt(serverFields.length);
+        for (Field f : serverFields) {
+          oos.writeObject(f.getName());
+          oos.writeObject(f.get(instance));
+        }
+        oos.close();
+
+        byte[] serializedData = baos.toByteArray();
+        String encodedData = Base64Utils.toBase64(serializedData);
+        stream.writeString(encodedData);
+      } catch (IOException e) {
+        throw new SerializationException(e);
+      }
+    }
+
+    private void serializeWithCustomSerializer(ServerSerializationStreamWriter stream,
+        Object instance) throws SerializationException {
+      try {
+        if (customSerializeMethod == null) {
+          throw new NoSuchMethodException("serialize");
+        }
+        customSerializeMethod.invoke(null, stream, instance);
+      } catch (SecurityException e) {
+        throw new SerializationException(e);
+
+      } catch (NoSuchMethodException e) {
+        throw new SerializationException(e);
+
+      } catch (IllegalArgumentException e) {
+        throw new SerializationException(e);
+
+      } catch (IllegalAccessException e) {
+        throw new SerializationException(e);
+
+      } catch (InvocationTargetException e) {
+        throw new SerializationException(e);
+      }
+    }
+  }
+
   /**
    * Enumeration used to provided typed instance writers.
    */
@@ -290,6 +578,15 @@ public final class ServerSerializationStreamWriter extends
    */
   private static final Map<Class<?>, VectorWriter> CLASS_TO_VECTOR_WRITER = new IdentityHashMap<Class<?>, VectorWriter>();
 
+  /**
+   * The serialization plans built for each {@link SerializationPolicy}. Plans
+   * are only reused with the policy they were built for, since the policy
+   * decides which superclass fields and which server-only fields are written.
+   */
+  private static final Map<SerializationPolicy, ConcurrentMap<Class<?>, SerializationPlan>>
+      PLANS_BY_POLICY = Collections.synchronizedMap(
+          new WeakHashMap<SerializationPolicy, ConcurrentMap<Class<?>, SerializationPlan>>());
+
   /**
    * Number of escaped JS Chars.
    */
@@ -450,6 +747,39 @@ public final class ServerSerializationStreamWriter extends
     }
   }
 
+  /**
+   * Returns the plan for serializing instances of {@code instanceClass} under
+   * {@code serializationPolicy}, building and caching it in {@code plans} on
+   * first use.
+   */
+  private static SerializationPlan getSerializationPlan(SerializationPolicy serializationPolicy,
+      Map<Class<?>, SerializationPlan> plans, Class<?> instanceClass)
+      throws SerializationException {
+    SerializationPlan plan = plans.get(instanceClass);
+    if (plan == null) {
+      plan = new SerializationPlan(instanceClass);
+      plan.build(serializationPolicy, plans);
+      // Racing threads build equivalent plans, so it does not matter which one is kept.
+      plans.put(instanceClass, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the serialization plans cached for {@code serializationPolicy}.
+   */
+  private static ConcurrentMap<Class<?>, SerializationPlan> getSerializationPlans(
+      SerializationPolicy serializationPolicy) {
+    synchronized (PLANS_BY_POLICY) {
+      ConcurrentMap<Class<?>, SerializationPlan> plans = PLANS_BY_POLICY.get(serializationPolicy);
+      if (plans == null) {
+        plans = new ConcurrentHashMap<Class<?>, SerializationPlan>();
+        PLANS_BY_POLICY.put(serializationPolicy, plans);
+      }
+      return plans;
+    }
+  }
+
   /**
    * Returns <code>true</code> if the character requires the \\uXXXX unicode
    * character escape sequence. This is necessary if the raw character could be
@@ -562,12 +892,19 @@ public final class ServerSerializationStreamWriter extends
 
   private final SerializationPolicy serializationPolicy;
 
+  /**
+   * The serialization plans for {@link #serializationPolicy}, shared with all
+   * other writers using the same policy.
+   */
+  private final Map<Class<?>, SerializationPlan> serializationPlans;
+
   private ArrayList<String> tokenList = new ArrayList<String>();
 
   private int tokenListCharCount;
 
   public ServerSerializationStreamWriter(SerializationPolicy serializationPolicy) {
     this.serializationPolicy = serializationPolicy;
+    this.serializationPlans = getSerializationPlans(serializationPolicy);
   }
 
   @Override
@@ -608,7 +945,36 @@ public final class ServerSerializationStreamWriter extends
 
     return stream.toString();
   }
-  
+
+  /**
+   * Writes the same JavaScript expression as {@link #toString()} to
+   * <code>writer</code>, one token at a time, so that large responses do not
+   * have to be built as a single string. The writer is neither flushed nor
+   * closed.
+   */
+  public void writeTo(Writer writer) throws IOException {
+    LengthConstrainedArrayWriter stream = new LengthConstrainedArrayWriter(writer);
+
+    // Payload, in reverse.
+    ListIterator<String> tokenIterator = tokenList.listIterator(tokenList.size());
+    while (tokenIterator.hasPrevious()) {
+      stream.addToken(tokenIterator.previous());
+    }
+
+    // String table, as a nested array.
+    stream.startToken();
+    LengthConstrainedArrayWriter tableStream = new LengthConstrainedArrayWriter(writer);
+    for (String s : getStringTable()) {
+      tableStream.addToken(escapeStringSplitNodes(s));
+    }
+    tableStream.close();
+
+    // Header.
+    stream.addToken(getFlags());
+    stream.addToken(getVersion());
+    stream.close();
+  }
+
   @Override
   public void writeLong(long value) {
     if (getVersion() == SERIALIZATION_STREAM_MIN_VERSION) {
@@ -666,165 +1032,7 @@ public final class ServerSerializationStreamWriter extends
     } catch (SerializationException e) {
       throw new SerializationException(e.getMessage() + ": instance = " + instance);
     }
-    serializeImpl(instance, clazz);
-  }
-
-  /**
-   * Serialize an instance that is an array. Will default to serializing the
-   * instance as an Object vector if the instance is not a vector of primitives,
-   * Strings or Object.
-   * 
-   * @param instanceClass
-   * @param instance
-   * @throws SerializationException
-   */
-  private void serializeArray(Class<?> instanceClass, Object instance)
-      throws SerializationException {
-    assert (instanceClass.isArray());
-
-    VectorWriter instanceWriter = CLASS_TO_VECTOR_WRITER.get(instanceClass);
-    if (instanceWriter != null) {
-      instanceWriter.write(this, instance);
-    } else {
-      VectorWriter.OBJECT_VECTOR.write(this, instance);
-    }
-  }
-
-  private void serializeClass(Object instance, Class<?> instanceClass)
-      throws SerializationException {
-    assert (instance != null);
-    Field[] serializableFields = SerializabilityUtil.applyFieldSerializationPolicy(instanceClass);
-
-    /**
-     * If clientFieldNames is non-null, identify any additional server-only fields and serialize
-     * them separately.  Java serialization is used to construct a byte array, which is encoded
-     * as a String and written prior to the rest of the field data.
-     */
-    Set<String> clientFieldNames = serializationPolicy.getClientFieldNamesForEnhancedClass(instanceClass);
-    if (clientFieldNames != null) {
-      List<Field> serverFields = new ArrayList<Field>();
-      for (Field declField : serializableFields) {
-        assert (declField != null);
-        
-        // Identify server-only fields
-        if (!clientFieldNames.contains(declField.getName())) {
-          serverFields.add(declField);
-          continue;
-        }
-      }
-      
-      // Serialize the server-only fields into a byte array and encode as a String
-      try {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(baos);
-        oos.writeInt(serverFields.size());
-        for (Field f : serverFields) {
-          oos.writeObject(f.getName());
-          f.setAccessible(true);
-          Object fieldData = f.get(instance);
-          oos.writeObject(fieldData);
-        }
-        oos.close();
-
-        byte[] serializedData = baos.toByteArray();
-        String encodedData = Base64Utils.toBase64(serializedData);
-        writeString(encodedData);
-      } catch (IllegalAccessException e) {
-        throw new SerializationException(e);
-      } catch (IOException e) {
-        throw new SerializationException(e);
-      }
-    }
-    
-    // Write the client-visible field data
-    for (Field declField : serializableFields) {
-      if ((clientFieldNames != null) && !clientFieldNames.contains(declField.getName())) {
-        // Skip server-only fields
-        continue;
-      }
-
-      boolean isAccessible = declField.isAccessible();
-      boolean needsAccessOverride = !isAccessible
-          && !Modifier.isPublic(declField.getModifiers());
-      if (needsAccessOverride) {
-        // Override the access restrictions
-        declField.setAccessible(true);
-      }
-
-      Object value;
-      try {
-        value = declField.get(instance);
-        serializeValue(value, declField.getType());
-
-      } catch (IllegalArgumentException e) {
-        throw new SerializationException(e);
-
-      } catch (IllegalAccessException e) {
-        throw new SerializationException(e);
-      }
-    }
-
-    Class<?> superClass = instanceClass.getSuperclass();
-    if (serializationPolicy.shouldSerializeFields(superClass)) {
-      serializeImpl(instance, superClass);
-    }
-  }
-
-  private void serializeImpl(Object instance, Class<?> instanceClass)
-      throws SerializationException {
-    assert (instance != null);
-
-    Class<?> customSerializer = SerializabilityUtil.hasCustomFieldSerializer(instanceClass);
-    if (customSerializer != null) {
-      // Use custom field serializer
-      @SuppressWarnings("unchecked")
-      CustomFieldSerializer<Object> customFieldSerializer =
-          (CustomFieldSerializer<Object>)
-              SerializabilityUtil.loadCustomFieldSerializer(customSerializer);
-      if (customFieldSerializer == null) {
-        serializeWithCustomSerializer(customSerializer, instance,
-            instanceClass);
-      } else {
-        customFieldSerializer.serializeInstance(this, instance);
-      }
-    } else if (instanceClass.isArray()) {
-      serializeArray(instanceClass, instance);
-    } else if (instanceClass.isEnum()) {
-      writeInt(((Enum<?>) instance).ordinal());
-    } else {
-      // Regular class instance
-      serializeClass(instance, instanceClass);
-    }
-  }
-
-  private void serializeWithCustomSerializer(Class<?> customSerializer,
-      Object instance, Class<?> instanceClass) throws SerializationException {
-
-    try {
-      assert (!instanceClass.isArray());
-
-      for (Method method : customSerializer.getMethods()) {
-        if ("serialize".equals(method.getName())) {
-          method.invoke(null, this, instance);
-          return;
-        }
-      }
-      throw new NoSuchMethodException("serialize");
-    } catch (SecurityException e) {
-      throw new SerializationException(e);
-
-    } catch (NoSuchMethodException e) {
-      throw new SerializationException(e);
-
-    } catch (IllegalArgumentException e) {
-      throw new SerializationException(e);
-
-    } catch (IllegalAccessException e) {
-      throw new SerializationException(e);
-
-    } catch (InvocationTargetException e) {
-      throw new SerializationException(e);
-    }
+    getSerializationPlan(serializationPolicy, serializationPlans, clazz).serialize(this, instance);
   }
 
   /**
@@ -202,6 +202,14 @@ public abstract class AbstractAutoBean<T> implements AutoBean<T>, HasSplittable
     }
   }
 
+  /**
+   * Returns the Coder for a property. Subtypes may override this to avoid the
+   * lookup in {@link AutoBeanCodexImpl#doCoderFor}.
+   */
+  protected Coder coderFor(String propertyName) {
+    return AutoBeanCodexImpl.doCoderFor(this, propertyName);
+  }
+
   protected T createSimplePeer() {
     throw new UnsupportedOperationException();
   }
@@ -236,7 +244,7 @@ public abstract class AbstractAutoBean<T> implements AutoBean<T>, HasSplittable
       return null;
     }
     data.setReified(propertyName, null);
-    Coder coder = AutoBeanCodexImpl.doCoderFor(this, propertyName);
+    Coder coder = coderFor(propertyName);
     @SuppressWarnings("unchecked")
     Q toReturn = (Q) coder.decode(EncodeState.forDecode(factory), data.get(propertyName));
     data.setReified(propertyName, toReturn);
@@ -273,7 +281,7 @@ public abstract class AbstractAutoBean<T> implements AutoBean<T>, HasSplittable
       Splittable.NULL.assign(data, propertyName);
       return;
     }
-    Coder coder = AutoBeanCodexImpl.doCoderFor(this, propertyName);
+    Coder coder = coderFor(propertyName);
     Splittable backing = coder.extractSplittable(EncodeState.forDecode(factory), value);
     if (backing == null) {
       /*
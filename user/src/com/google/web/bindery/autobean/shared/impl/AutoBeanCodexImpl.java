@@ -20,6 +20,7 @@ import com.google.web.bindery.autobean.shared.AutoBeanFactory;
 import com.google.web.bindery.autobean.shared.AutoBeanUtils;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor.ParameterizationVisitor;
+import com.google.web.bindery.autobean.shared.AutoBeanVisitor.PropertyContext;
 import com.google.web.bindery.autobean.shared.Splittable;
 import com.google.web.bindery.autobean.shared.ValueCodex;
 
@@ -349,9 +350,7 @@ public class AutoBeanCodexImpl {
     }
 
     private void maybeCreateCoder(String propertyName, PropertyContext ctx) {
-      CoderCreator creator = new CoderCreator();
-      ctx.accept(creator);
-      coderFor.put(key(bean, propertyName), creator.getCoder());
+      coderFor.put(key(bean, propertyName), coderFor(ctx));
     }
   }
 
@@ -400,9 +399,7 @@ public class AutoBeanCodexImpl {
     }
 
     private void encodeProperty(String propertyName, Object value, PropertyContext ctx) {
-      CoderCreator pd = new CoderCreator();
-      ctx.accept(pd);
-      Coder decoder = pd.getCoder();
+      Coder decoder = coderFor(ctx);
       if (first) {
         first = false;
       } else {
@@ -442,9 +439,7 @@ public class AutoBeanCodexImpl {
 
     protected void decodeProperty(String propertyName, PropertyContext ctx) {
       if (!data.isNull(propertyName)) {
-        CoderCreator pd = new CoderCreator();
-        ctx.accept(pd);
-        Coder decoder = pd.getCoder();
+        Coder decoder = coderFor(ctx);
         Object propertyValue = decoder.decode(state, data.get(propertyName));
         ctx.set(propertyValue);
       }
@@ -514,6 +509,26 @@ public class AutoBeanCodexImpl {
     return new CollectionCoder(type, elementCoder);
   }
 
+  /**
+   * Returns the Coder for a property, using the one retained by the context if
+   * it implements {@link HasCoder}.
+   */
+  public static Coder coderFor(PropertyContext ctx) {
+    if (ctx instanceof HasCoder) {
+      return ((HasCoder) ctx).getCoder();
+    }
+    return createCoder(ctx);
+  }
+
+  /**
+   * Creates a Coder for the declared parameterization of a property.
+   */
+  public static Coder createCoder(PropertyContext ctx) {
+    CoderCreator creator = new CoderCreator();
+    ctx.accept(creator);
+    return creator.getCoder();
+  }
+
   public static Coder doCoderFor(AutoBean<?> bean, String propertyName) {
     synchronized (coderFor) {
       String key = key(bean, propertyName);
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.autobean.shared.impl;
+
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl.Coder;
+
+/**
+ * Allows property contexts to retain the Coder for their property, so that it
+ * is not re-created every time a bean is encoded or decoded.
+ */
+public interface HasCoder {
+  /**
+   * Returns the Coder for the property, which is typically created once with
+   * {@link AutoBeanCodexImpl#createCoder}.
+   */
+  Coder getCoder();
+}
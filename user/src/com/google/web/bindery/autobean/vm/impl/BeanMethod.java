@@ -17,6 +17,7 @@ package com.google.web.bindery.autobean.vm.impl;
 
 import com.google.web.bindery.autobean.shared.AutoBean;
 import com.google.web.bindery.autobean.shared.AutoBean.PropertyName;
+import com.google.web.bindery.autobean.vm.impl.ProxyAutoBean.MethodData;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -39,11 +40,11 @@ public enum BeanMethod {
     }
 
     @Override
-    Object invoke(SimpleBeanHandler<?> handler, Method method, Object[] args) throws Throwable {
-      if (CALL.matches(handler, method)) {
-        return CALL.invoke(handler, method, args);
+    Object invoke(SimpleBeanHandler<?> handler, MethodData data, Object[] args) throws Throwable {
+      if (CALL.matches(handler, data.method)) {
+        return CALL.invoke(handler, data, args);
       }
-      return method.invoke(handler, args);
+      return data.method.invoke(handler, args);
     }
 
     @Override
@@ -68,11 +69,11 @@ public enum BeanMethod {
     }
 
     @Override
-    Object invoke(SimpleBeanHandler<?> handler, Method method, Object[] args) {
-      String propertyName = inferName(method);
-      Object toReturn = handler.getBean().getOrReify(propertyName);
-      if (toReturn == null && method.getReturnType().isPrimitive()) {
-        toReturn = TypeUtils.getDefaultPrimitiveValue(method.getReturnType());
+    Object invoke(SimpleBeanHandler<?> handler, MethodData data, Object[] args) {
+      Object toReturn = handler.getBean().getOrReify(data.propertyName);
+      Class<?> returnType = data.method.getReturnType();
+      if (toReturn == null && returnType.isPrimitive()) {
+        toReturn = TypeUtils.getDefaultPrimitiveValue(returnType);
       }
       return toReturn;
     }
@@ -99,8 +100,8 @@ public enum BeanMethod {
    */
   SET {
     @Override
-    Object invoke(SimpleBeanHandler<?> handler, Method method, Object[] args) {
-      handler.getBean().setProperty(inferName(method), args[0]);
+    Object invoke(SimpleBeanHandler<?> handler, MethodData data, Object[] args) {
+      handler.getBean().setProperty(data.propertyName, args[0]);
       return null;
     }
 
@@ -118,9 +119,9 @@ public enum BeanMethod {
    */
   SET_BUILDER {
     @Override
-    Object invoke(SimpleBeanHandler<?> handler, Method method, Object[] args) {
+    Object invoke(SimpleBeanHandler<?> handler, MethodData data, Object[] args) {
       ProxyAutoBean<?> bean = handler.getBean();
-      bean.setProperty(inferName(method), args[0]);
+      bean.setProperty(data.propertyName, args[0]);
       return bean.as();
     }
 
@@ -142,11 +143,12 @@ public enum BeanMethod {
     }
 
     @Override
-    Object invoke(SimpleBeanHandler<?> handler, Method method, Object[] args) throws Throwable {
+    Object invoke(SimpleBeanHandler<?> handler, MethodData data, Object[] args) throws Throwable {
       if (args == null) {
         args = EMPTY_OBJECT;
       }
 
+      Method method = data.method;
       Method found = findMethod(handler, method);
       if (found != null) {
         Object[] realArgs = new Object[args.length + 1];
@@ -238,7 +240,7 @@ public enum BeanMethod {
   /**
    * Invoke the method.
    */
-  abstract Object invoke(SimpleBeanHandler<?> handler, Method method, Object[] args)
+  abstract Object invoke(SimpleBeanHandler<?> handler, MethodData data, Object[] args)
       throws Throwable;
 
   /**
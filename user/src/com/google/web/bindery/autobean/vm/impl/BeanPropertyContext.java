@@ -15,7 +15,7 @@
  */
 package com.google.web.bindery.autobean.vm.impl;
 
-import java.lang.reflect.Type;
+import com.google.web.bindery.autobean.vm.impl.ProxyAutoBean.Data;
 
 /**
  * A property context that allows setters to be called on a simple peer,
@@ -25,9 +25,8 @@ class BeanPropertyContext extends MethodPropertyContext {
   private final ProxyAutoBean<?> bean;
   private final String propertyName;
 
-  public BeanPropertyContext(ProxyAutoBean<?> bean, String name, Type genericType, Class<?> type,
-      Class<?> elementType, Class<?> keyType, Class<?> valueType) {
-    super(genericType, type, elementType, keyType, valueType);
+  public BeanPropertyContext(ProxyAutoBean<?> bean, String name, Data data) {
+    super(data);
     this.bean = bean;
     propertyName = name;
   }
@@ -15,9 +15,10 @@
  */
 package com.google.web.bindery.autobean.vm.impl;
 
+import com.google.web.bindery.autobean.vm.impl.ProxyAutoBean.Data;
+
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
 
 /**
  * Used by {@link ProxyAutoBean#traverseProperties()}.
@@ -26,9 +27,8 @@ class GetterPropertyContext extends MethodPropertyContext {
   private final Method setter;
   private final Object shim;
 
-  GetterPropertyContext(ProxyAutoBean<?> bean, Method setter, Type genericType, Class<?> type,
-      Class<?> elementType, Class<?> keyType, Class<?> valueType) {
-    super(genericType, type, elementType, keyType, valueType);
+  GetterPropertyContext(ProxyAutoBean<?> bean, Method setter, Data data) {
+    super(data);
 
     this.setter = setter;
     this.shim = bean.as();
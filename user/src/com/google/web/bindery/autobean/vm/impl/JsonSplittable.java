@@ -23,7 +23,9 @@ import com.google.web.bindery.autobean.shared.impl.StringQuoter;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -74,6 +76,32 @@ public class JsonSplittable implements Splittable, HasSplittable {
     }
   }
 
+  /**
+   * Parses a payload as it is read, instead of reading it into a String first.
+   */
+  public static Splittable create(Reader payload) {
+    Object value;
+    try {
+      value = new JSONTokener(payload).nextValue();
+    } catch (JSONException e) {
+      throw new RuntimeException("Could not parse payload", e);
+    }
+    if (value instanceof JSONObject) {
+      return new JsonSplittable((JSONObject) value);
+    } else if (value instanceof JSONArray) {
+      return new JsonSplittable((JSONArray) value);
+    } else if (value instanceof String) {
+      return new JsonSplittable((String) value);
+    } else if (value instanceof Number) {
+      return new JsonSplittable(((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      return new JsonSplittable((Boolean) value);
+    } else if (JSONObject.NULL.equals(value)) {
+      return null;
+    }
+    throw new RuntimeException("Could not parse payload: " + value);
+  }
+
   public static Splittable createIndexed() {
     return new JsonSplittable(new JSONArray());
   }
@@ -202,7 +230,15 @@ public class JsonSplittable implements Splittable, HasSplittable {
       return StringQuoter.quote(string);
     }
     if (number != null) {
-      return String.valueOf(number);
+      if (number.isInfinite() || number.isNaN()) {
+        return String.valueOf(number);
+      }
+      // Write integral values without a fraction, as org.json does
+      try {
+        return JSONObject.numberToString(number);
+      } catch (JSONException e) {
+        throw new RuntimeException(e);
+      }
     }
     if (bool != null) {
       return String.valueOf(bool);
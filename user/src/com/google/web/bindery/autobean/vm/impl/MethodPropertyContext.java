@@ -18,6 +18,10 @@ package com.google.web.bindery.autobean.vm.impl;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor.CollectionPropertyContext;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor.MapPropertyContext;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor.ParameterizationVisitor;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl.Coder;
+import com.google.web.bindery.autobean.shared.impl.HasCoder;
+import com.google.web.bindery.autobean.vm.impl.ProxyAutoBean.Data;
 
 import java.lang.reflect.Type;
 
@@ -25,42 +29,48 @@ import java.lang.reflect.Type;
  * A base type to handle analyzing the return value of a getter method. The
  * accessor methods are implemented in subtypes.
  */
-abstract class MethodPropertyContext implements CollectionPropertyContext, MapPropertyContext {
-  private final Class<?> elementType;
-  private final Type genericType;
-  private final Class<?> keyType;
-  private final Class<?> valueType;
-  private final Class<?> type;
+abstract class MethodPropertyContext implements CollectionPropertyContext, MapPropertyContext,
+    HasCoder {
+  private final Data data;
 
-  protected MethodPropertyContext(Type genericType, Class<?> type, Class<?> elementType,
-      Class<?> keyType, Class<?> valueType) {
-    this.genericType = genericType;
-    this.type = type;
-    this.elementType = elementType;
-    this.keyType = keyType;
-    this.valueType = valueType;
+  protected MethodPropertyContext(Data data) {
+    this.data = data;
   }
 
   public void accept(ParameterizationVisitor visitor) {
-    traverse(visitor, genericType);
+    traverse(visitor, data.genericType);
   }
 
   public abstract boolean canSet();
 
+  /**
+   * Returns the Coder for the property, which is created once and shared by
+   * all the beans of the type.
+   */
+  public Coder getCoder() {
+    Coder toReturn = data.coder;
+    if (toReturn == null) {
+      // Racing threads create equivalent Coders, so any of them can be kept
+      toReturn = AutoBeanCodexImpl.createCoder(this);
+      data.coder = toReturn;
+    }
+    return toReturn;
+  }
+
   public Class<?> getElementType() {
-    return elementType;
+    return data.elementType;
   }
 
   public Class<?> getKeyType() {
-    return keyType;
+    return data.keyType;
   }
 
   public Class<?> getType() {
-    return type;
+    return data.type;
   }
 
   public Class<?> getValueType() {
-    return valueType;
+    return data.valueType;
   }
 
   public abstract void set(Object value);
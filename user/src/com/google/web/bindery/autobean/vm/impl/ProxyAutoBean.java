@@ -21,6 +21,7 @@ import com.google.web.bindery.autobean.shared.AutoBeanFactory;
 import com.google.web.bindery.autobean.shared.AutoBeanUtils;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor;
 import com.google.web.bindery.autobean.shared.impl.AbstractAutoBean;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl.Coder;
 import com.google.web.bindery.autobean.vm.Configuration;
 
 import java.lang.ref.WeakReference;
@@ -35,6 +36,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * An implementation of an AutoBean that uses reflection.
@@ -42,7 +45,14 @@ import java.util.WeakHashMap;
  * @param <T> the type of interface being wrapped
  */
 public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
-  private static class Data {
+  /**
+   * Describes a property of the bean type.
+   */
+  static class Data {
+    /**
+     * Created lazily by {@link MethodPropertyContext#getCoder()}.
+     */
+    volatile Coder coder;
     final Class<?> elementType;
     final Type genericType;
     final Method getter;
@@ -53,6 +63,7 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     final Class<?> valueType;
 
     Data(Method getter, Type genericType, Class<?> type, PropertyType propertyType) {
+      getter.setAccessible(true);
       this.getter = getter;
       this.genericType = genericType;
       this.type = type;
@@ -74,12 +85,65 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     }
   }
 
+  /**
+   * Describes how calls to a method of the bean type are dispatched by
+   * {@link ShimHandler} and {@link SimpleBeanHandler}. This is computed the
+   * first time the method is called, and is shared by all the beans of the
+   * type.
+   */
+  static class MethodData {
+    /**
+     * One of {@link BeanMethod#OBJECT}, {@link BeanMethod#GET},
+     * {@link BeanMethod#SET} or {@link BeanMethod#SET_BUILDER}, or
+     * {@link BeanMethod#CALL} for any other method.
+     */
+    final BeanMethod beanMethod;
+    final Method method;
+    /**
+     * The name of the property of a getter or setter, or {@code null}.
+     */
+    final String propertyName;
+
+    MethodData(Method method) {
+      method.setAccessible(true);
+      this.method = method;
+      if (BeanMethod.OBJECT.matches(method)) {
+        beanMethod = BeanMethod.OBJECT;
+      } else if (BeanMethod.GET.matches(method)) {
+        beanMethod = BeanMethod.GET;
+      } else if (BeanMethod.SET.matches(method)) {
+        beanMethod = BeanMethod.SET;
+      } else if (BeanMethod.SET_BUILDER.matches(method)) {
+        beanMethod = BeanMethod.SET_BUILDER;
+      } else {
+        beanMethod = BeanMethod.CALL;
+      }
+      if (beanMethod == BeanMethod.OBJECT || beanMethod == BeanMethod.CALL) {
+        propertyName = null;
+      } else {
+        propertyName = beanMethod.inferName(method);
+      }
+    }
+  }
+
   private enum PropertyType {
     VALUE, REFERENCE, COLLECTION, MAP;
   }
 
-  private static final Map<Class<?>, Map<String, Data>> cache =
-      new WeakHashMap<Class<?>, Map<String, Data>>();
+  /**
+   * The metadata shared by all the beans of a type.
+   */
+  private static class TypeData {
+    final ConcurrentMap<Method, MethodData> methods =
+        new ConcurrentHashMap<Method, MethodData>();
+    final Map<String, Data> properties;
+
+    TypeData(Map<String, Data> properties) {
+      this.properties = properties;
+    }
+  }
+
+  private static final Map<Class<?>, TypeData> cache = new WeakHashMap<Class<?>, TypeData>();
 
   /**
    * Utility method to crete a new {@link Proxy} instance.
@@ -105,8 +169,8 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     return intf.cast(Proxy.newProxyInstance(intf.getClassLoader(), intfs, handler));
   }
 
-  private static Map<String, Data> calculateData(Class<?> beanType) {
-    Map<String, Data> toReturn;
+  private static TypeData calculateData(Class<?> beanType) {
+    TypeData toReturn;
     synchronized (cache) {
       toReturn = cache.get(beanType);
       if (toReturn == null) {
@@ -143,24 +207,25 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
           }
         }
 
-        toReturn = new HashMap<String, Data>(getters.size());
+        Map<String, Data> properties = new HashMap<String, Data>(getters.size());
 
         // Now take @PropertyName into account
         for (Map.Entry<String, Data> entry : getters.entrySet()) {
           Data data = entry.getValue();
-          toReturn.put(BeanMethod.GET.inferName(data.getter), data);
+          properties.put(BeanMethod.GET.inferName(data.getter), data);
         }
 
         // Associate setters to getters
         for (Method setter : setters) {
           String name = BeanMethod.SET.inferName(setter);
-          Data data = toReturn.get(name);
+          Data data = properties.get(name);
           if (data != null && data.setter == null
               && data.getter.getReturnType().isAssignableFrom(setter.getParameterTypes()[0])) {
             data.setter = setter;
           }
         }
 
+        toReturn = new TypeData(properties);
         cache.put(beanType, toReturn);
       }
     }
@@ -169,6 +234,7 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
 
   private final Class<T> beanType;
   private final Configuration configuration;
+  private final Map<Method, MethodData> methodData;
   private final Map<String, Data> propertyData;
   /**
    * Because the shim and the ProxyAutoBean are related through WeakMapping, we
@@ -203,7 +269,9 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     super(factory);
     this.beanType = (Class<T>) beanType;
     this.configuration = configuration;
-    this.propertyData = calculateData(beanType);
+    TypeData typeData = calculateData(beanType);
+    this.methodData = typeData.methods;
+    this.propertyData = typeData.properties;
   }
 
   @SuppressWarnings("unchecked")
@@ -212,7 +280,9 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     super(toWrap, factory);
     this.beanType = (Class<T>) beanType;
     this.configuration = configuration;
-    this.propertyData = calculateData(beanType);
+    TypeData typeData = calculateData(beanType);
+    this.methodData = typeData.methods;
+    this.propertyData = typeData.properties;
   }
 
   @Override
@@ -257,6 +327,18 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     super.checkWrapped();
   }
 
+  /**
+   * Uses the Coder retained by the property metadata.
+   */
+  @Override
+  protected Coder coderFor(String propertyName) {
+    Data data = propertyData.get(propertyName);
+    if (data == null) {
+      return super.coderFor(propertyName);
+    }
+    return new BeanPropertyContext(this, propertyName, data).getCoder();
+  }
+
   /**
    * Not used in this implementation. Instead, the simple implementation is
    * created lazily in {@link #getWrapped()}.
@@ -318,7 +400,6 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
       // Use the shim to handle automatic wrapping
       Object value;
       try {
-        getter.setAccessible(true);
         value = getter.invoke(as());
       } catch (IllegalArgumentException e) {
         throw new RuntimeException(e);
@@ -331,13 +412,9 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
       // Create the context used for the property visitation
       MethodPropertyContext x;
       if (isUsingSimplePeer()) {
-        x =
-            new BeanPropertyContext(this, name, data.genericType, data.type, data.elementType,
-                data.keyType, data.valueType);
+        x = new BeanPropertyContext(this, name, data);
       } else {
-        x =
-            new GetterPropertyContext(this, getter, data.genericType, data.type, data.elementType,
-                data.keyType, data.valueType);
+        x = new GetterPropertyContext(this, getter, data);
       }
 
       switch (propertyType) {
@@ -389,6 +466,18 @@ public class ProxyAutoBean<T> extends AbstractAutoBean<T> {
     }
   }
 
+  /**
+   * Returns how calls to a method of the bean type are dispatched.
+   */
+  MethodData getMethodData(Method method) {
+    MethodData toReturn = methodData.get(method);
+    if (toReturn == null) {
+      toReturn = new MethodData(method);
+      methodData.put(method, toReturn);
+    }
+    return toReturn;
+  }
+
   private T createShim() {
     T toReturn = ProxyAutoBean.makeProxy(beanType, new ShimHandler<T>(this, getWrapped()));
     WeakMapping.setWeak(toReturn, AutoBean.class.getName(), this);
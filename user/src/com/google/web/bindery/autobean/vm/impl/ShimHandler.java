@@ -67,17 +67,17 @@ class ShimHandler<T> implements InvocationHandler {
   }
 
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    method.setAccessible(true);
+    // The method has been made accessible when its MethodData was created
+    BeanMethod beanMethod = bean.getMethodData(method).beanMethod;
     Object toReturn;
     String name = method.getName();
-    method.setAccessible(true);
     try {
-      if (BeanMethod.OBJECT.matches(method)) {
+      if (beanMethod == BeanMethod.OBJECT) {
         return method.invoke(this, args);
-      } else if (BeanMethod.GET.matches(method)) {
+      } else if (beanMethod == BeanMethod.GET) {
         toReturn = method.invoke(bean.getWrapped(), args);
         toReturn = bean.get(name, toReturn);
-      } else if (BeanMethod.SET.matches(method) || BeanMethod.SET_BUILDER.matches(method)) {
+      } else if (beanMethod == BeanMethod.SET || beanMethod == BeanMethod.SET_BUILDER) {
         toReturn = method.invoke(bean.getWrapped(), args);
         bean.set(name, args[0]);
       } else {
@@ -15,6 +15,8 @@
  */
 package com.google.web.bindery.autobean.vm.impl;
 
+import com.google.web.bindery.autobean.vm.impl.ProxyAutoBean.MethodData;
+
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 
@@ -38,11 +40,11 @@ class SimpleBeanHandler<T> implements InvocationHandler {
    * Delegates most work to {@link BeanMethod}.
    */
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    for (BeanMethod type : BeanMethod.values()) {
-      if (type.matches(this, method)) {
-        Object toReturn = type.invoke(this, method, args);
-        return toReturn;
-      }
+    MethodData data = bean.getMethodData(method);
+    BeanMethod type = data.beanMethod;
+    // Whether a domain method can be called depends on the configuration
+    if (type != BeanMethod.CALL || type.matches(this, method)) {
+      return type.invoke(this, data, args);
     }
     throw new RuntimeException("Unhandled invocation " + method.getName());
   }
@@ -16,6 +16,7 @@
 package com.google.web.bindery.requestfactory.server;
 
 import com.google.web.bindery.requestfactory.shared.BaseProxy;
+import com.google.web.bindery.requestfactory.shared.BatchLocator;
 import com.google.web.bindery.requestfactory.shared.Locator;
 import com.google.web.bindery.requestfactory.shared.ProxyFor;
 import com.google.web.bindery.requestfactory.shared.ProxyForName;
@@ -27,6 +28,12 @@ import com.google.web.bindery.requestfactory.shared.ServiceName;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Adds support to the ServiceLayer chain for using {@link Locator} and
@@ -34,6 +41,98 @@ import java.lang.reflect.Modifier;
  */
 final class LocatorServiceLayer extends ServiceLayerDecorator {
 
+  /**
+   * Applies an operation to many values, grouping those whose domain type uses
+   * a {@link BatchLocator} so that the locator is called once per domain type.
+   * 
+   * @param <R> the type of the result for each value
+   */
+  private abstract class BatchOperation<R> {
+    /**
+     * Returns the results for {@code values}, in the same order.
+     */
+    List<R> apply(List<Class<?>> domainTypes, List<Object> values) {
+      if (domainTypes.size() != values.size()) {
+        die(null, "Size mismatch in paramaters. domainTypes.size() = %d values.size=%d",
+            domainTypes.size(), values.size());
+      }
+      List<R> toReturn = new ArrayList<R>(Collections.<R> nCopies(values.size(), null));
+      Map<Class<?>, List<Integer>> batchIndexesByDomainType =
+          new LinkedHashMap<Class<?>, List<Integer>>();
+      for (int i = 0, j = values.size(); i < j; i++) {
+        Class<?> domainType = domainTypes.get(i);
+        if (getLocator(domainType) instanceof BatchLocator) {
+          List<Integer> batchIndexes = batchIndexesByDomainType.get(domainType);
+          if (batchIndexes == null) {
+            batchIndexes = new ArrayList<Integer>();
+            batchIndexesByDomainType.put(domainType, batchIndexes);
+          }
+          batchIndexes.add(i);
+        } else {
+          toReturn.set(i, applyOne(domainType, values.get(i)));
+        }
+      }
+
+      for (Map.Entry<Class<?>, List<Integer>> entry : batchIndexesByDomainType.entrySet()) {
+        @SuppressWarnings("unchecked")
+        BatchLocator<Object, Object> locator =
+            (BatchLocator<Object, Object>) (Locator<?, ?>) getLocator(entry.getKey());
+        List<Integer> batchIndexes = entry.getValue();
+        List<Object> batch = new ArrayList<Object>(batchIndexes.size());
+        for (int index : batchIndexes) {
+          batch.add(values.get(index));
+        }
+        List<R> results = applyBatch(locator, entry.getKey(), batch);
+        if (results == null || results.size() != batch.size()) {
+          die(null, "%s returned %s results for %d objects", locator.getClass().getCanonicalName(),
+              results == null ? "null" : String.valueOf(results.size()), batch.size());
+        }
+        Iterator<R> it = results.iterator();
+        for (int index : batchIndexes) {
+          toReturn.set(index, it.next());
+        }
+      }
+      return toReturn;
+    }
+
+    /**
+     * Computes the results for values whose domain type uses a
+     * {@link BatchLocator}.
+     */
+    abstract List<R> applyBatch(BatchLocator<Object, Object> locator, Class<?> domainType,
+        List<Object> values);
+
+    /**
+     * Computes the result for a value whose domain type does not use a
+     * {@link BatchLocator}.
+     */
+    abstract R applyOne(Class<?> domainType, Object value);
+  }
+
+  private static List<Class<?>> getDomainTypes(List<Object> domainObjects) {
+    List<Class<?>> toReturn = new ArrayList<Class<?>>(domainObjects.size());
+    for (Object domainObject : domainObjects) {
+      toReturn.add(domainObject.getClass());
+    }
+    return toReturn;
+  }
+
+  @Override
+  public List<Boolean> areLive(List<Object> domainObjects) {
+    return new BatchOperation<Boolean>() {
+      @Override
+      List<Boolean> applyBatch(BatchLocator<Object, Object> locator, Class<?> domainType,
+          List<Object> values) {
+        return locator.areLive(values);
+      }
+
+      @Override
+      Boolean applyOne(Class<?> domainType, Object value) {
+        return getTop().isLive(value);
+      }
+    }.apply(getDomainTypes(domainObjects), domainObjects);
+  }
+
   @Override
   public <T> T createDomainObject(Class<T> clazz) {
     Locator<T, ?> l = getLocator(clazz);
@@ -80,6 +179,22 @@ final class LocatorServiceLayer extends ServiceLayerDecorator {
     return doGetVersion(domainObject);
   }
 
+  @Override
+  public List<Object> getVersions(List<Object> domainObjects) {
+    return new BatchOperation<Object>() {
+      @Override
+      List<Object> applyBatch(BatchLocator<Object, Object> locator, Class<?> domainType,
+          List<Object> values) {
+        return locator.getVersions(values);
+      }
+
+      @Override
+      Object applyOne(Class<?> domainType, Object value) {
+        return getTop().getVersion(value);
+      }
+    }.apply(getDomainTypes(domainObjects), domainObjects);
+  }
+
   @Override
   public boolean isLive(Object domainObject) {
     return doIsLive(domainObject);
@@ -90,6 +205,30 @@ final class LocatorServiceLayer extends ServiceLayerDecorator {
     return doLoadDomainObject(clazz, domainId);
   }
 
+  /**
+   * Loads the objects of each domain type that uses a {@link BatchLocator} with
+   * a single call to {@link BatchLocator#findAll(Class, List)}.
+   */
+  @Override
+  public List<Object> loadDomainObjects(List<Class<?>> classes, List<Object> domainIds) {
+    return new BatchOperation<Object>() {
+      @Override
+      List<Object> applyBatch(BatchLocator<Object, Object> locator, Class<?> domainType,
+          List<Object> values) {
+        List<Object> ids = new ArrayList<Object>(values.size());
+        for (Object value : values) {
+          ids.add(locator.getIdType().cast(value));
+        }
+        return locator.findAll(domainType, ids);
+      }
+
+      @Override
+      Object applyOne(Class<?> domainType, Object value) {
+        return getTop().loadDomainObject(domainType, value);
+      }
+    }.apply(classes, domainIds);
+  }
+
   /**
    * Returns true if the context method returns a {@link Request} and the domain
    * method is non-static.
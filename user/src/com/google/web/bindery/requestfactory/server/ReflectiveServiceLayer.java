@@ -80,6 +80,15 @@ final class ReflectiveServiceLayer extends ServiceLayerDecorator {
     return null;
   }
 
+  @Override
+  public List<Boolean> areLive(List<Object> domainObjects) {
+    List<Boolean> toReturn = new ArrayList<Boolean>(domainObjects.size());
+    for (Object domainObject : domainObjects) {
+      toReturn.add(getTop().isLive(domainObject));
+    }
+    return toReturn;
+  }
+
   @Override
   public <T> T createDomainObject(Class<T> clazz) {
     Throwable ex;
@@ -169,6 +178,15 @@ final class ReflectiveServiceLayer extends ServiceLayerDecorator {
     return getTop().getProperty(domainObject, "version");
   }
 
+  @Override
+  public List<Object> getVersions(List<Object> domainObjects) {
+    List<Object> toReturn = new ArrayList<Object>(domainObjects.size());
+    for (Object domainObject : domainObjects) {
+      toReturn.add(getTop().getVersion(domainObject));
+    }
+    return toReturn;
+  }
+
   @Override
   public Object invoke(Method domainMethod, Object... args) {
     Throwable ex;
@@ -20,6 +20,9 @@ import com.google.web.bindery.requestfactory.shared.RequestFactory;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -123,22 +126,30 @@ public class RequestFactoryServlet extends HttpServlet {
     // No new code should be placed outside of this try block.
     try {
       ensureConfig();
-      String jsonRequestString =
-          RPCServletUtils.readContent(request, JSON_CONTENT_TYPE, JSON_CHARSET);
+      Reader reader;
       if (DUMP_PAYLOAD) {
+        String jsonRequestString =
+            RPCServletUtils.readContent(request, JSON_CONTENT_TYPE, JSON_CHARSET);
         System.out.println(">>> " + jsonRequestString);
+        reader = new StringReader(jsonRequestString);
+      } else {
+        // Parse the request as it is read
+        reader = RPCServletUtils.createContentReader(request, JSON_CONTENT_TYPE, JSON_CHARSET);
       }
-
       try {
-        String payload = processor.process(jsonRequestString);
-        if (DUMP_PAYLOAD) {
-          System.out.println("<<< " + payload);
-        }
         response.setStatus(HttpServletResponse.SC_OK);
         response.setContentType(RequestFactory.JSON_CONTENT_TYPE_UTF8);
         // The Writer must be obtained after setting the content type
         PrintWriter writer = response.getWriter();
-        writer.print(payload);
+        // Nothing is written unless the request is processed successfully
+        if (DUMP_PAYLOAD) {
+          StringWriter payload = new StringWriter();
+          processor.process(reader, payload);
+          System.out.println("<<< " + payload);
+          writer.write(payload.toString());
+        } else {
+          processor.process(reader, writer);
+        }
         writer.flush();
       } catch (RuntimeException e) {
         response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
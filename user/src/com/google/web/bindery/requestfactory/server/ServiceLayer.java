@@ -102,6 +102,22 @@ public abstract class ServiceLayer {
   ServiceLayer() {
   }
 
+  /**
+   * Determines which of several domain objects are still live in the backing
+   * store. This method is intended to allow more efficient access to the
+   * backing store by checking all the entities of a response at once.
+   * <p>
+   * The default implementation of this method will delegate to
+   * {@link com.google.web.bindery.requestfactory.shared.BatchLocator#areLive(List)
+   * BatchLocator.areLive()} for domain types that use a
+   * {@link com.google.web.bindery.requestfactory.shared.BatchLocator BatchLocator}
+   * and to {@link #isLive(Object)} otherwise.
+   * 
+   * @param domainObjects domain entities
+   * @return the result of {@link #isLive(Object)} for each domain object
+   */
+  public abstract List<Boolean> areLive(List<Object> domainObjects);
+
   /**
    * Create an instance of the requested domain type.
    * 
@@ -221,6 +237,22 @@ public abstract class ServiceLayer {
    */
   public abstract Object getVersion(Object domainObject);
 
+  /**
+   * Returns the versions of several domain objects. This method is intended to
+   * allow more efficient access to the backing store by providing all entities
+   * of a response at once.
+   * <p>
+   * The default implementation of this method will delegate to
+   * {@link com.google.web.bindery.requestfactory.shared.BatchLocator#getVersions(List)
+   * BatchLocator.getVersions()} for domain types that use a
+   * {@link com.google.web.bindery.requestfactory.shared.BatchLocator BatchLocator}
+   * and to {@link #getVersion(Object)} otherwise.
+   * 
+   * @param domainObjects domain entities
+   * @return the result of {@link #getVersion(Object)} for each domain object
+   */
+  public abstract List<Object> getVersions(List<Object> domainObjects);
+
   /**
    * Invoke a domain service method. The underlying eventually calls
    * {@link Method#invoke(Object, Object...)}.
@@ -258,7 +290,10 @@ public abstract class ServiceLayer {
    * referenced in an incoming payload.
    * <p>
    * The default implementation of this method will delegate to
-   * {@link #loadDomainObject(Class, Object)}.
+   * {@link com.google.web.bindery.requestfactory.shared.BatchLocator#findAll(Class, List)
+   * BatchLocator.findAll()} once per domain type that uses a
+   * {@link com.google.web.bindery.requestfactory.shared.BatchLocator BatchLocator}
+   * and to {@link #loadDomainObject(Class, Object)} otherwise.
    * 
    * @param classes type type of each object to load
    * @param domainIds the ids previously returned from {@link #getId(Object)}
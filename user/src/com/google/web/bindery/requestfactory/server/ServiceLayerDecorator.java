@@ -46,6 +46,11 @@ public class ServiceLayerDecorator extends ServiceLayer {
    */
   ServiceLayer next;
 
+  @Override
+  public List<Boolean> areLive(List<Object> domainObjects) {
+    return getNext().areLive(domainObjects);
+  }
+
   @Override
   public <T> T createDomainObject(Class<T> clazz) {
     return getNext().createDomainObject(clazz);
@@ -106,6 +111,11 @@ public class ServiceLayerDecorator extends ServiceLayer {
     return getNext().getVersion(domainObject);
   }
 
+  @Override
+  public List<Object> getVersions(List<Object> domainObjects) {
+    return getNext().getVersions(domainObjects);
+  }
+
   @Override
   public Object invoke(Method domainMethod, Object... args) {
     return getNext().invoke(domainMethod, args);
@@ -22,8 +22,12 @@ import com.google.web.bindery.autobean.shared.AutoBeanUtils;
 import com.google.web.bindery.autobean.shared.AutoBeanVisitor;
 import com.google.web.bindery.autobean.shared.Splittable;
 import com.google.web.bindery.autobean.shared.ValueCodex;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl.EncodeState;
+import com.google.web.bindery.autobean.shared.impl.StringQuoter;
 import com.google.web.bindery.autobean.vm.AutoBeanFactorySource;
 import com.google.web.bindery.autobean.vm.Configuration;
+import com.google.web.bindery.autobean.vm.impl.JsonSplittable;
 import com.google.web.bindery.autobean.vm.impl.TypeUtils;
 import com.google.web.bindery.requestfactory.shared.BaseProxy;
 import com.google.web.bindery.requestfactory.shared.EntityProxyId;
@@ -48,7 +52,10 @@ import com.google.web.bindery.requestfactory.shared.messages.ResponseMessage;
 import com.google.web.bindery.requestfactory.shared.messages.ServerFailureMessage;
 import com.google.web.bindery.requestfactory.shared.messages.ViolationMessage;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
@@ -99,6 +106,8 @@ public class SimpleRequestProcessor {
    */
   static final MessageFactory FACTORY = AutoBeanFactorySource.create(MessageFactory.class);
 
+  private static final int WRITE_BUFFER_SIZE = 8192;
+
   static String fromBase64(String encoded) {
     try {
       return new String(Base64Utils.fromBase64(encoded), "UTF-8");
@@ -129,17 +138,27 @@ public class SimpleRequestProcessor {
    * @return a payload to return to the client
    */
   public String process(String payload) {
-    RequestMessage req = AutoBeanCodex.decode(FACTORY, RequestMessage.class, payload).as();
-    AutoBean<ResponseMessage> responseBean = FACTORY.response();
-    try {
-      process(req, responseBean.as());
-    } catch (ReportableException e) {
-      // Create a new response envelope, since the state is unknown
-      responseBean = FACTORY.response();
-      responseBean.as().setGeneralFailure(createFailureMessage(e).as());
+    return encode(process(StringQuoter.split(payload))).toString();
+  }
+
+  /**
+   * Process a payload sent by a RequestFactory client, reading the request as
+   * it is parsed. The response is encoded directly into its JSON form, without
+   * building an intermediate tree of JSON objects, and is written once it is
+   * complete, so that nothing is written if processing fails.
+   *
+   * @param payload the payload sent by the client
+   * @param out receives the payload to return to the client
+   * @throws IOException if the response cannot be written
+   */
+  public void process(Reader payload, Writer out) throws IOException {
+    StringBuilder response = encode(process(JsonSplittable.create(payload)));
+    char[] buffer = new char[Math.min(response.length(), WRITE_BUFFER_SIZE)];
+    for (int start = 0, length = response.length(); start < length; start += buffer.length) {
+      int end = Math.min(start + buffer.length, length);
+      response.getChars(start, end, buffer, 0);
+      out.write(buffer, 0, end - start);
     }
-    // Return a JSON-formatted payload
-    return AutoBeanCodex.encode(responseBean).getPayload();
   }
 
   public void setExceptionHandler(ExceptionHandler exceptionHandler) {
@@ -249,6 +268,12 @@ public class SimpleRequestProcessor {
     }
   }
 
+  private void checkResultCount(String what, int expected, int actual) {
+    if (expected != actual) {
+      throw new UnexpectedException("Expected " + expected + " " + what + ", got " + actual, null);
+    }
+  }
+
   private AutoBean<ServerFailureMessage> createFailureMessage(ReportableException e) {
     ServerFailure failure =
         exceptionHandler.createServerFailure(e.getCause() == null ? e : e.getCause());
@@ -263,12 +288,19 @@ public class SimpleRequestProcessor {
 
   private void createReturnOperations(List<OperationMessage> operations, RequestState returnState,
       IdToEntityMap toProcess) {
-    for (Map.Entry<SimpleProxyId<?>, AutoBean<? extends BaseProxy>> entry : toProcess.entrySet()) {
+    List<Map.Entry<SimpleProxyId<?>, AutoBean<? extends BaseProxy>>> entries =
+        new ArrayList<Map.Entry<SimpleProxyId<?>, AutoBean<? extends BaseProxy>>>(
+            toProcess.entrySet());
+
+    /*
+     * Check the liveness and retrieve the versions of all persistent objects at
+     * once, so that the service layer can batch its accesses to the backing
+     * store.
+     */
+    List<Object> persistentObjects = new ArrayList<Object>();
+    for (Map.Entry<SimpleProxyId<?>, AutoBean<? extends BaseProxy>> entry : entries) {
       SimpleProxyId<?> id = entry.getKey();
-
-      AutoBean<? extends BaseProxy> bean = entry.getValue();
-      Object domainObject = bean.getTag(Constants.DOMAIN_OBJECT);
-      WriteOperation writeOperation;
+      Object domainObject = entry.getValue().getTag(Constants.DOMAIN_OBJECT);
 
       if (id.isEphemeral() && returnState.isEntityType(id.getProxyClass())) {
         // See if the entity has been persisted in the meantime
@@ -276,10 +308,36 @@ public class SimpleRequestProcessor {
             Collections.<String> emptySet());
       }
 
+      if (!id.isEphemeral() && !id.isSynthetic() && domainObject != null) {
+        persistentObjects.add(domainObject);
+      }
+    }
+    List<Boolean> live = persistentObjects.isEmpty() ? Collections.<Boolean> emptyList()
+        : service.areLive(persistentObjects);
+    checkResultCount("liveness checks", persistentObjects.size(), live.size());
+    List<Object> liveObjects = new ArrayList<Object>(persistentObjects.size());
+    for (int i = 0, j = persistentObjects.size(); i < j; i++) {
+      if (live.get(i)) {
+        liveObjects.add(persistentObjects.get(i));
+      }
+    }
+    List<Object> versions = liveObjects.isEmpty() ? Collections.<Object> emptyList()
+        : service.getVersions(liveObjects);
+    checkResultCount("versions", liveObjects.size(), versions.size());
+
+    Iterator<Boolean> liveIt = live.iterator();
+    Iterator<Object> versionIt = versions.iterator();
+    for (Map.Entry<SimpleProxyId<?>, AutoBean<? extends BaseProxy>> entry : entries) {
+      SimpleProxyId<?> id = entry.getKey();
+
+      AutoBean<? extends BaseProxy> bean = entry.getValue();
+      Object domainObject = bean.getTag(Constants.DOMAIN_OBJECT);
+      WriteOperation writeOperation;
+
       if (id.isEphemeral() || id.isSynthetic() || domainObject == null) {
         // If the object isn't persistent, there's no reason to send an update
         writeOperation = null;
-      } else if (!service.isLive(domainObject)) {
+      } else if (!liveIt.next()) {
         writeOperation = WriteOperation.DELETE;
       } else if (id.wasEphemeral()) {
         writeOperation = WriteOperation.PERSIST;
@@ -293,7 +351,7 @@ public class SimpleRequestProcessor {
          * If we're sending an operation, the domain object must be persistent.
          * This means that it must also have a non-null version.
          */
-        Object domainVersion = service.getVersion(domainObject);
+        Object domainVersion = versionIt.next();
         if (domainVersion == null) {
           throw new UnexpectedException("The persisted entity with id "
               + service.getId(domainObject) + " has a null version", null);
@@ -423,6 +481,29 @@ public class SimpleRequestProcessor {
     return args;
   }
 
+  /**
+   * Encodes a bean into its JSON form. Unlike
+   * {@link AutoBeanCodex#encode(AutoBean)}, the result is not parsed again.
+   */
+  private StringBuilder encode(AutoBean<ResponseMessage> responseBean) {
+    StringBuilder sb = new StringBuilder();
+    AutoBeanCodexImpl.doEncode(EncodeState.forEncode(FACTORY, sb), responseBean);
+    return sb;
+  }
+
+  private AutoBean<ResponseMessage> process(Splittable payload) {
+    RequestMessage req = AutoBeanCodex.decode(FACTORY, RequestMessage.class, payload).as();
+    AutoBean<ResponseMessage> responseBean = FACTORY.response();
+    try {
+      process(req, responseBean.as());
+    } catch (ReportableException e) {
+      // Create a new response envelope, since the state is unknown
+      responseBean = FACTORY.response();
+      responseBean.as().setGeneralFailure(createFailureMessage(e).as());
+    }
+    return responseBean;
+  }
+
   private void processInvocationMessages(RequestState state, RequestMessage req,
       List<Splittable> results, List<Boolean> success, RequestState returnState) {
     List<InvocationMessage> invocations = req.getInvocations();
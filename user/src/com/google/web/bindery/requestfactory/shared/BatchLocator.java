@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Locator} that can operate on many domain objects at once. The
+ * RequestFactory service layer groups the entities referenced by a request by
+ * domain type and calls these methods once per group, instead of once per
+ * entity, which allows implementations to reduce the number of round trips to
+ * the backing store.
+ * <p>
+ * The default implementations delegate to the single-object methods of
+ * {@link Locator}; subtypes should override those they can implement more
+ * efficiently.
+ *
+ * @param <T> the type of domain object the Locator will operate on
+ * @param <I> the type of object the Locator expects to use as an id for the
+ *          domain object
+ */
+public abstract class BatchLocator<T, I> extends Locator<T, I> {
+
+  /**
+   * Returns for each of several domain objects whether it should still be
+   * considered accessible.
+   *
+   * @param domainObjects the objects to check
+   * @return the results, in the same order as {@code domainObjects}
+   * @see #isLive(Object)
+   */
+  public List<Boolean> areLive(List<T> domainObjects) {
+    List<Boolean> toReturn = new ArrayList<Boolean>(domainObjects.size());
+    for (T domainObject : domainObjects) {
+      toReturn.add(isLive(domainObject));
+    }
+    return toReturn;
+  }
+
+  /**
+   * Retrieve several objects.
+   *
+   * @param clazz the type of objects to retrieve
+   * @param ids ids previously returned from {@link #getId(Object)}
+   * @return the requested objects, in the same order as {@code ids}, elements
+   *         of which may be {@code null} if they could not be found
+   */
+  public List<T> findAll(Class<? extends T> clazz, List<I> ids) {
+    List<T> toReturn = new ArrayList<T>(ids.size());
+    for (I id : ids) {
+      toReturn.add(find(clazz, id));
+    }
+    return toReturn;
+  }
+
+  /**
+   * Returns the versions of several domain objects.
+   *
+   * @param domainObjects the objects to obtain a version for
+   * @return the versions, in the same order as {@code domainObjects}
+   * @see #getVersion(Object)
+   */
+  public List<Object> getVersions(List<T> domainObjects) {
+    List<Object> toReturn = new ArrayList<Object>(domainObjects.size());
+    for (T domainObject : domainObjects) {
+      toReturn.add(getVersion(domainObject));
+    }
+    return toReturn;
+  }
+}
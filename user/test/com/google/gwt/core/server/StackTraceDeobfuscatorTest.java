@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.server;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Test for {@link StackTraceDeobfuscator}.
+ */
+public class StackTraceDeobfuscatorTest extends TestCase {
+
+  /**
+   * Serves a single symbol map and counts how many times it is read.
+   */
+  private static class TestDeobfuscator extends StackTraceDeobfuscator {
+    int readCount;
+
+    @Override
+    protected InputStream openInputStream(String fileName) throws IOException {
+      if (!fileName.equals(STRONG_NAME + ".symbolMap")) {
+        throw new IOException("Missing file: " + fileName);
+      }
+      readCount++;
+      return new ByteArrayInputStream(SYMBOL_MAP.getBytes("UTF-8"));
+    }
+  }
+
+  private static final String STRONG_NAME = "ABCDEF0123456789";
+
+  private static final String SYMBOL_MAP = "# { 0 }\n"
+      + "# { 'user.agent' : 'safari' }\n"
+      + "# jsName, jsniIdent, className, memberName, sourceUri, sourceLine, fragmentNumber\n"
+      + "b,com.example.Bar::run(),com.example.Bar,run,file:/src/com/example/Bar.java,7,1\n"
+      + "a,com.example.Foo::foo(I),com.example.Foo,foo,file:/src/com/example/Foo.java,12,0\n"
+      + "ab,com.example.Foo::bar(),com.example.Foo,bar,Unknown,20,0\n";
+
+  public void testLazyLoad() {
+    TestDeobfuscator deobfuscator = new TestDeobfuscator();
+    deobfuscator.setLazyLoad(true);
+    assertFrame("com.example.Foo", "bar", null, 20,
+        deobfuscator.resymbolize(frame("ab"), STRONG_NAME));
+  }
+
+  public void testMissingSymbolMap() {
+    TestDeobfuscator deobfuscator = new TestDeobfuscator();
+    StackTraceElement frame = frame("a");
+    assertSame(frame, deobfuscator.resymbolize(frame, "UNKNOWN"));
+  }
+
+  public void testResymbolize() {
+    TestDeobfuscator deobfuscator = new TestDeobfuscator();
+    StackTraceElement[] frames = deobfuscator.resymbolize(
+        new StackTraceElement[] {frame("a"), frame("b"), frame("ab"), frame("c")}, STRONG_NAME);
+    assertFrame("com.example.Foo", "foo", "Foo.java", 12, frames[0]);
+    assertFrame("com.example.Bar", "run", "Bar.java", 7, frames[1]);
+    assertFrame("com.example.Foo", "bar", null, 20, frames[2]);
+    // Symbols that are not in the symbol map are left alone.
+    assertEquals("c", frames[3].getMethodName());
+  }
+
+  public void testSymbolMapReadOnce() {
+    TestDeobfuscator deobfuscator = new TestDeobfuscator();
+    deobfuscator.resymbolize(new StackTraceElement[] {frame("a")}, STRONG_NAME);
+    deobfuscator.resymbolize(new StackTraceElement[] {frame("b"), frame("c")}, STRONG_NAME);
+    deobfuscator.resymbolize(frame("ab"), STRONG_NAME);
+    assertEquals(1, deobfuscator.readCount);
+  }
+
+  private void assertFrame(String className, String methodName, String fileName, int lineNumber,
+      StackTraceElement frame) {
+    assertEquals(className, frame.getClassName());
+    assertEquals(methodName, frame.getMethodName());
+    assertEquals(fileName, frame.getFileName());
+    assertEquals(lineNumber, frame.getLineNumber());
+  }
+
+  private StackTraceElement frame(String symbol) {
+    return new StackTraceElement("Unknown", symbol, STRONG_NAME + ".cache.js", -1);
+  }
+}
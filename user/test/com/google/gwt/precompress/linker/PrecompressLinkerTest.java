@@ -24,19 +24,23 @@ import com.google.gwt.core.ext.linker.EmittedArtifact;
 import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.linker.SelectionProperty;
 import com.google.gwt.core.ext.linker.SyntheticArtifact;
+import com.google.gwt.dev.util.Util;
 
 import junit.framework.TestCase;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -44,6 +48,24 @@ import java.util.zip.GZIPOutputStream;
  * Tests {@link PrecompressLinker}.
  */
 public class PrecompressLinkerTest extends TestCase {
+  /**
+   * An encoder that counts how many artifacts it has encoded.
+   */
+  public static class CountingEncoder implements ArtifactEncoder {
+    static final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void encode(InputStream in, OutputStream out) throws IOException {
+      count.incrementAndGet();
+      out.write(compress(Util.readStreamAsBytes(in)));
+    }
+
+    @Override
+    public String getExtension() {
+      return ".counted";
+    }
+  }
+
   private static class MockConfigurationProperty implements
       ConfigurationProperty, Comparable<MockConfigurationProperty> {
     private boolean hasMultipleValues;
@@ -90,8 +112,12 @@ public class PrecompressLinkerTest extends TestCase {
   private class MockLinkerContext implements LinkerContext {
     @Override
     public SortedSet<ConfigurationProperty> getConfigurationProperties() {
-      return new TreeSet<ConfigurationProperty>(Arrays.asList(
-          propLeaveOriginals, propPathRegexes));
+      SortedSet<ConfigurationProperty> props = new TreeSet<ConfigurationProperty>(
+          Arrays.asList(propLeaveOriginals, propPathRegexes));
+      if (!propEncoders.values.isEmpty()) {
+        props.add(propEncoders);
+      }
+      return props;
     }
 
     @Override
@@ -236,6 +262,8 @@ public class PrecompressLinkerTest extends TestCase {
   private ArtifactSet artifacts;
   private LinkerContext context = new MockLinkerContext();
 
+  private MockConfigurationProperty propEncoders;
+
   private MockConfigurationProperty propLeaveOriginals;
 
   private MockConfigurationProperty propPathRegexes;
@@ -279,6 +307,76 @@ public class PrecompressLinkerTest extends TestCase {
     assertNull("foo.js should not have been compressed", fooGz);
   }
 
+  /**
+   * Test that compressed variants are cached by content and reused.
+   */
+  public void testCache() throws UnableToCompleteException, IOException {
+    File cacheDir = File.createTempFile("PrecompressLinkerTest", "");
+    cacheDir.delete();
+    System.setProperty("gwt.precompress.cacheDir", cacheDir.getPath());
+    try {
+      useCountingEncoder();
+      ArtifactSet updated = linkArtifacts();
+      assertEquals(2, CountingEncoder.count.get());
+      assertEquals(2, cacheDir.listFiles().length);
+
+      CountingEncoder.count.set(0);
+      ArtifactSet cached = linkArtifacts();
+      assertEquals(0, CountingEncoder.count.get());
+      assertEqualBytes(contents(findArtifact(updated, "foo.js.counted")),
+          contents(findArtifact(cached, "foo.js.counted")));
+    } finally {
+      System.clearProperty("gwt.precompress.cacheDir");
+      Util.recursiveDelete(cacheDir, false);
+    }
+  }
+
+  /**
+   * Test that the least recently used files are evicted from the cache when it
+   * exceeds its maximum size.
+   */
+  public void testCacheEviction() throws UnableToCompleteException, IOException {
+    File cacheDir = File.createTempFile("PrecompressLinkerTest", "");
+    cacheDir.delete();
+    System.setProperty("gwt.precompress.cacheDir", cacheDir.getPath());
+    try {
+      useCountingEncoder();
+      linkArtifacts();
+      long cachedBytes = 0;
+      for (File file : cacheDir.listFiles()) {
+        cachedBytes += file.length();
+      }
+
+      File stale = new File(cacheDir, "stale.counted");
+      assertTrue(Util.writeStringAsFile(stale, "stale"));
+      stale.setLastModified(1000000000000L);
+      System.setProperty("gwt.precompress.cacheMaxBytes", String.valueOf(cachedBytes));
+      linkArtifacts();
+      assertFalse(stale.exists());
+      assertEquals(2, cacheDir.listFiles().length);
+    } finally {
+      System.clearProperty("gwt.precompress.cacheDir");
+      System.clearProperty("gwt.precompress.cacheMaxBytes");
+      Util.recursiveDelete(cacheDir, false);
+    }
+  }
+
+  /**
+   * Test that every configured encoder produces a variant.
+   */
+  public void testEncoders() throws UnableToCompleteException, IOException {
+    propEncoders.values.add(GzipEncoder.class.getName());
+    useCountingEncoder();
+    ArtifactSet updated = linkArtifacts();
+
+    EmittedArtifact foo = findArtifact(updated, "foo.js");
+    assertEqualBytes(contents(foo), decompress(contents(findArtifact(updated, "foo.js.gz"))));
+    assertEqualBytes(contents(foo),
+        decompress(contents(findArtifact(updated, "foo.js.counted"))));
+    assertNull(findArtifact(updated, "stuff.txt.counted"));
+    assertNull(findArtifact(updated, "uncompressible.js.counted"));
+  }
+
   /**
    * Tests that if precompress.leave.original if false, the originals are
    * removed.
@@ -310,10 +408,17 @@ public class PrecompressLinkerTest extends TestCase {
     propPathRegexes.values.add(".*\\.html");
     propPathRegexes.values.add(".*\\.js");
     propPathRegexes.values.add(".*\\.css");
+
+    propEncoders = new MockConfigurationProperty("precompress.encoders", true);
   }
 
   private ArtifactSet linkArtifacts() throws UnableToCompleteException {
     return new PrecompressLinker().link(TreeLogger.NULL, context, artifacts,
         true);
   }
+
+  private void useCountingEncoder() {
+    CountingEncoder.count.set(0);
+    propEncoders.values.add(CountingEncoder.class.getName());
+  }
 }
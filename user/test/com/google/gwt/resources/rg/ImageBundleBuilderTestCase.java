@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.resources.rg.ImageBundleBuilder.BestFitArranger;
+import com.google.gwt.resources.rg.ImageBundleBuilder.ImageRect;
+
+import junit.framework.TestCase;
+
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Tests the caching of decoded and composited images.
+ */
+public class ImageBundleBuilderTestCase extends TestCase {
+
+  private static final URL IMAGE_16 = ImageBundleBuilderTestCase.class.getResource(
+      "/com/google/gwt/resources/client/16x16.png");
+  private static final URL IMAGE_32 = ImageBundleBuilderTestCase.class.getResource(
+      "/com/google/gwt/resources/client/32x32.png");
+
+  public void testDecodedImagesShared() throws Exception {
+    ImageRect first = new ImageBundleBuilder().assimilate(TreeLogger.NULL, "first", IMAGE_16);
+    ImageRect second = new ImageBundleBuilder().assimilate(TreeLogger.NULL, "second", IMAGE_16);
+    assertNotSame(first, second);
+    assertSame(first.getImage(), second.getImage());
+  }
+
+  public void testDecodeImages() throws Exception {
+    String oldThreads = System.getProperty(ImageBundleBuilder.DECODE_THREADS_PROPERTY);
+    System.setProperty(ImageBundleBuilder.DECODE_THREADS_PROPERTY, "2");
+    try {
+      // A missing image must not prevent the others from being decoded.
+      ImageBundleBuilder.decodeImages(TreeLogger.NULL, Arrays.asList(IMAGE_16, IMAGE_32,
+          new URL(IMAGE_16, "missing.png")));
+    } finally {
+      if (oldThreads == null) {
+        System.clearProperty(ImageBundleBuilder.DECODE_THREADS_PROPERTY);
+      } else {
+        System.setProperty(ImageBundleBuilder.DECODE_THREADS_PROPERTY, oldThreads);
+      }
+    }
+    ImageRect rect = new ImageBundleBuilder().assimilate(TreeLogger.NULL, "image", IMAGE_32);
+    assertEquals(32, rect.getWidth());
+    assertEquals(32, rect.getHeight());
+  }
+
+  public void testRenderCached() throws Exception {
+    ImageBundleBuilder first = createBuilder();
+    byte[] firstBytes = first.render(TreeLogger.NULL, new BestFitArranger());
+
+    ImageBundleBuilder second = createBuilder();
+    byte[] secondBytes = second.render(TreeLogger.NULL, new BestFitArranger());
+    assertSame(firstBytes, secondBytes);
+    for (String imageName : new String[] {"small", "large"}) {
+      assertTrue(second.getMapping(imageName).hasBeenPositioned());
+      assertEquals(first.getMapping(imageName).getLeft(), second.getMapping(imageName).getLeft());
+      assertEquals(first.getMapping(imageName).getTop(), second.getMapping(imageName).getTop());
+    }
+
+    // Scaling an image changes the composite.
+    ImageBundleBuilder scaled = createBuilder();
+    scaled.getMapping("small").setHeight(8);
+    assertNotSame(firstBytes, scaled.render(TreeLogger.NULL, new BestFitArranger()));
+  }
+
+  private ImageBundleBuilder createBuilder() throws Exception {
+    ImageBundleBuilder builder = new ImageBundleBuilder();
+    builder.assimilate(TreeLogger.NULL, "small", IMAGE_16);
+    builder.assimilate(TreeLogger.NULL, "large", IMAGE_32);
+    return builder;
+  }
+}
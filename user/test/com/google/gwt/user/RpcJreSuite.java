@@ -17,6 +17,7 @@ package com.google.gwt.user;
 
 import com.google.gwt.dev.BootStrapPlatform;
 import com.google.gwt.user.client.rpc.impl.ClientSerializationStreamReaderTest;
+import com.google.gwt.user.client.rpc.impl.RpcBatchTest;
 import com.google.gwt.user.rebind.rpc.BlacklistTypeFilterTest;
 import com.google.gwt.user.rebind.rpc.SerializableTypeOracleBuilderTest;
 import com.google.gwt.user.rebind.rpc.SerializationUtilsTest;
@@ -30,6 +31,7 @@ import com.google.gwt.user.server.rpc.RPCServletUtilsTest;
 import com.google.gwt.user.server.rpc.RPCTest;
 import com.google.gwt.user.server.rpc.RPCTypeCheckTest;
 import com.google.gwt.user.server.rpc.RemoteServiceServletTest;
+import com.google.gwt.user.server.rpc.SerializationPolicyCacheTest;
 import com.google.gwt.user.server.rpc.SerializationPolicyLoaderTest;
 import com.google.gwt.user.server.rpc.impl.LegacySerializationPolicyTest;
 import com.google.gwt.user.server.rpc.impl.ServerSerializationStreamWriterTest;
@@ -65,12 +67,14 @@ public class RpcJreSuite {
     suite.addTestSuite(LegacySerializationPolicyTest.class);
     suite.addTestSuite(StandardSerializationPolicyTest.class);
     suite.addTestSuite(SerializationPolicyLoaderTest.class);
+    suite.addTestSuite(SerializationPolicyCacheTest.class);
     suite.addTestSuite(RPCServletUtilsTest.class);
     suite.addTestSuite(RPCRequestTest.class);
     suite.addTestSuite(Base64Test.class);
     suite.addTestSuite(UtilTest.class);
     suite.addTestSuite(AbstractXsrfProtectedServiceServletTest.class);
     suite.addTestSuite(ClientSerializationStreamReaderTest.class);
+    suite.addTestSuite(RpcBatchTest.class);
     suite.addTestSuite(ServerSerializationStreamWriterTest.class);
     return suite;
   }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.user.client.rpc.impl;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link RpcBatch}.
+ */
+public class RpcBatchTest extends TestCase {
+
+  public void testDecodeMalformed() {
+    assertMalformed("7|0|4|");
+    assertMalformed(RpcBatch.BATCH_PREFIX + "12|short");
+    assertMalformed(RpcBatch.BATCH_PREFIX + "x|y");
+    assertMalformed(RpcBatch.BATCH_PREFIX + "-1|");
+    assertMalformed(RpcBatch.BATCH_PREFIX + "3");
+  }
+
+  public void testEmpty() {
+    String batch = RpcBatch.encode(Collections.<String> emptyList());
+    assertTrue(RpcBatch.isBatch(batch));
+    assertTrue(RpcBatch.decode(batch).isEmpty());
+  }
+
+  public void testRoundTrip() {
+    List<String> payloads = Arrays.asList("7|0|4|http://example.com/|ABC|Foo|bar|1|2|3|4|0|",
+        "", "//OK[1,[],0,7]", "12|é\n|");
+    String batch = RpcBatch.encode(payloads);
+    assertTrue(RpcBatch.isBatch(batch));
+    assertEquals(payloads, RpcBatch.decode(batch));
+  }
+
+  public void testIsBatch() {
+    assertFalse(RpcBatch.isBatch(null));
+    assertFalse(RpcBatch.isBatch("7|0|4|"));
+    assertFalse(RpcBatch.isBatch("//OK[1,[],0,7]"));
+  }
+
+  private void assertMalformed(String batch) {
+    try {
+      RpcBatch.decode(batch);
+      fail("Expected IllegalArgumentException for " + batch);
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
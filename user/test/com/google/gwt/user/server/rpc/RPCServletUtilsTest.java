@@ -24,6 +24,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletInputStream;
@@ -106,6 +107,21 @@ public class RPCServletUtilsTest extends TestCase {
     assertEquals(content, result);
   }
 
+  /**
+   * A forged Content-Length header must not size the buffer before the content
+   * arrives.
+   */
+  public void testContentLengthForged() throws IOException, ServletException {
+    String content = "abcdefg";
+    HttpServletRequest m = new MockReqContentType("text/x-gwt-rpc; charset=utf-8", content) {
+      @Override
+      public int getContentLength() {
+        return Integer.MAX_VALUE - 1;
+      }
+    };
+    assertEquals(content, RPCServletUtils.readContentAsGwtRpc(m));
+  }
+
   /**
    * Content length smaller than the buffer size should be read correctly.
    */
@@ -164,6 +180,41 @@ public class RPCServletUtilsTest extends TestCase {
     assertEquals(content, result);
   }
 
+  /**
+   * Raw content should be read up to the limit, whether or not the declared
+   * Content-Length matches the actual byte length.
+   */
+  public void testReadContentAsGwtRpcBytes() throws IOException, ServletException {
+    String content = UnicodeEscapingTest.getStringContainingCharacterRange(0,
+        RPCServletUtils.BUFFER_SIZE * 3 + 1);
+    byte[] bytes = content.getBytes("UTF-8");
+    HttpServletRequest m = new MockReqContentType("text/x-gwt-rpc", content);
+    assertTrue(Arrays.equals(bytes,
+        RPCServletUtils.readContentAsGwtRpcBytes(m, bytes.length)));
+
+    m = new MockReqContentType("text/x-gwt-rpc", content) {
+      @Override
+      public int getContentLength() {
+        return -1;
+      }
+    };
+    assertTrue(Arrays.equals(bytes,
+        RPCServletUtils.readContentAsGwtRpcBytes(m, bytes.length)));
+
+    try {
+      RPCServletUtils.readContentAsGwtRpcBytes(m, bytes.length - 1);
+      fail("Expected exception from content exceeding the limit");
+    } catch (ServletException expected) {
+    }
+
+    // Rejected based on the Content-Length header, before reading
+    try {
+      RPCServletUtils.readContentAsGwtRpcBytes(new MockReqContentType("text/x-gwt-rpc"), 6);
+      fail("Expected exception from Content-Length exceeding the limit");
+    } catch (ServletException expected) {
+    }
+  }
+
   /**
    * RPCServletUtils#getCharset() should return the same instance for
    * every invocation of a given encoding.
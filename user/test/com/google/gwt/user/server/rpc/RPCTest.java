@@ -29,7 +29,10 @@ import com.google.gwt.user.server.rpc.impl.TypeNameObfuscator;
 
 import junit.framework.TestCase;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.util.Set;
 
@@ -384,6 +387,49 @@ public class RPCTest extends TestCase {
    * <li>Valid request
    * </ol>
    */
+  /**
+   * Tests for method
+   * {@link RPC#decodeRequest(byte[], Class, SerializationPolicyProvider)}.
+   */
+  public void testDecodeRequestBytes() throws NoSuchMethodException, UnsupportedEncodingException {
+    final String moduleBaseUrl = "http://h\u00e9st/a\\!b\\\\c/";
+    final String[] moduleBaseUrls = new String[1];
+    SerializationPolicyProvider provider = new SerializationPolicyProvider() {
+      @Override
+      public SerializationPolicy getSerializationPolicy(String moduleBaseURL,
+          String serializationPolicyStrongName) {
+        moduleBaseUrls[0] = moduleBaseURL;
+        return RPC.getDefaultSerializationPolicy();
+      }
+    };
+    String encodedRequest = VALID_V6_ENCODED_REQUEST.replace("moduleBaseUrl", moduleBaseUrl);
+
+    RPCRequest request = RPC.decodeRequest(encodedRequest.getBytes("UTF-8"), D.class, provider);
+    assertEquals(D.class.getMethod("echo", long.class), request.getMethod());
+    assertEquals(0xFEDCBA9876543210L, request.getParameters()[0]);
+    assertEquals("http://h\u00e9st/a" + RPC_SEPARATOR_CHAR + "b\\c/", moduleBaseUrls[0]);
+
+    // The same request decoded from a String
+    request = RPC.decodeRequest(encodedRequest, D.class, provider);
+    assertEquals(0xFEDCBA9876543210L, request.getParameters()[0]);
+    assertEquals("http://h\u00e9st/a" + RPC_SEPARATOR_CHAR + "b\\c/", moduleBaseUrls[0]);
+
+    try {
+      RPC.decodeRequest(VALID_V6_ENCODED_REQUEST.substring(0, 40).getBytes("UTF-8"), D.class,
+          null);
+      fail("Expected IncompatibleRemoteServiceException");
+    } catch (IncompatibleRemoteServiceException e) {
+      // expected to get here
+    }
+
+    try {
+      RPC.decodeRequest(new byte[0], D.class, null);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected to get here
+    }
+  }
+
   public void testDecodeRequestString() {
     // Case 1
     try {
@@ -849,6 +895,65 @@ public class RPCTest extends TestCase {
     }, A_method1, null);
   }
 
+  /**
+   * Tests that {@link RPC#invokeAndStreamResponse} writes the same response as
+   * {@link RPC#invokeAndEncodeResponse}.
+   */
+  public void testInvokeAndStreamResponse() throws SecurityException,
+      NoSuchMethodException, SerializationException, IOException {
+    A a = new A() {
+      @Override
+      public void method1() throws SerializableException {
+        throw new SerializableException("failure");
+      }
+
+      @Override
+      public int method2() {
+        return 42;
+      }
+
+      @Override
+      public int method3(int val) {
+        return 0;
+      }
+    };
+    SerializationPolicy policy = RPC.getDefaultSerializationPolicy();
+    int flags = AbstractSerializationStream.DEFAULT_FLAGS;
+
+    Method[] methods = {A.class.getMethod("method1"), A.class.getMethod("method2")};
+    for (Method method : methods) {
+      StringWriter writer = new StringWriter();
+      RPC.invokeAndStreamResponse(a, method, null, policy, flags, writer);
+      assertEquals(RPC.invokeAndEncodeResponse(a, method, null, policy, flags),
+          writer.toString());
+    }
+
+    // Nothing is written if the response cannot be encoded.
+    StringWriter writer = new StringWriter();
+    try {
+      RPC.invokeAndStreamResponse(new A() {
+        @Override
+        public void method1() throws SerializableException {
+          throw new IllegalArgumentException();
+        }
+
+        @Override
+        public int method2() {
+          return 0;
+        }
+
+        @Override
+        public int method3(int val) {
+          return 0;
+        }
+      }, A.class.getMethod("method1"), null, policy, flags, writer);
+      fail("Expected an UnexpectedException");
+    } catch (UnexpectedException e) {
+      // expected to get here
+    }
+    assertEquals("", writer.toString());
+  }
+
   public void testSerializationStreamDequote() throws SerializationException {
     ServerSerializationStreamReader reader = new ServerSerializationStreamReader(
         null, null);
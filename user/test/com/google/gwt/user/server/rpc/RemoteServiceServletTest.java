@@ -17,6 +17,7 @@ package com.google.gwt.user.server.rpc;
 
 import com.google.gwt.user.client.rpc.IsSerializable;
 import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.client.rpc.impl.RpcBatch;
 
 import junit.framework.TestCase;
 
@@ -26,10 +27,15 @@ import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.EventListener;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterRegistration;
@@ -52,6 +58,30 @@ import javax.servlet.descriptor.JspConfigDescriptor;
  */
 public class RemoteServiceServletTest extends TestCase {
 
+  /**
+   * Echoes the payload of each call, with the context path of the request.
+   */
+  private static class BatchTestServlet extends RemoteServiceServlet {
+    private final Executor executor;
+
+    BatchTestServlet(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public String processCall(String payload) {
+      if (payload.equals("fail")) {
+        throw new RuntimeException("Expected failure");
+      }
+      return "//OK" + payload + getThreadLocalRequest().getContextPath();
+    }
+
+    @Override
+    protected Executor getBatchExecutor() {
+      return executor;
+    }
+  }
+
   private static class Bar implements Serializable {
   }
 
@@ -403,6 +433,19 @@ public class RemoteServiceServletTest extends TestCase {
     assertNotValidDeserialize(serializationPolicy, Baz.class);
   }
 
+  public void testProcessBatch() throws ServletException, SerializationException {
+    assertProcessBatch(new BatchTestServlet(null));
+  }
+
+  public void testProcessBatchInParallel() throws ServletException, SerializationException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      assertProcessBatch(new BatchTestServlet(executor));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private void assertDeserializeFields(SerializationPolicy policy,
       Class<?> clazz) {
     assertTrue(policy.shouldDeserializeFields(clazz));
@@ -424,6 +467,43 @@ public class RemoteServiceServletTest extends TestCase {
     }
   }
 
+  public void testProcessBatchTooLarge() throws SerializationException {
+    BatchTestServlet servlet = new BatchTestServlet(null);
+    try {
+      servlet.processBatch(RpcBatch.encode(Collections.nCopies(RpcBatch.MAX_CALLS + 1, "[1]")));
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private void assertProcessBatch(BatchTestServlet servlet)
+      throws ServletException, SerializationException {
+    servlet.init(new MockServletConfig(new MockServletContext()));
+    MockHttpServletRequestContextPath mockRequest = new MockHttpServletRequestContextPath();
+    mockRequest.contextPath = "/MyModule";
+    // Also creates the thread-local, which is created lazily
+    assertNull(servlet.getThreadLocalRequest());
+    servlet.perThreadRequest.set(mockRequest);
+    try {
+      String responses = servlet.processBatch(RpcBatch.encode(Arrays.asList("[1]", "[2|3]")));
+      assertEquals(Arrays.asList("//OK[1]/MyModule", "//OK[2|3]/MyModule"),
+          RpcBatch.decode(responses));
+      assertSame(mockRequest, servlet.getThreadLocalRequest());
+
+      // The failure is left to doUnexpectedFailure()
+      try {
+        servlet.processBatch(RpcBatch.encode(Arrays.asList("[1]", "fail", "[2|3]")));
+        fail("Expected the batch to fail");
+      } catch (RuntimeException e) {
+        assertEquals("Expected failure", e.getMessage());
+      }
+      assertSame(mockRequest, servlet.getThreadLocalRequest());
+    } finally {
+      servlet.perThreadRequest.set(null);
+    }
+  }
+
   private void assertValidDeserialize(SerializationPolicy policy, Class<?> clazz)
       throws SerializationException {
     policy.validateDeserialize(clazz);
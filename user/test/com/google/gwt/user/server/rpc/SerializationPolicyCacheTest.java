@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.user.server.rpc;
+
+import com.google.gwt.user.server.rpc.impl.LegacySerializationPolicy;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link SerializationPolicyCache}.
+ */
+public class SerializationPolicyCacheTest extends TestCase {
+
+  /**
+   * A cache whose clock is advanced by the test.
+   */
+  private static class TestCache extends SerializationPolicyCache {
+    private long nowNanos;
+
+    /**
+     * Run the next time the clock is read, to simulate another thread.
+     */
+    private Runnable onNextClockRead;
+
+    TestCache(int maxSize, long maxAgeMillis) {
+      super(maxSize, maxAgeMillis);
+    }
+
+    void advanceMillis(long millis) {
+      nowNanos += millis * 1000000L;
+    }
+
+    @Override
+    long currentTimeNanos() {
+      Runnable runnable = onNextClockRead;
+      if (runnable != null) {
+        onNextClockRead = null;
+        runnable.run();
+      }
+      return nowNanos;
+    }
+  }
+
+  private static class RecordingMetrics implements SerializationPolicyCache.Metrics {
+    private final List<String> events = new ArrayList<String>();
+
+    @Override
+    public void onEviction(String key) {
+      events.add("evict " + key);
+    }
+
+    @Override
+    public void onHit(String key) {
+      events.add("hit " + key);
+    }
+
+    @Override
+    public void onLoad(String key, long loadTimeNanos) {
+      events.add("load " + key + " " + loadTimeNanos);
+    }
+
+    @Override
+    public void onMiss(String key) {
+      events.add("miss " + key);
+    }
+  }
+
+  private final SerializationPolicy policy = LegacySerializationPolicy.getInstance();
+
+  public void testCounters() {
+    SerializationPolicyCache cache = new SerializationPolicyCache(10, 0);
+    assertNull(cache.get("a"));
+    cache.put("a", policy, 5);
+    assertSame(policy, cache.get("a"));
+    assertSame(policy, cache.get("a"));
+    cache.put("b", policy, 7);
+
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, cache.getLoadCount());
+    assertEquals(12, cache.getTotalLoadTimeNanos());
+    assertEquals(0, cache.getEvictionCount());
+    assertEquals(2, cache.size());
+  }
+
+  public void testEvictsExpiredPolicies() {
+    TestCache cache = new TestCache(10, 1000);
+    cache.put("a", policy, 0);
+    cache.advanceMillis(999);
+    assertSame(policy, cache.get("a"));
+    cache.advanceMillis(1);
+    assertNull(cache.get("a"));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(0, cache.size());
+  }
+
+  public void testKeepsPolicyPutWhileExpiring() {
+    final TestCache cache = new TestCache(10, 1000);
+    cache.put("a", policy, 0);
+    cache.advanceMillis(1000);
+    cache.onNextClockRead = new Runnable() {
+      @Override
+      public void run() {
+        cache.put("a", policy, 0);
+      }
+    };
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.getEvictionCount());
+    assertSame(policy, cache.get("a"));
+  }
+
+  public void testEvictsLeastRecentlyUsed() {
+    TestCache cache = new TestCache(2, 0);
+    cache.put("a", policy, 0);
+    cache.advanceMillis(1);
+    cache.put("b", policy, 0);
+    cache.advanceMillis(1);
+    cache.get("a");
+    cache.advanceMillis(1);
+    cache.put("c", policy, 0);
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertNull(cache.get("b"));
+    assertSame(policy, cache.get("a"));
+    assertSame(policy, cache.get("c"));
+  }
+
+  public void testMetrics() {
+    TestCache cache = new TestCache(1, 0);
+    RecordingMetrics metrics = new RecordingMetrics();
+    cache.setMetrics(metrics);
+    cache.get("a");
+    cache.put("a", policy, 3);
+    cache.get("a");
+    cache.advanceMillis(1);
+    cache.put("b", policy, 4);
+
+    List<String> expected = new ArrayList<String>();
+    expected.add("miss a");
+    expected.add("load a 3");
+    expected.add("hit a");
+    expected.add("load b 4");
+    expected.add("evict a");
+    assertEquals(expected, metrics.events);
+
+    cache.setMetrics(null);
+    cache.get("b");
+    assertEquals(expected, metrics.events);
+  }
+}
@@ -16,13 +16,75 @@
 
 package com.google.gwt.user.server.rpc.impl;
 
+import com.google.gwt.user.client.rpc.SerializationException;
+import com.google.gwt.user.server.Base64Utils;
+import com.google.gwt.user.server.rpc.SerializationPolicy;
+
 import junit.framework.TestCase;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Tests {@link ServerSerializationStreamWriter}.
  */
 public class ServerSerializationStreamWriterTest extends TestCase {
 
+  static class Base implements Serializable {
+    private int baseValue;
+  }
+
+  static class Sub extends Base {
+    private long id;
+    private String name;
+
+    Sub(int baseValue, long id, String name) {
+      ((Base) this).baseValue = baseValue;
+      this.id = id;
+      this.name = name;
+    }
+  }
+
+  /**
+   * Serializes the fields of {@link Sub} and {@link Base}, optionally treating
+   * {@link Sub#id} as a server-only field.
+   */
+  private static class TestPolicy extends SerializationPolicy {
+    private final boolean enhanced;
+
+    TestPolicy(boolean enhanced) {
+      this.enhanced = enhanced;
+    }
+
+    @Override
+    public Set<String> getClientFieldNamesForEnhancedClass(Class<?> clazz) {
+      return enhanced && clazz == Sub.class ? Collections.singleton("name") : null;
+    }
+
+    @Override
+    public boolean shouldDeserializeFields(Class<?> clazz) {
+      return clazz == Base.class || clazz == Sub.class;
+    }
+
+    @Override
+    public boolean shouldSerializeFields(Class<?> clazz) {
+      return clazz == Base.class || clazz == Sub.class;
+    }
+
+    @Override
+    public void validateDeserialize(Class<?> clazz) {
+    }
+
+    @Override
+    public void validateSerialize(Class<?> clazz) {
+    }
+  }
+
   public void testEscapeString() {
     // Ensure that when using escapeString, a large string is not split into
     // separate nodes like escapeStringSplitNodes does.
@@ -114,4 +176,76 @@ public class ServerSerializationStreamWriterTest extends TestCase {
         escaped);
   }
 
+  public void testSerializeClassHierarchy() throws SerializationException {
+    SerializationPolicy policy = new TestPolicy(false);
+    Sub instance = new Sub(1, 2L, "name");
+
+    ServerSerializationStreamWriter expected = new ServerSerializationStreamWriter(policy);
+    expected.prepareToWrite();
+    expected.writeString(expected.getObjectTypeSignature(instance));
+    expected.writeLong(2L);
+    expected.writeString("name");
+    expected.writeInt(1);
+
+    // The second writer reuses the serialization plans built by the first one.
+    assertEquals(expected.toString(), writeObject(policy, instance));
+    assertEquals(expected.toString(), writeObject(policy, instance));
+  }
+
+  public void testSerializeEnhancedClass() throws IOException, SerializationException {
+    Sub instance = new Sub(1, 2L, "name");
+    // Serialize with a plain policy first; plans must not be shared across policies.
+    writeObject(new TestPolicy(false), instance);
+    SerializationPolicy policy = new TestPolicy(true);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeInt(1);
+    oos.writeObject("id");
+    oos.writeObject(2L);
+    oos.close();
+
+    ServerSerializationStreamWriter expected = new ServerSerializationStreamWriter(policy);
+    expected.prepareToWrite();
+    expected.writeString(expected.getObjectTypeSignature(instance));
+    expected.writeString(Base64Utils.toBase64(baos.toByteArray()));
+    expected.writeString("name");
+    expected.writeInt(1);
+
+    assertEquals(expected.toString(), writeObject(policy, instance));
+  }
+
+  public void testWriteTo() throws IOException, SerializationException {
+    assertWriteToMatchesToString(10);
+  }
+
+  public void testWriteTo_overMaximumArrayLength() throws IOException, SerializationException {
+    assertWriteToMatchesToString(
+        2 * ServerSerializationStreamWriter.LengthConstrainedArray.MAXIMUM_ARRAY_LENGTH + 1);
+  }
+
+  private void assertWriteToMatchesToString(int numTokens)
+      throws IOException, SerializationException {
+    ServerSerializationStreamWriter writer =
+        new ServerSerializationStreamWriter(LegacySerializationPolicy.getInstance());
+    writer.prepareToWrite();
+    for (int i = 0; i < numTokens; i++) {
+      writer.writeInt(i);
+      writer.writeString("s\"" + i);
+    }
+    writer.writeString(null);
+    writer.writeLong(Long.MAX_VALUE);
+
+    StringWriter out = new StringWriter();
+    writer.writeTo(out);
+    assertEquals(writer.toString(), out.toString());
+  }
+
+  private String writeObject(SerializationPolicy policy, Object instance)
+      throws SerializationException {
+    ServerSerializationStreamWriter writer = new ServerSerializationStreamWriter(policy);
+    writer.prepareToWrite();
+    writer.writeObject(instance);
+    return writer.toString();
+  }
 }
@@ -15,7 +15,14 @@
  */
 package com.google.web.bindery.autobean.vm;
 
+import com.google.web.bindery.autobean.shared.AutoBean;
 import com.google.web.bindery.autobean.shared.AutoBeanCodexTest;
+import com.google.web.bindery.autobean.shared.AutoBeanVisitor;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl;
+import com.google.web.bindery.autobean.shared.impl.AutoBeanCodexImpl.Coder;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Runs AutoBeanCodexTest in pure-JRE mode.
@@ -27,9 +34,32 @@ public class AutoBeanCodexJreTest extends AutoBeanCodexTest {
     return null;
   }
 
+  /**
+   * The Coders of a property are created once and shared by all the beans of
+   * the same type.
+   */
+  public void testCodersAreShared() {
+    final List<Coder> coders = new ArrayList<Coder>();
+    AutoBeanVisitor visitor = new AutoBeanVisitor() {
+      @Override
+      public boolean visitValueProperty(String propertyName, Object value, PropertyContext ctx) {
+        if ("string".equals(propertyName)) {
+          coders.add(AutoBeanCodexImpl.coderFor(ctx));
+        }
+        return false;
+      }
+    };
+
+    AutoBean<?> bean = f.simple();
+    bean.accept(visitor);
+    f.simple().accept(visitor);
+    assertEquals(2, coders.size());
+    assertSame(coders.get(0), coders.get(1));
+    assertSame(coders.get(0), AutoBeanCodexImpl.doCoderFor(bean, "string"));
+  }
+
   @Override
   protected void gwtSetUp() throws Exception {
     f = AutoBeanFactorySource.create(Factory.class);
   }
-
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.server;
+
+import com.google.web.bindery.requestfactory.shared.BatchLocator;
+import com.google.web.bindery.requestfactory.shared.Locator;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that the service layer calls {@link BatchLocator} once per domain type.
+ */
+public class BatchLocatorTest extends TestCase {
+
+  /**
+   * A locator that counts its calls.
+   */
+  public static class BatchDomainLocator extends BatchLocator<BatchDomain, String> {
+    static int areLiveCalls;
+    static int findAllCalls;
+    static int getVersionsCalls;
+
+    @Override
+    public List<Boolean> areLive(List<BatchDomain> domainObjects) {
+      areLiveCalls++;
+      return super.areLive(domainObjects);
+    }
+
+    @Override
+    public BatchDomain create(Class<? extends BatchDomain> clazz) {
+      return new BatchDomain(null);
+    }
+
+    @Override
+    public BatchDomain find(Class<? extends BatchDomain> clazz, String id) {
+      return "dead".equals(id) ? null : new BatchDomain(id);
+    }
+
+    @Override
+    public List<BatchDomain> findAll(Class<? extends BatchDomain> clazz, List<String> ids) {
+      findAllCalls++;
+      return super.findAll(clazz, ids);
+    }
+
+    @Override
+    public Class<BatchDomain> getDomainType() {
+      return BatchDomain.class;
+    }
+
+    @Override
+    public String getId(BatchDomain domainObject) {
+      return domainObject.id;
+    }
+
+    @Override
+    public Class<String> getIdType() {
+      return String.class;
+    }
+
+    @Override
+    public Object getVersion(BatchDomain domainObject) {
+      return domainObject.id.length();
+    }
+
+    @Override
+    public List<Object> getVersions(List<BatchDomain> domainObjects) {
+      getVersionsCalls++;
+      return super.getVersions(domainObjects);
+    }
+  }
+
+  /**
+   * A locator that does not support batching.
+   */
+  public static class OtherDomainLocator extends Locator<OtherDomain, String> {
+    static int findCalls;
+
+    @Override
+    public OtherDomain create(Class<? extends OtherDomain> clazz) {
+      return new OtherDomain();
+    }
+
+    @Override
+    public OtherDomain find(Class<? extends OtherDomain> clazz, String id) {
+      findCalls++;
+      return new OtherDomain();
+    }
+
+    @Override
+    public Class<OtherDomain> getDomainType() {
+      return OtherDomain.class;
+    }
+
+    @Override
+    public String getId(OtherDomain domainObject) {
+      return "other";
+    }
+
+    @Override
+    public Class<String> getIdType() {
+      return String.class;
+    }
+
+    @Override
+    public Object getVersion(OtherDomain domainObject) {
+      return 0;
+    }
+  }
+
+  static class BatchDomain {
+    final String id;
+
+    BatchDomain(String id) {
+      this.id = id;
+    }
+  }
+
+  static class OtherDomain {
+  }
+
+  /**
+   * Maps the domain types to their locators without needing proxy types.
+   */
+  static class LocatorResolver extends ServiceLayerDecorator {
+    @Override
+    public Class<? extends Locator<?, ?>> resolveLocator(Class<?> domainType) {
+      if (BatchDomain.class.equals(domainType)) {
+        return BatchDomainLocator.class;
+      }
+      if (OtherDomain.class.equals(domainType)) {
+        return OtherDomainLocator.class;
+      }
+      return super.resolveLocator(domainType);
+    }
+  }
+
+  private ServiceLayer layer;
+
+  public void testAreLiveAndGetVersions() {
+    List<Object> domainObjects = Arrays.<Object> asList(new BatchDomain("a"),
+        new OtherDomain(), new BatchDomain("dead"), new BatchDomain("ccc"));
+
+    assertEquals(Arrays.asList(true, true, false, true), layer.areLive(domainObjects));
+    assertEquals(1, BatchDomainLocator.areLiveCalls);
+
+    assertEquals(Arrays.<Object> asList(1, 0, 4, 3), layer.getVersions(domainObjects));
+    assertEquals(1, BatchDomainLocator.getVersionsCalls);
+  }
+
+  public void testLoadDomainObjects() {
+    List<Class<?>> classes = Arrays.<Class<?>> asList(BatchDomain.class, OtherDomain.class,
+        BatchDomain.class, OtherDomain.class, BatchDomain.class);
+    List<Object> ids = Arrays.<Object> asList("a", "x", "dead", "y", "c");
+
+    List<Object> loaded = layer.loadDomainObjects(classes, ids);
+    assertEquals(5, loaded.size());
+    assertEquals("a", ((BatchDomain) loaded.get(0)).id);
+    assertTrue(loaded.get(1) instanceof OtherDomain);
+    assertNull(loaded.get(2));
+    assertTrue(loaded.get(3) instanceof OtherDomain);
+    assertEquals("c", ((BatchDomain) loaded.get(4)).id);
+
+    assertEquals(1, BatchDomainLocator.findAllCalls);
+    assertEquals(2, OtherDomainLocator.findCalls);
+  }
+
+  @Override
+  protected void setUp() {
+    BatchDomainLocator.areLiveCalls = 0;
+    BatchDomainLocator.findAllCalls = 0;
+    BatchDomainLocator.getVersionsCalls = 0;
+    OtherDomainLocator.findCalls = 0;
+    layer = ServiceLayer.create(new LocatorResolver());
+  }
+}
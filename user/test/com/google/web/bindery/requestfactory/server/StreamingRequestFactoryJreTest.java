@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.requestfactory.server;
+
+import com.google.web.bindery.autobean.shared.AutoBean;
+import com.google.web.bindery.autobean.shared.AutoBeanCodex;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.requestfactory.shared.RequestTransport;
+import com.google.web.bindery.requestfactory.shared.ServerFailure;
+import com.google.web.bindery.requestfactory.shared.SimpleFooRequest;
+import com.google.web.bindery.requestfactory.shared.SimpleRequestFactory;
+import com.google.web.bindery.requestfactory.shared.messages.RequestMessage;
+import com.google.web.bindery.requestfactory.shared.messages.ResponseMessage;
+import com.google.web.bindery.requestfactory.vm.RequestFactorySource;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Runs the RequestFactory tests in-process, through
+ * {@link SimpleRequestProcessor#process(java.io.Reader, java.io.Writer)}.
+ */
+public class StreamingRequestFactoryJreTest extends RequestFactoryJreTest {
+
+  /**
+   * Passes payloads through a Reader and a Writer.
+   */
+  static class StreamingTransport implements RequestTransport {
+    private final SimpleRequestProcessor processor;
+
+    StreamingTransport(SimpleRequestProcessor processor) {
+      this.processor = processor;
+    }
+
+    @Override
+    public void send(String payload, TransportReceiver receiver) {
+      StringWriter out = new StringWriter();
+      try {
+        processor.process(new StringReader(payload), out);
+      } catch (IOException e) {
+        receiver.onTransportFailure(new ServerFailure(e.getMessage()));
+        return;
+      } catch (RuntimeException e) {
+        receiver.onTransportFailure(new ServerFailure(e.getMessage()));
+        return;
+      }
+      receiver.onTransportSuccess(out.toString());
+    }
+  }
+
+  /**
+   * Checks the streamed response against the encoding that
+   * {@link SimpleRequestProcessor#process(String)} produced before it shared
+   * the streaming encoder, which built a tree of JSON objects.
+   */
+  public void testSamePayloadAsTreeEncoding() throws IOException, JSONException {
+    final String[] request = new String[1];
+    SimpleRequestFactory factory = RequestFactorySource.create(SimpleRequestFactory.class);
+    factory.initialize(new SimpleEventBus(), new RequestTransport() {
+      @Override
+      public void send(String payload, TransportReceiver receiver) {
+        request[0] = payload;
+      }
+    });
+    SimpleFooRequest context = factory.simpleFooRequest();
+    context.findSimpleFooById(999L).with("barField");
+    context.getNumberList();
+    context.add(1.5, 2.25);
+    context.fire();
+    assertNotNull(request[0]);
+
+    RequestMessage message =
+        AutoBeanCodex.decode(SimpleRequestProcessor.FACTORY, RequestMessage.class, request[0])
+            .as();
+    AutoBean<ResponseMessage> responseBean = SimpleRequestProcessor.FACTORY.response();
+    createProcessor().process(message, responseBean.as());
+    assertNull(responseBean.as().getGeneralFailure());
+    assertEquals(3, responseBean.as().getInvocationResults().size());
+    String expected = AutoBeanCodex.encode(responseBean).getPayload();
+
+    StringWriter out = new StringWriter();
+    createProcessor().process(new StringReader(request[0]), out);
+
+    assertEquals(canonical(new JSONObject(expected)), canonical(new JSONObject(out.toString())));
+  }
+
+  @Override
+  protected SimpleRequestFactory createFactory() {
+    SimpleRequestFactory toReturn = RequestFactorySource.create(SimpleRequestFactory.class);
+    toReturn.initialize(new SimpleEventBus(), new StreamingTransport(createProcessor()));
+    return toReturn;
+  }
+
+  /**
+   * Writes JSON values with sorted keys, since the tree encoding does not
+   * preserve their order.
+   */
+  private static String canonical(Object value) throws JSONException {
+    StringBuilder sb = new StringBuilder();
+    if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      SortedSet<String> keys = new TreeSet<String>();
+      for (Iterator<?> it = object.keys(); it.hasNext();) {
+        keys.add((String) it.next());
+      }
+      sb.append('{');
+      for (String key : keys) {
+        if (sb.length() > 1) {
+          sb.append(',');
+        }
+        sb.append(JSONObject.quote(key)).append(':').append(canonical(object.get(key)));
+      }
+      sb.append('}');
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      sb.append('[');
+      for (int i = 0, j = array.length(); i < j; i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        sb.append(canonical(array.get(i)));
+      }
+      sb.append(']');
+    } else if (value instanceof String) {
+      sb.append(JSONObject.quote((String) value));
+    } else {
+      sb.append(value);
+    }
+    return sb.toString();
+  }
+
+  private static SimpleRequestProcessor createProcessor() {
+    return new SimpleRequestProcessor(
+        ServiceLayer.create(new MethodProvidedByServiceLayerJreTest.Decorator()));
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.google.web.bindery.requestfactory.vm;
 
+import com.google.web.bindery.requestfactory.server.BatchLocatorTest;
 import com.google.web.bindery.requestfactory.server.BoxesAndPrimitivesJreTest;
 import com.google.web.bindery.requestfactory.server.ComplexKeysJreTest;
 import com.google.web.bindery.requestfactory.server.FanoutReceiverJreTest;
@@ -33,6 +34,7 @@ import com.google.web.bindery.requestfactory.server.RequestFactoryUnicodeEscapin
 import com.google.web.bindery.requestfactory.server.RequestPayloadJreTest;
 import com.google.web.bindery.requestfactory.server.ServiceInheritanceJreTest;
 import com.google.web.bindery.requestfactory.server.ServiceLocatorTest;
+import com.google.web.bindery.requestfactory.server.StreamingRequestFactoryJreTest;
 import com.google.web.bindery.requestfactory.shared.impl.SimpleEntityProxyIdTest;
 
 import junit.framework.Test;
@@ -47,6 +49,7 @@ import junit.framework.TestSuite;
 public class RequestFactoryJreSuite {
   public static Test suite() {
     TestSuite suite = new TestSuite("requestfactory package tests that require the JRE");
+    suite.addTestSuite(BatchLocatorTest.class);
     suite.addTestSuite(BoxesAndPrimitivesJreTest.class);
     suite.addTestSuite(ComplexKeysJreTest.class);
     suite.addTestSuite(FanoutReceiverJreTest.class);
@@ -66,6 +69,7 @@ public class RequestFactoryJreSuite {
     suite.addTestSuite(ServiceInheritanceJreTest.class);
     suite.addTestSuite(ServiceLocatorTest.class);
     suite.addTestSuite(SimpleEntityProxyIdTest.class);
+    suite.addTestSuite(StreamingRequestFactoryJreTest.class);
 
     return suite;
   }